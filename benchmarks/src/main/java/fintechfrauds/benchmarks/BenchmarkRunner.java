@@ -0,0 +1,30 @@
+package fintechfrauds.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of {@code benchmarks.jar}. Accepts the usual JMH command line and always adds the
+ * {@code gc} profiler, so every suite reports {@code gc.alloc.rate.norm} (bytes allocated per
+ * operation) next to its timing.
+ */
+public final class BenchmarkRunner {
+
+  private BenchmarkRunner() {}
+
+  public static void main(String[] args) throws Exception {
+    CommandLineOptions commandLine = new CommandLineOptions(args);
+    ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine);
+    boolean gcRequested =
+        commandLine.getProfilers().stream()
+            .anyMatch(
+                p -> p.getKlass().equals("gc") || p.getKlass().equals(GCProfiler.class.getName()));
+    if (!gcRequested) {
+      options.addProfiler(GCProfiler.class);
+    }
+    new Runner(options.build()).run();
+  }
+}
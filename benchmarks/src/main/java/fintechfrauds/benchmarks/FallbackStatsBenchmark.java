@@ -0,0 +1,81 @@
+package fintechfrauds.benchmarks;
+
+import fintechfrauds.serve.api.dto.ScoreRequest;
+import fintechfrauds.serve.scoring.FeatureVector;
+import fintechfrauds.serve.scoring.RedisFeatureStore;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import redis.clients.jedis.JedisPooled;
+
+/**
+ * The per-account fallback statistics behind {@link RedisFeatureStore#fallbackFeatures}, with
+ * {@code windowSize} events held in the 15 minute window.
+ *
+ * <p>Event timestamps advance by {@code 15min / windowSize}, so the window stays at its nominal
+ * size for the whole run. The state is bucketed, so the time per call should not depend on {@code
+ * windowSize}. The Jedis client is never used on this path and does not need a running Redis.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FallbackStatsBenchmark {
+
+  private static final long WINDOW_MILLIS = Duration.ofMinutes(15).toMillis();
+  private static final int MERCHANTS = 64;
+
+  @Param({"1", "16", "256", "4096"})
+  public int windowSize;
+
+  private JedisPooled jedis;
+  private RedisFeatureStore store;
+  private ScoreRequest request;
+  private String[] merchants;
+  private long step;
+  private long timestamp;
+  private int next;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    jedis = new JedisPooled("127.0.0.1", 6379);
+    store = new RedisFeatureStore(jedis);
+    request = Fixtures.requests(1, 1L)[0];
+    merchants = new String[MERCHANTS];
+    for (int i = 0; i < MERCHANTS; i++) {
+      merchants[i] = "merchant_" + i;
+    }
+    step = Math.max(1L, WINDOW_MILLIS / windowSize);
+    timestamp = request.getEpochMillis();
+    for (int i = 0; i < windowSize; i++) {
+      record();
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    jedis.close();
+  }
+
+  @Benchmark
+  public FeatureVector record() {
+    timestamp += step;
+    request.setEpochMillis(timestamp);
+    request.setMerchantHash(merchants[next++ & (MERCHANTS - 1)]);
+    return store.fallbackFeatures(request);
+  }
+}
@@ -0,0 +1,121 @@
+package fintechfrauds.benchmarks;
+
+import fintechfrauds.serve.api.dto.ScoreRequest;
+import fintechfrauds.serve.scoring.DummyScorer;
+import fintechfrauds.serve.scoring.FeatureVector;
+import fintechfrauds.serve.scoring.Scorer;
+import fintechfrauds.serve.scoring.TreeBytecodeCompiler;
+import fintechfrauds.serve.scoring.TreeEnsemble;
+import fintechfrauds.serve.scoring.TreeEnsembleScorer;
+import fintechfrauds.serve.scoring.XgbScorer;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import ml.dmlc.xgboost4j.java.Booster;
+import ml.dmlc.xgboost4j.java.DMatrix;
+import ml.dmlc.xgboost4j.java.XGBoost;
+import ml.dmlc.xgboost4j.java.XGBoostError;
+
+/** Deterministic inputs shared by the suites so runs on different commits see the same data. */
+final class Fixtures {
+
+  static final String[] DESCRIPTIONS = {
+    "GROCERY_CHAIN", "GIFT_CARD_KIOSK", "AIRLINE_TICKET", "STORED_VALUE_TOPUP", "COFFEE_SHOP"
+  };
+  static final String[] MCCS = {"5411", "5999", "4511", "6540", "5814"};
+
+  /** Feature width the serve module's model row uses. */
+  static final int FEATURE_COUNT = 6;
+
+  private Fixtures() {}
+
+  static ScoreRequest[] requests(int count, long seed) {
+    Random random = new Random(seed);
+    ScoreRequest[] requests = new ScoreRequest[count];
+    for (int i = 0; i < count; i++) {
+      ScoreRequest request = new ScoreRequest();
+      request.setAccountHash("acct_bench_" + random.nextInt(1_000));
+      request.setEpochMillis(1_716_905_400_000L + i * 1_000L);
+      request.setDescription(DESCRIPTIONS[random.nextInt(DESCRIPTIONS.length)]);
+      request.setAmountCents((long) (Math.exp(random.nextGaussian() + 8d)));
+      request.setMerchantHash(Long.toHexString(random.nextLong()));
+      request.setMcc(MCCS[random.nextInt(MCCS.length)]);
+      request.setCountryCode("US");
+      requests[i] = request;
+    }
+    return requests;
+  }
+
+  static FeatureVector[] features(int count, long seed) {
+    Random random = new Random(seed);
+    FeatureVector[] features = new FeatureVector[count];
+    for (int i = 0; i < count; i++) {
+      features[i] =
+          new FeatureVector(
+              random.nextGaussian() * 2d,
+              random.nextInt(12),
+              random.nextInt(4) == 0 ? 1 : 0,
+              MCCS[random.nextInt(MCCS.length)]);
+    }
+    return features;
+  }
+
+  /**
+   * Trains a small binary:logistic model of roughly production shape (40 trees, depth 4) so the
+   * model suites do not depend on an artifact being present on the benchmark host.
+   */
+  static Booster trainModel() throws XGBoostError {
+    int rows = 2_000;
+    Random random = new Random(11);
+    float[] data = new float[rows * FEATURE_COUNT];
+    float[] labels = new float[rows];
+    for (int r = 0; r < rows; r++) {
+      for (int c = 0; c < FEATURE_COUNT; c++) {
+        data[r * FEATURE_COUNT + c] = (float) random.nextGaussian() * 4f;
+      }
+      labels[r] =
+          data[r * FEATURE_COUNT] + data[r * FEATURE_COUNT + 1] * data[r * FEATURE_COUNT + 3] > 1f
+              ? 1f
+              : 0f;
+    }
+    DMatrix train = new DMatrix(data, rows, FEATURE_COUNT, Float.NaN);
+    try {
+      train.setLabel(labels);
+      Map<String, Object> params = new HashMap<>();
+      params.put("objective", "binary:logistic");
+      params.put("max_depth", 4);
+      params.put("eta", 0.3);
+      params.put("nthread", 1);
+      return XGBoost.train(train, params, 40, new HashMap<>(), null, null);
+    } finally {
+      train.dispose();
+    }
+  }
+
+  /**
+   * Builds the scorer behind a {@code fintechfrauds.model.type} value, or {@code dummy} for the
+   * heuristic scorer. Close the result when it is {@link AutoCloseable}.
+   */
+  static Scorer scorer(String type) throws IOException, XGBoostError {
+    if ("dummy".equals(type)) {
+      return new DummyScorer();
+    }
+    Booster booster = trainModel();
+    if ("xgb".equals(type)) {
+      return new XgbScorer(booster);
+    }
+    try {
+      TreeEnsemble ensemble = TreeEnsemble.fromBooster(booster);
+      return switch (type) {
+        case "xgb-java" -> new TreeEnsembleScorer(ensemble);
+        case "xgb-compiled" ->
+            new TreeEnsembleScorer(
+                ensemble, TreeBytecodeCompiler.compile(ensemble, false).orElseThrow());
+        default -> throw new IllegalArgumentException("Unknown scorer type: " + type);
+      };
+    } finally {
+      booster.dispose();
+    }
+  }
+}
@@ -0,0 +1,31 @@
+package fintechfrauds.benchmarks;
+
+import fintechfrauds.core.Hashing;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Salted {@link Hashing#sha256Hex} on identifier-sized input. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HashingBenchmark {
+
+  private final String salt = "fintechfrauds-bench-salt";
+  private final String accountId = "4111111111111111";
+
+  @Benchmark
+  public String sha256Hex() {
+    return Hashing.sha256Hex(salt, accountId);
+  }
+}
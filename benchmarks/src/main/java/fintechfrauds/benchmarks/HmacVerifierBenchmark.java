@@ -0,0 +1,61 @@
+package fintechfrauds.benchmarks;
+
+import fintechfrauds.serve.security.HmacVerifier;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The two digests {@code ApiAuthFilter} computes per signed request: the body SHA-256 and the HMAC
+ * over the canonical request. {@code bodyBytes} spans a single score up to a large batch.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HmacVerifierBenchmark {
+
+  @Param({"256", "4096", "65536"})
+  public int bodyBytes;
+
+  private final HmacVerifier verifier = new HmacVerifier();
+  private final String secret = "bench-secret-0123456789abcdef";
+  private String body;
+  private String canonical;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    Random random = new Random(7L);
+    StringBuilder builder = new StringBuilder(bodyBytes);
+    for (int i = 0; i < bodyBytes; i++) {
+      builder.append((char) ('a' + random.nextInt(26)));
+    }
+    body = builder.toString();
+    canonical =
+        verifier.canonicalRequest(
+            "2024-05-28T14:10:00Z", "6f1c2b0e-nonce", verifier.sha256Hex(body));
+  }
+
+  @Benchmark
+  public String sha256Hex() {
+    return verifier.sha256Hex(body);
+  }
+
+  @Benchmark
+  public String sign() {
+    return verifier.sign(secret, canonical);
+  }
+}
@@ -0,0 +1,80 @@
+package fintechfrauds.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fintechfrauds.serve.api.dto.FraudReportPayload;
+import fintechfrauds.serve.api.dto.ModerationDecision;
+import fintechfrauds.serve.config.FintechFraudsProperties;
+import fintechfrauds.serve.ledger.LedgerService;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Approved-ledger append throughput: enqueue one report and approve it, which hashes, chains,
+ * schema-validates and appends one line to a ledger file in a fresh temporary directory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LedgerBenchmark {
+
+  private Path directory;
+  private LedgerService ledger;
+  private long sequence;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    directory = Files.createTempDirectory("ledger-bench");
+    FintechFraudsProperties properties = new FintechFraudsProperties();
+    properties.getLedger().setApprovedFile(directory.resolve("approved.jsonl").toString());
+    ledger = new LedgerService(new ObjectMapper(), properties);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    try (Stream<Path> files = Files.walk(directory)) {
+      for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+        Files.delete(file);
+      }
+    }
+  }
+
+  @Benchmark
+  public String appendApproved() throws IOException {
+    long id = sequence++;
+    FraudReportPayload payload = new FraudReportPayload();
+    payload.setReporter("bench_reporter");
+    payload.setAccountHash("acct_bench_" + (id % 1_000));
+    payload.setMerchantHash("89ec820ec89ed22d");
+    payload.setDescriptionTokensHash(Long.toHexString(id));
+    payload.setDescription("GIFT_CARD_KIOSK");
+    payload.setAmountCents(25_000L);
+    payload.setCountryCode("US");
+    LedgerService.PendingReport report = ledger.enqueue(payload);
+
+    ModerationDecision decision = new ModerationDecision();
+    decision.setId(report.id());
+    decision.setAction(ModerationDecision.Action.APPROVE);
+    decision.setModerator("bench_moderator");
+    ledger.moderate(decision);
+    return report.id();
+  }
+}
@@ -0,0 +1,62 @@
+package fintechfrauds.benchmarks;
+
+import fintechfrauds.serve.api.dto.ScoreRequest;
+import fintechfrauds.serve.scoring.FeatureVector;
+import fintechfrauds.serve.scoring.RulesEngine;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link RulesEngine#evaluate} against the packed {@link RulesEngine#decide} the scoring path uses,
+ * over a risk spread that reaches every decision.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RulesEngineBenchmark {
+
+  private static final int ROWS = 1_024;
+
+  private final RulesEngine rulesEngine = new RulesEngine();
+  private ScoreRequest[] requests;
+  private FeatureVector[] features;
+  private double[] risks;
+  private int next;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    requests = Fixtures.requests(ROWS, 1L);
+    features = Fixtures.features(ROWS, 2L);
+    risks = new double[ROWS];
+    Random random = new Random(3L);
+    for (int i = 0; i < ROWS; i++) {
+      risks[i] = random.nextDouble();
+    }
+  }
+
+  @Benchmark
+  public RulesEngine.DecisionResult evaluate() {
+    int row = next++ & (ROWS - 1);
+    return rulesEngine.evaluate(requests[row], features[row], risks[row]);
+  }
+
+  @Benchmark
+  public int decide() {
+    int row = next++ & (ROWS - 1);
+    return rulesEngine.decide(requests[row], features[row], risks[row]);
+  }
+}
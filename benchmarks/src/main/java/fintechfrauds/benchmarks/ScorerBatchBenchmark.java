@@ -0,0 +1,63 @@
+package fintechfrauds.benchmarks;
+
+import fintechfrauds.serve.api.dto.ScoreRequest;
+import fintechfrauds.serve.scoring.FeatureVector;
+import fintechfrauds.serve.scoring.Scorer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link Scorer#scoreBatch} at the batch sizes the micro-batching dispatcher and {@code
+ * /v1/score/batch} produce. Divide by {@code batchSize} to compare with {@link ScorerBenchmark}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScorerBatchBenchmark {
+
+  @Param({"dummy", "xgb"})
+  public String scorer;
+
+  @Param({"1", "16", "64", "256"})
+  public int batchSize;
+
+  private Scorer instance;
+  private List<ScoreRequest> requests;
+  private List<FeatureVector> features;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    instance = Fixtures.scorer(scorer);
+    requests = Arrays.asList(Fixtures.requests(batchSize, 1L));
+    features = Arrays.asList(Fixtures.features(batchSize, 2L));
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    if (instance instanceof AutoCloseable closeable) {
+      closeable.close();
+    }
+  }
+
+  @Benchmark
+  public double[] scoreBatch() {
+    return instance.scoreBatch(requests, features);
+  }
+}
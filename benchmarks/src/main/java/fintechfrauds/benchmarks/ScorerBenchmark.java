@@ -0,0 +1,59 @@
+package fintechfrauds.benchmarks;
+
+import fintechfrauds.serve.api.dto.ScoreRequest;
+import fintechfrauds.serve.scoring.FeatureVector;
+import fintechfrauds.serve.scoring.Scorer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Single-row {@link Scorer#score} for the heuristic scorer and each model runtime. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScorerBenchmark {
+
+  private static final int ROWS = 1_024;
+
+  @Param({"dummy", "xgb", "xgb-java", "xgb-compiled"})
+  public String scorer;
+
+  private Scorer instance;
+  private ScoreRequest[] requests;
+  private FeatureVector[] features;
+  private int next;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    instance = Fixtures.scorer(scorer);
+    requests = Fixtures.requests(ROWS, 1L);
+    features = Fixtures.features(ROWS, 2L);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    if (instance instanceof AutoCloseable closeable) {
+      closeable.close();
+    }
+  }
+
+  @Benchmark
+  public double score() {
+    int row = next++ & (ROWS - 1);
+    return instance.score(requests[row], features[row]);
+  }
+}
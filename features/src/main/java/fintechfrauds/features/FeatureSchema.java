@@ -0,0 +1,127 @@
+package fintechfrauds.features;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Registry of the named features a {@link FeatureSnapshot} carries, each at a fixed index.
+ *
+ * <p>Aggregates are doubles; timestamps are epoch millis and, as in the Redis hashes, their names
+ * end in {@code _epoch}. Callers resolve the indices they need once, with {@link
+ * #requireAggregate} or {@link #requireTimestamp}, and read snapshots by index from then on. Two
+ * schemas are equal when they list the same names in the same order, so their indices agree.
+ */
+public final class FeatureSchema {
+  public static final String LAST_AMOUNT = "last_amount";
+  public static final String AMOUNT_Z = "amount_z";
+  public static final String COUNT_15M = "count_15m";
+  public static final String FIRST_MERCHANT = "first_merchant";
+  public static final String LAST_EPOCH = "last_epoch";
+
+  /** The features written by the stores in this module and read by {@code RulesEngine}. */
+  public static final FeatureSchema DEFAULT =
+      new FeatureSchema(
+          List.of(LAST_AMOUNT, AMOUNT_Z, COUNT_15M, FIRST_MERCHANT), List.of(LAST_EPOCH));
+
+  private static final String TIMESTAMP_SUFFIX = "_epoch";
+
+  private final String[] aggregates;
+  private final String[] timestamps;
+  private final Map<String, Integer> aggregateIndex = new HashMap<>();
+  private final Map<String, Integer> timestampIndex = new HashMap<>();
+  /** Aggregate names followed by timestamp names, in index order. */
+  private final String[] fields;
+
+  public FeatureSchema(List<String> aggregates, List<String> timestamps) {
+    this.aggregates = aggregates.toArray(String[]::new);
+    this.timestamps = timestamps.toArray(String[]::new);
+    for (int i = 0; i < this.aggregates.length; i++) {
+      String name = this.aggregates[i];
+      if (name.endsWith(TIMESTAMP_SUFFIX) || aggregateIndex.put(name, i) != null) {
+        throw new IllegalArgumentException("Bad or duplicate aggregate name: " + name);
+      }
+    }
+    for (int i = 0; i < this.timestamps.length; i++) {
+      String name = this.timestamps[i];
+      if (!name.endsWith(TIMESTAMP_SUFFIX) || timestampIndex.put(name, i) != null) {
+        throw new IllegalArgumentException("Bad or duplicate timestamp name: " + name);
+      }
+    }
+    this.fields = new String[this.aggregates.length + this.timestamps.length];
+    System.arraycopy(this.aggregates, 0, fields, 0, this.aggregates.length);
+    System.arraycopy(this.timestamps, 0, fields, this.aggregates.length, this.timestamps.length);
+  }
+
+  public int aggregateCount() {
+    return aggregates.length;
+  }
+
+  public int timestampCount() {
+    return timestamps.length;
+  }
+
+  public String aggregateName(int index) {
+    return aggregates[index];
+  }
+
+  public String timestampName(int index) {
+    return timestamps[index];
+  }
+
+  /** The aggregate's index, or -1 when the schema does not have it. */
+  public int aggregateIndex(String name) {
+    Integer index = aggregateIndex.get(name);
+    return index == null ? -1 : index;
+  }
+
+  /** The timestamp's index, or -1 when the schema does not have it. */
+  public int timestampIndex(String name) {
+    Integer index = timestampIndex.get(name);
+    return index == null ? -1 : index;
+  }
+
+  /** The aggregate's index; fails fast for a feature the schema does not have. */
+  public int requireAggregate(String name) {
+    int index = aggregateIndex(name);
+    if (index < 0) {
+      throw new IllegalArgumentException("Unknown aggregate feature: " + name);
+    }
+    return index;
+  }
+
+  /** The timestamp's index; fails fast for a feature the schema does not have. */
+  public int requireTimestamp(String name) {
+    int index = timestampIndex(name);
+    if (index < 0) {
+      throw new IllegalArgumentException("Unknown timestamp feature: " + name);
+    }
+    return index;
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    return this == other
+        || other instanceof FeatureSchema schema
+            && Arrays.equals(aggregates, schema.aggregates)
+            && Arrays.equals(timestamps, schema.timestamps);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * Arrays.hashCode(aggregates) + Arrays.hashCode(timestamps);
+  }
+
+  /** Aggregate names then timestamp names, in index order, e.g. for one {@code HMGET}. */
+  String[] fields() {
+    return fields;
+  }
+
+  /** A snapshot with every feature absent, for a store to fill in. */
+  FeatureSnapshot newSnapshot(String accountHash) {
+    double[] values = new double[aggregates.length];
+    Arrays.fill(values, Double.NaN);
+    return new FeatureSnapshot(accountHash, this, values, new long[timestamps.length]);
+  }
+}
@@ -1,13 +1,51 @@
 package fintechfrauds.features;
 
-import java.time.Instant;
-import java.util.Map;
+import java.util.Arrays;
+import java.util.Objects;
 
 /**
- * Immutable view of the currently aggregated features for an account.
+ * View of the currently aggregated features for an account, indexed by its {@link FeatureSchema}.
+ *
+ * <p>{@code aggregates[i]} is the schema's aggregate {@code i}, NaN when the account does not have
+ * it; {@code updatedAt[i]} is timestamp {@code i} in epoch millis, 0 when absent. The arrays are
+ * shared, not copied, and must not be modified once the snapshot is handed out. Unlike the record
+ * default, {@link #equals} and {@link #hashCode} compare the arrays by content.
  */
 public record FeatureSnapshot(
     String accountHash,
-    Map<String, Double> aggregates,
-    Map<String, Instant> updatedAt
-) {}
+    FeatureSchema schema,
+    double[] aggregates,
+    long[] updatedAt
+) {
+  /** Aggregate {@code index}, or 0 when the account does not have it. */
+  public double aggregate(int index) {
+    double value = aggregates[index];
+    return Double.isNaN(value) ? 0d : value;
+  }
+
+  public boolean hasAggregate(int index) {
+    return !Double.isNaN(aggregates[index]);
+  }
+
+  /** Timestamp {@code index} in epoch millis, or 0 when the account does not have it. */
+  public long updatedAtMillis(int index) {
+    return updatedAt[index];
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    return this == other
+        || other instanceof FeatureSnapshot snapshot
+            && Objects.equals(accountHash, snapshot.accountHash)
+            && Objects.equals(schema, snapshot.schema)
+            && Arrays.equals(aggregates, snapshot.aggregates)
+            && Arrays.equals(updatedAt, snapshot.updatedAt);
+  }
+
+  @Override
+  public int hashCode() {
+    int hash = Objects.hash(accountHash, schema);
+    hash = 31 * hash + Arrays.hashCode(aggregates);
+    return 31 * hash + Arrays.hashCode(updatedAt);
+  }
+}
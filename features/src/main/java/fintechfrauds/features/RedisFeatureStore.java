@@ -2,59 +2,234 @@ package fintechfrauds.features;
 
 import fintechfrauds.core.Txn;
 import java.time.Duration;
-import java.time.Instant;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
 import redis.clients.jedis.JedisPooled;
+import redis.clients.jedis.Pipeline;
 
 /**
  * Minimal Redis-backed feature store using hash structures per account.
+ *
+ * <p>A load reads the {@link FeatureSchema}'s fields with one {@code HMGET}, so values land at their
+ * schema index without looking names up. A field that does not parse is read as missing and
+ * counted in {@link #corruptFieldCount()}. An update sends its {@code HSET} and TTL refresh in one
+ * pipelined round trip. In write-behind mode updates are instead merged per account and flushed in
+ * batches by {@link RedisWriteBehind}, and expiries are queued behind them; loads overlay the
+ * fields and deletes still waiting to be flushed, so a node reads its own writes. Close the store
+ * to flush them on shutdown.
  */
-public final class RedisFeatureStore implements FeatureStore {
+public final class RedisFeatureStore implements FeatureStore, AutoCloseable {
+  private static final Duration DEFAULT_TTL = Duration.ofDays(90);
+
+  /** Told about every write-behind flush, e.g. to record metrics. */
+  @FunctionalInterface
+  public interface FlushListener {
+    FlushListener NONE = (keys, updates, nanos) -> {};
+
+    /**
+     * @param keys accounts written by the flush
+     * @param updates updates merged into them; {@code updates / keys} is the coalescing ratio
+     * @param nanos time the flush took, including the Redis round trip
+     */
+    void onFlush(int keys, long updates, long nanos);
+
+    /**
+     * A flush failed. Its writes stay pending for the next flush unless the buffer is full, in
+     * which case they are dropped and counted in {@link #failedCount()}.
+     */
+    default void onFailedFlush(int keys, long updates, RuntimeException error) {}
+  }
+
   private final JedisPooled jedis;
   private final String prefix;
+  private final int ttlSeconds;
+  private final FeatureSchema schema;
+  private final RedisWriteBehind writeBehind;
+  private final LongAdder corruptFields = new LongAdder();
 
   public RedisFeatureStore(JedisPooled jedis, String prefix) {
+    this(jedis, prefix, DEFAULT_TTL);
+  }
+
+  /**
+   * @param ttl how long an account's hash lives after its last update; keep it short when a
+   *     {@link TieredFeatureStore} holds the long tail locally
+   */
+  public RedisFeatureStore(JedisPooled jedis, String prefix, Duration ttl) {
+    this(jedis, prefix, ttl, FeatureSchema.DEFAULT);
+  }
+
+  public RedisFeatureStore(JedisPooled jedis, String prefix, Duration ttl, FeatureSchema schema) {
+    this.jedis = jedis;
+    this.prefix = prefix.endsWith(":") ? prefix : prefix + ":";
+    this.ttlSeconds = (int) ttl.getSeconds();
+    this.schema = schema;
+    this.writeBehind = null;
+  }
+
+  /**
+   * A store in write-behind mode: updates are merged per account and flushed every {@code
+   * flushInterval}, or inline by the caller once more than {@code maxPendingAccounts} are waiting.
+   */
+  public RedisFeatureStore(
+      JedisPooled jedis,
+      String prefix,
+      Duration ttl,
+      Duration flushInterval,
+      int maxPendingAccounts,
+      FlushListener listener) {
+    this(
+        jedis,
+        prefix,
+        ttl,
+        FeatureSchema.DEFAULT,
+        flushInterval,
+        maxPendingAccounts,
+        listener);
+  }
+
+  public RedisFeatureStore(
+      JedisPooled jedis,
+      String prefix,
+      Duration ttl,
+      FeatureSchema schema,
+      Duration flushInterval,
+      int maxPendingAccounts,
+      FlushListener listener) {
     this.jedis = jedis;
     this.prefix = prefix.endsWith(":") ? prefix : prefix + ":";
+    this.ttlSeconds = (int) ttl.getSeconds();
+    this.schema = schema;
+    this.writeBehind =
+        new RedisWriteBehind(jedis, ttlSeconds, flushInterval, maxPendingAccounts, listener);
   }
 
   @Override
   public void update(Txn txn) {
     String key = key(txn.accountHash());
     Map<String, String> updates = new HashMap<>();
-    updates.put("last_amount", Long.toString(txn.amountCents()));
-    updates.put("last_epoch", Long.toString(txn.epochMillis()));
-    jedis.hset(key, updates);
-    jedis.expire(key, (int) Duration.ofDays(90).getSeconds());
+    updates.put(FeatureSchema.LAST_AMOUNT, Long.toString(txn.amountCents()));
+    updates.put(FeatureSchema.LAST_EPOCH, Long.toString(txn.epochMillis()));
+    if (writeBehind != null) {
+      writeBehind.submit(key, updates);
+      return;
+    }
+    try (Pipeline pipeline = jedis.pipelined()) {
+      pipeline.hset(key, updates);
+      pipeline.expire(key, ttlSeconds);
+      pipeline.sync();
+    }
   }
 
   @Override
   public Optional<FeatureSnapshot> load(String accountHash) {
     String key = key(accountHash);
-    Map<String, String> raw = jedis.hgetAll(key);
-    if (raw == null || raw.isEmpty()) {
-      return Optional.empty();
-    }
-    Map<String, Double> aggregates = new HashMap<>();
-    Map<String, Instant> timestamps = new HashMap<>();
-    raw.forEach((k, v) -> {
-      if (k.endsWith("_epoch")) {
-        timestamps.put(k, Instant.ofEpochMilli(Long.parseLong(v)));
-      } else {
-        aggregates.put(k, Double.parseDouble(v));
+    RedisWriteBehind.Pending unflushed = writeBehind == null ? null : writeBehind.pending(key);
+    List<String> values =
+        unflushed != null && unflushed.delete() ? List.of() : jedis.hmget(key, schema.fields());
+    FeatureSnapshot snapshot = schema.newSnapshot(accountHash);
+    boolean found = false;
+    int aggregates = schema.aggregateCount();
+    for (int i = 0; i < values.size(); i++) {
+      String value = values.get(i);
+      if (value != null) {
+        found |=
+            i < aggregates
+                ? setAggregate(snapshot, i, value)
+                : setTimestamp(snapshot, i - aggregates, value);
       }
-    });
-    return Optional.of(new FeatureSnapshot(accountHash, aggregates, timestamps));
+    }
+    if (unflushed != null) {
+      for (Map.Entry<String, String> field : unflushed.fields().entrySet()) {
+        int aggregate = schema.aggregateIndex(field.getKey());
+        int timestamp = schema.timestampIndex(field.getKey());
+        if (aggregate >= 0) {
+          found |= setAggregate(snapshot, aggregate, field.getValue());
+        } else if (timestamp >= 0) {
+          found |= setTimestamp(snapshot, timestamp, field.getValue());
+        }
+      }
+    }
+    return found ? Optional.of(snapshot) : Optional.empty();
   }
 
+  /** Sets the account's TTL; in write-behind mode it is queued behind the account's updates. */
   @Override
   public void expire(String accountHash, Duration ttl) {
-    jedis.expire(key(accountHash), (int) ttl.getSeconds());
+    int seconds = (int) ttl.getSeconds();
+    if (writeBehind != null) {
+      writeBehind.expire(key(accountHash), seconds);
+      return;
+    }
+    jedis.expire(key(accountHash), seconds);
+  }
+
+  /** Stored fields that did not parse as numbers and were read as missing. */
+  public long corruptFieldCount() {
+    return corruptFields.sum();
+  }
+
+  /** Updates waiting to be flushed, counted by account; 0 outside write-behind mode. */
+  public int pendingAccounts() {
+    return writeBehind == null ? 0 : writeBehind.pendingKeys();
+  }
+
+  /** Updates taken in write-behind mode. */
+  public long acceptedCount() {
+    return writeBehind == null ? 0L : writeBehind.acceptedCount();
+  }
+
+  /** Write-behind updates that reached Redis. */
+  public long writtenCount() {
+    return writeBehind == null ? 0L : writeBehind.writtenCount();
+  }
+
+  /** Write-behind updates dropped after a failed flush, or left unwritten at close. */
+  public long failedCount() {
+    return writeBehind == null ? 0L : writeBehind.failedCount();
+  }
+
+  /** Flushes pending write-behind updates now. */
+  public void flush() {
+    if (writeBehind != null) {
+      writeBehind.flush();
+    }
+  }
+
+  /** Stops the write-behind flusher after flushing what is pending. */
+  @Override
+  public void close() {
+    if (writeBehind != null) {
+      writeBehind.close();
+    }
   }
 
   private String key(String accountHash) {
     return prefix + accountHash;
   }
+
+  /** Stores a parsed aggregate; one that does not parse stays missing. */
+  private boolean setAggregate(FeatureSnapshot snapshot, int index, String value) {
+    try {
+      snapshot.aggregates()[index] = Double.parseDouble(value);
+      return true;
+    } catch (NumberFormatException e) {
+      corruptFields.increment();
+      return false;
+    }
+  }
+
+  /** Stores a parsed timestamp; one that does not parse stays missing. */
+  private boolean setTimestamp(FeatureSnapshot snapshot, int index, String value) {
+    try {
+      snapshot.updatedAt()[index] = Long.parseLong(value);
+      return true;
+    } catch (NumberFormatException e) {
+      corruptFields.increment();
+      return false;
+    }
+  }
 }
@@ -0,0 +1,207 @@
+package fintechfrauds.features;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import redis.clients.jedis.JedisPooled;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.exceptions.JedisException;
+
+/**
+ * Write-behind buffer for {@link RedisFeatureStore} updates and expiries.
+ *
+ * <p>Updates are merged per key into a pending map, so an account updated many times within one
+ * {@code flushInterval} costs one {@code HSET} and one {@code EXPIRE}. Expiries go through the same
+ * map, so they land in order with the updates around them: an expiry replaces the TTL an earlier
+ * update would set, a later update restarts it, and a TTL of zero or less deletes the key before
+ * any later fields are written. A background thread flushes the map as one pipeline per interval.
+ * When more than {@code maxPendingKeys} keys are pending, the caller flushes inline, which bounds
+ * the buffer and pushes back on producers while Redis is slow. Flushes are serialized, so a key's
+ * writes reach Redis in order.
+ *
+ * <p>Entries leave the map only once their pipeline has synced, so reads overlaying them never
+ * fall between the buffer and Redis. A failed flush is reported to the listener and its entries
+ * stay for the next flush; only when the buffer is already over {@code maxPendingKeys} are they
+ * dropped and counted. {@link #close()} flushes what is still pending.
+ */
+final class RedisWriteBehind implements AutoCloseable {
+
+  private final JedisPooled jedis;
+  private final int ttlSeconds;
+  private final long flushIntervalNanos;
+  private final int maxPendingKeys;
+  private final RedisFeatureStore.FlushListener listener;
+  private final ConcurrentHashMap<String, Pending> pending = new ConcurrentHashMap<>();
+  private final ReentrantLock flushLock = new ReentrantLock();
+  private final LongAdder accepted = new LongAdder();
+  private final LongAdder written = new LongAdder();
+  private final LongAdder failed = new LongAdder();
+  private final Thread flusher;
+  private volatile boolean running = true;
+
+  RedisWriteBehind(
+      JedisPooled jedis,
+      int ttlSeconds,
+      Duration flushInterval,
+      int maxPendingKeys,
+      RedisFeatureStore.FlushListener listener) {
+    this.jedis = jedis;
+    this.ttlSeconds = ttlSeconds;
+    this.flushIntervalNanos = Math.max(1L, flushInterval.toNanos());
+    this.maxPendingKeys = Math.max(1, maxPendingKeys);
+    this.listener = listener;
+    this.flusher =
+        Thread.ofPlatform().name("feature-write-behind").daemon(true).start(this::run);
+  }
+
+  /** Merges {@code fields} into the key's pending write; later values win. */
+  void submit(String key, Map<String, String> fields) {
+    accepted.increment();
+    queue(key, new Pending(false, fields, 1, ttlSeconds));
+  }
+
+  /** Queues an expiry of the key behind its pending writes; zero or less deletes it. */
+  void expire(String key, int seconds) {
+    queue(key, seconds > 0 ? new Pending(false, Map.of(), 0, seconds) : Pending.DELETE);
+  }
+
+  /** What is waiting to be written for the key, or {@code null} when nothing is. */
+  Pending pending(String key) {
+    return pending.get(key);
+  }
+
+  int pendingKeys() {
+    return pending.size();
+  }
+
+  long acceptedCount() {
+    return accepted.sum();
+  }
+
+  long writtenCount() {
+    return written.sum();
+  }
+
+  long failedCount() {
+    return failed.sum();
+  }
+
+  /** Sends everything pending as one pipeline. */
+  void flush() {
+    flushLock.lock();
+    try {
+      if (pending.isEmpty()) {
+        return;
+      }
+      long start = System.nanoTime();
+      List<Map.Entry<String, Pending>> batch = new ArrayList<>(pending.entrySet());
+      long updates = 0;
+      for (Map.Entry<String, Pending> entry : batch) {
+        updates += entry.getValue().updates;
+      }
+      try (Pipeline pipeline = jedis.pipelined()) {
+        for (Map.Entry<String, Pending> entry : batch) {
+          String key = entry.getKey();
+          Pending write = entry.getValue();
+          if (write.delete) {
+            pipeline.del(key);
+          }
+          if (!write.fields.isEmpty()) {
+            pipeline.hset(key, write.fields);
+          }
+          if (write.expireSeconds > 0) {
+            pipeline.expire(key, write.expireSeconds);
+          }
+        }
+        pipeline.sync();
+      } catch (JedisException e) {
+        listener.onFailedFlush(batch.size(), updates, e);
+        if (pending.size() > maxPendingKeys) {
+          release(batch);
+          failed.add(updates);
+        }
+        return;
+      }
+      release(batch);
+      written.add(updates);
+      listener.onFlush(batch.size(), updates, System.nanoTime() - start);
+    } finally {
+      flushLock.unlock();
+    }
+  }
+
+  @Override
+  public void close() {
+    running = false;
+    LockSupport.unpark(flusher);
+    try {
+      flusher.join(TimeUnit.SECONDS.toMillis(5));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    flush();
+    List<Map.Entry<String, Pending>> unwritten = new ArrayList<>(pending.entrySet());
+    for (Map.Entry<String, Pending> entry : unwritten) {
+      failed.add(entry.getValue().updates);
+    }
+    release(unwritten);
+  }
+
+  private void queue(String key, Pending write) {
+    pending.merge(key, write, Pending::then);
+    if (pending.size() > maxPendingKeys) {
+      flush();
+    }
+  }
+
+  /**
+   * Takes flushed entries out of the map. A key written to again since the flush read it keeps its
+   * newer entry, which still holds every field of the flushed one, less the flushed updates.
+   */
+  private void release(List<Map.Entry<String, Pending>> batch) {
+    for (Map.Entry<String, Pending> entry : batch) {
+      Pending flushed = entry.getValue();
+      pending.computeIfPresent(
+          entry.getKey(), (key, current) -> current == flushed ? null : current.after(flushed));
+    }
+  }
+
+  private void run() {
+    while (running) {
+      LockSupport.parkNanos(flushIntervalNanos);
+      try {
+        flush();
+      } catch (RuntimeException e) {
+        // Counted in flush() when Redis failed; keep the flusher alive either way.
+      }
+    }
+  }
+
+  /**
+   * What waits to be written for one key: whether to delete it first, the fields to set, how many
+   * updates were merged into them, and the TTL to set afterwards (0 for none).
+   */
+  record Pending(boolean delete, Map<String, String> fields, long updates, int expireSeconds) {
+    static final Pending DELETE = new Pending(true, Map.of(), 0, 0);
+
+    Pending then(Pending later) {
+      if (later.delete) {
+        return new Pending(true, later.fields, updates + later.updates, later.expireSeconds);
+      }
+      Map<String, String> merged = new HashMap<>(fields);
+      merged.putAll(later.fields);
+      return new Pending(delete, merged, updates + later.updates, later.expireSeconds);
+    }
+
+    Pending after(Pending flushed) {
+      return new Pending(delete, fields, updates - flushed.updates, expireSeconds);
+    }
+  }
+}
@@ -0,0 +1,353 @@
+package fintechfrauds.features;
+
+import fintechfrauds.core.Txn;
+import fintechfrauds.storage.RocksDbSettings;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+import org.rocksdb.BlockBasedTableConfig;
+import org.rocksdb.BloomFilter;
+import org.rocksdb.Cache;
+import org.rocksdb.Filter;
+import org.rocksdb.LRUCache;
+import org.rocksdb.Options;
+import org.rocksdb.RocksDB;
+import org.rocksdb.RocksDBException;
+import org.rocksdb.TtlDB;
+import org.rocksdb.WriteBatch;
+import org.rocksdb.WriteOptions;
+
+/**
+ * Feature store on an embedded RocksDB instance, used on its own or as the local tier of {@link
+ * TieredFeatureStore}.
+ *
+ * <p>Each account is one value holding the fields of its {@link FeatureSchema}, as its Redis hash
+ * does. The database is opened as a {@link TtlDB}, whose compaction filter drops values not
+ * rewritten within the retention {@code ttl}. {@link #expire} can only shorten that: the deadline
+ * is kept in the value and checked on read. Reads go through an LRU block cache of {@link RocksDbSettings#blockCacheBytes()} and a
+ * Bloom filter, so lookups for unknown accounts rarely touch disk. Writes are read-modify-write
+ * under one lock and go out as a single {@link WriteBatch}; {@link #updateAll} folds many
+ * transactions into one batch with one read and one write per account.
+ */
+public final class RocksDbFeatureStore implements FeatureStore, AutoCloseable {
+
+  /** Retention matching the TTL {@link RedisFeatureStore} sets on every update. */
+  public static final Duration DEFAULT_TTL = Duration.ofDays(90);
+
+  private static final int BLOOM_BITS_PER_KEY = 10;
+  private static final byte AGGREGATE = 0;
+  private static final byte TIMESTAMP = 1;
+
+  static {
+    RocksDB.loadLibrary();
+  }
+
+  private final ReentrantLock writeLock = new ReentrantLock();
+  private final Cache blockCache;
+  private final Filter bloomFilter;
+  private final Options options;
+  private final WriteOptions writeOptions;
+  private final long ttlSeconds;
+  private final FeatureSchema schema;
+  /** UTF-8 names of the schema's aggregates then timestamps, matched against stored names. */
+  private final byte[][] fieldNames;
+  private final int lastAmount;
+  private final int lastEpoch;
+  private final TtlDB db;
+
+  public RocksDbFeatureStore(RocksDbSettings settings) {
+    this(settings, DEFAULT_TTL);
+  }
+
+  public RocksDbFeatureStore(RocksDbSettings settings, Duration ttl) {
+    this(settings, ttl, FeatureSchema.DEFAULT);
+  }
+
+  public RocksDbFeatureStore(RocksDbSettings settings, Duration ttl, FeatureSchema schema) {
+    this.schema = schema;
+    String[] fields = schema.fields();
+    this.fieldNames = new byte[fields.length][];
+    for (int i = 0; i < fields.length; i++) {
+      fieldNames[i] = fields[i].getBytes(StandardCharsets.UTF_8);
+    }
+    this.lastAmount = schema.aggregateIndex(FeatureSchema.LAST_AMOUNT);
+    this.lastEpoch = schema.timestampIndex(FeatureSchema.LAST_EPOCH);
+    this.blockCache = new LRUCache(settings.blockCacheBytes());
+    this.bloomFilter = new BloomFilter(BLOOM_BITS_PER_KEY);
+    this.options =
+        new Options()
+            .setCreateIfMissing(true)
+            .setTableFormatConfig(
+                new BlockBasedTableConfig()
+                    .setBlockCache(blockCache)
+                    .setFilterPolicy(bloomFilter));
+    this.writeOptions = new WriteOptions();
+    this.ttlSeconds = Math.min(Integer.MAX_VALUE, ttl.toSeconds());
+    try {
+      Files.createDirectories(Path.of(settings.path()));
+      this.db = TtlDB.open(options, settings.path(), (int) ttlSeconds, false);
+    } catch (RocksDBException | IOException e) {
+      closeResources();
+      throw new IllegalStateException("Cannot open RocksDB feature store at " + settings.path(), e);
+    }
+  }
+
+  @Override
+  public void update(Txn txn) {
+    updateAll(List.of(txn));
+  }
+
+  /** Applies {@code txns} in order as one write batch. */
+  public void updateAll(List<Txn> txns) {
+    if (txns.isEmpty()) {
+      return;
+    }
+    writeLock.lock();
+    try {
+      Map<String, Stored> accounts = read(txns.stream().map(Txn::accountHash).toList());
+      for (Txn txn : txns) {
+        Stored stored = accounts.get(txn.accountHash());
+        if (lastAmount >= 0) {
+          stored.snapshot.aggregates()[lastAmount] = txn.amountCents();
+        }
+        if (lastEpoch >= 0) {
+          stored.snapshot.updatedAt()[lastEpoch] = txn.epochMillis();
+        }
+        // A write restarts the retention, as the Redis update does.
+        stored.expiresAt = 0L;
+      }
+      write(accounts);
+    } catch (RocksDBException e) {
+      throw new IllegalStateException("RocksDB feature update failed", e);
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  /** Stores snapshots read from another tier, replacing what is kept for their accounts. */
+  public void putAll(List<FeatureSnapshot> snapshots) {
+    if (snapshots.isEmpty()) {
+      return;
+    }
+    Map<String, Stored> accounts = new LinkedHashMap<>();
+    for (FeatureSnapshot snapshot : snapshots) {
+      if (!schema.equals(snapshot.schema())) {
+        throw new IllegalArgumentException("Snapshot uses a different feature schema");
+      }
+      accounts.put(snapshot.accountHash(), new Stored(snapshot, 0L));
+    }
+    writeLock.lock();
+    try {
+      write(accounts);
+    } catch (RocksDBException e) {
+      throw new IllegalStateException("RocksDB feature write failed", e);
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  @Override
+  public Optional<FeatureSnapshot> load(String accountHash) {
+    byte[] value;
+    try {
+      value = db.get(key(accountHash));
+    } catch (RocksDBException e) {
+      throw new IllegalStateException("RocksDB feature load failed", e);
+    }
+    Stored stored = decode(accountHash, value, System.currentTimeMillis());
+    return stored == null ? Optional.empty() : Optional.of(stored.snapshot);
+  }
+
+  /**
+   * Sets the account's deadline to {@code ttl} from now. A TTL of zero or less deletes it, and one
+   * past the store's retention only restarts the retention.
+   */
+  @Override
+  public void expire(String accountHash, Duration ttl) {
+    byte[] key = key(accountHash);
+    writeLock.lock();
+    try {
+      long now = System.currentTimeMillis();
+      Stored stored = decode(accountHash, db.get(key), now);
+      if (stored == null) {
+        return;
+      }
+      if (ttl.isZero() || ttl.isNegative()) {
+        db.delete(writeOptions, key);
+        return;
+      }
+      stored.expiresAt = ttl.getSeconds() >= ttlSeconds ? 0L : now + ttl.toMillis();
+      db.put(writeOptions, key, encode(stored));
+    } catch (RocksDBException e) {
+      throw new IllegalStateException("RocksDB feature expire failed", e);
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  @Override
+  public void close() {
+    writeLock.lock();
+    try {
+      db.close();
+    } finally {
+      writeLock.unlock();
+    }
+    closeResources();
+  }
+
+  private void closeResources() {
+    writeOptions.close();
+    options.close();
+    bloomFilter.close();
+    blockCache.close();
+  }
+
+  /** Reads the distinct accounts in one multi-get; missing or expired ones come back empty. */
+  private Map<String, Stored> read(List<String> accountHashes) throws RocksDBException {
+    Map<String, Stored> accounts = new LinkedHashMap<>();
+    for (String accountHash : accountHashes) {
+      accounts.put(accountHash, null);
+    }
+    List<byte[]> keys = new ArrayList<>(accounts.size());
+    for (String accountHash : accounts.keySet()) {
+      keys.add(key(accountHash));
+    }
+    List<byte[]> values = db.multiGetAsList(keys);
+    long now = System.currentTimeMillis();
+    int index = 0;
+    for (Map.Entry<String, Stored> entry : accounts.entrySet()) {
+      Stored stored = decode(entry.getKey(), values.get(index++), now);
+      entry.setValue(stored != null ? stored : new Stored(schema.newSnapshot(entry.getKey()), 0L));
+    }
+    return accounts;
+  }
+
+  private void write(Map<String, Stored> accounts) throws RocksDBException {
+    try (WriteBatch batch = new WriteBatch()) {
+      for (Map.Entry<String, Stored> entry : accounts.entrySet()) {
+        batch.put(key(entry.getKey()), encode(entry.getValue()));
+      }
+      db.write(writeOptions, batch);
+    }
+  }
+
+  private static byte[] key(String accountHash) {
+    return accountHash.getBytes(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Value layout: i64 deadline in epoch millis (0 for none), u16 field count, then per present
+   * field a u8 kind (aggregate or timestamp), a u16 name length, the UTF-8 name and an 8-byte value
+   * (double bits, or epoch millis). Fields are written in schema order; names keep values readable
+   * after the schema changes.
+   */
+  private byte[] encode(Stored stored) {
+    double[] aggregates = stored.snapshot.aggregates();
+    long[] timestamps = stored.snapshot.updatedAt();
+    int fields = 0;
+    int size = Long.BYTES + Short.BYTES;
+    for (int i = 0; i < fieldNames.length; i++) {
+      boolean present =
+          i < aggregates.length
+              ? !Double.isNaN(aggregates[i])
+              : timestamps[i - aggregates.length] != 0L;
+      if (present) {
+        fields++;
+        size += 1 + Short.BYTES + fieldNames[i].length + Long.BYTES;
+      }
+    }
+    ByteBuffer buffer = ByteBuffer.allocate(size);
+    buffer.putLong(stored.expiresAt);
+    buffer.putShort((short) fields);
+    for (int i = 0; i < aggregates.length; i++) {
+      if (!Double.isNaN(aggregates[i])) {
+        byte[] name = fieldNames[i];
+        buffer.put(AGGREGATE).putShort((short) name.length).put(name).putDouble(aggregates[i]);
+      }
+    }
+    for (int i = 0; i < timestamps.length; i++) {
+      if (timestamps[i] != 0L) {
+        byte[] name = fieldNames[aggregates.length + i];
+        buffer.put(TIMESTAMP).putShort((short) name.length).put(name).putLong(timestamps[i]);
+      }
+    }
+    return buffer.array();
+  }
+
+  /**
+   * Decodes a value into a schema-indexed snapshot, or returns {@code null} when there is none or
+   * it is past its deadline. Stored names are compared in place with the schema's, so values
+   * written under the current schema need no lookup; others are looked up by name and skipped
+   * when the schema no longer has them.
+   */
+  private Stored decode(String accountHash, byte[] value, long now) {
+    if (value == null) {
+      return null;
+    }
+    ByteBuffer buffer = ByteBuffer.wrap(value);
+    long expiresAt = buffer.getLong();
+    if (expiresAt != 0L && expiresAt <= now) {
+      return null;
+    }
+    FeatureSnapshot snapshot = schema.newSnapshot(accountHash);
+    int aggregateCount = schema.aggregateCount();
+    int fields = Short.toUnsignedInt(buffer.getShort());
+    int next = 0;
+    for (int i = 0; i < fields; i++) {
+      byte kind = buffer.get();
+      int length = Short.toUnsignedInt(buffer.getShort());
+      int offset = buffer.position();
+      buffer.position(offset + length);
+      long bits = buffer.getLong();
+      while (next < fieldNames.length && !matches(value, offset, length, next)) {
+        next++;
+      }
+      int field = next < fieldNames.length ? next++ : lookup(value, offset, length, kind);
+      if (field < 0) {
+        continue;
+      }
+      if (field < aggregateCount) {
+        snapshot.aggregates()[field] = Double.longBitsToDouble(bits);
+      } else {
+        snapshot.updatedAt()[field - aggregateCount] = bits;
+      }
+    }
+    return new Stored(snapshot, expiresAt);
+  }
+
+  private boolean matches(byte[] value, int offset, int length, int field) {
+    byte[] name = fieldNames[field];
+    return name.length == length && Arrays.equals(value, offset, offset + length, name, 0, length);
+  }
+
+  /** The field index of a name not found in schema order, or -1 when the schema lacks it. */
+  private int lookup(byte[] value, int offset, int length, byte kind) {
+    String name = new String(value, offset, length, StandardCharsets.UTF_8);
+    if (kind == TIMESTAMP) {
+      int index = schema.timestampIndex(name);
+      return index < 0 ? -1 : schema.aggregateCount() + index;
+    }
+    return schema.aggregateIndex(name);
+  }
+
+  private static final class Stored {
+    final FeatureSnapshot snapshot;
+    long expiresAt;
+
+    Stored(FeatureSnapshot snapshot, long expiresAt) {
+      this.snapshot = snapshot;
+      this.expiresAt = expiresAt;
+    }
+  }
+}
@@ -0,0 +1,97 @@
+package fintechfrauds.features;
+
+import fintechfrauds.core.Txn;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import redis.clients.jedis.exceptions.JedisException;
+
+/**
+ * Redis in front of a local {@link RocksDbFeatureStore}.
+ *
+ * <p>Redis stays the shared copy. Every update also goes to the local tier, and a Redis hit the
+ * local tier lacks or holds an older copy of, by {@code last_epoch}, is written into it, so the
+ * local tier holds each account this node has seen for the RocksDB retention. Other hits only cost
+ * a local read, not a write under the RocksDB store's write lock, and a local copy newer than
+ * Redis, left by an update whose Redis write failed, is not rolled back. That lets Redis run with
+ * a short TTL for the hot set only. Loads that miss in Redis, or hit a Redis error, are answered from the local
+ * tier, so scoring keeps real features through an outage. Redis errors on updates and expiries are
+ * counted rather than thrown, since the local tier has already taken the write.
+ */
+public final class TieredFeatureStore implements FeatureStore {
+  private final FeatureStore redis;
+  private final RocksDbFeatureStore local;
+  private final LongAdder redisFailures = new LongAdder();
+  private final LongAdder localHits = new LongAdder();
+
+  public TieredFeatureStore(FeatureStore redis, RocksDbFeatureStore local) {
+    this.redis = redis;
+    this.local = local;
+  }
+
+  @Override
+  public void update(Txn txn) {
+    local.update(txn);
+    try {
+      redis.update(txn);
+    } catch (JedisException e) {
+      redisFailures.increment();
+    }
+  }
+
+  @Override
+  public Optional<FeatureSnapshot> load(String accountHash) {
+    Optional<FeatureSnapshot> snapshot;
+    try {
+      snapshot = redis.load(accountHash);
+    } catch (JedisException e) {
+      redisFailures.increment();
+      snapshot = Optional.empty();
+    }
+    Optional<FeatureSnapshot> kept = local.load(accountHash);
+    if (snapshot.isPresent()) {
+      if (kept.isEmpty() || isOlder(kept.get(), snapshot.get())) {
+        local.putAll(List.of(snapshot.get()));
+      }
+      return snapshot;
+    }
+    if (kept.isPresent()) {
+      localHits.increment();
+    }
+    return kept;
+  }
+
+  /**
+   * Whether {@code kept} is older than {@code fresh} by {@code last_epoch}; without that timestamp
+   * in both schemas, whether they differ at all.
+   */
+  private static boolean isOlder(FeatureSnapshot kept, FeatureSnapshot fresh) {
+    int keptIndex = kept.schema().timestampIndex(FeatureSchema.LAST_EPOCH);
+    int freshIndex = fresh.schema().timestampIndex(FeatureSchema.LAST_EPOCH);
+    if (keptIndex < 0 || freshIndex < 0) {
+      return !kept.equals(fresh);
+    }
+    return kept.updatedAtMillis(keptIndex) < fresh.updatedAtMillis(freshIndex);
+  }
+
+  @Override
+  public void expire(String accountHash, Duration ttl) {
+    local.expire(accountHash, ttl);
+    try {
+      redis.expire(accountHash, ttl);
+    } catch (JedisException e) {
+      redisFailures.increment();
+    }
+  }
+
+  /** Redis calls that failed and were answered or absorbed by the local tier. */
+  public long redisFailureCount() {
+    return redisFailures.sum();
+  }
+
+  /** Loads answered by the local tier because Redis had nothing or failed. */
+  public long localHitCount() {
+    return localHits.sum();
+  }
+}
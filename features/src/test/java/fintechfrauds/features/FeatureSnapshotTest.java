@@ -0,0 +1,48 @@
+package fintechfrauds.features;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class FeatureSnapshotTest {
+
+  @Test
+  void comparesSnapshotsByContent() {
+    FeatureSnapshot first = FeatureSchema.DEFAULT.newSnapshot("acct_1");
+    FeatureSnapshot second = FeatureSchema.DEFAULT.newSnapshot("acct_1");
+    first.aggregates()[0] = 1200.0d;
+    second.aggregates()[0] = 1200.0d;
+
+    // Absent aggregates are NaN in both.
+    assertThat(first).isEqualTo(second).hasSameHashCodeAs(second);
+
+    second.updatedAt()[0] = 5_000L;
+    assertThat(first).isNotEqualTo(second);
+    assertThat(first).isNotEqualTo(FeatureSchema.DEFAULT.newSnapshot("acct_2"));
+  }
+
+  @Test
+  void comparesSchemasByFieldNamesAndOrder() {
+    FeatureSchema copy =
+        new FeatureSchema(
+            List.of(
+                FeatureSchema.LAST_AMOUNT,
+                FeatureSchema.AMOUNT_Z,
+                FeatureSchema.COUNT_15M,
+                FeatureSchema.FIRST_MERCHANT),
+            List.of(FeatureSchema.LAST_EPOCH));
+    FeatureSchema reordered =
+        new FeatureSchema(
+            List.of(
+                FeatureSchema.AMOUNT_Z,
+                FeatureSchema.LAST_AMOUNT,
+                FeatureSchema.COUNT_15M,
+                FeatureSchema.FIRST_MERCHANT),
+            List.of(FeatureSchema.LAST_EPOCH));
+
+    assertThat(copy).isEqualTo(FeatureSchema.DEFAULT).hasSameHashCodeAs(FeatureSchema.DEFAULT);
+    assertThat(reordered).isNotEqualTo(FeatureSchema.DEFAULT);
+    assertThat(copy.newSnapshot("acct_1")).isEqualTo(FeatureSchema.DEFAULT.newSnapshot("acct_1"));
+  }
+}
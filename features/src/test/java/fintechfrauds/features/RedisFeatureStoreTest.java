@@ -0,0 +1,45 @@
+package fintechfrauds.features;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+import redis.clients.jedis.JedisPooled;
+
+class RedisFeatureStoreTest {
+
+  private static final FeatureSchema SCHEMA = FeatureSchema.DEFAULT;
+
+  private final JedisPooled jedis = mock(JedisPooled.class);
+  private final RedisFeatureStore store = new RedisFeatureStore(jedis, "fs");
+
+  @Test
+  void readsCorruptFieldsAsMissing() {
+    // last_amount, amount_z, count_15m, first_merchant, last_epoch
+    when(jedis.hmget(eq("fs:acct_1"), any(String[].class)))
+        .thenReturn(Arrays.asList("1200", "not-a-number", "3", null, "17e3"));
+
+    FeatureSnapshot snapshot = store.load("acct_1").orElseThrow();
+
+    assertThat(snapshot.aggregate(SCHEMA.requireAggregate(FeatureSchema.LAST_AMOUNT)))
+        .isEqualTo(1200.0d);
+    assertThat(snapshot.hasAggregate(SCHEMA.requireAggregate(FeatureSchema.AMOUNT_Z))).isFalse();
+    assertThat(snapshot.aggregate(SCHEMA.requireAggregate(FeatureSchema.COUNT_15M)))
+        .isEqualTo(3.0d);
+    assertThat(snapshot.updatedAtMillis(SCHEMA.requireTimestamp(FeatureSchema.LAST_EPOCH)))
+        .isZero();
+    assertThat(store.corruptFieldCount()).isEqualTo(2);
+  }
+
+  @Test
+  void treatsAnAccountWithOnlyCorruptFieldsAsUnknown() {
+    when(jedis.hmget(eq("fs:acct_1"), any(String[].class)))
+        .thenReturn(Arrays.asList("x", null, null, null, "y"));
+
+    assertThat(store.load("acct_1")).isEmpty();
+  }
+}
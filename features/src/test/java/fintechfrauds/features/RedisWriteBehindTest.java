@@ -0,0 +1,165 @@
+package fintechfrauds.features;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import fintechfrauds.core.Txn;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.mockito.InOrder;
+import redis.clients.jedis.JedisPooled;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+@Timeout(30)
+class RedisWriteBehindTest {
+
+  private static final Duration TTL = Duration.ofDays(1);
+  private static final int TTL_SECONDS = (int) TTL.getSeconds();
+  private static final String KEY = "fs:acct_1";
+  private static final int LAST_AMOUNT =
+      FeatureSchema.DEFAULT.requireAggregate(FeatureSchema.LAST_AMOUNT);
+
+  private final JedisPooled jedis = mock(JedisPooled.class);
+  private final Pipeline pipeline = mock(Pipeline.class);
+  private final List<RuntimeException> failures = new ArrayList<>();
+  private RedisFeatureStore store;
+
+  @BeforeEach
+  void setUp() {
+    when(jedis.pipelined()).thenReturn(pipeline);
+    when(jedis.hmget(anyString(), any(String[].class)))
+        .thenReturn(Arrays.asList(new String[FeatureSchema.DEFAULT.fields().length]));
+    RedisFeatureStore.FlushListener listener =
+        new RedisFeatureStore.FlushListener() {
+          @Override
+          public void onFlush(int keys, long updates, long nanos) {}
+
+          @Override
+          public void onFailedFlush(int keys, long updates, RuntimeException error) {
+            failures.add(error);
+          }
+        };
+    // A long interval leaves flushing to the test.
+    store = new RedisFeatureStore(jedis, "fs", TTL, Duration.ofHours(1), 100, listener);
+  }
+
+  @AfterEach
+  void tearDown() {
+    doNothing().when(pipeline).sync();
+    store.close();
+  }
+
+  @Test
+  void readsItsOwnWritesWhileAFlushIsInFlight() throws Exception {
+    CountDownLatch syncing = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    doAnswer(
+            invocation -> {
+              syncing.countDown();
+              release.await();
+              return null;
+            })
+        .when(pipeline)
+        .sync();
+    store.update(txn(1200));
+
+    CompletableFuture<Void> flush = CompletableFuture.runAsync(store::flush);
+    assertThat(syncing.await(10, TimeUnit.SECONDS)).isTrue();
+    assertThat(store.load("acct_1").orElseThrow().aggregate(LAST_AMOUNT)).isEqualTo(1200.0d);
+    assertThat(store.pendingAccounts()).isEqualTo(1);
+
+    release.countDown();
+    flush.get(10, TimeUnit.SECONDS);
+    assertThat(store.pendingAccounts()).isZero();
+    assertThat(store.writtenCount()).isEqualTo(1);
+  }
+
+  @Test
+  void keepsAFailedFlushForTheNextOne() {
+    doThrow(new JedisConnectionException("down")).when(pipeline).sync();
+    store.update(txn(1200));
+
+    store.flush();
+
+    assertThat(failures).hasSize(1);
+    assertThat(store.failedCount()).isZero();
+    assertThat(store.load("acct_1").orElseThrow().aggregate(LAST_AMOUNT)).isEqualTo(1200.0d);
+
+    doNothing().when(pipeline).sync();
+    store.flush();
+    assertThat(store.pendingAccounts()).isZero();
+    assertThat(store.writtenCount()).isEqualTo(1);
+  }
+
+  @Test
+  void queuesExpiriesBehindPendingUpdates() {
+    store.update(txn(1200));
+    store.expire("acct_1", Duration.ofSeconds(30));
+    store.expire("acct_2", Duration.ofSeconds(40));
+
+    store.flush();
+
+    verify(jedis, never()).expire(anyString(), anyLong());
+    InOrder order = inOrder(pipeline);
+    order.verify(pipeline).hset(eq(KEY), anyMap());
+    order.verify(pipeline).expire(KEY, 30);
+    verify(pipeline, never()).expire(KEY, TTL_SECONDS);
+    verify(pipeline).expire("fs:acct_2", 40);
+    verify(pipeline, never()).hset(eq("fs:acct_2"), anyMap());
+  }
+
+  @Test
+  void restartsTheTtlOnAnUpdateAfterAnExpiry() {
+    store.expire("acct_1", Duration.ofSeconds(30));
+    store.update(txn(1200));
+
+    store.flush();
+
+    verify(pipeline).expire(KEY, TTL_SECONDS);
+    verify(pipeline, never()).expire(eq(KEY), eq(30L));
+  }
+
+  @Test
+  void deletesOnAZeroTtlBeforeLaterWrites() {
+    when(jedis.hmget(anyString(), any(String[].class)))
+        .thenReturn(Arrays.asList("900", "1.5", "3", "0", "1000"));
+    store.expire("acct_1", Duration.ZERO);
+
+    assertThat(store.load("acct_1")).isEmpty();
+
+    store.update(txn(1200));
+    assertThat(store.load("acct_1").orElseThrow().hasAggregate(1)).isFalse();
+    store.flush();
+
+    InOrder order = inOrder(pipeline);
+    order.verify(pipeline).del(KEY);
+    order.verify(pipeline).hset(eq(KEY), anyMap());
+    order.verify(pipeline).expire(KEY, TTL_SECONDS);
+  }
+
+  private static Txn txn(long amountCents) {
+    return new Txn("acct_1", 1_000L, "COFFEE", amountCents, "m_1", "5411", "US");
+  }
+}
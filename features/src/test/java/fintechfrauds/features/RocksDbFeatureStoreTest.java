@@ -0,0 +1,122 @@
+package fintechfrauds.features;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import fintechfrauds.core.Txn;
+import fintechfrauds.storage.RocksDbSettings;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class RocksDbFeatureStoreTest {
+
+  private static final long CACHE_BYTES = 1L << 20;
+
+  @TempDir Path dir;
+
+  @Test
+  void roundTripsUpdatesAndSnapshots() {
+    FeatureSchema schema = FeatureSchema.DEFAULT;
+    try (RocksDbFeatureStore store = open(schema)) {
+      store.updateAll(List.of(txn("acct_1", 1200, 1_000L), txn("acct_1", 3400, 2_000L)));
+
+      FeatureSnapshot updated = store.load("acct_1").orElseThrow();
+      assertThat(updated.aggregate(schema.requireAggregate(FeatureSchema.LAST_AMOUNT)))
+          .isEqualTo(3400.0d);
+      assertThat(updated.hasAggregate(schema.requireAggregate(FeatureSchema.AMOUNT_Z))).isFalse();
+      assertThat(updated.updatedAtMillis(schema.requireTimestamp(FeatureSchema.LAST_EPOCH)))
+          .isEqualTo(2_000L);
+
+      FeatureSnapshot snapshot = schema.newSnapshot("acct_2");
+      snapshot.aggregates()[schema.requireAggregate(FeatureSchema.AMOUNT_Z)] = -1.25d;
+      snapshot.aggregates()[schema.requireAggregate(FeatureSchema.COUNT_15M)] = 0.0d;
+      snapshot.updatedAt()[schema.requireTimestamp(FeatureSchema.LAST_EPOCH)] = 5_000L;
+      store.putAll(List.of(snapshot));
+
+      assertThat(store.load("acct_2")).contains(snapshot);
+      assertThat(store.load("acct_unknown")).isEmpty();
+
+      // A snapshot from an equal schema built elsewhere is accepted.
+      FeatureSchema copy =
+          new FeatureSchema(
+              List.of(
+                  FeatureSchema.LAST_AMOUNT,
+                  FeatureSchema.AMOUNT_Z,
+                  FeatureSchema.COUNT_15M,
+                  FeatureSchema.FIRST_MERCHANT),
+              List.of(FeatureSchema.LAST_EPOCH));
+      FeatureSnapshot copied = copy.newSnapshot("acct_3");
+      copied.aggregates()[0] = 42.0d;
+      store.putAll(List.of(copied));
+      assertThat(store.load("acct_3")).contains(copied);
+    }
+  }
+
+  @Test
+  void expiresAccountsAtTheirDeadline() throws Exception {
+    try (RocksDbFeatureStore store = open(FeatureSchema.DEFAULT)) {
+      store.updateAll(
+          List.of(txn("short", 100, 1L), txn("gone", 100, 1L), txn("retained", 100, 1L)));
+
+      store.expire("short", Duration.ofMillis(20));
+      store.expire("gone", Duration.ZERO);
+      store.expire("retained", RocksDbFeatureStore.DEFAULT_TTL.plusDays(1));
+      assertThat(store.load("short")).isPresent();
+      Thread.sleep(50);
+
+      assertThat(store.load("short")).isEmpty();
+      assertThat(store.load("gone")).isEmpty();
+      assertThat(store.load("retained")).isPresent();
+
+      // A write restarts the retention and clears the deadline.
+      store.update(txn("short", 200, 2L));
+      assertThat(store.load("short")).isPresent();
+    }
+  }
+
+  @Test
+  void readsValuesByNameAfterTheSchemaChanges() {
+    try (RocksDbFeatureStore store = open(FeatureSchema.DEFAULT)) {
+      FeatureSnapshot snapshot = FeatureSchema.DEFAULT.newSnapshot("acct_1");
+      snapshot.aggregates()[FeatureSchema.DEFAULT.requireAggregate(FeatureSchema.LAST_AMOUNT)] =
+          1200.0d;
+      snapshot.aggregates()[FeatureSchema.DEFAULT.requireAggregate(FeatureSchema.AMOUNT_Z)] =
+          2.5d;
+      snapshot.aggregates()[FeatureSchema.DEFAULT.requireAggregate(FeatureSchema.COUNT_15M)] =
+          7.0d;
+      snapshot.updatedAt()[FeatureSchema.DEFAULT.requireTimestamp(FeatureSchema.LAST_EPOCH)] =
+          9_000L;
+      store.putAll(List.of(snapshot));
+    }
+
+    // Reordered, one field added and two dropped.
+    FeatureSchema changed =
+        new FeatureSchema(
+            List.of(FeatureSchema.AMOUNT_Z, "merchant_count", FeatureSchema.LAST_AMOUNT),
+            List.of("first_seen_epoch", FeatureSchema.LAST_EPOCH));
+    try (RocksDbFeatureStore store = open(changed)) {
+      FeatureSnapshot loaded = store.load("acct_1").orElseThrow();
+
+      assertThat(loaded.schema()).isSameAs(changed);
+      assertThat(loaded.aggregate(changed.requireAggregate(FeatureSchema.AMOUNT_Z)))
+          .isEqualTo(2.5d);
+      assertThat(loaded.aggregate(changed.requireAggregate(FeatureSchema.LAST_AMOUNT)))
+          .isEqualTo(1200.0d);
+      assertThat(loaded.hasAggregate(changed.requireAggregate("merchant_count"))).isFalse();
+      assertThat(loaded.updatedAtMillis(changed.requireTimestamp("first_seen_epoch"))).isZero();
+      assertThat(loaded.updatedAtMillis(changed.requireTimestamp(FeatureSchema.LAST_EPOCH)))
+          .isEqualTo(9_000L);
+    }
+  }
+
+  private RocksDbFeatureStore open(FeatureSchema schema) {
+    RocksDbSettings settings = new RocksDbSettings(dir.resolve("features").toString(), CACHE_BYTES);
+    return new RocksDbFeatureStore(settings, RocksDbFeatureStore.DEFAULT_TTL, schema);
+  }
+
+  private static Txn txn(String accountHash, long amountCents, long epochMillis) {
+    return new Txn(accountHash, epochMillis, "COFFEE", amountCents, "m_1", "5411", "US");
+  }
+}
@@ -0,0 +1,135 @@
+package fintechfrauds.features;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import fintechfrauds.core.Txn;
+import fintechfrauds.storage.RocksDbSettings;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+class TieredFeatureStoreTest {
+
+  private static final FeatureSchema SCHEMA = FeatureSchema.DEFAULT;
+  private static final int LAST_AMOUNT = SCHEMA.requireAggregate(FeatureSchema.LAST_AMOUNT);
+  private static final int LAST_EPOCH = SCHEMA.requireTimestamp(FeatureSchema.LAST_EPOCH);
+
+  @TempDir Path dir;
+
+  @Test
+  void copiesRedisHitsTheLocalTierLacksOrHoldsAnOlderCopyOf() {
+    FakeRedis redis = new FakeRedis();
+    try (RocksDbFeatureStore local = open()) {
+      TieredFeatureStore store = new TieredFeatureStore(redis, local);
+      redis.put(snapshot("acct_1", 1200.0d, 1_000L));
+
+      assertThat(store.load("acct_1")).isPresent();
+      assertThat(local.load("acct_1").orElseThrow().aggregate(LAST_AMOUNT)).isEqualTo(1200.0d);
+
+      redis.put(snapshot("acct_1", 3400.0d, 2_000L));
+      store.load("acct_1");
+      assertThat(local.load("acct_1").orElseThrow().aggregate(LAST_AMOUNT)).isEqualTo(3400.0d);
+    }
+  }
+
+  @Test
+  void keepsALocalCopyNewerThanRedis() {
+    FakeRedis redis = new FakeRedis();
+    try (RocksDbFeatureStore local = open()) {
+      TieredFeatureStore store = new TieredFeatureStore(redis, local);
+      redis.put(snapshot("acct_1", 1200.0d, 1_000L));
+      store.load("acct_1");
+
+      // The local write lands, the Redis one fails, and Redis keeps serving the older copy.
+      redis.down = true;
+      store.update(new Txn("acct_1", 2_000L, "COFFEE", 3400L, "m_1", "5411", "US"));
+      redis.down = false;
+
+      assertThat(store.load("acct_1").orElseThrow().aggregate(LAST_AMOUNT)).isEqualTo(1200.0d);
+      FeatureSnapshot kept = local.load("acct_1").orElseThrow();
+      assertThat(kept.aggregate(LAST_AMOUNT)).isEqualTo(3400.0d);
+      assertThat(kept.updatedAtMillis(LAST_EPOCH)).isEqualTo(2_000L);
+    }
+  }
+
+  @Test
+  void leavesAMatchingLocalCopyAlone() throws Exception {
+    FakeRedis redis = new FakeRedis();
+    try (RocksDbFeatureStore local = open()) {
+      TieredFeatureStore store = new TieredFeatureStore(redis, local);
+      redis.put(snapshot("acct_1", 1200.0d, 1_000L));
+      store.load("acct_1");
+
+      // A rewrite would clear the local deadline.
+      local.expire("acct_1", Duration.ofMillis(100));
+      store.load("acct_1");
+      Thread.sleep(150);
+
+      assertThat(local.load("acct_1")).isEmpty();
+    }
+  }
+
+  @Test
+  void answersFromTheLocalTierWhenRedisFails() {
+    FakeRedis redis = new FakeRedis();
+    try (RocksDbFeatureStore local = open()) {
+      TieredFeatureStore store = new TieredFeatureStore(redis, local);
+      redis.put(snapshot("acct_1", 1200.0d, 1_000L));
+      store.load("acct_1");
+
+      redis.down = true;
+      assertThat(store.load("acct_1").orElseThrow().aggregate(LAST_AMOUNT)).isEqualTo(1200.0d);
+      assertThat(store.redisFailureCount()).isEqualTo(1);
+      assertThat(store.localHitCount()).isEqualTo(1);
+    }
+  }
+
+  private RocksDbFeatureStore open() {
+    return new RocksDbFeatureStore(
+        new RocksDbSettings(dir.resolve("features").toString(), 1L << 20),
+        RocksDbFeatureStore.DEFAULT_TTL,
+        SCHEMA);
+  }
+
+  private static FeatureSnapshot snapshot(String accountHash, double lastAmount, long lastEpoch) {
+    FeatureSnapshot snapshot = SCHEMA.newSnapshot(accountHash);
+    snapshot.aggregates()[LAST_AMOUNT] = lastAmount;
+    snapshot.updatedAt()[LAST_EPOCH] = lastEpoch;
+    return snapshot;
+  }
+
+  private static final class FakeRedis implements FeatureStore {
+    private final Map<String, FeatureSnapshot> snapshots = new HashMap<>();
+    boolean down;
+
+    void put(FeatureSnapshot snapshot) {
+      snapshots.put(snapshot.accountHash(), snapshot);
+    }
+
+    @Override
+    public void update(Txn txn) {
+      if (down) {
+        throw new JedisConnectionException("down");
+      }
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Optional<FeatureSnapshot> load(String accountHash) {
+      if (down) {
+        throw new JedisConnectionException("down");
+      }
+      return Optional.ofNullable(snapshots.get(accountHash));
+    }
+
+    @Override
+    public void expire(String accountHash, Duration ttl) {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
@@ -1,20 +1,44 @@
 package fintechfrauds.rules;
 
+import fintechfrauds.features.FeatureSchema;
 import fintechfrauds.features.FeatureSnapshot;
 import java.util.ArrayList;
 import java.util.List;
 
 /**
  * Deterministic rule set layered on top of ML scores.
+ *
+ * <p>Feature indices are resolved against the {@link FeatureSchema} once, when the engine is built,
+ * so evaluating the rules reads snapshot arrays by index.
  */
 public final class RulesEngine {
-  private RulesEngine() {}
+  private static final RulesEngine DEFAULT = new RulesEngine(FeatureSchema.DEFAULT);
 
+  private final FeatureSchema schema;
+  private final int amountZ;
+  private final int count15m;
+  private final int firstMerchant;
+
+  public RulesEngine(FeatureSchema schema) {
+    this.schema = schema;
+    this.amountZ = schema.requireAggregate(FeatureSchema.AMOUNT_Z);
+    this.count15m = schema.requireAggregate(FeatureSchema.COUNT_15M);
+    this.firstMerchant = schema.requireAggregate(FeatureSchema.FIRST_MERCHANT);
+  }
+
+  /** Applies the rules to a snapshot in {@link FeatureSchema#DEFAULT}. */
   public static Decision apply(double modelProbability, FeatureSnapshot features) {
+    return DEFAULT.evaluate(modelProbability, features);
+  }
+
+  public Decision evaluate(double modelProbability, FeatureSnapshot features) {
+    if (!schema.equals(features.schema())) {
+      throw new IllegalArgumentException("Snapshot uses a different feature schema");
+    }
     List<String> reasons = new ArrayList<>();
-    double amountZ = features.aggregates().getOrDefault("amount_z", 0d);
-    double burst15m = features.aggregates().getOrDefault("count_15m", 0d);
-    boolean firstMerchant = features.aggregates().getOrDefault("first_merchant", 0d) > 0.5;
+    double amountZ = features.aggregate(this.amountZ);
+    double burst15m = features.aggregate(count15m);
+    boolean firstMerchant = features.aggregate(this.firstMerchant) > 0.5;
     if (amountZ > 6 && firstMerchant) {
       reasons.add("AMOUNT_OUTLIER_FIRST_MERCHANT");
     }
@@ -0,0 +1,33 @@
+package fintechfrauds.serve.api;
+
+import fintechfrauds.serve.model.ModelManager;
+import java.util.Map;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/v1/model")
+public class ModelController {
+
+  private final ModelManager modelManager;
+
+  public ModelController(ModelManager modelManager) {
+    this.modelManager = modelManager;
+  }
+
+  @PostMapping("/rollback")
+  public ResponseEntity<Map<String, Object>> rollback() {
+    if (!modelManager.rollback()) {
+      return ResponseEntity.status(HttpStatus.CONFLICT)
+          .body(Map.of("error", "No previous model inside the rollback window"));
+    }
+    ModelManager.ActiveModel active = modelManager.active();
+    return ResponseEntity.ok(
+        Map.of(
+            "sha256", String.valueOf(active.sha256()),
+            "loadedAt", active.loadedAt().toString()));
+  }
+}
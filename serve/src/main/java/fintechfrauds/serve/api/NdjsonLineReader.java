@@ -0,0 +1,103 @@
+package fintechfrauds.serve.api;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+/**
+ * Reads newline-delimited records from a stream into one reusable buffer. Lines longer than the
+ * limit are skipped up to the next newline and reported as {@link #OVERSIZED}, so memory stays
+ * bounded whatever the client sends.
+ *
+ * <p>With a digest, every byte of every line, terminator included, is fed into it as it is read,
+ * oversized lines too. The exception is control lines, which start with {@code #}.
+ */
+final class NdjsonLineReader {
+
+  static final int END = -1;
+  static final int OVERSIZED = -2;
+
+  private final InputStream in;
+  private final int maxLineBytes;
+  private final byte[] chunk = new byte[8192];
+  private int chunkPos;
+  private int chunkLen;
+  private byte[] line = new byte[512];
+  private final MessageDigest digest;
+
+  NdjsonLineReader(InputStream in, int maxLineBytes) {
+    this(in, maxLineBytes, null);
+  }
+
+  NdjsonLineReader(InputStream in, int maxLineBytes, MessageDigest digest) {
+    this.in = in;
+    this.maxLineBytes = maxLineBytes;
+    this.digest = digest;
+  }
+
+  /**
+   * Reads the next line without its terminator.
+   *
+   * @return the line length in {@link #line()}, {@link #END} at end of stream or {@link #OVERSIZED}
+   */
+  int next() throws IOException {
+    int length = 0;
+    boolean oversized = false;
+    boolean first = true;
+    boolean digested = false;
+    int mark = chunkPos;
+    while (true) {
+      if (chunkPos == chunkLen) {
+        if (digested) {
+          digest.update(chunk, mark, chunkPos - mark);
+        }
+        chunkLen = in.read(chunk);
+        chunkPos = 0;
+        mark = 0;
+        if (chunkLen <= 0) {
+          chunkLen = 0;
+          if (oversized) {
+            return OVERSIZED;
+          }
+          return length == 0 ? END : trimCarriageReturn(length);
+        }
+      }
+      byte b = chunk[chunkPos++];
+      if (first) {
+        first = false;
+        digested = digest != null && b != '#';
+      }
+      if (b == '\n') {
+        if (digested) {
+          digest.update(chunk, mark, chunkPos - mark);
+        }
+        return oversized ? OVERSIZED : trimCarriageReturn(length);
+      }
+      if (oversized) {
+        continue;
+      }
+      if (length == maxLineBytes) {
+        oversized = true;
+        continue;
+      }
+      if (length == line.length) {
+        line = Arrays.copyOf(line, Math.min(maxLineBytes, line.length * 2));
+      }
+      line[length++] = b;
+    }
+  }
+
+  /** True when a following {@link #next()} can be served without blocking on the client. */
+  boolean hasBuffered() throws IOException {
+    return chunkPos < chunkLen || in.available() > 0;
+  }
+
+  byte[] line() {
+    return line;
+  }
+
+  private int trimCarriageReturn(int length) {
+    return length > 0 && line[length - 1] == '\r' ? length - 1 : length;
+  }
+}
@@ -2,19 +2,46 @@ package fintechfrauds.serve.api;
 
 import fintechfrauds.serve.api.dto.ScoreRequest;
 import fintechfrauds.serve.api.dto.ScoreResponse;
+import fintechfrauds.serve.logging.LogEvent;
+import fintechfrauds.serve.logging.ScoreLogSampler;
 import fintechfrauds.serve.logging.StructuredLogger;
+import fintechfrauds.serve.metrics.ScoringMetrics;
+import fintechfrauds.serve.scoring.DummyScorer;
 import fintechfrauds.serve.scoring.FeatureStore;
 import fintechfrauds.serve.scoring.FeatureVector;
+import fintechfrauds.serve.scoring.OnlineFeatureUpdater;
 import fintechfrauds.serve.scoring.RulesEngine;
 import fintechfrauds.serve.scoring.Scorer;
+import fintechfrauds.serve.scoring.ShadowScorer;
+import fintechfrauds.serve.scoring.StageDeadlines;
+import fintechfrauds.serve.security.ApiAuthFilter;
+import fintechfrauds.serve.security.StreamChunkVerifier;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.ConstraintViolationException;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.Validator;
+import jakarta.validation.constraints.Size;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -23,43 +50,342 @@ import org.springframework.web.bind.annotation.RestController;
 @Validated
 public class ScoreController {
 
+  static final int MAX_BATCH_SIZE = 10_000;
+  static final String DEADLINE_HEADER = "X-Deadline-Millis";
+  static final String NDJSON = "application/x-ndjson";
+  static final int STREAM_CHUNK_SIZE = 256;
+  static final int STREAM_MAX_LINE_BYTES = 64 * 1024;
+
   private static final Logger log = LoggerFactory.getLogger(ScoreController.class);
   private final FeatureStore featureStore;
   private final Scorer scorer;
   private final RulesEngine rulesEngine;
+  private final ShadowScorer shadowScorer;
+  private final StageDeadlines stageDeadlines;
+  private final DummyScorer fallbackScorer;
+  private final ObjectMapper objectMapper;
+  private final Validator validator;
+  private final ScoringMetrics metrics;
+  private final ScoreLogSampler logSampler;
+  private final OnlineFeatureUpdater featureUpdater;
 
-  public ScoreController(FeatureStore featureStore, Scorer scorer, RulesEngine rulesEngine) {
+  public ScoreController(
+      FeatureStore featureStore,
+      Scorer scorer,
+      RulesEngine rulesEngine,
+      ShadowScorer shadowScorer,
+      StageDeadlines stageDeadlines,
+      DummyScorer fallbackScorer,
+      ObjectMapper objectMapper,
+      Validator validator,
+      ScoringMetrics metrics,
+      ScoreLogSampler logSampler,
+      OnlineFeatureUpdater featureUpdater) {
     this.featureStore = featureStore;
     this.scorer = scorer;
     this.rulesEngine = rulesEngine;
+    this.shadowScorer = shadowScorer;
+    this.stageDeadlines = stageDeadlines;
+    this.fallbackScorer = fallbackScorer;
+    this.objectMapper = objectMapper;
+    this.validator = validator;
+    this.metrics = metrics;
+    this.logSampler = logSampler;
+    this.featureUpdater = featureUpdater;
   }
 
   @PostMapping
-  public ResponseEntity<ScoreResponse> score(@Valid @RequestBody ScoreRequest request) {
+  public ResponseEntity<ScoreResponse> score(
+      @Valid @RequestBody ScoreRequest request,
+      @RequestHeader(value = DEADLINE_HEADER, required = false) Long deadlineMillis) {
     String requestId = UUID.randomUUID().toString();
     long start = System.nanoTime();
+    StageDeadlines.Budget budget = stageDeadlines.start(deadlineMillis, start);
 
-    FeatureVector features = featureStore.loadFeatures(request);
-    double risk = scorer.score(request, features);
-    RulesEngine.DecisionResult decision = rulesEngine.evaluate(request, features, risk);
-    ScoreResponse response =
-        new ScoreResponse(decision.risk(), decision.decision(), decision.reasons());
+    // A timed-out load runs on; both paths share this so fallback state counts the request once.
+    AtomicReference<FeatureVector> fallbackRecord = new AtomicReference<>();
+    FeatureVector features =
+        budget.features(
+            () -> featureStore.loadFeatures(request, fallbackRecord),
+            () -> featureStore.fallbackFeatures(request, fallbackRecord));
+    long featuresDone = System.nanoTime();
+    metrics.record(ScoringMetrics.Stage.FEATURES, featuresDone - start);
+    double risk =
+        budget.model(
+            () -> scorer.score(request, features),
+            () -> fallbackScorer.score(request, features));
+    long modelDone = System.nanoTime();
+    metrics.record(ScoringMetrics.Stage.MODEL, modelDone - featuresDone);
+    int outcome = rulesEngine.decide(request, features, risk);
+    String decision = RulesEngine.decision(outcome);
+    List<String> reasons = RulesEngine.reasons(outcome);
+    long rulesDone = System.nanoTime();
+    metrics.record(ScoringMetrics.Stage.RULES, rulesDone - modelDone);
+    ScoreResponse response = new ScoreResponse(risk, decision, reasons, budget.isDegraded());
+    shadowScorer.submit(requestId, request, features, risk, outcome);
+    featureUpdater.submit(request);
 
-    long elapsedMicros = (System.nanoTime() - start) / 1_000L;
-    StructuredLogger.info(
-        log,
-        StructuredLogger.builder()
-            .with("requestId", requestId)
-            .with("api", "score")
-            .with("status", 200)
-            .with("latencyMicros", elapsedMicros)
-            .with("decision", decision.decision())
-            .with("risk", decision.risk())
-            .with("reasons", decision.reasons())
-            .with("accountHash", request.getAccountHash())
-            .with("merchantHash", request.getMerchantHash())
-            .build());
+    long logStart = System.nanoTime();
+    long elapsedMicros = (logStart - start) / 1_000L;
+    if (logSampler.keep(request.getAccountHash(), decision)) {
+      LogEvent event =
+          StructuredLogger.event(log)
+              .with("requestId", requestId)
+              .with("api", "score")
+              .with("status", 200)
+              .with("latencyMicros", elapsedMicros)
+              .with("decision", decision)
+              .with("risk", risk)
+              .with("reasons", reasons)
+              .with("degraded", budget.degradedStages())
+              .with("accountHash", request.getAccountHash())
+              .with("merchantHash", request.getMerchantHash());
+      if (logSampler.isEnabled() && RulesEngine.APPROVE.equals(decision)) {
+        event.with("sampleRate", logSampler.approveRate());
+      }
+      event.log();
+    }
+    metrics.record(ScoringMetrics.Stage.LOG, System.nanoTime() - logStart);
 
     return ResponseEntity.ok(response);
   }
+
+  @PostMapping("/batch")
+  public ResponseEntity<List<ScoreResponse>> scoreBatch(
+      @RequestBody @NotEmpty @Size(max = MAX_BATCH_SIZE) List<@Valid ScoreRequest> requests) {
+    String requestId = UUID.randomUUID().toString();
+    long start = System.nanoTime();
+
+    List<FeatureVector> features = featureStore.loadFeaturesBatch(requests);
+    double[] risks = scorer.scoreBatch(requests, features);
+    List<ScoreResponse> responses = new ArrayList<>(requests.size());
+    int[] outcomes = new int[requests.size()];
+    int declined = 0;
+    int reviewed = 0;
+    for (int i = 0; i < requests.size(); i++) {
+      int outcome = rulesEngine.decide(requests.get(i), features.get(i), risks[i]);
+      outcomes[i] = outcome;
+      String decision = RulesEngine.decision(outcome);
+      if (RulesEngine.DECLINE.equals(decision)) {
+        declined++;
+      } else if (RulesEngine.REVIEW.equals(decision)) {
+        reviewed++;
+      }
+      responses.add(new ScoreResponse(risks[i], decision, RulesEngine.reasons(outcome)));
+    }
+    shadowScorer.submitBatch(requestId, requests, features, risks, outcomes);
+    featureUpdater.submitAll(requests);
+
+    long elapsedMicros = (System.nanoTime() - start) / 1_000L;
+    StructuredLogger.event(log)
+        .with("requestId", requestId)
+        .with("api", "score_batch")
+        .with("status", 200)
+        .with("latencyMicros", elapsedMicros)
+        .with("size", requests.size())
+        .with("declined", declined)
+        .with("reviewed", reviewed)
+        .log();
+
+    return ResponseEntity.ok(responses);
+  }
+
+  /**
+   * Scores an NDJSON stream of requests, writing one NDJSON line per input line in input order.
+   * Lines are scored in chunks of at most {@value #STREAM_CHUNK_SIZE}; a chunk is cut early
+   * whenever the client has not sent more yet, so a slow producer still gets answers promptly.
+   * Memory use is bounded by the chunk size and {@value #STREAM_MAX_LINE_BYTES} bytes per line.
+   *
+   * <p>Lines starting with {@code #} are control lines. When {@link ApiAuthFilter} signed the
+   * request, the body must carry a {@code #chunk-signature:} line after at most {@value
+   * #STREAM_CHUNK_SIZE} data lines, and nothing is scored until the signature covering it checks
+   * out; see {@link StreamChunkVerifier}. A bad signature, a missing one or going over the row cap
+   * ends the stream with an error line.
+   */
+  @PostMapping(value = "/stream", consumes = NDJSON, produces = NDJSON)
+  public void scoreStream(
+      InputStream body, HttpServletRequest httpRequest, HttpServletResponse httpResponse)
+      throws IOException {
+    String requestId = UUID.randomUUID().toString();
+    long start = System.nanoTime();
+    httpResponse.setContentType(NDJSON);
+    StreamChunkVerifier verifier =
+        (StreamChunkVerifier) httpRequest.getAttribute(StreamChunkVerifier.ATTRIBUTE);
+    NdjsonLineReader reader =
+        new NdjsonLineReader(
+            body, STREAM_MAX_LINE_BYTES, verifier == null ? null : verifier.digest());
+    StreamStats stats = new StreamStats();
+    List<ScoreRequest> chunk = new ArrayList<>(STREAM_CHUNK_SIZE);
+    long[] lineNumbers = new long[STREAM_CHUNK_SIZE];
+    List<StreamLine> unverified = new ArrayList<>();
+    long lineNumber = 0;
+
+    try (JsonGenerator out =
+        objectMapper.getFactory().createGenerator(httpResponse.getOutputStream())) {
+      out.setRootValueSeparator(null);
+      int length;
+      while ((length = reader.next()) != NdjsonLineReader.END) {
+        lineNumber++;
+        if (length == 0) {
+          continue;
+        }
+        if (length > 0 && reader.line()[0] == '#') {
+          if (verifier == null) {
+            continue;
+          }
+          String error = null;
+          if (!verifier.verify(reader.line(), length)) {
+            error = "Chunk signature mismatch";
+          } else if (!verifier.admit(unverified.size())) {
+            error = "Stream exceeds " + verifier.maxRows() + " rows";
+          }
+          if (error != null) {
+            writeStreamError(out, lineNumber, error);
+            stats.errors++;
+            unverified.clear();
+            break;
+          }
+          for (StreamLine line : unverified) {
+            acceptStreamLine(out, line, chunk, lineNumbers, stats);
+          }
+          unverified.clear();
+          flushStreamChunk(out, chunk, lineNumbers, stats);
+          out.flush();
+          continue;
+        }
+        StreamLine line = parseStreamLine(reader, length, lineNumber);
+        if (verifier != null) {
+          unverified.add(line);
+          if (unverified.size() > STREAM_CHUNK_SIZE) {
+            writeStreamError(
+                out, lineNumber, "More than " + STREAM_CHUNK_SIZE + " lines without a signature");
+            stats.errors++;
+            unverified.clear();
+            break;
+          }
+          continue;
+        }
+        acceptStreamLine(out, line, chunk, lineNumbers, stats);
+        if (!reader.hasBuffered()) {
+          flushStreamChunk(out, chunk, lineNumbers, stats);
+          out.flush();
+        }
+      }
+      if (!unverified.isEmpty()) {
+        writeStreamError(out, lineNumber, "Stream ended without a chunk signature");
+        stats.errors++;
+      }
+      flushStreamChunk(out, chunk, lineNumbers, stats);
+    }
+
+    long elapsedMicros = (System.nanoTime() - start) / 1_000L;
+    StructuredLogger.event(log)
+        .with("requestId", requestId)
+        .with("api", "score_stream")
+        .with("status", 200)
+        .with("latencyMicros", elapsedMicros)
+        .with("size", stats.scored)
+        .with("errors", stats.errors)
+        .with("declined", stats.declined)
+        .with("reviewed", stats.reviewed)
+        .log();
+  }
+
+  private StreamLine parseStreamLine(NdjsonLineReader reader, int length, long lineNumber) {
+    if (length == NdjsonLineReader.OVERSIZED) {
+      return new StreamLine(
+          lineNumber, null, "Line exceeds " + STREAM_MAX_LINE_BYTES + " bytes");
+    }
+    try {
+      ScoreRequest request =
+          objectMapper.readValue(reader.line(), 0, length, ScoreRequest.class);
+      Set<ConstraintViolation<ScoreRequest>> violations = validator.validate(request);
+      if (!violations.isEmpty()) {
+        ConstraintViolation<ScoreRequest> first = violations.iterator().next();
+        return new StreamLine(lineNumber, null, first.getPropertyPath() + " " + first.getMessage());
+      }
+      return new StreamLine(lineNumber, request, null);
+    } catch (IOException e) {
+      return new StreamLine(lineNumber, null, "Malformed JSON");
+    }
+  }
+
+  /** Queues a line for scoring, or answers it with its error after the rows queued before it. */
+  private void acceptStreamLine(
+      JsonGenerator out,
+      StreamLine line,
+      List<ScoreRequest> chunk,
+      long[] lineNumbers,
+      StreamStats stats)
+      throws IOException {
+    if (line.error() != null) {
+      flushStreamChunk(out, chunk, lineNumbers, stats);
+      writeStreamError(out, line.number(), line.error());
+      stats.errors++;
+      return;
+    }
+    lineNumbers[chunk.size()] = line.number();
+    chunk.add(line.request());
+    if (chunk.size() == STREAM_CHUNK_SIZE) {
+      flushStreamChunk(out, chunk, lineNumbers, stats);
+      out.flush();
+    }
+  }
+
+  private void flushStreamChunk(
+      JsonGenerator out, List<ScoreRequest> chunk, long[] lineNumbers, StreamStats stats)
+      throws IOException {
+    if (chunk.isEmpty()) {
+      return;
+    }
+    List<FeatureVector> features = featureStore.loadFeaturesBatch(chunk);
+    double[] risks = scorer.scoreBatch(chunk, features);
+    for (int i = 0; i < chunk.size(); i++) {
+      int outcome = rulesEngine.decide(chunk.get(i), features.get(i), risks[i]);
+      String decision = RulesEngine.decision(outcome);
+      if (RulesEngine.DECLINE.equals(decision)) {
+        stats.declined++;
+      } else if (RulesEngine.REVIEW.equals(decision)) {
+        stats.reviewed++;
+      }
+      out.writeStartObject();
+      out.writeNumberField("line", lineNumbers[i]);
+      out.writeNumberField("risk", risks[i]);
+      out.writeStringField("decision", decision);
+      out.writeArrayFieldStart("reasons");
+      for (String reason : RulesEngine.reasons(outcome)) {
+        out.writeString(reason);
+      }
+      out.writeEndArray();
+      out.writeEndObject();
+      out.writeRaw('\n');
+    }
+    featureUpdater.submitAll(chunk);
+    stats.scored += chunk.size();
+    chunk.clear();
+  }
+
+  private static void writeStreamError(JsonGenerator out, long lineNumber, String message)
+      throws IOException {
+    out.writeStartObject();
+    out.writeNumberField("line", lineNumber);
+    out.writeStringField("error", message);
+    out.writeEndObject();
+    out.writeRaw('\n');
+  }
+
+  /** A parsed stream line: a valid request or the error to answer it with. */
+  private record StreamLine(long number, ScoreRequest request, String error) {}
+
+  private static final class StreamStats {
+    long scored;
+    long errors;
+    long declined;
+    long reviewed;
+  }
+
+  @ExceptionHandler(ConstraintViolationException.class)
+  public ResponseEntity<Map<String, Object>> invalidBatch(ConstraintViolationException ex) {
+    return ResponseEntity.badRequest().body(Map.of("error", ex.getMessage()));
+  }
 }
@@ -6,13 +6,19 @@ public class ScoreResponse {
   private double risk;
   private String decision;
   private List<String> reasons;
+  private boolean degraded;
 
   public ScoreResponse() {}
 
   public ScoreResponse(double risk, String decision, List<String> reasons) {
+    this(risk, decision, reasons, false);
+  }
+
+  public ScoreResponse(double risk, String decision, List<String> reasons, boolean degraded) {
     this.risk = risk;
     this.decision = decision;
     this.reasons = reasons;
+    this.degraded = degraded;
   }
 
   public double getRisk() {
@@ -38,4 +44,13 @@ public class ScoreResponse {
   public void setReasons(List<String> reasons) {
     this.reasons = reasons;
   }
+
+  /** True when a stage missed its deadline and a local fallback was used instead. */
+  public boolean isDegraded() {
+    return degraded;
+  }
+
+  public void setDegraded(boolean degraded) {
+    this.degraded = degraded;
+  }
 }
@@ -1,5 +1,8 @@
 package fintechfrauds.serve.config;
 
+import fintechfrauds.serve.logging.AsyncEventLog;
+import fintechfrauds.serve.scoring.FallbackFeatureState;
+import fintechfrauds.serve.scoring.FeatureEncoding;
 import java.net.URI;
 import java.util.HashMap;
 import java.util.Map;
@@ -12,6 +15,10 @@ public class FintechFraudsProperties {
   private Security security = new Security();
   private Model model = new Model();
   private Ledger ledger = new Ledger();
+  private Scoring scoring = new Scoring();
+  private Logging logging = new Logging();
+  private Features features = new Features();
+  private Redis redis = new Redis();
 
   public RateLimits getRateLimits() {
     return rateLimits;
@@ -45,6 +52,38 @@ public class FintechFraudsProperties {
     this.ledger = ledger;
   }
 
+  public Scoring getScoring() {
+    return scoring;
+  }
+
+  public void setScoring(Scoring scoring) {
+    this.scoring = scoring;
+  }
+
+  public Logging getLogging() {
+    return logging;
+  }
+
+  public void setLogging(Logging logging) {
+    this.logging = logging;
+  }
+
+  public Features getFeatures() {
+    return features;
+  }
+
+  public void setFeatures(Features features) {
+    this.features = features;
+  }
+
+  public Redis getRedis() {
+    return redis;
+  }
+
+  public void setRedis(Redis redis) {
+    this.redis = redis;
+  }
+
   public static class RateLimits {
     private long capacity = 60;
     private long refillTokens = 60;
@@ -77,6 +116,7 @@ public class FintechFraudsProperties {
 
   public static class Security {
     private long requestTimeSkewSeconds = 300;
+    private long streamMaxRows = 10_000;
     private Map<String, String> apiKeys = new HashMap<>();
 
     public long getRequestTimeSkewSeconds() {
@@ -87,6 +127,15 @@ public class FintechFraudsProperties {
       this.requestTimeSkewSeconds = requestTimeSkewSeconds;
     }
 
+    /** Rows one signed {@code /v1/score/stream} request may score; it costs one rate-limit token. */
+    public long getStreamMaxRows() {
+      return streamMaxRows;
+    }
+
+    public void setStreamMaxRows(long streamMaxRows) {
+      this.streamMaxRows = streamMaxRows;
+    }
+
     public Map<String, String> getApiKeys() {
       return apiKeys;
     }
@@ -101,6 +150,8 @@ public class FintechFraudsProperties {
     private String resourcePath = "models/model.xgb";
     private URI uri;
     private String sha256;
+    private boolean compiledRequireInlinable = false;
+    private Reload reload = new Reload();
 
     public String getType() {
       return type;
@@ -133,6 +184,61 @@ public class FintechFraudsProperties {
     public void setSha256(String sha256) {
       this.sha256 = sha256;
     }
+
+    public boolean isCompiledRequireInlinable() {
+      return compiledRequireInlinable;
+    }
+
+    public void setCompiledRequireInlinable(boolean compiledRequireInlinable) {
+      this.compiledRequireInlinable = compiledRequireInlinable;
+    }
+
+    public Reload getReload() {
+      return reload;
+    }
+
+    public void setReload(Reload reload) {
+      this.reload = reload;
+    }
+  }
+
+  public static class Reload {
+    private boolean enabled = false;
+    private long pollSeconds = 30;
+    private int warmupRequests = 20_000;
+    private long rollbackWindowSeconds = 900;
+
+    public boolean isEnabled() {
+      return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+      this.enabled = enabled;
+    }
+
+    public long getPollSeconds() {
+      return pollSeconds;
+    }
+
+    public void setPollSeconds(long pollSeconds) {
+      this.pollSeconds = pollSeconds;
+    }
+
+    public int getWarmupRequests() {
+      return warmupRequests;
+    }
+
+    public void setWarmupRequests(int warmupRequests) {
+      this.warmupRequests = warmupRequests;
+    }
+
+    public long getRollbackWindowSeconds() {
+      return rollbackWindowSeconds;
+    }
+
+    public void setRollbackWindowSeconds(long rollbackWindowSeconds) {
+      this.rollbackWindowSeconds = rollbackWindowSeconds;
+    }
   }
 
   public static class Ledger {
@@ -146,4 +252,457 @@ public class FintechFraudsProperties {
       this.approvedFile = approvedFile;
     }
   }
+
+  public static class Scoring {
+    private MicroBatch microBatch = new MicroBatch();
+    private Shadow shadow = new Shadow();
+    private Deadline deadline = new Deadline();
+
+    public MicroBatch getMicroBatch() {
+      return microBatch;
+    }
+
+    public void setMicroBatch(MicroBatch microBatch) {
+      this.microBatch = microBatch;
+    }
+
+    public Shadow getShadow() {
+      return shadow;
+    }
+
+    public void setShadow(Shadow shadow) {
+      this.shadow = shadow;
+    }
+
+    public Deadline getDeadline() {
+      return deadline;
+    }
+
+    public void setDeadline(Deadline deadline) {
+      this.deadline = deadline;
+    }
+  }
+
+  public static class Deadline {
+    private long defaultMillis = 0;
+    private long maxMillis = 10_000;
+    private double featureShare = 0.6d;
+    private int maxInflightStages = 256;
+
+    public long getDefaultMillis() {
+      return defaultMillis;
+    }
+
+    public void setDefaultMillis(long defaultMillis) {
+      this.defaultMillis = defaultMillis;
+    }
+
+    public long getMaxMillis() {
+      return maxMillis;
+    }
+
+    public void setMaxMillis(long maxMillis) {
+      this.maxMillis = maxMillis;
+    }
+
+    public double getFeatureShare() {
+      return featureShare;
+    }
+
+    public void setFeatureShare(double featureShare) {
+      this.featureShare = featureShare;
+    }
+
+    public int getMaxInflightStages() {
+      return maxInflightStages;
+    }
+
+    public void setMaxInflightStages(int maxInflightStages) {
+      this.maxInflightStages = maxInflightStages;
+    }
+  }
+
+  public static class Shadow {
+    private boolean enabled = false;
+    private int threads = 1;
+    private int queueCapacity = 1024;
+    private Model model = new Model();
+
+    public boolean isEnabled() {
+      return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+      this.enabled = enabled;
+    }
+
+    public int getThreads() {
+      return threads;
+    }
+
+    public void setThreads(int threads) {
+      this.threads = threads;
+    }
+
+    public int getQueueCapacity() {
+      return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+      this.queueCapacity = queueCapacity;
+    }
+
+    public Model getModel() {
+      return model;
+    }
+
+    public void setModel(Model model) {
+      this.model = model;
+    }
+  }
+
+  public static class MicroBatch {
+    private boolean enabled = false;
+    private long windowMicros = 200;
+    private int maxBatchSize = 64;
+    private int queueCapacity = 4096;
+
+    public boolean isEnabled() {
+      return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+      this.enabled = enabled;
+    }
+
+    public long getWindowMicros() {
+      return windowMicros;
+    }
+
+    public void setWindowMicros(long windowMicros) {
+      this.windowMicros = windowMicros;
+    }
+
+    public int getMaxBatchSize() {
+      return maxBatchSize;
+    }
+
+    public void setMaxBatchSize(int maxBatchSize) {
+      this.maxBatchSize = maxBatchSize;
+    }
+
+    public int getQueueCapacity() {
+      return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+      this.queueCapacity = queueCapacity;
+    }
+  }
+
+  public static class Logging {
+    private AsyncLogging async = new AsyncLogging();
+    private Sampling sampling = new Sampling();
+
+    public AsyncLogging getAsync() {
+      return async;
+    }
+
+    public void setAsync(AsyncLogging async) {
+      this.async = async;
+    }
+
+    public Sampling getSampling() {
+      return sampling;
+    }
+
+    public void setSampling(Sampling sampling) {
+      this.sampling = sampling;
+    }
+  }
+
+  public static class Sampling {
+    private boolean enabled = false;
+    private double targetApprovedPerSecond = 500.0d;
+    private double minApproveRate = 0.01d;
+
+    public boolean isEnabled() {
+      return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+      this.enabled = enabled;
+    }
+
+    public double getTargetApprovedPerSecond() {
+      return targetApprovedPerSecond;
+    }
+
+    public void setTargetApprovedPerSecond(double targetApprovedPerSecond) {
+      this.targetApprovedPerSecond = targetApprovedPerSecond;
+    }
+
+    public double getMinApproveRate() {
+      return minApproveRate;
+    }
+
+    public void setMinApproveRate(double minApproveRate) {
+      this.minApproveRate = minApproveRate;
+    }
+  }
+
+  public static class AsyncLogging {
+    private boolean enabled = false;
+    private int capacity = 8192;
+    private int batchSize = 256;
+    private AsyncEventLog.Overflow overflow = AsyncEventLog.Overflow.DROP;
+    private int sampleEvery = 10;
+
+    public boolean isEnabled() {
+      return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+      this.enabled = enabled;
+    }
+
+    public int getCapacity() {
+      return capacity;
+    }
+
+    public void setCapacity(int capacity) {
+      this.capacity = capacity;
+    }
+
+    public int getBatchSize() {
+      return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+      this.batchSize = batchSize;
+    }
+
+    public AsyncEventLog.Overflow getOverflow() {
+      return overflow;
+    }
+
+    public void setOverflow(AsyncEventLog.Overflow overflow) {
+      this.overflow = overflow;
+    }
+
+    public int getSampleEvery() {
+      return sampleEvery;
+    }
+
+    public void setSampleEvery(int sampleEvery) {
+      this.sampleEvery = sampleEvery;
+    }
+  }
+
+  public static class Features {
+    private FeatureEncoding encoding = FeatureEncoding.HASH;
+    private NearCache nearCache = new NearCache();
+    private Fallback fallback = new Fallback();
+    private Online online = new Online();
+
+    public FeatureEncoding getEncoding() {
+      return encoding;
+    }
+
+    public void setEncoding(FeatureEncoding encoding) {
+      this.encoding = encoding;
+    }
+
+    public NearCache getNearCache() {
+      return nearCache;
+    }
+
+    public void setNearCache(NearCache nearCache) {
+      this.nearCache = nearCache;
+    }
+
+    public Fallback getFallback() {
+      return fallback;
+    }
+
+    public void setFallback(Fallback fallback) {
+      this.fallback = fallback;
+    }
+
+    public Online getOnline() {
+      return online;
+    }
+
+    public void setOnline(Online online) {
+      this.online = online;
+    }
+  }
+
+  public static class Online {
+    private boolean enabled = false;
+    private int queueCapacity = 8192;
+    private int batchSize = 128;
+    private long merchantTtlDays = 180;
+
+    public boolean isEnabled() {
+      return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+      this.enabled = enabled;
+    }
+
+    public int getQueueCapacity() {
+      return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+      this.queueCapacity = queueCapacity;
+    }
+
+    public int getBatchSize() {
+      return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+      this.batchSize = batchSize;
+    }
+
+    public long getMerchantTtlDays() {
+      return merchantTtlDays;
+    }
+
+    public void setMerchantTtlDays(long merchantTtlDays) {
+      this.merchantTtlDays = merchantTtlDays;
+    }
+  }
+
+  public static class Fallback {
+    private long maxBytes = FallbackFeatureState.DEFAULT_MAX_BYTES;
+
+    public long getMaxBytes() {
+      return maxBytes;
+    }
+
+    public void setMaxBytes(long maxBytes) {
+      this.maxBytes = maxBytes;
+    }
+  }
+
+  public static class NearCache {
+    private boolean enabled = false;
+    private int maxEntries = 100_000;
+    private long ttlMillis = 30_000;
+    private long heartbeatMillis = 5_000;
+
+    public boolean isEnabled() {
+      return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+      this.enabled = enabled;
+    }
+
+    public int getMaxEntries() {
+      return maxEntries;
+    }
+
+    public void setMaxEntries(int maxEntries) {
+      this.maxEntries = maxEntries;
+    }
+
+    public long getTtlMillis() {
+      return ttlMillis;
+    }
+
+    public void setTtlMillis(long ttlMillis) {
+      this.ttlMillis = ttlMillis;
+    }
+
+    public long getHeartbeatMillis() {
+      return heartbeatMillis;
+    }
+
+    public void setHeartbeatMillis(long heartbeatMillis) {
+      this.heartbeatMillis = heartbeatMillis;
+    }
+  }
+
+  public static class Redis {
+    private CircuitBreaker circuitBreaker = new CircuitBreaker();
+
+    public CircuitBreaker getCircuitBreaker() {
+      return circuitBreaker;
+    }
+
+    public void setCircuitBreaker(CircuitBreaker circuitBreaker) {
+      this.circuitBreaker = circuitBreaker;
+    }
+  }
+
+  public static class CircuitBreaker {
+    private boolean enabled = false;
+    private int windowSize = 100;
+    private int minimumCalls = 20;
+    private double failureRateThreshold = 0.5d;
+    private long slowCallMillis = 250;
+    private long openMillis = 5_000;
+    private int halfOpenProbes = 5;
+
+    public boolean isEnabled() {
+      return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+      this.enabled = enabled;
+    }
+
+    public int getWindowSize() {
+      return windowSize;
+    }
+
+    public void setWindowSize(int windowSize) {
+      this.windowSize = windowSize;
+    }
+
+    public int getMinimumCalls() {
+      return minimumCalls;
+    }
+
+    public void setMinimumCalls(int minimumCalls) {
+      this.minimumCalls = minimumCalls;
+    }
+
+    public double getFailureRateThreshold() {
+      return failureRateThreshold;
+    }
+
+    public void setFailureRateThreshold(double failureRateThreshold) {
+      this.failureRateThreshold = failureRateThreshold;
+    }
+
+    public long getSlowCallMillis() {
+      return slowCallMillis;
+    }
+
+    public void setSlowCallMillis(long slowCallMillis) {
+      this.slowCallMillis = slowCallMillis;
+    }
+
+    public long getOpenMillis() {
+      return openMillis;
+    }
+
+    public void setOpenMillis(long openMillis) {
+      this.openMillis = openMillis;
+    }
+
+    public int getHalfOpenProbes() {
+      return halfOpenProbes;
+    }
+
+    public void setHalfOpenProbes(int halfOpenProbes) {
+      this.halfOpenProbes = halfOpenProbes;
+    }
+  }
 }
@@ -0,0 +1,52 @@
+package fintechfrauds.serve.config;
+
+import fintechfrauds.serve.logging.AsyncEventLog;
+import fintechfrauds.serve.logging.StructuredLogger;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class LoggingConfig {
+
+  private static final Logger log = LoggerFactory.getLogger(LoggingConfig.class);
+
+  /**
+   * Installs the asynchronous structured-log writer when enabled; otherwise events are encoded on
+   * the calling thread. Closing the bean on shutdown flushes buffered events.
+   */
+  @Bean
+  public AsyncEventLog asyncEventLog(
+      FintechFraudsProperties properties, MeterRegistry registry) {
+    FintechFraudsProperties.AsyncLogging async = properties.getLogging().getAsync();
+    if (!async.isEnabled()) {
+      return AsyncEventLog.disabled();
+    }
+    AsyncEventLog eventLog =
+        new AsyncEventLog(
+            async.getCapacity(), async.getOverflow(), async.getSampleEvery(), async.getBatchSize());
+    FunctionCounter.builder("fintechfrauds.log.dropped", eventLog, AsyncEventLog::droppedFullCount)
+        .description("Structured log events dropped by the async writer")
+        .tag("reason", "full")
+        .register(registry);
+    FunctionCounter.builder(
+            "fintechfrauds.log.dropped", eventLog, AsyncEventLog::droppedSampledCount)
+        .description("Structured log events dropped by the async writer")
+        .tag("reason", "sampled")
+        .register(registry);
+    Gauge.builder("fintechfrauds.log.depth", eventLog, AsyncEventLog::depth)
+        .description("Structured log events waiting for the async writer")
+        .register(registry);
+    StructuredLogger.install(eventLog);
+    log.info(
+        "async_logging_enabled capacity={} overflow={} batchSize={}",
+        async.getCapacity(),
+        async.getOverflow(),
+        async.getBatchSize());
+    return eventLog;
+  }
+}
@@ -1,26 +1,232 @@
 package fintechfrauds.serve.config;
 
+import fintechfrauds.serve.redis.RedisCircuitBreaker;
+import fintechfrauds.serve.scoring.FallbackFeatureState;
+import fintechfrauds.serve.scoring.FeatureEncoding;
+import fintechfrauds.serve.scoring.FeatureNearCache;
+import fintechfrauds.serve.scoring.OnlineFeatureUpdater;
+import fintechfrauds.serve.scoring.RedisInvalidationListener;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import redis.clients.jedis.Connection;
 import redis.clients.jedis.DefaultJedisClientConfig;
 import redis.clients.jedis.HostAndPort;
 import redis.clients.jedis.JedisClientConfig;
 import redis.clients.jedis.JedisPooled;
+import redis.clients.jedis.RedisProtocol;
 
 @Configuration
 public class RedisConfig {
 
+  private static final Logger log = LoggerFactory.getLogger(RedisConfig.class);
+
   @Bean(destroyMethod = "close")
   public JedisPooled jedisPooled(
+      @Value("${redis.host:localhost}") String host,
+      @Value("${redis.port:6379}") int port,
+      @Value("${redis.timeoutMillis:2000}") int timeoutMillis,
+      @Value("${redis.pool.maxTotal:8}") int maxTotal,
+      @Value("${redis.pool.maxWaitMillis:2000}") long maxWaitMillis) {
+    JedisClientConfig config =
+        DefaultJedisClientConfig.builder()
+            .connectionTimeoutMillis(timeoutMillis)
+            .socketTimeoutMillis(timeoutMillis)
+            .build();
+    return new JedisPooled(
+        new HostAndPort(host, port), config, poolConfig(maxTotal, maxWaitMillis));
+  }
+
+  /**
+   * Connection pool holding up to {@code maxTotal} connections, all of which may stay idle. A
+   * caller that finds none free waits at most {@code maxWaitMillis} and then gets a {@link
+   * redis.clients.jedis.exceptions.JedisException}, which the request path treats like any other
+   * Redis failure.
+   */
+  public static GenericObjectPoolConfig<Connection> poolConfig(int maxTotal, long maxWaitMillis) {
+    GenericObjectPoolConfig<Connection> pool = new GenericObjectPoolConfig<>();
+    pool.setMaxTotal(maxTotal);
+    pool.setMaxIdle(maxTotal);
+    pool.setMaxWait(Duration.ofMillis(maxWaitMillis));
+    return pool;
+  }
+
+  /**
+   * Shared breaker for request-path Redis calls (feature loads and idempotency checks), so an
+   * outage sends them straight to their in-memory fallbacks.
+   */
+  @Bean
+  public RedisCircuitBreaker redisCircuitBreaker(
+      FintechFraudsProperties properties, MeterRegistry registry) {
+    FintechFraudsProperties.CircuitBreaker settings = properties.getRedis().getCircuitBreaker();
+    if (!settings.isEnabled()) {
+      return RedisCircuitBreaker.disabled();
+    }
+    RedisCircuitBreaker breaker =
+        new RedisCircuitBreaker(
+            settings.getWindowSize(),
+            settings.getMinimumCalls(),
+            settings.getFailureRateThreshold(),
+            settings.getSlowCallMillis(),
+            settings.getOpenMillis(),
+            settings.getHalfOpenProbes());
+    Gauge.builder("fintechfrauds.redis.circuit.state", breaker, b -> b.state().ordinal())
+        .description("Redis circuit breaker state: 0 closed, 1 open, 2 half-open")
+        .register(registry);
+    Gauge.builder(
+            "fintechfrauds.redis.circuit.failure_rate",
+            breaker,
+            RedisCircuitBreaker::failureRate)
+        .description("Share of failed or slow Redis calls in the breaker window")
+        .register(registry);
+    FunctionCounter.builder(
+            "fintechfrauds.redis.circuit.rejected", breaker, RedisCircuitBreaker::rejectedCount)
+        .description("Redis calls skipped for a fallback while the breaker was open")
+        .register(registry);
+    FunctionCounter.builder(
+            "fintechfrauds.redis.circuit.opened", breaker, RedisCircuitBreaker::openedCount)
+        .description("Times the Redis circuit breaker opened")
+        .register(registry);
+    return breaker;
+  }
+
+  /** Per-account statistics used when Redis has no features, capped at {@code maxBytes}. */
+  @Bean
+  public FallbackFeatureState fallbackFeatureState(
+      FintechFraudsProperties properties, MeterRegistry registry) {
+    FallbackFeatureState state =
+        new FallbackFeatureState(properties.getFeatures().getFallback().getMaxBytes());
+    Gauge.builder("fintechfrauds.features.fallback.entries", state, FallbackFeatureState::size)
+        .description("Accounts with local fallback feature state")
+        .register(registry);
+    Gauge.builder(
+            "fintechfrauds.features.fallback.estimated_bytes",
+            state,
+            FallbackFeatureState::estimatedBytes)
+        .description("Estimated heap held by local fallback feature state")
+        .baseUnit("bytes")
+        .register(registry);
+    FunctionCounter.builder(
+            "fintechfrauds.features.fallback.evictions",
+            state,
+            FallbackFeatureState::evictionCount)
+        .description("Accounts evicted from local fallback feature state")
+        .register(registry);
+    return state;
+  }
+
+  /** Writes scored transactions back into the Redis features when online updates are enabled. */
+  @Bean(destroyMethod = "close")
+  public OnlineFeatureUpdater onlineFeatureUpdater(
+      JedisPooled jedis, FintechFraudsProperties properties, MeterRegistry registry) {
+    FintechFraudsProperties.Online online = properties.getFeatures().getOnline();
+    if (!online.isEnabled()) {
+      return OnlineFeatureUpdater.disabled();
+    }
+    OnlineFeatureUpdater updater =
+        new OnlineFeatureUpdater(
+            jedis,
+            online.getQueueCapacity(),
+            online.getBatchSize(),
+            Duration.ofDays(online.getMerchantTtlDays()));
+    FunctionCounter.builder(
+            "fintechfrauds.features.updates", updater, OnlineFeatureUpdater::writtenCount)
+        .description("Online feature updates by result")
+        .tag("result", "written")
+        .register(registry);
+    FunctionCounter.builder(
+            "fintechfrauds.features.updates", updater, OnlineFeatureUpdater::droppedCount)
+        .description("Online feature updates by result")
+        .tag("result", "dropped")
+        .register(registry);
+    FunctionCounter.builder(
+            "fintechfrauds.features.updates", updater, OnlineFeatureUpdater::failedCount)
+        .description("Online feature updates by result")
+        .tag("result", "failed")
+        .register(registry);
+    Gauge.builder("fintechfrauds.features.update_queue", updater, OnlineFeatureUpdater::pending)
+        .description("Online feature updates waiting for the writer")
+        .register(registry);
+    log.info(
+        "online_feature_updates_enabled queueCapacity={} batchSize={}",
+        online.getQueueCapacity(),
+        online.getBatchSize());
+    return updater;
+  }
+
+  /** Near cache for feature hashes; a disabled cache when the feature is off. */
+  @Bean
+  public FeatureNearCache featureNearCache(
+      FintechFraudsProperties properties, MeterRegistry registry) {
+    FintechFraudsProperties.NearCache settings = properties.getFeatures().getNearCache();
+    if (!settings.isEnabled()) {
+      return FeatureNearCache.disabled();
+    }
+    FeatureNearCache cache =
+        new FeatureNearCache(settings.getMaxEntries(), settings.getTtlMillis());
+    Gauge.builder("fintechfrauds.features.near_cache.size", cache, FeatureNearCache::size)
+        .description("Feature hashes held in the near cache")
+        .register(registry);
+    FunctionCounter.builder(
+            "fintechfrauds.features.near_cache.requests", cache, FeatureNearCache::hitCount)
+        .description("Near cache lookups")
+        .tag("result", "hit")
+        .register(registry);
+    FunctionCounter.builder(
+            "fintechfrauds.features.near_cache.requests", cache, FeatureNearCache::missCount)
+        .description("Near cache lookups")
+        .tag("result", "miss")
+        .register(registry);
+    FunctionCounter.builder(
+            "fintechfrauds.features.near_cache.invalidations",
+            cache,
+            FeatureNearCache::invalidationCount)
+        .description("Near cache entries invalidated by Redis")
+        .register(registry);
+    return cache;
+  }
+
+  /**
+   * Tracking connection that evicts near cache entries when their keys change in Redis. Needs
+   * Redis 6 or newer for RESP3 and broadcast tracking.
+   */
+  @Bean(destroyMethod = "close")
+  public RedisInvalidationListener featureInvalidationListener(
+      FeatureNearCache featureNearCache,
+      FintechFraudsProperties properties,
       @Value("${redis.host:localhost}") String host,
       @Value("${redis.port:6379}") int port,
       @Value("${redis.timeoutMillis:2000}") int timeoutMillis) {
+    if (!featureNearCache.isEnabled()) {
+      return RedisInvalidationListener.disabled();
+    }
+    FintechFraudsProperties.NearCache settings = properties.getFeatures().getNearCache();
+    // The near cache only holds keys in the configured encoding.
+    FeatureEncoding encoding = properties.getFeatures().getEncoding();
     JedisClientConfig config =
         DefaultJedisClientConfig.builder()
             .connectionTimeoutMillis(timeoutMillis)
             .socketTimeoutMillis(timeoutMillis)
+            .protocol(RedisProtocol.RESP3)
             .build();
-    return new JedisPooled(new HostAndPort(host, port), config);
+    log.info(
+        "feature_near_cache_enabled maxEntries={} ttlMillis={}",
+        settings.getMaxEntries(),
+        settings.getTtlMillis());
+    return new RedisInvalidationListener(
+            new HostAndPort(host, port),
+            config,
+            List.of(encoding.accountPrefix(), encoding.merchantPrefix()),
+            featureNearCache,
+            settings.getHeartbeatMillis())
+        .start();
   }
 }
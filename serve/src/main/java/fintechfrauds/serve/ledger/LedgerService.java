@@ -27,6 +27,7 @@ import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
@@ -46,6 +47,8 @@ public class LedgerService {
   private final Map<String, String> dedupeIndex = new ConcurrentHashMap<>();
   private final java.util.Set<String> approvedDedupeKeys = ConcurrentHashMap.newKeySet();
   private final AtomicReference<String> lastHash = new AtomicReference<>(null);
+  // Not synchronized: file I/O under a monitor would pin virtual-thread carriers.
+  private final ReentrantLock moderationLock = new ReentrantLock();
 
   public LedgerService(ObjectMapper objectMapper, FintechFraudsProperties properties)
       throws IOException {
@@ -59,28 +62,24 @@ public class LedgerService {
   public PendingReport enqueue(FraudReportPayload payload) {
     String dedupeKey = buildDedupeKey(payload);
     if (approvedDedupeKeys.contains(dedupeKey)) {
-      StructuredLogger.info(
-          log,
-          StructuredLogger.builder()
-              .with("event", "ledger_duplicate_approved")
-              .with("reporter", payload.getReporter())
-              .with("merchantHash", payload.getMerchantHash())
-              .with("dedupeKey", dedupeKey)
-              .build());
+      StructuredLogger.audit(log)
+          .with("event", "ledger_duplicate_approved")
+          .with("reporter", payload.getReporter())
+          .with("merchantHash", payload.getMerchantHash())
+          .with("dedupeKey", dedupeKey)
+          .log();
       throw new DuplicateReportException("Duplicate report already approved for this day");
     }
     if (dedupeIndex.containsKey(dedupeKey)) {
       String existingId = dedupeIndex.get(dedupeKey);
       PendingReport existing = existingId == null ? null : pendingById.get(existingId);
-      StructuredLogger.info(
-          log,
-          StructuredLogger.builder()
-              .with("event", "ledger_duplicate_report")
-              .with("reporter", payload.getReporter())
-              .with("merchantHash", payload.getMerchantHash())
-              .with("dedupeKey", dedupeKey)
-              .with("existingId", existingId)
-              .build());
+      StructuredLogger.audit(log)
+          .with("event", "ledger_duplicate_report")
+          .with("reporter", payload.getReporter())
+          .with("merchantHash", payload.getMerchantHash())
+          .with("dedupeKey", dedupeKey)
+          .with("existingId", existingId)
+          .log();
       if (existing != null) {
         return existing;
       }
@@ -90,15 +89,13 @@ public class LedgerService {
     queue.offer(report);
     pendingById.put(id, report);
     dedupeIndex.put(dedupeKey, id);
-    StructuredLogger.info(
-        log,
-        StructuredLogger.builder()
-            .with("event", "ledger_report_enqueued")
-            .with("reportId", id)
-            .with("reporter", payload.getReporter())
-            .with("merchantHash", payload.getMerchantHash())
-            .with("dedupeKey", dedupeKey)
-            .build());
+    StructuredLogger.audit(log)
+        .with("event", "ledger_report_enqueued")
+        .with("reportId", id)
+        .with("reporter", payload.getReporter())
+        .with("merchantHash", payload.getMerchantHash())
+        .with("dedupeKey", dedupeKey)
+        .log();
     return report;
   }
 
@@ -110,36 +107,37 @@ public class LedgerService {
     return Optional.ofNullable(queue.peek());
   }
 
-  public synchronized void moderate(ModerationDecision decision) throws IOException {
-    PendingReport report = pendingById.get(decision.getId());
-    if (report == null) {
-      throw new IllegalArgumentException("Unknown report id: " + decision.getId());
-    }
-    if (decision.getAction() == ModerationDecision.Action.APPROVE) {
-      if (approvedDedupeKeys.contains(report.dedupeKey())) {
-        StructuredLogger.info(
-            log,
-            StructuredLogger.builder()
-                .with("event", "ledger_duplicate_on_moderation")
-                .with("reportId", report.id())
-                .with("dedupeKey", report.dedupeKey())
-                .with("moderator", decision.getModerator())
-                .build());
-        throw new DuplicateReportException("Duplicate report already approved for this day");
+  public void moderate(ModerationDecision decision) throws IOException {
+    moderationLock.lock();
+    try {
+      PendingReport report = pendingById.get(decision.getId());
+      if (report == null) {
+        throw new IllegalArgumentException("Unknown report id: " + decision.getId());
       }
-      appendApproved(report, decision.getModerator());
-    } else {
-      StructuredLogger.info(
-          log,
-          StructuredLogger.builder()
-              .with("event", "ledger_report_rejected")
-              .with("reportId", decision.getId())
+      if (decision.getAction() == ModerationDecision.Action.APPROVE) {
+        if (approvedDedupeKeys.contains(report.dedupeKey())) {
+          StructuredLogger.audit(log)
+              .with("event", "ledger_duplicate_on_moderation")
+              .with("reportId", report.id())
+              .with("dedupeKey", report.dedupeKey())
               .with("moderator", decision.getModerator())
-              .build());
+              .log();
+          throw new DuplicateReportException("Duplicate report already approved for this day");
+        }
+        appendApproved(report, decision.getModerator());
+      } else {
+        StructuredLogger.audit(log)
+            .with("event", "ledger_report_rejected")
+            .with("reportId", decision.getId())
+            .with("moderator", decision.getModerator())
+            .log();
+      }
+      pendingById.remove(report.id());
+      queue.remove(report);
+      dedupeIndex.remove(report.dedupeKey());
+    } finally {
+      moderationLock.unlock();
     }
-    pendingById.remove(report.id());
-    queue.remove(report);
-    dedupeIndex.remove(report.dedupeKey());
   }
 
   public record PendingReport(String id, FraudReportPayload payload, Instant receivedAt, String dedupeKey) {}
@@ -193,15 +191,13 @@ public class LedgerService {
             : java.nio.file.StandardOpenOption.CREATE);
     lastHash.set(hash);
     approvedDedupeKeys.add(report.dedupeKey());
-    StructuredLogger.info(
-        log,
-        StructuredLogger.builder()
-            .with("event", "ledger_report_approved")
-            .with("reportId", report.id())
-            .with("hash", hash)
-            .withNullable("prevHash", prevHashValue)
-            .with("moderator", moderator)
-            .build());
+    StructuredLogger.audit(log)
+        .with("event", "ledger_report_approved")
+        .with("reportId", report.id())
+        .with("hash", hash)
+        .withNullable("prevHash", prevHashValue)
+        .with("moderator", moderator)
+        .log();
   }
 
   private String sha256(String input) {
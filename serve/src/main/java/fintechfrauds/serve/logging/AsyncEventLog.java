@@ -0,0 +1,216 @@
+package fintechfrauds.serve.logging;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Moves structured log encoding and output off the request thread.
+ *
+ * <p>Events are copied into a preallocated ring of {@link LogEvent} slots; producers claim a slot
+ * with one CAS and publish it with an ordered write, so logging an event allocates nothing. A
+ * single writer thread drains published slots in batches, encodes each to JSON and hands the line
+ * to the event's logger. When the ring is full the {@link Overflow} policy decides whether the
+ * caller drops the event, keeps only a sample of events, or waits for space; drops are counted.
+ */
+public class AsyncEventLog implements AutoCloseable {
+
+  /** What a producer does when the ring has no room. */
+  public enum Overflow {
+    /** Drop the event once the ring is full. */
+    DROP,
+    /**
+     * Keep one in {@code sampleEvery} events once the ring is half full, and drop when it is full,
+     * so a burst thins out the log instead of cutting it off.
+     */
+    SAMPLE,
+    /** Wait for the writer to free a slot. Never loses events but can stall request threads. */
+    BLOCK
+  }
+
+  /** Receives encoded lines; {@link Logger#info(String)} outside of tests. */
+  @FunctionalInterface
+  interface LineSink {
+    void write(Logger logger, String line);
+  }
+
+  private static final Logger log = LoggerFactory.getLogger(AsyncEventLog.class);
+  private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+  private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+  private final LogEvent[] slots;
+  private final AtomicLongArray published;
+  private final int mask;
+  private final Overflow overflow;
+  private final int sampleEvery;
+  private final int batchSize;
+  private final LineSink sink;
+  private final AtomicLong claimed = new AtomicLong();
+  private final AtomicLong consumed = new AtomicLong();
+  private final LongAdder droppedFull = new LongAdder();
+  private final LongAdder droppedSampled = new LongAdder();
+  private final LongAdder written = new LongAdder();
+  private final Thread writer;
+  private volatile boolean running = true;
+
+  private AsyncEventLog() {
+    this.slots = null;
+    this.published = null;
+    this.mask = 0;
+    this.overflow = Overflow.DROP;
+    this.sampleEvery = 1;
+    this.batchSize = 1;
+    this.sink = null;
+    this.writer = null;
+    this.running = false;
+  }
+
+  /** An event log that is never installed; events stay on the calling thread. */
+  public static AsyncEventLog disabled() {
+    return new AsyncEventLog();
+  }
+
+  public boolean isEnabled() {
+    return writer != null;
+  }
+
+  public AsyncEventLog(int capacity, Overflow overflow, int sampleEvery, int batchSize) {
+    this(capacity, overflow, sampleEvery, batchSize, Logger::info);
+  }
+
+  AsyncEventLog(int capacity, Overflow overflow, int sampleEvery, int batchSize, LineSink sink) {
+    if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+      throw new IllegalArgumentException("capacity must be a power of two: " + capacity);
+    }
+    this.slots = new LogEvent[capacity];
+    for (int i = 0; i < capacity; i++) {
+      slots[i] = new LogEvent();
+    }
+    this.published = new AtomicLongArray(capacity);
+    for (int i = 0; i < capacity; i++) {
+      published.set(i, -1L);
+    }
+    this.mask = capacity - 1;
+    this.overflow = overflow;
+    this.sampleEvery = Math.max(1, sampleEvery);
+    this.batchSize = Math.max(1, batchSize);
+    this.sink = sink;
+    this.writer =
+        Thread.ofPlatform().name("structured-log-writer").daemon(true).start(this::drain);
+  }
+
+  /**
+   * Copies the event into the ring.
+   *
+   * @return {@code false} if the overflow policy dropped it
+   */
+  boolean offer(LogEvent event) {
+    long sequence = claim();
+    if (sequence < 0) {
+      return false;
+    }
+    int index = (int) (sequence & mask);
+    slots[index].copyFrom(event);
+    published.lazySet(index, sequence);
+    return true;
+  }
+
+  public long droppedFullCount() {
+    return droppedFull.sum();
+  }
+
+  public long droppedSampledCount() {
+    return droppedSampled.sum();
+  }
+
+  public long writtenCount() {
+    return written.sum();
+  }
+
+  /** Events claimed but not yet written. */
+  public long depth() {
+    return claimed.get() - consumed.get();
+  }
+
+  /**
+   * Detaches from {@link StructuredLogger}, stops accepting events and waits for the writer to
+   * flush what is already buffered.
+   */
+  @Override
+  public void close() {
+    StructuredLogger.uninstall(this);
+    if (writer == null) {
+      return;
+    }
+    running = false;
+    LockSupport.unpark(writer);
+    try {
+      writer.join(TimeUnit.SECONDS.toMillis(5));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private long claim() {
+    while (true) {
+      long sequence = claimed.get();
+      long depth = sequence - consumed.get();
+      if (depth >= slots.length || !running) {
+        if (overflow == Overflow.BLOCK && running) {
+          LockSupport.parkNanos(BLOCK_PARK_NANOS);
+          continue;
+        }
+        droppedFull.increment();
+        return -1L;
+      }
+      if (overflow == Overflow.SAMPLE
+          && depth >= slots.length / 2
+          && ThreadLocalRandom.current().nextInt(sampleEvery) != 0) {
+        droppedSampled.increment();
+        return -1L;
+      }
+      if (claimed.compareAndSet(sequence, sequence + 1)) {
+        return sequence;
+      }
+    }
+  }
+
+  private void drain() {
+    StringBuilder line = new StringBuilder(512);
+    int[] order = new int[LogEvent.MAX_FIELDS];
+    long next = 0;
+    while (true) {
+      int drained = 0;
+      while (drained < batchSize) {
+        int index = (int) (next & mask);
+        if (published.get(index) != next) {
+          break;
+        }
+        LogEvent event = slots[index];
+        line.setLength(0);
+        try {
+          event.encodeTo(line, order);
+          sink.write(event.logger(), line.toString());
+          written.increment();
+        } catch (RuntimeException e) {
+          log.warn("structured_log_write_failed", e);
+        }
+        event.clear();
+        next++;
+        consumed.lazySet(next);
+        drained++;
+      }
+      if (drained == 0) {
+        if (!running && claimed.get() == next) {
+          return;
+        }
+        LockSupport.parkNanos(IDLE_PARK_NANOS);
+      }
+    }
+  }
+}
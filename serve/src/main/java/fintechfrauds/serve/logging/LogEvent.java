@@ -0,0 +1,256 @@
+package fintechfrauds.serve.logging;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.Collection;
+import org.slf4j.Logger;
+
+/**
+ * One structured log event held as primitive fields, obtained from {@link
+ * StructuredLogger#event(Logger)} and finished with {@link #log()}.
+ *
+ * <p>Numbers and booleans are stored unboxed and strings by reference, so filling an event does not
+ * allocate. The JSON line (keys sorted, as {@link StructuredLogger#info} writes them) is only
+ * encoded when the event is written, which with an {@link AsyncEventLog} happens on its writer
+ * thread. An event holds at most {@value #MAX_FIELDS} fields; further fields are ignored.
+ */
+public final class LogEvent {
+
+  static final int MAX_FIELDS = 16;
+
+  static final LogEvent DISABLED = new LogEvent();
+
+  private static final byte NULL = 0;
+  private static final byte LONG = 1;
+  private static final byte DOUBLE = 2;
+  private static final byte BOOLEAN = 3;
+  private static final byte STRING = 4;
+  private static final byte OBJECT = 5;
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  private final String[] keys = new String[MAX_FIELDS];
+  private final byte[] kinds = new byte[MAX_FIELDS];
+  private final long[] bits = new long[MAX_FIELDS];
+  private final Object[] refs = new Object[MAX_FIELDS];
+  private Logger logger;
+  private int size;
+  private boolean synchronous;
+  boolean inUse;
+
+  LogEvent() {}
+
+  void start(Logger logger) {
+    this.logger = logger;
+    this.size = 0;
+    this.inUse = true;
+  }
+
+  /** Makes {@link #log()} write on the calling thread, bypassing any {@link AsyncEventLog}. */
+  LogEvent synchronous() {
+    if (this != DISABLED) {
+      synchronous = true;
+    }
+    return this;
+  }
+
+  public LogEvent with(String key, long value) {
+    return put(key, LONG, value, null);
+  }
+
+  public LogEvent with(String key, double value) {
+    return put(key, DOUBLE, Double.doubleToRawLongBits(value), null);
+  }
+
+  public LogEvent with(String key, boolean value) {
+    return put(key, BOOLEAN, value ? 1L : 0L, null);
+  }
+
+  /** Adds a string or other value; {@code null} values are left out, as with the map builder. */
+  public LogEvent with(String key, Object value) {
+    if (value == null) {
+      return this;
+    }
+    return put(key, value instanceof String ? STRING : OBJECT, 0L, value);
+  }
+
+  /** Adds a value that is written as JSON {@code null} when absent. */
+  public LogEvent withNullable(String key, Object value) {
+    if (value == null) {
+      return put(key, NULL, 0L, null);
+    }
+    return with(key, value);
+  }
+
+  /** Writes the event, directly or through the installed {@link AsyncEventLog}. */
+  public void log() {
+    if (this == DISABLED) {
+      return;
+    }
+    try {
+      AsyncEventLog sink = synchronous ? null : StructuredLogger.asyncSink();
+      if (sink != null) {
+        sink.offer(this);
+      } else {
+        StringBuilder line = new StringBuilder(256);
+        encodeTo(line, new int[MAX_FIELDS]);
+        logger.info(line.toString());
+      }
+    } finally {
+      clear();
+      synchronous = false;
+      inUse = false;
+    }
+  }
+
+  Logger logger() {
+    return logger;
+  }
+
+  void copyFrom(LogEvent other) {
+    logger = other.logger;
+    size = other.size;
+    System.arraycopy(other.keys, 0, keys, 0, size);
+    System.arraycopy(other.kinds, 0, kinds, 0, size);
+    System.arraycopy(other.bits, 0, bits, 0, size);
+    System.arraycopy(other.refs, 0, refs, 0, size);
+  }
+
+  /** Drops references so a buffered or staged event does not keep request objects reachable. */
+  void clear() {
+    for (int i = 0; i < size; i++) {
+      refs[i] = null;
+    }
+    logger = null;
+    size = 0;
+  }
+
+  /**
+   * Appends the event as one JSON object with keys in natural order.
+   *
+   * @param order scratch space of at least {@value #MAX_FIELDS} entries
+   */
+  void encodeTo(StringBuilder out, int[] order) {
+    for (int i = 0; i < size; i++) {
+      int field = i;
+      int j = i - 1;
+      while (j >= 0 && keys[order[j]].compareTo(keys[field]) > 0) {
+        order[j + 1] = order[j];
+        j--;
+      }
+      order[j + 1] = field;
+    }
+    out.append('{');
+    for (int i = 0; i < size; i++) {
+      int field = order[i];
+      if (i > 0) {
+        out.append(',');
+      }
+      appendString(out, keys[field]);
+      out.append(':');
+      switch (kinds[field]) {
+        case LONG -> out.append(bits[field]);
+        case DOUBLE -> appendDouble(out, Double.longBitsToDouble(bits[field]));
+        case BOOLEAN -> out.append(bits[field] != 0L);
+        case STRING -> appendString(out, (String) refs[field]);
+        case OBJECT -> appendValue(out, refs[field]);
+        default -> out.append("null");
+      }
+    }
+    out.append('}');
+  }
+
+  private LogEvent put(String key, byte kind, long value, Object ref) {
+    if (this == DISABLED) {
+      return this;
+    }
+    int index = indexOf(key);
+    if (index < 0) {
+      if (size == MAX_FIELDS) {
+        return this;
+      }
+      index = size++;
+      keys[index] = key;
+    }
+    kinds[index] = kind;
+    bits[index] = value;
+    refs[index] = ref;
+    return this;
+  }
+
+  private int indexOf(String key) {
+    for (int i = 0; i < size; i++) {
+      if (keys[i] == key || keys[i].equals(key)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static void appendValue(StringBuilder out, Object value) {
+    if (value == null) {
+      out.append("null");
+    } else if (value instanceof CharSequence text) {
+      appendString(out, text.toString());
+    } else if (value instanceof Double number) {
+      appendDouble(out, number);
+    } else if (value instanceof Float number && !Float.isFinite(number)) {
+      appendDouble(out, number);
+    } else if (value instanceof Number || value instanceof Boolean) {
+      out.append(value);
+    } else if (value instanceof Collection<?> values) {
+      out.append('[');
+      boolean first = true;
+      for (Object element : values) {
+        if (!first) {
+          out.append(',');
+        }
+        appendValue(out, element);
+        first = false;
+      }
+      out.append(']');
+    } else {
+      try {
+        out.append(MAPPER.writeValueAsString(value));
+      } catch (JsonProcessingException e) {
+        appendString(out, String.valueOf(value));
+      }
+    }
+  }
+
+  private static void appendDouble(StringBuilder out, double value) {
+    if (Double.isFinite(value)) {
+      out.append(value);
+    } else {
+      out.append('"').append(value).append('"');
+    }
+  }
+
+  private static void appendString(StringBuilder out, String value) {
+    out.append('"');
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      switch (c) {
+        case '"' -> out.append("\\\"");
+        case '\\' -> out.append("\\\\");
+        case '\n' -> out.append("\\n");
+        case '\r' -> out.append("\\r");
+        case '\t' -> out.append("\\t");
+        case '\b' -> out.append("\\b");
+        case '\f' -> out.append("\\f");
+        default -> {
+          if (c < 0x20) {
+            out.append("\\u00").append(hex(c >> 4)).append(hex(c & 0xF));
+          } else {
+            out.append(c);
+          }
+        }
+      }
+    }
+    out.append('"');
+  }
+
+  private static char hex(int nibble) {
+    return Character.toUpperCase(Character.forDigit(nibble, 16));
+  }
+}
@@ -0,0 +1,135 @@
+package fintechfrauds.serve.logging;
+
+import fintechfrauds.serve.config.FintechFraudsProperties;
+import fintechfrauds.serve.scoring.RulesEngine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Decides which {@code /v1/score} log lines are written.
+ *
+ * <p>DECLINE and REVIEW are always kept. APPROVE lines are kept when a hash of the account falls
+ * under the current sample rate, so an account's approvals are either all logged or all skipped
+ * at a given rate. The rate adapts once a second to hold approved lines near {@code
+ * targetApprovedPerSecond}; it moves in powers of two, so the set of sampled accounts only changes
+ * when load roughly doubles or halves, and a lower rate keeps a subset of the accounts a higher rate
+ * kept.
+ */
+@Component
+public class ScoreLogSampler {
+
+  private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+  private static final long HASH_SPACE = 1L << 32;
+  /** The rate only steps back up once load is this far below target, to avoid flapping. */
+  private static final double STEP_UP_HEADROOM = 0.8d;
+
+  private final boolean enabled;
+  private final double targetPerSecond;
+  private final int maxShift;
+  private final LongSupplier nanoTime;
+  private final LongAdder approvedInWindow = new LongAdder();
+  private final LongAdder skipped = new LongAdder();
+  private final AtomicLong windowStart;
+  private volatile int shift;
+  private volatile double smoothedPerSecond;
+
+  @Autowired
+  public ScoreLogSampler(FintechFraudsProperties properties, MeterRegistry registry) {
+    this(properties.getLogging().getSampling(), System::nanoTime);
+    FunctionCounter.builder("fintechfrauds.log.sampled_out", this, ScoreLogSampler::skippedCount)
+        .description("APPROVE score log lines skipped by sampling")
+        .register(registry);
+    Gauge.builder("fintechfrauds.log.approve_sample_rate", this, ScoreLogSampler::approveRate)
+        .description("Share of accounts whose APPROVE score lines are logged")
+        .register(registry);
+  }
+
+  ScoreLogSampler(FintechFraudsProperties.Sampling settings, LongSupplier nanoTime) {
+    this.enabled = settings.isEnabled();
+    this.targetPerSecond = settings.getTargetApprovedPerSecond();
+    this.maxShift = shiftFor(settings.getMinApproveRate());
+    this.nanoTime = nanoTime;
+    this.windowStart = new AtomicLong(nanoTime.getAsLong());
+  }
+
+  /** Whether the score line for this account and decision should be written. */
+  public boolean keep(String accountHash, String decision) {
+    if (!enabled || !RulesEngine.APPROVE.equals(decision)) {
+      return true;
+    }
+    approvedInWindow.increment();
+    maybeAdapt();
+    int current = shift;
+    if (current == 0) {
+      return true;
+    }
+    long hash = mix(accountHash == null ? 0 : accountHash.hashCode());
+    if (hash < (HASH_SPACE >>> current)) {
+      return true;
+    }
+    skipped.increment();
+    return false;
+  }
+
+  /** Current APPROVE sample rate, for the log line and the gauge. */
+  public double approveRate() {
+    return 1.0d / (1L << shift);
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public long skippedCount() {
+    return skipped.sum();
+  }
+
+  private void maybeAdapt() {
+    long start = windowStart.get();
+    long now = nanoTime.getAsLong();
+    long elapsed = now - start;
+    if (elapsed < WINDOW_NANOS || !windowStart.compareAndSet(start, now)) {
+      return;
+    }
+    // Only the thread that moved the window gets here, so the smoothed rate has one writer.
+    double perSecond = approvedInWindow.sumThenReset() * (double) WINDOW_NANOS / elapsed;
+    smoothedPerSecond =
+        smoothedPerSecond == 0.0d ? perSecond : 0.5d * smoothedPerSecond + 0.5d * perSecond;
+    int current = shift;
+    int next = 0;
+    while (next < maxShift && smoothedPerSecond / (1L << next) > targetPerSecond) {
+      next++;
+    }
+    while (next < current
+        && smoothedPerSecond / (1L << next) > STEP_UP_HEADROOM * targetPerSecond) {
+      next++;
+    }
+    shift = next;
+  }
+
+  private static int shiftFor(double minRate) {
+    int shift = 0;
+    while (shift < 30 && 1.0d / (1L << (shift + 1)) >= minRate) {
+      shift++;
+    }
+    return shift;
+  }
+
+  /** Murmur3 finaliser, so similar account hashes spread over the whole 32-bit range. */
+  private static long mix(int hash) {
+    int h = hash;
+    h ^= h >>> 16;
+    h *= 0x85ebca6b;
+    h ^= h >>> 13;
+    h *= 0xc2b2ae35;
+    h ^= h >>> 16;
+    return h & 0xFFFFFFFFL;
+  }
+}
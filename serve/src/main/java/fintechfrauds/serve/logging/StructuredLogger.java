@@ -7,10 +7,20 @@ import java.util.LinkedHashMap;
 import java.util.Map;
 import org.slf4j.Logger;
 
-/** Utility for emitting structured JSON logs without leaking PII. */
+/**
+ * Utility for emitting structured JSON logs without leaking PII.
+ *
+ * <p>{@link #event(Logger)} is the allocation-light form used on hot paths; it is encoded on the
+ * caller's thread, or on a background writer once an {@link AsyncEventLog} is {@link #install
+ * installed}. {@link #audit(Logger)} builds the same events but always writes them on the caller's
+ * thread, so no overflow policy can drop them. The map-based {@link #info} is kept for call sites
+ * where cost does not matter.
+ */
 public final class StructuredLogger {
 
   private static final ObjectMapper MAPPER = new ObjectMapper();
+  private static final ThreadLocal<LogEvent> STAGING = ThreadLocal.withInitial(LogEvent::new);
+  private static volatile AsyncEventLog asyncSink;
 
   static {
     MAPPER.configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
@@ -18,6 +28,46 @@ public final class StructuredLogger {
 
   private StructuredLogger() {}
 
+  /**
+   * Starts an event for {@code logger}; finish it with {@link LogEvent#log()}. Platform threads
+   * reuse one staging event each, so building the event allocates nothing.
+   */
+  public static LogEvent event(Logger logger) {
+    if (!logger.isInfoEnabled()) {
+      return LogEvent.DISABLED;
+    }
+    LogEvent event = Thread.currentThread().isVirtual() ? new LogEvent() : STAGING.get();
+    if (event.inUse) {
+      event = new LogEvent();
+    }
+    event.start(logger);
+    return event;
+  }
+
+  /**
+   * Starts an audit event, such as a ledger decision. Unlike {@link #event}, it is written on the
+   * caller's thread even when an {@link AsyncEventLog} is installed, so a DROP or SAMPLE overflow
+   * policy never loses it.
+   */
+  public static LogEvent audit(Logger logger) {
+    return event(logger).synchronous();
+  }
+
+  /** Routes {@link #event} output through {@code sink}, or back to the caller's thread. */
+  public static void install(AsyncEventLog sink) {
+    asyncSink = sink;
+  }
+
+  static void uninstall(AsyncEventLog sink) {
+    if (asyncSink == sink) {
+      asyncSink = null;
+    }
+  }
+
+  static AsyncEventLog asyncSink() {
+    return asyncSink;
+  }
+
   public static Builder builder() {
     return new Builder();
   }
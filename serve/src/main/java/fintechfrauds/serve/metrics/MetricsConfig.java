@@ -0,0 +1,36 @@
+package fintechfrauds.serve.metrics;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fintechfrauds.serve.api.dto.ScoreResponse;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+@Configuration
+public class MetricsConfig {
+
+  /**
+   * Replaces Boot's default JSON converter with one that times {@link ScoreResponse} writes, the
+   * only place the serialization stage of {@code /v1/score} can be observed.
+   */
+  @Bean
+  public MappingJackson2HttpMessageConverter mappingJackson2HttpMessageConverter(
+      ObjectMapper objectMapper, ScoringMetrics metrics) {
+    return new MappingJackson2HttpMessageConverter(objectMapper) {
+      @Override
+      protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage)
+          throws IOException {
+        if (!(object instanceof ScoreResponse)) {
+          super.writeInternal(object, type, outputMessage);
+          return;
+        }
+        long start = System.nanoTime();
+        super.writeInternal(object, type, outputMessage);
+        metrics.record(ScoringMetrics.Stage.SERIALIZE, System.nanoTime() - start);
+      }
+    };
+  }
+}
@@ -0,0 +1,116 @@
+package fintechfrauds.serve.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import java.util.concurrent.TimeUnit;
+import org.springframework.stereotype.Component;
+
+/**
+ * Latency timers for the scoring path and the request authentication checks.
+ *
+ * <p>Every timer is registered once up front and held in an array indexed by enum ordinal, so a
+ * recording is one array load and one {@link Timer#record} with no tag lookup. Percentiles and
+ * histogram buckets come from {@code management.metrics.distribution.*} for the {@code
+ * fintechfrauds} prefix.
+ */
+@Component
+public class ScoringMetrics {
+
+  /** Stages of one {@code /v1/score} call. */
+  public enum Stage {
+    FEATURES("features"),
+    MODEL("model"),
+    RULES("rules"),
+    SERIALIZE("serialize"),
+    LOG("log");
+
+    private final String tag;
+
+    Stage(String tag) {
+      this.tag = tag;
+    }
+  }
+
+  /** How a Redis feature load was answered. */
+  public enum FeatureLoad {
+    HIT("hit"),
+    MISS("miss"),
+    FALLBACK("fallback"),
+    /** Served by the in-process near cache without a Redis call. */
+    CACHED("cached"),
+    /** Served from local state because the Redis circuit breaker was open. */
+    CIRCUIT_OPEN("circuit_open");
+
+    private final String tag;
+
+    FeatureLoad(String tag) {
+      this.tag = tag;
+    }
+  }
+
+  /** Checks {@code ApiAuthFilter} runs before a request reaches a controller. */
+  public enum AuthCheck {
+    HMAC("hmac"),
+    IDEMPOTENCY("idempotency"),
+    NONCE("nonce"),
+    RATE_LIMIT("rate_limit");
+
+    private final String tag;
+
+    AuthCheck(String tag) {
+      this.tag = tag;
+    }
+  }
+
+  private final Timer[] stages;
+  private final Timer[] featureLoads;
+  private final Timer[] authChecks;
+
+  public ScoringMetrics(MeterRegistry registry) {
+    Stage[] stageValues = Stage.values();
+    this.stages = new Timer[stageValues.length];
+    for (Stage stage : stageValues) {
+      stages[stage.ordinal()] =
+          Timer.builder("fintechfrauds.score.stage")
+              .description("Time spent in one stage of a /v1/score call")
+              .tag("stage", stage.tag)
+              .register(registry);
+    }
+    FeatureLoad[] loadValues = FeatureLoad.values();
+    this.featureLoads = new Timer[loadValues.length];
+    for (FeatureLoad load : loadValues) {
+      featureLoads[load.ordinal()] =
+          Timer.builder("fintechfrauds.features.load")
+              .description("Redis feature loads by outcome")
+              .tag("outcome", load.tag)
+              .register(registry);
+    }
+    AuthCheck[] checkValues = AuthCheck.values();
+    this.authChecks = new Timer[checkValues.length];
+    for (AuthCheck check : checkValues) {
+      authChecks[check.ordinal()] =
+          Timer.builder("fintechfrauds.auth.check")
+              .description("Request authentication checks")
+              .tag("check", check.tag)
+              .register(registry);
+    }
+  }
+
+  /** Metrics that are recorded nowhere, for components built outside the application context. */
+  public static ScoringMetrics disabled() {
+    return new ScoringMetrics(new CompositeMeterRegistry());
+  }
+
+  public void record(Stage stage, long nanos) {
+    stages[stage.ordinal()].record(nanos, TimeUnit.NANOSECONDS);
+  }
+
+  public void record(FeatureLoad load, long nanos) {
+    featureLoads[load.ordinal()].record(nanos, TimeUnit.NANOSECONDS);
+  }
+
+  public void record(AuthCheck check, long nanos) {
+    authChecks[check.ordinal()].record(nanos, TimeUnit.NANOSECONDS);
+  }
+}
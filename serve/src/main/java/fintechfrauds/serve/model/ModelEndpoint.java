@@ -0,0 +1,38 @@
+package fintechfrauds.serve.model;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * Read-only {@code /actuator/model} view of the active model. Rollback is deliberately not an
+ * actuator operation because actuator paths bypass request signing; see {@code /v1/model}.
+ */
+@Component
+@Endpoint(id = "model")
+public class ModelEndpoint {
+
+  private final ModelManager modelManager;
+
+  public ModelEndpoint(ModelManager modelManager) {
+    this.modelManager = modelManager;
+  }
+
+  @ReadOperation
+  public Map<String, Object> model() {
+    ModelManager.ActiveModel active = modelManager.active();
+    ModelManager.ActiveModel previous = modelManager.previous();
+    Map<String, Object> body = new LinkedHashMap<>();
+    body.put("type", active.type());
+    body.put("sha256", active.sha256());
+    body.put("source", active.source());
+    body.put("loadedAt", active.loadedAt().toString());
+    if (previous != null) {
+      body.put("previousSha256", previous.sha256());
+      body.put("rollbackUntil", String.valueOf(modelManager.previousRetainedUntil()));
+    }
+    return body;
+  }
+}
@@ -0,0 +1,137 @@
+package fintechfrauds.serve.model;
+
+import fintechfrauds.serve.config.FintechFraudsProperties;
+import fintechfrauds.serve.scoring.Scorer;
+import fintechfrauds.serve.scoring.TreeBytecodeCompiler;
+import fintechfrauds.serve.scoring.TreeEnsemble;
+import fintechfrauds.serve.scoring.TreeEnsembleScorer;
+import fintechfrauds.serve.scoring.TreeMargin;
+import fintechfrauds.serve.scoring.XgbScorer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Locale;
+import ml.dmlc.xgboost4j.java.XGBoostError;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ClassPathResource;
+
+/**
+ * Locates the configured model artifact and turns it into a {@link Scorer} for the configured
+ * {@code fintechfrauds.model.type}.
+ */
+public class ModelLoader {
+
+  private static final Logger log = LoggerFactory.getLogger(ModelLoader.class);
+
+  private final FintechFraudsProperties.Model model;
+  private final String type;
+
+  public ModelLoader(FintechFraudsProperties.Model model) {
+    this.model = model;
+    this.type = model.getType().toLowerCase(Locale.ROOT);
+  }
+
+  public String type() {
+    return type;
+  }
+
+  /** Whether the configured type is backed by a model file rather than the heuristic scorer. */
+  public boolean isModelBacked() {
+    return "xgb".equals(type) || "xgb-java".equals(type) || "xgb-compiled".equals(type);
+  }
+
+  /**
+   * Resolves the model to a local file, downloading it when a URI is configured.
+   *
+   * @return the file, or {@code null} when no model can be found
+   */
+  public ResolvedModel resolve() {
+    if (model.getUri() != null) {
+      try {
+        return new ResolvedModel(downloadModel(model.getUri(), model.getSha256()), true);
+      } catch (IOException e) {
+        log.warn("model_download_failed", e);
+      }
+    }
+    Path resourcePath = Paths.get("serve/src/main/resources").resolve(model.getResourcePath());
+    if (Files.exists(resourcePath)) {
+      return new ResolvedModel(resourcePath, false);
+    }
+    Path runtimePath = Paths.get(model.getResourcePath());
+    if (Files.exists(runtimePath)) {
+      return new ResolvedModel(runtimePath, false);
+    }
+    ClassPathResource resource = new ClassPathResource(model.getResourcePath());
+    if (resource.exists()) {
+      try {
+        Path tempFile = Files.createTempFile("fintechfrauds-model", ".xgb");
+        try (InputStream inputStream = resource.getInputStream()) {
+          Files.copy(inputStream, tempFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return new ResolvedModel(tempFile, true);
+      } catch (IOException e) {
+        log.warn("model_classpath_extract_failed", e);
+      }
+    }
+    return null;
+  }
+
+  /** Loads the model file with the scorer implementation selected by the model type. */
+  public Scorer load(Path modelPath) throws IOException, XGBoostError {
+    if ("xgb".equals(type)) {
+      return XgbScorer.fromPath(modelPath);
+    }
+    TreeEnsemble ensemble = TreeEnsemble.fromModel(modelPath);
+    if (!"xgb-compiled".equals(type)) {
+      return new TreeEnsembleScorer(ensemble);
+    }
+    TreeMargin compiled =
+        TreeBytecodeCompiler.compile(ensemble, model.isCompiledRequireInlinable())
+            .orElseGet(
+                () -> {
+                  log.warn("tree_bytecode_fallback_interpreted trees={}", ensemble.treeCount());
+                  return ensemble;
+                });
+    return new TreeEnsembleScorer(ensemble, compiled);
+  }
+
+  public static String sha256(Path file) throws IOException {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      try (InputStream in = Files.newInputStream(file);
+          DigestInputStream dis = new DigestInputStream(in, digest)) {
+        dis.transferTo(OutputStream.nullOutputStream());
+      }
+      return HexFormat.of().formatHex(digest.digest());
+    } catch (NoSuchAlgorithmException e) {
+      throw new IOException("SHA-256 algorithm not available", e);
+    }
+  }
+
+  private Path downloadModel(URI uri, String sha256) throws IOException {
+    Path tempFile = Files.createTempFile("fintechfrauds-model", ".xgb");
+    try (InputStream input = uri.toURL().openStream()) {
+      Files.copy(input, tempFile, StandardCopyOption.REPLACE_EXISTING);
+      if (sha256 != null && !sha256.isBlank() && !sha256(tempFile).equalsIgnoreCase(sha256)) {
+        throw new IOException("Checksum mismatch for model file");
+      }
+    } catch (IOException e) {
+      Files.deleteIfExists(tempFile);
+      throw e;
+    }
+    return tempFile;
+  }
+
+  /** A model file on local disk; temporary copies are deleted once the model is loaded. */
+  public record ResolvedModel(Path path, boolean temporary) {}
+}
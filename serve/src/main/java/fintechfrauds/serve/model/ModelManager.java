@@ -0,0 +1,333 @@
+package fintechfrauds.serve.model;
+
+import fintechfrauds.serve.api.dto.ScoreRequest;
+import fintechfrauds.serve.config.FintechFraudsProperties;
+import fintechfrauds.serve.scoring.FeatureVector;
+import fintechfrauds.serve.scoring.Scorer;
+import fintechfrauds.serve.scoring.Velocity;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import ml.dmlc.xgboost4j.java.XGBoostError;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link Scorer} that delegates to the active model and can replace it while serving.
+ *
+ * <p>When reload is enabled the configured model location is polled off the request path. A file
+ * whose SHA-256 differs from the active model is loaded, checked and warmed with synthetic requests
+ * before it is swapped in with a single volatile write, so requests never see a cold or broken
+ * model. The replaced model is kept for the rollback window and released afterwards. A rolled back
+ * model is not picked up again until a different file appears at the location.
+ */
+public class ModelManager implements Scorer, AutoCloseable {
+
+  private static final Logger log = LoggerFactory.getLogger(ModelManager.class);
+  private static final int WARMUP_BATCH = 64;
+
+  private final ModelLoader loader;
+  private final Scorer fallback;
+  private final FintechFraudsProperties.Reload reload;
+  private final ScheduledExecutorService poller;
+  private final ReentrantLock lock = new ReentrantLock();
+
+  private volatile ActiveModel active;
+  private volatile ActiveModel previous;
+  private volatile Instant previousRetainedUntil;
+  private volatile String rejectedSha256;
+  private ActiveModel pendingRelease;
+
+  public ModelManager(
+      ModelLoader loader, Scorer fallback, FintechFraudsProperties.Reload reload) {
+    this.loader = loader;
+    this.fallback = fallback;
+    this.reload = reload;
+    this.active = initialModel();
+    if (reload.isEnabled() && loader.isModelBacked()) {
+      this.poller =
+          Executors.newSingleThreadScheduledExecutor(
+              runnable -> {
+                Thread thread = new Thread(runnable, "model-reload");
+                thread.setDaemon(true);
+                return thread;
+              });
+      long period = Math.max(1, reload.getPollSeconds());
+      poller.scheduleWithFixedDelay(this::poll, period, period, TimeUnit.SECONDS);
+      log.info("model_reload_enabled pollSeconds={}", period);
+    } else {
+      this.poller = null;
+    }
+  }
+
+  @Override
+  public double score(ScoreRequest request, FeatureVector features) {
+    return active.scorer().score(request, features);
+  }
+
+  @Override
+  public double[] scoreBatch(List<ScoreRequest> requests, List<FeatureVector> features) {
+    return active.scorer().scoreBatch(requests, features);
+  }
+
+  public boolean isModelBacked() {
+    return loader.isModelBacked();
+  }
+
+  public ActiveModel active() {
+    return active;
+  }
+
+  /** The model kept for rollback, or {@code null} when there is none. */
+  public ActiveModel previous() {
+    return previous;
+  }
+
+  public Instant previousRetainedUntil() {
+    return previousRetainedUntil;
+  }
+
+  /**
+   * Checks the model location once and swaps in a changed model if it passes validation.
+   *
+   * @return {@code true} if a new model became active
+   */
+  public boolean checkForUpdate() {
+    lock.lock();
+    try {
+      releasePending();
+      releaseExpiredPrevious();
+      ModelLoader.ResolvedModel resolved = loader.resolve();
+      if (resolved == null) {
+        return false;
+      }
+      String sha256 = null;
+      Scorer candidate = null;
+      try {
+        sha256 = ModelLoader.sha256(resolved.path());
+        if (sha256.equals(active.sha256()) || sha256.equals(rejectedSha256)) {
+          return false;
+        }
+        candidate = loader.load(resolved.path());
+        long warmupMicros = warmUp(candidate);
+        String source = resolved.path().toString();
+        swapIn(new ActiveModel(candidate, loader.type(), sha256, source, Instant.now()));
+        log.info(
+            "model_reloaded sha256={} previousSha256={} warmupMicros={}",
+            sha256,
+            previous == null ? null : previous.sha256(),
+            warmupMicros);
+        return true;
+      } catch (IOException | XGBoostError | RuntimeException e) {
+        log.warn("model_reload_rejected path={} sha256={}", resolved.path(), sha256, e);
+        // Do not retry the same artifact on every poll.
+        rejectedSha256 = sha256;
+        if (candidate != null) {
+          release(new ActiveModel(candidate, loader.type(), sha256, null, Instant.now()));
+        }
+        return false;
+      } finally {
+        deleteIfTemporary(resolved);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Reactivates the model that was replaced last, if it is still inside the rollback window.
+   *
+   * @return {@code true} if a rollback happened
+   */
+  public boolean rollback() {
+    lock.lock();
+    try {
+      releasePending();
+      releaseExpiredPrevious();
+      ActiveModel target = previous;
+      if (target == null) {
+        return false;
+      }
+      ActiveModel rolledBack = active;
+      active = target;
+      previous = null;
+      previousRetainedUntil = null;
+      rejectedSha256 = rolledBack.sha256();
+      log.warn("model_rolled_back sha256={} rejectedSha256={}", target.sha256(), rejectedSha256);
+      // Requests may still be inside the rolled back model; it is released on the next poll.
+      pendingRelease = rolledBack;
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void close() {
+    if (poller != null) {
+      poller.shutdownNow();
+    }
+    lock.lock();
+    try {
+      releasePending();
+      if (previous != null) {
+        release(previous);
+        previous = null;
+      }
+      release(active);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private ActiveModel initialModel() {
+    Instant now = Instant.now();
+    if (!loader.isModelBacked()) {
+      return new ActiveModel(fallback, loader.type(), null, null, now);
+    }
+    ModelLoader.ResolvedModel resolved = loader.resolve();
+    if (resolved == null) {
+      log.warn("xgb_model_missing_fallback_dummy");
+      return new ActiveModel(fallback, "dummy", null, null, now);
+    }
+    try {
+      String sha256 = ModelLoader.sha256(resolved.path());
+      Scorer scorer = loader.load(resolved.path());
+      log.info(
+          "xgb_model_loaded path={} size={} mode={} sha256={}",
+          resolved.path(),
+          Files.size(resolved.path()),
+          loader.type(),
+          sha256);
+      return new ActiveModel(scorer, loader.type(), sha256, resolved.path().toString(), now);
+    } catch (IOException | XGBoostError | IllegalArgumentException e) {
+      log.warn("xgb_model_load_failed_fallback", e);
+      return new ActiveModel(fallback, "dummy", null, null, now);
+    } finally {
+      deleteIfTemporary(resolved);
+    }
+  }
+
+  private void poll() {
+    try {
+      checkForUpdate();
+    } catch (RuntimeException e) {
+      log.warn("model_reload_poll_failed", e);
+    }
+  }
+
+  /**
+   * Scores synthetic requests until the candidate has been exercised enough for the JIT to compile
+   * its hot path, and rejects it if any score is outside [0, 1].
+   */
+  private long warmUp(Scorer candidate) {
+    long start = System.nanoTime();
+    Random random = new Random(7);
+    List<ScoreRequest> requests = new ArrayList<>(WARMUP_BATCH);
+    List<FeatureVector> features = new ArrayList<>(WARMUP_BATCH);
+    for (int i = 0; i < WARMUP_BATCH; i++) {
+      requests.add(syntheticRequest(random));
+      features.add(syntheticFeatures(random));
+    }
+    for (int i = 0; i < reload.getWarmupRequests(); i++) {
+      int row = i % WARMUP_BATCH;
+      checkRisk(candidate.score(requests.get(row), features.get(row)));
+    }
+    for (double risk : candidate.scoreBatch(requests, features)) {
+      checkRisk(risk);
+    }
+    return (System.nanoTime() - start) / 1_000L;
+  }
+
+  private static void checkRisk(double risk) {
+    if (!(risk >= 0.0d && risk <= 1.0d)) {
+      throw new IllegalStateException("Candidate model produced invalid risk " + risk);
+    }
+  }
+
+  private void swapIn(ActiveModel next) {
+    if (previous != null) {
+      release(previous);
+    }
+    previous = active;
+    previousRetainedUntil = Instant.now().plus(Duration.ofSeconds(reload.getRollbackWindowSeconds()));
+    active = next;
+  }
+
+  private void releaseExpiredPrevious() {
+    if (previous != null && Instant.now().isAfter(previousRetainedUntil)) {
+      log.info("model_rollback_window_expired sha256={}", previous.sha256());
+      release(previous);
+      previous = null;
+      previousRetainedUntil = null;
+    }
+  }
+
+  private void releasePending() {
+    if (pendingRelease != null) {
+      release(pendingRelease);
+      pendingRelease = null;
+    }
+  }
+
+  private void release(ActiveModel model) {
+    if (model.scorer() != fallback && model.scorer() instanceof AutoCloseable closeable) {
+      try {
+        closeable.close();
+      } catch (Exception e) {
+        log.warn("model_release_failed sha256={}", model.sha256(), e);
+      }
+    }
+  }
+
+  private static void deleteIfTemporary(ModelLoader.ResolvedModel resolved) {
+    if (!resolved.temporary()) {
+      return;
+    }
+    try {
+      Files.deleteIfExists(resolved.path());
+    } catch (IOException e) {
+      log.warn("model_temp_delete_failed path={}", resolved.path(), e);
+    }
+  }
+
+  private static ScoreRequest syntheticRequest(Random random) {
+    ScoreRequest request = new ScoreRequest();
+    request.setAccountHash("warmup-" + random.nextInt(1_000));
+    request.setEpochMillis(System.currentTimeMillis());
+    request.setAmountCents((long) random.nextInt(500_000));
+    request.setDescription(random.nextBoolean() ? "GIFT CARD STORE" : "GROCERY MARKET");
+    request.setMerchantHash("merchant-" + random.nextInt(100));
+    request.setMcc("5411");
+    request.setCountryCode(random.nextBoolean() ? "US" : "GB");
+    return request;
+  }
+
+  private static FeatureVector syntheticFeatures(Random random) {
+    int count15m = random.nextInt(10);
+    int count1h = count15m + random.nextInt(10);
+    int merchant15m = random.nextInt(200);
+    int merchant1h = merchant15m + random.nextInt(600);
+    return new FeatureVector(
+        random.nextGaussian() * 3.0d,
+        random.nextInt(2),
+        "5411",
+        new Velocity(Math.min(count15m, 2), count15m, count1h, count1h + random.nextInt(50)),
+        new Velocity(
+            merchant15m / 15, merchant15m, merchant1h, merchant1h + random.nextInt(5_000)));
+  }
+
+  /**
+   * A loaded model. {@code sha256} and {@code source} are {@code null} for the heuristic scorer.
+   */
+  public record ActiveModel(
+      Scorer scorer, String type, String sha256, String source, Instant loadedAt) {}
+}
@@ -0,0 +1,244 @@
+package fintechfrauds.serve.redis;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Fails Redis calls fast while Redis is unhealthy, so callers go straight to their in-memory
+ * fallbacks instead of each waiting out the socket timeout.
+ *
+ * <p>Callers ask {@link #tryAcquire()} before touching the network and report the call with
+ * {@link #onSuccess(long)} or {@link #onFailure()}. The outcomes of the last {@code windowSize}
+ * calls are kept in a ring; a call counts as failed when it threw or took longer than {@code
+ * slowCallMillis}. Once the ring holds at least {@code minimumCalls} outcomes and the failed share
+ * reaches {@code failureRateThreshold}, the breaker opens and {@link #tryAcquire()} returns {@code
+ * false}. After {@code openMillis} it turns half-open and lets {@code halfOpenProbes} calls
+ * through: if all of them succeed it closes with an empty ring, and any failure opens it again.
+ * Probes that never report back are reissued after another {@code openMillis}.
+ */
+public class RedisCircuitBreaker {
+
+  public enum State {
+    CLOSED,
+    OPEN,
+    HALF_OPEN
+  }
+
+  private static final Logger log = LoggerFactory.getLogger(RedisCircuitBreaker.class);
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final boolean[] outcomes;
+  private final int minimumCalls;
+  private final double failureRateThreshold;
+  private final long slowCallNanos;
+  private final long openNanos;
+  private final int halfOpenProbes;
+  private final LongSupplier nanoTime;
+  private final LongAdder rejected = new LongAdder();
+  private final LongAdder opened = new LongAdder();
+  private volatile State state = State.CLOSED;
+  // Guarded by lock.
+  private int next;
+  private int recorded;
+  private int failed;
+  private long stateSinceNanos;
+  private int probesIssued;
+  private int probesSucceeded;
+
+  private RedisCircuitBreaker() {
+    this.outcomes = null;
+    this.minimumCalls = 0;
+    this.failureRateThreshold = 1.0d;
+    this.slowCallNanos = Long.MAX_VALUE;
+    this.openNanos = 0L;
+    this.halfOpenProbes = 0;
+    this.nanoTime = System::nanoTime;
+  }
+
+  /** A breaker that never opens. */
+  public static RedisCircuitBreaker disabled() {
+    return new RedisCircuitBreaker();
+  }
+
+  public RedisCircuitBreaker(
+      int windowSize,
+      int minimumCalls,
+      double failureRateThreshold,
+      long slowCallMillis,
+      long openMillis,
+      int halfOpenProbes) {
+    this(
+        windowSize,
+        minimumCalls,
+        failureRateThreshold,
+        slowCallMillis,
+        openMillis,
+        halfOpenProbes,
+        System::nanoTime);
+  }
+
+  RedisCircuitBreaker(
+      int windowSize,
+      int minimumCalls,
+      double failureRateThreshold,
+      long slowCallMillis,
+      long openMillis,
+      int halfOpenProbes,
+      LongSupplier nanoTime) {
+    if (windowSize < 1 || minimumCalls < 1 || minimumCalls > windowSize) {
+      throw new IllegalArgumentException("minimumCalls must be between 1 and windowSize");
+    }
+    this.outcomes = new boolean[windowSize];
+    this.minimumCalls = minimumCalls;
+    this.failureRateThreshold = failureRateThreshold;
+    this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(slowCallMillis);
+    this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMillis);
+    this.halfOpenProbes = Math.max(1, halfOpenProbes);
+    this.nanoTime = nanoTime;
+  }
+
+  public boolean isEnabled() {
+    return outcomes != null;
+  }
+
+  /**
+   * Whether the caller may call Redis now. A {@code false} answer means the caller must use its
+   * fallback and report nothing.
+   */
+  public boolean tryAcquire() {
+    if (state == State.CLOSED) {
+      return true;
+    }
+    lock.lock();
+    try {
+      long now = nanoTime.getAsLong();
+      if (state == State.OPEN) {
+        if (now - stateSinceNanos < openNanos) {
+          rejected.increment();
+          return false;
+        }
+        transition(State.HALF_OPEN, now);
+        log.info("redis_circuit_half_open probes={}", halfOpenProbes);
+      }
+      if (state == State.HALF_OPEN) {
+        if (probesIssued >= halfOpenProbes) {
+          if (now - stateSinceNanos < openNanos) {
+            rejected.increment();
+            return false;
+          }
+          // The probes never reported back; let a new round through.
+          transition(State.HALF_OPEN, now);
+        }
+        probesIssued++;
+      }
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** Records a call that returned after {@code elapsedNanos}; slow calls count as failures. */
+  public void onSuccess(long elapsedNanos) {
+    record(elapsedNanos > slowCallNanos);
+  }
+
+  /** Records a call that threw. */
+  public void onFailure() {
+    record(true);
+  }
+
+  public State state() {
+    return state;
+  }
+
+  /** Share of failed calls in the current window, 0 when it is empty. */
+  public double failureRate() {
+    if (outcomes == null) {
+      return 0.0d;
+    }
+    lock.lock();
+    try {
+      return recorded == 0 ? 0.0d : failed / (double) recorded;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** Calls answered from a fallback because the breaker was open. */
+  public long rejectedCount() {
+    return rejected.sum();
+  }
+
+  /** Times the breaker has opened. */
+  public long openedCount() {
+    return opened.sum();
+  }
+
+  private void record(boolean failure) {
+    if (outcomes == null) {
+      return;
+    }
+    lock.lock();
+    try {
+      switch (state) {
+        case CLOSED -> {
+          if (recorded == outcomes.length) {
+            if (outcomes[next]) {
+              failed--;
+            }
+          } else {
+            recorded++;
+          }
+          outcomes[next] = failure;
+          if (failure) {
+            failed++;
+          }
+          next = (next + 1) % outcomes.length;
+          if (recorded >= minimumCalls && failed >= failureRateThreshold * recorded) {
+            log.warn(
+                "redis_circuit_opened failureRate={} calls={} openMillis={}",
+                failed / (double) recorded,
+                recorded,
+                TimeUnit.NANOSECONDS.toMillis(openNanos));
+            open();
+          }
+        }
+        case HALF_OPEN -> {
+          if (failure) {
+            log.warn(
+                "redis_circuit_probe_failed openMillis={}",
+                TimeUnit.NANOSECONDS.toMillis(openNanos));
+            open();
+          } else if (++probesSucceeded >= halfOpenProbes) {
+            transition(State.CLOSED, nanoTime.getAsLong());
+            log.info("redis_circuit_closed");
+          }
+        }
+        case OPEN -> {
+          // A call that started before the breaker opened; its outcome no longer matters.
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void open() {
+    transition(State.OPEN, nanoTime.getAsLong());
+    opened.increment();
+  }
+
+  private void transition(State target, long now) {
+    state = target;
+    stateSinceNanos = now;
+    probesIssued = 0;
+    probesSucceeded = 0;
+    next = 0;
+    recorded = 0;
+    failed = 0;
+  }
+}
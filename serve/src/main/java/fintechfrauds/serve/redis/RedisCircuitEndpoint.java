@@ -0,0 +1,30 @@
+package fintechfrauds.serve.redis;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/** Read-only {@code /actuator/redis} view of the Redis circuit breaker. */
+@Component
+@Endpoint(id = "redis")
+public class RedisCircuitEndpoint {
+
+  private final RedisCircuitBreaker circuitBreaker;
+
+  public RedisCircuitEndpoint(RedisCircuitBreaker circuitBreaker) {
+    this.circuitBreaker = circuitBreaker;
+  }
+
+  @ReadOperation
+  public Map<String, Object> redis() {
+    Map<String, Object> body = new LinkedHashMap<>();
+    body.put("circuitBreakerEnabled", circuitBreaker.isEnabled());
+    body.put("state", circuitBreaker.state().name());
+    body.put("failureRate", circuitBreaker.failureRate());
+    body.put("rejectedCalls", circuitBreaker.rejectedCount());
+    body.put("timesOpened", circuitBreaker.openedCount());
+    return body;
+  }
+}
@@ -0,0 +1,276 @@
+package fintechfrauds.serve.scoring;
+
+import fintechfrauds.serve.api.dto.ScoreRequest;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Per-account statistics that stand in for the Redis feature hash when Redis is unavailable or
+ * has no hash for an account.
+ *
+ * <p>Every account costs a fixed amount of memory, and every update takes constant time. The
+ * 15-minute count is kept in {@value #BUCKETS} one-minute buckets, and the 24-hour history in
+ * {@value #HOUR_BUCKETS} one-hour buckets. The one-minute and one-hour counts add the bucket just
+ * before their window, weighted by how much of it the window still covers. Merchant velocity
+ * needs every account's traffic and is left at zero here. First-seen merchants go through a
+ * {@value #FILTER_BITS}-bit Bloom filter, which can report a new merchant as seen (about 1.6% of
+ * the time after 100 distinct merchants) but never the reverse. Amount z-scores come from
+ * Welford's running mean and variance.
+ *
+ * <p>Accounts are spread over {@value #STRIPES} access-ordered stripes. Each stripe holds at most
+ * {@code maxBytes / ENTRY_BYTES / STRIPES} accounts and evicts the least recently scored one when
+ * full. An evicted account starts again from empty statistics. The stripe lock also guards the
+ * statistics of its accounts.
+ */
+public class FallbackFeatureState {
+
+  /** Default memory budget when none is configured. */
+  public static final long DEFAULT_MAX_BYTES = 128L * 1024 * 1024;
+
+  static final int STRIPES = 64;
+  static final int BUCKETS = 15;
+  static final long BUCKET_MILLIS = TimeUnit.MINUTES.toMillis(1);
+  static final int HOUR_BUCKETS = 25;
+  static final long HOUR_BUCKET_MILLIS = TimeUnit.HOURS.toMillis(1);
+  static final int FILTER_BITS = 1024;
+  private static final int FILTER_HASHES = 3;
+
+  /**
+   * Estimated heap per account. This covers the stats object (56), the minute bucket counts (80)
+   * and ids (136), the hour bucket counts (120) and ids (216), the filter words (144), the map node
+   * (40) and a 64-character account key (24 + 80).
+   */
+  static final long ENTRY_BYTES = 896L;
+
+  private static final class Stats {
+    private final int[] counts = new int[BUCKETS];
+    private final long[] bucketIds = new long[BUCKETS];
+    private final int[] hourCounts = new int[HOUR_BUCKETS];
+    private final long[] hourIds = new long[HOUR_BUCKETS];
+    private final long[] merchantFilter = new long[FILTER_BITS / Long.SIZE];
+    private long count;
+    private double mean;
+    private double m2;
+
+    Stats() {
+      Arrays.fill(bucketIds, Long.MIN_VALUE);
+      Arrays.fill(hourIds, Long.MIN_VALUE);
+    }
+
+    FeatureVector record(ScoreRequest request) {
+      long timestamp =
+          request.getEpochMillis() != null ? request.getEpochMillis() : System.currentTimeMillis();
+      long bucket = Math.floorDiv(timestamp, BUCKET_MILLIS);
+      long hour = Math.floorDiv(timestamp, HOUR_BUCKET_MILLIS);
+      // An event older than its slot's current bucket is already outside every live window.
+      increment(counts, bucketIds, bucket);
+      increment(hourCounts, hourIds, hour);
+      int windowCount = sum(counts, bucketIds, bucket, BUCKETS);
+      double minuteLeft = 1.0d - Math.floorMod(timestamp, BUCKET_MILLIS) / (double) BUCKET_MILLIS;
+      double hourLeft =
+          1.0d - Math.floorMod(timestamp, HOUR_BUCKET_MILLIS) / (double) HOUR_BUCKET_MILLIS;
+      Velocity velocity =
+          new Velocity(
+              estimate(counts, bucketIds, bucket, 1, minuteLeft),
+              windowCount,
+              estimate(hourCounts, hourIds, hour, 1, hourLeft),
+              estimate(hourCounts, hourIds, hour, 24, hourLeft));
+
+      int firstTimeMerchant = 0;
+      String merchantHash = request.getMerchantHash();
+      if (merchantHash != null && markMerchant(merchantHash)) {
+        firstTimeMerchant = 1;
+      }
+
+      double amount = request.getAmountCents() != null ? request.getAmountCents() : 0.0d;
+      count++;
+      double delta = amount - mean;
+      mean += delta / count;
+      double delta2 = amount - mean;
+      m2 += delta * delta2;
+      double variance = count > 1 ? m2 / (count - 1) : 0.0d;
+      double stddev = variance > 0 ? Math.sqrt(variance) : 0.0d;
+      double z = stddev > 0 ? (amount - mean) / stddev : 0.0d;
+
+      String mcc = request.getMcc() != null ? request.getMcc() : "UNKNOWN";
+      return new FeatureVector(z, firstTimeMerchant, mcc, velocity, Velocity.NONE);
+    }
+
+    private static void increment(int[] counts, long[] ids, long bucket) {
+      int slot = (int) Math.floorMod(bucket, (long) ids.length);
+      if (ids[slot] == bucket) {
+        counts[slot]++;
+      } else if (ids[slot] < bucket) {
+        ids[slot] = bucket;
+        counts[slot] = 1;
+      }
+    }
+
+    /** Events in the {@code span} buckets ending with {@code bucket}. */
+    private static int sum(int[] counts, long[] ids, long bucket, int span) {
+      int total = 0;
+      for (int i = 0; i < ids.length; i++) {
+        long id = ids[i];
+        if (id <= bucket && id > bucket - span) {
+          total += counts[i];
+        }
+      }
+      return total;
+    }
+
+    /**
+     * {@link #sum} plus the bucket before the span, weighted by the share of it still inside a
+     * window of {@code span} buckets ending now.
+     */
+    private static int estimate(int[] counts, long[] ids, long bucket, int span, double left) {
+      int slot = (int) Math.floorMod(bucket - span, (long) ids.length);
+      double partial = ids[slot] == bucket - span ? counts[slot] * left : 0.0d;
+      return sum(counts, ids, bucket, span) + (int) Math.round(partial);
+    }
+
+    /** Adds the merchant to the filter; {@code true} if it was not there before. */
+    private boolean markMerchant(String merchantHash) {
+      long hash = mix(merchantHash.hashCode());
+      int h1 = (int) hash;
+      int h2 = (int) (hash >>> 32) | 1;
+      boolean added = false;
+      for (int i = 0; i < FILTER_HASHES; i++) {
+        int bit = (h1 + i * h2) & (FILTER_BITS - 1);
+        long mask = 1L << bit;
+        int word = bit >>> 6;
+        if ((merchantFilter[word] & mask) == 0) {
+          merchantFilter[word] |= mask;
+          added = true;
+        }
+      }
+      return added;
+    }
+  }
+
+  private static final class Stripe {
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<String, Stats> accounts;
+
+    Stripe(int maxAccounts, LongAdder evictions) {
+      this.accounts =
+          new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Stats> eldest) {
+              if (size() > maxAccounts) {
+                evictions.increment();
+                return true;
+              }
+              return false;
+            }
+          };
+    }
+  }
+
+  private final Stripe[] stripes;
+  private final long maxAccounts;
+  private final LongAdder evictions = new LongAdder();
+
+  public FallbackFeatureState() {
+    this(DEFAULT_MAX_BYTES);
+  }
+
+  public FallbackFeatureState(long maxBytes) {
+    long perStripe = Math.max(1L, maxBytes / ENTRY_BYTES / STRIPES);
+    if (perStripe > Integer.MAX_VALUE) {
+      perStripe = Integer.MAX_VALUE;
+    }
+    this.stripes = new Stripe[STRIPES];
+    for (int i = 0; i < STRIPES; i++) {
+      stripes[i] = new Stripe((int) perStripe, evictions);
+    }
+    this.maxAccounts = perStripe * STRIPES;
+  }
+
+  /** Updates the account's statistics with the request and returns its fallback features. */
+  public FeatureVector record(ScoreRequest request) {
+    String account = request.getAccountHash() != null ? request.getAccountHash() : "";
+    Stripe stripe = stripeFor(account);
+    stripe.lock.lock();
+    try {
+      Stats stats = stripe.accounts.get(account);
+      if (stats == null) {
+        stats = new Stats();
+        stripe.accounts.put(account, stats);
+      }
+      return stats.record(request);
+    } finally {
+      stripe.lock.unlock();
+    }
+  }
+
+  /**
+   * Like {@link #record(ScoreRequest)}, but at most once per {@code recorded}: the first call
+   * stores the features there and later calls return them without counting the request again. A
+   * feature load that missed its deadline keeps running, so it and the fallback that replaced it
+   * can both get here for the same request.
+   */
+  public FeatureVector record(ScoreRequest request, AtomicReference<FeatureVector> recorded) {
+    String account = request.getAccountHash() != null ? request.getAccountHash() : "";
+    Stripe stripe = stripeFor(account);
+    stripe.lock.lock();
+    try {
+      FeatureVector previous = recorded.get();
+      if (previous != null) {
+        return previous;
+      }
+      Stats stats = stripe.accounts.get(account);
+      if (stats == null) {
+        stats = new Stats();
+        stripe.accounts.put(account, stats);
+      }
+      FeatureVector features = stats.record(request);
+      recorded.set(features);
+      return features;
+    } finally {
+      stripe.lock.unlock();
+    }
+  }
+
+  /** Accounts currently held. */
+  public long size() {
+    long size = 0L;
+    for (Stripe stripe : stripes) {
+      stripe.lock.lock();
+      try {
+        size += stripe.accounts.size();
+      } finally {
+        stripe.lock.unlock();
+      }
+    }
+    return size;
+  }
+
+  public long estimatedBytes() {
+    return size() * ENTRY_BYTES;
+  }
+
+  public long maxAccounts() {
+    return maxAccounts;
+  }
+
+  public long evictionCount() {
+    return evictions.sum();
+  }
+
+  private Stripe stripeFor(String account) {
+    return stripes[(int) (mix(account.hashCode()) & (STRIPES - 1))];
+  }
+
+  /** SplitMix64 finaliser, so account and merchant hashes use all 64 bits. */
+  private static long mix(int value) {
+    long z = value * 0x9E3779B97F4A7C15L;
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+}
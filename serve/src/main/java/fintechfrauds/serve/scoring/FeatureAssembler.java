@@ -0,0 +1,224 @@
+package fintechfrauds.serve.scoring;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fintechfrauds.serve.api.dto.ScoreRequest;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Writes model feature rows in the column order declared by {@code feature-schema.json}.
+ *
+ * <p>The schema is the one artifact shared by serving and {@code tools/train_xgb.py}: each column
+ * names a {@link Source} value of the request or its {@link FeatureVector}, a type and a transform.
+ * It is compiled once into flat per-column arrays, so writing a row is a single pass of array reads
+ * and switches with no lookups or allocation, and a batch is written straight into the matrix the
+ * model reads. Adding, reordering or re-transforming columns only touches the schema; a new kind of
+ * value needs a new {@link Source}.
+ */
+public final class FeatureAssembler {
+
+  static final String SCHEMA_RESOURCE = "/feature-schema.json";
+
+  /** The schema bundled with the service; every model scorer writes its rows with it. */
+  public static final FeatureAssembler DEFAULT = loadDefault();
+
+  /** Values a column can read; string sources need the {@code length} or {@code hash} transform. */
+  enum Source {
+    AMOUNT_CENTS("request.amount_cents", false),
+    DESCRIPTION("request.description", true),
+    COUNTRY_CODE("request.country_code", true),
+    AMOUNT_Z("features.amount_z", false),
+    FIRST_MERCHANT("features.first_merchant", false),
+    ACCOUNT_COUNT_1M("account.count_1m", false),
+    ACCOUNT_COUNT_15M("account.count_15m", false),
+    ACCOUNT_COUNT_1H("account.count_1h", false),
+    ACCOUNT_COUNT_24H("account.count_24h", false),
+    MERCHANT_COUNT_1M("merchant.count_1m", false),
+    MERCHANT_COUNT_15M("merchant.count_15m", false),
+    MERCHANT_COUNT_1H("merchant.count_1h", false),
+    MERCHANT_COUNT_24H("merchant.count_24h", false);
+
+    private final String key;
+    private final boolean string;
+
+    Source(String key, boolean string) {
+      this.key = key;
+      this.string = string;
+    }
+
+    static Source of(String key) {
+      for (Source source : values()) {
+        if (source.key.equals(key)) {
+          return source;
+        }
+      }
+      throw new IllegalArgumentException("Unknown feature source: " + key);
+    }
+  }
+
+  /**
+   * How a source value becomes a float. {@code DIVIDE} divides in float arithmetic and {@code
+   * HASH} is {@code String.hashCode} masked to non-negative, so the trainer reproduces both exactly.
+   */
+  enum Transform {
+    IDENTITY,
+    DIVIDE,
+    LOG1P,
+    LENGTH,
+    HASH
+  }
+
+  private final List<String> names;
+  private final Source[] sources;
+  private final Transform[] transforms;
+  private final float[] divisors;
+  /** Written when the source is absent, e.g. a request without an amount. */
+  private final float[] missing;
+
+  private FeatureAssembler(
+      List<String> names,
+      Source[] sources,
+      Transform[] transforms,
+      float[] divisors,
+      float[] missing) {
+    this.names = List.copyOf(names);
+    this.sources = sources;
+    this.transforms = transforms;
+    this.divisors = divisors;
+    this.missing = missing;
+  }
+
+  /** Compiles a schema document; fails on unknown sources, bad transforms or duplicate names. */
+  public static FeatureAssembler fromJson(InputStream json) throws IOException {
+    JsonNode root = new ObjectMapper().readTree(json);
+    JsonNode features = root == null ? null : root.get("features");
+    if (features == null || !features.isArray() || features.isEmpty()) {
+      throw new IllegalArgumentException("Feature schema has no features");
+    }
+    int width = features.size();
+    List<String> names = new ArrayList<>(width);
+    Set<String> seen = new HashSet<>();
+    Source[] sources = new Source[width];
+    Transform[] transforms = new Transform[width];
+    float[] divisors = new float[width];
+    float[] missing = new float[width];
+    for (int column = 0; column < width; column++) {
+      JsonNode feature = features.get(column);
+      String name = feature.path("name").asText("");
+      if (name.isEmpty() || !seen.add(name)) {
+        throw new IllegalArgumentException("Missing or duplicate feature name at column " + column);
+      }
+      Source source = Source.of(feature.path("source").asText(""));
+      String type = feature.path("type").asText(source.string ? "string" : "numeric");
+      if (!type.equals(source.string ? "string" : "numeric")) {
+        throw new IllegalArgumentException(
+            "Feature " + name + " reads " + source.key + " as " + type);
+      }
+      Transform transform =
+          Transform.valueOf(feature.path("transform").asText("identity").toUpperCase(Locale.ROOT));
+      boolean stringTransform = transform == Transform.LENGTH || transform == Transform.HASH;
+      if (source.string != stringTransform) {
+        throw new IllegalArgumentException(
+            "Feature " + name + " cannot apply " + transform + " to " + source.key);
+      }
+      names.add(name);
+      sources[column] = source;
+      transforms[column] = transform;
+      divisors[column] = (float) feature.path("divisor").asDouble(1.0d);
+      missing[column] = (float) feature.path("missing").asDouble(0.0d);
+    }
+    return new FeatureAssembler(names, sources, transforms, divisors, missing);
+  }
+
+  /** Columns in a full row. */
+  public int width() {
+    return names.size();
+  }
+
+  /** Column names in row order. */
+  public List<String> names() {
+    return names;
+  }
+
+  /** Writes the full row at {@code offset}. */
+  public void write(ScoreRequest request, FeatureVector features, float[] target, int offset) {
+    write(request, features, target, offset, sources.length);
+  }
+
+  /** Writes the leading {@code columns} of the row, for models trained on fewer columns. */
+  public void write(
+      ScoreRequest request, FeatureVector features, float[] target, int offset, int columns) {
+    for (int column = 0; column < columns; column++) {
+      target[offset + column] = value(column, request, features);
+    }
+  }
+
+  /** One row-major matrix of the leading {@code columns} for every request, filled in one pass. */
+  public float[] writeBatch(
+      List<ScoreRequest> requests, List<FeatureVector> features, int columns) {
+    int rows = requests.size();
+    float[] matrix = new float[rows * columns];
+    for (int row = 0; row < rows; row++) {
+      write(requests.get(row), features.get(row), matrix, row * columns, columns);
+    }
+    return matrix;
+  }
+
+  private float value(int column, ScoreRequest request, FeatureVector features) {
+    Source source = sources[column];
+    if (source.string) {
+      String text =
+          source == Source.DESCRIPTION ? request.getDescription() : request.getCountryCode();
+      if (text == null) {
+        return missing[column];
+      }
+      return transforms[column] == Transform.LENGTH
+          ? text.length()
+          : text.hashCode() & 0x7fffffff;
+    }
+    double raw;
+    switch (source) {
+      case AMOUNT_CENTS -> {
+        Long amount = request.getAmountCents();
+        if (amount == null) {
+          return missing[column];
+        }
+        raw = amount;
+      }
+      case AMOUNT_Z -> raw = features.getAmountZ();
+      case FIRST_MERCHANT -> raw = features.getFirstTimeMerchant();
+      case ACCOUNT_COUNT_1M -> raw = features.getAccountVelocity().getCount1m();
+      case ACCOUNT_COUNT_15M -> raw = features.getAccountVelocity().getCount15m();
+      case ACCOUNT_COUNT_1H -> raw = features.getAccountVelocity().getCount1h();
+      case ACCOUNT_COUNT_24H -> raw = features.getAccountVelocity().getCount24h();
+      case MERCHANT_COUNT_1M -> raw = features.getMerchantVelocity().getCount1m();
+      case MERCHANT_COUNT_15M -> raw = features.getMerchantVelocity().getCount15m();
+      case MERCHANT_COUNT_1H -> raw = features.getMerchantVelocity().getCount1h();
+      case MERCHANT_COUNT_24H -> raw = features.getMerchantVelocity().getCount24h();
+      default -> throw new IllegalStateException("Unhandled feature source " + source);
+    }
+    return switch (transforms[column]) {
+      case DIVIDE -> (float) raw / divisors[column];
+      case LOG1P -> (float) Math.log1p(raw);
+      default -> (float) raw;
+    };
+  }
+
+  private static FeatureAssembler loadDefault() {
+    try (InputStream in = FeatureAssembler.class.getResourceAsStream(SCHEMA_RESOURCE)) {
+      if (in == null) {
+        throw new IllegalStateException("Missing " + SCHEMA_RESOURCE);
+      }
+      return fromJson(in);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
@@ -0,0 +1,104 @@
+package fintechfrauds.serve.scoring;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Binary form of a feature hash, stored as one Redis string under {@code fs:acctb:*} or {@code
+ * fs:merchb:*}.
+ *
+ * <p>Version 1 is {@value #HEADER_BYTES} bytes of little-endian fields followed by the ASCII mcc:
+ *
+ * <pre>
+ *  0  u8   version (1)
+ *  1  u8   flags: 1 = firstTimeMerchant present, 2 = running amount statistics present
+ *  2  u8   firstTimeMerchant
+ *  3  u8   mcc length
+ *  4  f64  amountZ
+ * 12  i32  window1mCount
+ * 16  i32  window15mCount
+ * 20  i32  window1hCount
+ * 24  i32  window24hCount
+ * 28  i64  updatedAt, epoch millis
+ * 36  i64  n      (running amount statistics left by older online updaters)
+ * 44  f64  mean
+ * 52  f64  m2
+ * 60  mcc bytes
+ * </pre>
+ *
+ * <p>{@code redis/update_account_features.lua} reads the same layout with {@code struct.unpack}
+ * to seed an account's running statistics.
+ *
+ * <p>New fields go into a new version; readers return {@code null} for versions they do not
+ * know, so the caller falls back to the string hash.
+ */
+public final class FeatureCodec {
+
+  public static final int VERSION = 1;
+  static final int HEADER_BYTES = 60;
+
+  private static final int FLAG_FIRST_TIME_MERCHANT = 1;
+  private static final int FLAG_STATS = 2;
+
+  private FeatureCodec() {}
+
+  /** Decodes a stored value, or returns {@code null} when it is not a version this reader knows. */
+  static StoredFeatures decode(byte[] value) {
+    if (value == null || value.length < HEADER_BYTES || value[0] != VERSION) {
+      return null;
+    }
+    ByteBuffer buffer = ByteBuffer.wrap(value).order(ByteOrder.LITTLE_ENDIAN);
+    int flags = buffer.get(1);
+    int firstTimeMerchant =
+        (flags & FLAG_FIRST_TIME_MERCHANT) != 0 ? buffer.get(2) : StoredFeatures.UNKNOWN;
+    int mccLength = buffer.get(3) & 0xff;
+    if (value.length < HEADER_BYTES + mccLength) {
+      return null;
+    }
+    Velocity velocity =
+        new Velocity(buffer.getInt(12), buffer.getInt(16), buffer.getInt(20), buffer.getInt(24));
+    String mcc =
+        mccLength == 0
+            ? "UNKNOWN"
+            : new String(value, HEADER_BYTES, mccLength, StandardCharsets.US_ASCII);
+    return new StoredFeatures(
+        buffer.getDouble(4), firstTimeMerchant, mcc, velocity, buffer.getLong(28));
+  }
+
+  /**
+   * Encodes a string feature hash ({@code fs:acct:*} or {@code fs:merch:*}), keeping its running
+   * amount statistics when it has them. Returns {@code null} for an empty hash.
+   */
+  public static byte[] encodeHash(Map<String, String> hash) {
+    StoredFeatures features = StoredFeatures.parse(hash);
+    if (features == null) {
+      return null;
+    }
+    String n = hash.get("n");
+    boolean stats = n != null;
+    byte[] mcc =
+        hash.containsKey("mcc") ? features.mcc.getBytes(StandardCharsets.US_ASCII) : new byte[0];
+    int mccLength = Math.min(mcc.length, 255);
+    ByteBuffer buffer =
+        ByteBuffer.allocate(HEADER_BYTES + mccLength).order(ByteOrder.LITTLE_ENDIAN);
+    int flags = (features.firstTimeMerchant >= 0 ? FLAG_FIRST_TIME_MERCHANT : 0);
+    flags |= stats ? FLAG_STATS : 0;
+    buffer.put((byte) VERSION);
+    buffer.put((byte) flags);
+    buffer.put((byte) Math.max(0, features.firstTimeMerchant));
+    buffer.put((byte) mccLength);
+    buffer.putDouble(features.amountZ);
+    buffer.putInt(features.velocity.getCount1m());
+    buffer.putInt(features.velocity.getCount15m());
+    buffer.putInt(features.velocity.getCount1h());
+    buffer.putInt(features.velocity.getCount24h());
+    buffer.putLong(features.updatedAt);
+    buffer.putLong(stats ? StoredFeatures.parseLong(n) : 0L);
+    buffer.putDouble(stats ? StoredFeatures.parseDouble(hash.get("mean")) : 0.0d);
+    buffer.putDouble(stats ? StoredFeatures.parseDouble(hash.get("m2")) : 0.0d);
+    buffer.put(mcc, 0, mccLength);
+    return buffer.array();
+  }
+}
@@ -0,0 +1,27 @@
+package fintechfrauds.serve.scoring;
+
+/**
+ * How account and merchant features are stored in Redis: string hashes, or one {@link
+ * FeatureCodec} value per key. Each encoding has its own key prefixes so both can live side by side
+ * while a deployment migrates.
+ */
+public enum FeatureEncoding {
+  HASH("fs:acct:", "fs:merch:"),
+  BINARY("fs:acctb:", "fs:merchb:");
+
+  private final String accountPrefix;
+  private final String merchantPrefix;
+
+  FeatureEncoding(String accountPrefix, String merchantPrefix) {
+    this.accountPrefix = accountPrefix;
+    this.merchantPrefix = merchantPrefix;
+  }
+
+  public String accountPrefix() {
+    return accountPrefix;
+  }
+
+  public String merchantPrefix() {
+    return merchantPrefix;
+  }
+}
@@ -0,0 +1,244 @@
+package fintechfrauds.serve.scoring;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * In-process cache of parsed Redis feature hashes, keyed by the Redis key ({@code
+ * fs:acct:<hash>} or {@code fs:merch:<hash>}).
+ *
+ * <p>Entries are split over {@value #SEGMENTS} access-ordered segments, each behind its own lock and
+ * holding at most {@code maxEntries / SEGMENTS} keys, so eviction is least-recently-used per
+ * segment. An entry also expires {@code ttl} after it was loaded. Writes to Redis reach the cache
+ * through {@link #invalidate(String)}, driven by {@link RedisInvalidationListener}; while that
+ * listener is not connected the cache is {@linkplain #setTracking(boolean) untracked} and neither
+ * serves nor stores entries, since a missed invalidation would otherwise serve stale features until
+ * the TTL.
+ *
+ * <p>A load that races with an invalidation must not store the value it read before the write. A
+ * caller takes a {@link #stamp(String)} before reading Redis and passes it to {@link #put}; the put
+ * is skipped when the key's segment saw an invalidation in between.
+ */
+public class FeatureNearCache {
+
+  static final int SEGMENTS = 16;
+
+  /** A parsed feature hash, or a key with no hash in Redis when {@link #features()} is null. */
+  static final class Entry {
+    private final StoredFeatures features;
+    private final long expiresAtNanos;
+
+    private Entry(StoredFeatures features, long expiresAtNanos) {
+      this.features = features;
+      this.expiresAtNanos = expiresAtNanos;
+    }
+
+    StoredFeatures features() {
+      return features;
+    }
+  }
+
+  private static final class Segment {
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<String, Entry> entries;
+    private long invalidations;
+
+    Segment(int maxEntries) {
+      this.entries =
+          new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+              return size() > maxEntries;
+            }
+          };
+    }
+  }
+
+  private final Segment[] segments;
+  private final long ttlNanos;
+  private final LongSupplier nanoTime;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder invalidated = new LongAdder();
+  private volatile boolean tracking;
+
+  private FeatureNearCache() {
+    this.segments = null;
+    this.ttlNanos = 0L;
+    this.nanoTime = System::nanoTime;
+  }
+
+  /** A cache that never holds anything; every load goes to Redis. */
+  public static FeatureNearCache disabled() {
+    return new FeatureNearCache();
+  }
+
+  public FeatureNearCache(int maxEntries, long ttlMillis) {
+    this(maxEntries, ttlMillis, System::nanoTime);
+  }
+
+  FeatureNearCache(int maxEntries, long ttlMillis, LongSupplier nanoTime) {
+    if (maxEntries < SEGMENTS) {
+      throw new IllegalArgumentException("maxEntries must be at least " + SEGMENTS);
+    }
+    this.segments = new Segment[SEGMENTS];
+    for (int i = 0; i < SEGMENTS; i++) {
+      segments[i] = new Segment(maxEntries / SEGMENTS);
+    }
+    this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+    this.nanoTime = nanoTime;
+  }
+
+  public boolean isEnabled() {
+    return segments != null;
+  }
+
+  /** Whether invalidations are being received, so entries can be served and stored. */
+  public boolean isTracking() {
+    return tracking;
+  }
+
+  /**
+   * Marks invalidation tracking as up or down. Either way the cache is emptied: entries stored
+   * before the tracking connection came up, or while it was down, may have missed a write.
+   */
+  void setTracking(boolean tracking) {
+    this.tracking = tracking;
+    invalidateAll();
+  }
+
+  /** Returns the live entry for {@code key}, or {@code null} when it must be read from Redis. */
+  Entry get(String key) {
+    if (segments == null || !tracking) {
+      return null;
+    }
+    Segment segment = segmentFor(key);
+    Entry entry;
+    segment.lock.lock();
+    try {
+      entry = segment.entries.get(key);
+      if (entry != null && nanoTime.getAsLong() - entry.expiresAtNanos >= 0) {
+        segment.entries.remove(key);
+        entry = null;
+      }
+    } finally {
+      segment.lock.unlock();
+    }
+    if (entry == null) {
+      misses.increment();
+    } else {
+      hits.increment();
+    }
+    return entry;
+  }
+
+  /** Invalidation stamp to take before reading {@code key} from Redis. */
+  long stamp(String key) {
+    if (segments == null) {
+      return 0L;
+    }
+    Segment segment = segmentFor(key);
+    segment.lock.lock();
+    try {
+      return segment.invalidations;
+    } finally {
+      segment.lock.unlock();
+    }
+  }
+
+  /**
+   * Stores the parsed hash read for {@code key}.
+   *
+   * @param stamp the {@link #stamp(String)} taken before the read
+   * @param features the parsed hash, or {@code null} when the key has none
+   */
+  void put(String key, long stamp, StoredFeatures features) {
+    if (segments == null || !tracking) {
+      return;
+    }
+    Segment segment = segmentFor(key);
+    segment.lock.lock();
+    try {
+      if (segment.invalidations != stamp) {
+        return;
+      }
+      segment.entries.put(key, new Entry(features, nanoTime.getAsLong() + ttlNanos));
+    } finally {
+      segment.lock.unlock();
+    }
+  }
+
+  /** Records that {@code key} has no hash in Redis. */
+  void putAbsent(String key, long stamp) {
+    put(key, stamp, null);
+  }
+
+  /** Drops {@code key} after a write to it in Redis. */
+  void invalidate(String key) {
+    if (segments == null) {
+      return;
+    }
+    Segment segment = segmentFor(key);
+    segment.lock.lock();
+    try {
+      segment.invalidations++;
+      segment.entries.remove(key);
+    } finally {
+      segment.lock.unlock();
+    }
+    invalidated.increment();
+  }
+
+  /** Drops every entry, e.g. after {@code FLUSHALL} or a lost tracking connection. */
+  void invalidateAll() {
+    if (segments == null) {
+      return;
+    }
+    for (Segment segment : segments) {
+      segment.lock.lock();
+      try {
+        segment.invalidations++;
+        segment.entries.clear();
+      } finally {
+        segment.lock.unlock();
+      }
+    }
+  }
+
+  public long size() {
+    if (segments == null) {
+      return 0L;
+    }
+    long size = 0L;
+    for (Segment segment : segments) {
+      segment.lock.lock();
+      try {
+        size += segment.entries.size();
+      } finally {
+        segment.lock.unlock();
+      }
+    }
+    return size;
+  }
+
+  public long hitCount() {
+    return hits.sum();
+  }
+
+  public long missCount() {
+    return misses.sum();
+  }
+
+  public long invalidationCount() {
+    return invalidated.sum();
+  }
+
+  private Segment segmentFor(String key) {
+    int hash = key.hashCode();
+    return segments[(hash ^ (hash >>> 16)) & (SEGMENTS - 1)];
+  }
+}
@@ -1,7 +1,43 @@
 package fintechfrauds.serve.scoring;
 
 import fintechfrauds.serve.api.dto.ScoreRequest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 
 public interface FeatureStore {
   FeatureVector loadFeatures(ScoreRequest request);
+
+  /**
+   * Features computed without the backing store, used when a load fails or misses its deadline.
+   * Must not block.
+   */
+  default FeatureVector fallbackFeatures(ScoreRequest request) {
+    return new FeatureVector(0.0d, 0, request.getMerchantHash() == null ? 0 : 1, "UNKNOWN");
+  }
+
+  /**
+   * {@link #loadFeatures(ScoreRequest)} for a load that may be abandoned at its deadline and
+   * replaced by {@link #fallbackFeatures(ScoreRequest, AtomicReference)}. Both share {@code
+   * recorded}, so local fallback state counts the request once whichever of them gets there.
+   */
+  default FeatureVector loadFeatures(
+      ScoreRequest request, AtomicReference<FeatureVector> recorded) {
+    return loadFeatures(request);
+  }
+
+  /** {@link #fallbackFeatures(ScoreRequest)} sharing {@code recorded} with an abandoned load. */
+  default FeatureVector fallbackFeatures(
+      ScoreRequest request, AtomicReference<FeatureVector> recorded) {
+    return fallbackFeatures(request);
+  }
+
+  /** Loads features for every request, preserving order. */
+  default List<FeatureVector> loadFeaturesBatch(List<ScoreRequest> requests) {
+    List<FeatureVector> vectors = new ArrayList<>(requests.size());
+    for (ScoreRequest request : requests) {
+      vectors.add(loadFeatures(request));
+    }
+    return vectors;
+  }
 }
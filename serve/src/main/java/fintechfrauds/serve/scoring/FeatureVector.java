@@ -5,12 +5,31 @@ public class FeatureVector {
   private final int window15mCount;
   private final int firstTimeMerchant;
   private final String mcc;
+  private final Velocity accountVelocity;
+  private final Velocity merchantVelocity;
 
+  /** Features with only the account's 15-minute count known; the other windows read as zero. */
   public FeatureVector(double amountZ, int window15mCount, int firstTimeMerchant, String mcc) {
+    this(
+        amountZ,
+        firstTimeMerchant,
+        mcc,
+        window15mCount == 0 ? Velocity.NONE : new Velocity(0, window15mCount, 0, 0),
+        Velocity.NONE);
+  }
+
+  public FeatureVector(
+      double amountZ,
+      int firstTimeMerchant,
+      String mcc,
+      Velocity accountVelocity,
+      Velocity merchantVelocity) {
     this.amountZ = amountZ;
-    this.window15mCount = window15mCount;
+    this.window15mCount = accountVelocity.getCount15m();
     this.firstTimeMerchant = firstTimeMerchant;
     this.mcc = mcc;
+    this.accountVelocity = accountVelocity;
+    this.merchantVelocity = merchantVelocity;
   }
 
   public double getAmountZ() {
@@ -28,4 +47,22 @@ public class FeatureVector {
   public String getMcc() {
     return mcc;
   }
+
+  /** Transactions by the account over each velocity window. */
+  public Velocity getAccountVelocity() {
+    return accountVelocity;
+  }
+
+  /** Transactions at the request's merchant, across all accounts, over each velocity window. */
+  public Velocity getMerchantVelocity() {
+    return merchantVelocity;
+  }
+
+  /** These features with the merchant's velocity replaced. */
+  public FeatureVector withMerchantVelocity(Velocity velocity) {
+    if (velocity == merchantVelocity) {
+      return this;
+    }
+    return new FeatureVector(amountZ, firstTimeMerchant, mcc, accountVelocity, velocity);
+  }
 }
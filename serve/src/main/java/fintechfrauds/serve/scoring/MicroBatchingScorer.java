@@ -0,0 +1,180 @@
+package fintechfrauds.serve.scoring;
+
+import fintechfrauds.serve.api.dto.ScoreRequest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Coalesces concurrent single-row {@link #score} calls into {@link Scorer#scoreBatch} calls on the
+ * delegate.
+ *
+ * <p>A dispatcher thread takes whatever is queued, then keeps collecting for up to the current
+ * window or until {@code maxBatchSize} rows are gathered. The window adapts to load: it halves
+ * whenever a batch closes with a single row, so an idle service answers a lone request without
+ * waiting, and doubles (up to the configured maximum) whenever concurrent callers actually share a
+ * batch. If the queue is full, or the scorer is closed, the caller scores inline instead of
+ * blocking.
+ */
+public class MicroBatchingScorer implements Scorer, AutoCloseable {
+
+  private static final Logger log = LoggerFactory.getLogger(MicroBatchingScorer.class);
+  private static final long MIN_WINDOW_NANOS = TimeUnit.MICROSECONDS.toNanos(10);
+
+  private final Scorer delegate;
+  private final int maxBatchSize;
+  private final long maxWindowNanos;
+  private final BlockingQueue<Pending> queue;
+  private final Thread dispatcher;
+  private volatile boolean running = true;
+  private volatile long windowNanos;
+
+  public MicroBatchingScorer(
+      Scorer delegate, long maxWindowMicros, int maxBatchSize, int queueCapacity) {
+    if (maxBatchSize < 1 || queueCapacity < 1) {
+      throw new IllegalArgumentException("maxBatchSize and queueCapacity must be positive");
+    }
+    this.delegate = delegate;
+    this.maxBatchSize = maxBatchSize;
+    this.maxWindowNanos = TimeUnit.MICROSECONDS.toNanos(Math.max(0L, maxWindowMicros));
+    this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    this.dispatcher = new Thread(this::dispatchLoop, "score-micro-batcher");
+    this.dispatcher.setDaemon(true);
+    this.dispatcher.start();
+  }
+
+  @Override
+  public double score(ScoreRequest request, FeatureVector features) {
+    Pending pending = new Pending(request, features);
+    if (!running || !queue.offer(pending)) {
+      return delegate.score(request, features);
+    }
+    // close() clears running before it drains the queue. A call that enqueued after the drain sees
+    // it cleared here and takes its row back; if the drain got there first, it completes the row.
+    if (!running && queue.remove(pending)) {
+      return delegate.score(request, features);
+    }
+    try {
+      return pending.result.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw e;
+    }
+  }
+
+  @Override
+  public double[] scoreBatch(List<ScoreRequest> requests, List<FeatureVector> features) {
+    return delegate.scoreBatch(requests, features);
+  }
+
+  /** Current collection window; exposed for diagnostics and tests. */
+  public long currentWindowNanos() {
+    return windowNanos;
+  }
+
+  @Override
+  public void close() {
+    running = false;
+    dispatcher.interrupt();
+    try {
+      dispatcher.join(TimeUnit.SECONDS.toMillis(5));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    List<Pending> leftovers = new ArrayList<>();
+    queue.drainTo(leftovers);
+    dispatch(leftovers);
+  }
+
+  private void dispatchLoop() {
+    List<Pending> batch = new ArrayList<>(maxBatchSize);
+    while (running) {
+      try {
+        Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+        if (first == null) {
+          continue;
+        }
+        batch.add(first);
+        queue.drainTo(batch, maxBatchSize - 1);
+        collectWithinWindow(batch);
+        dispatch(batch);
+        adaptWindow(batch.size());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        dispatch(batch);
+        return;
+      } finally {
+        batch.clear();
+      }
+    }
+  }
+
+  private void collectWithinWindow(List<Pending> batch) throws InterruptedException {
+    if (windowNanos <= 0) {
+      return;
+    }
+    long deadline = System.nanoTime() + windowNanos;
+    while (batch.size() < maxBatchSize) {
+      long remaining = deadline - System.nanoTime();
+      if (remaining <= 0) {
+        return;
+      }
+      Pending next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+      if (next == null) {
+        return;
+      }
+      batch.add(next);
+      queue.drainTo(batch, maxBatchSize - batch.size());
+    }
+  }
+
+  private void adaptWindow(int batchSize) {
+    if (batchSize <= 1) {
+      windowNanos = windowNanos / 2 < MIN_WINDOW_NANOS ? 0L : windowNanos / 2;
+    } else if (batchSize < maxBatchSize) {
+      windowNanos = Math.min(maxWindowNanos, Math.max(MIN_WINDOW_NANOS, windowNanos * 2));
+    }
+  }
+
+  private void dispatch(List<Pending> batch) {
+    if (batch.isEmpty()) {
+      return;
+    }
+    List<ScoreRequest> requests = new ArrayList<>(batch.size());
+    List<FeatureVector> features = new ArrayList<>(batch.size());
+    for (Pending pending : batch) {
+      requests.add(pending.request);
+      features.add(pending.features);
+    }
+    try {
+      double[] risks = delegate.scoreBatch(requests, features);
+      for (int i = 0; i < batch.size(); i++) {
+        batch.get(i).result.complete(risks[i]);
+      }
+    } catch (RuntimeException e) {
+      log.warn("micro_batch_score_failed size={}", batch.size(), e);
+      for (Pending pending : batch) {
+        pending.result.completeExceptionally(e);
+      }
+    }
+  }
+
+  private static final class Pending {
+    private final ScoreRequest request;
+    private final FeatureVector features;
+    private final CompletableFuture<Double> result = new CompletableFuture<>();
+
+    private Pending(ScoreRequest request, FeatureVector features) {
+      this.request = request;
+      this.features = features;
+    }
+  }
+}
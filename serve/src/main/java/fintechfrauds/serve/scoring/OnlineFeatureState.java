@@ -0,0 +1,144 @@
+package fintechfrauds.serve.scoring;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One account's online feature state as {@link OnlineFeatureUpdater} leaves it in Redis: the
+ * running count, mean and M2 of its amounts, whether it has paid the request's merchant before,
+ * and the account's and merchant's velocity buckets.
+ *
+ * <p>The state covers the transactions written so far; the features describe the one being scored.
+ * Like {@link FallbackFeatureState}, they count that transaction too: its amount is folded into
+ * the mean and variance before the z-score is taken, it is added to the current minute and hour
+ * buckets, and its merchant is first-time when the seen set does not hold it. Window counts are
+ * estimated the way the fallback estimates them: the 15-minute count sums 15 minute buckets, and
+ * the 1-minute, 1-hour and 24-hour counts add the bucket just before their window, weighted by the
+ * share of it the window still covers.
+ */
+final class OnlineFeatureState {
+
+  /** No online state for the account. */
+  static final OnlineFeatureState NONE = new OnlineFeatureState(0L, 0.0d, 0.0d, null, null, null);
+
+  static final int MINUTE_BUCKETS = 16;
+  static final int HOUR_BUCKETS = 25;
+
+  /** Transactions folded into {@link #mean} and {@link #m2}; 0 when the account has none. */
+  final long count;
+
+  final double mean;
+  final double m2;
+  /** Whether the account has paid the request's merchant, or {@code null} when not asked. */
+  final Boolean seenMerchant;
+
+  private final Map<String, String> accountBuckets;
+  private final Map<String, String> merchantBuckets;
+
+  OnlineFeatureState(
+      long count,
+      double mean,
+      double m2,
+      Boolean seenMerchant,
+      Map<String, String> accountBuckets,
+      Map<String, String> merchantBuckets) {
+    this.count = count;
+    this.mean = mean;
+    this.m2 = m2;
+    this.seenMerchant = seenMerchant;
+    this.accountBuckets = accountBuckets;
+    this.merchantBuckets = merchantBuckets;
+  }
+
+  /** Parses the replies to {@code HMGET n mean m2}, {@code SISMEMBER} and the two HGETALLs. */
+  static OnlineFeatureState parse(
+      List<String> stats,
+      Boolean seenMerchant,
+      Map<String, String> accountBuckets,
+      Map<String, String> merchantBuckets) {
+    long count = 0L;
+    double mean = 0.0d;
+    double m2 = 0.0d;
+    if (stats != null && stats.size() == 3 && stats.get(0) != null) {
+      count = Math.max(0L, StoredFeatures.parseLong(stats.get(0)));
+      mean = StoredFeatures.parseDouble(stats.get(1));
+      m2 = StoredFeatures.parseDouble(stats.get(2));
+    }
+    return new OnlineFeatureState(
+        count,
+        mean,
+        m2,
+        seenMerchant,
+        accountBuckets == null || accountBuckets.isEmpty() ? null : accountBuckets,
+        merchantBuckets == null || merchantBuckets.isEmpty() ? null : merchantBuckets);
+  }
+
+  /** Whether the updater has written anything for the account. */
+  boolean hasAccount() {
+    return count > 0L || accountBuckets != null;
+  }
+
+  /** The z-score of {@code amountCents} against the account's amounts, itself included. */
+  double amountZ(long amountCents) {
+    long n = count + 1;
+    double delta = amountCents - mean;
+    double newMean = mean + delta / n;
+    double newM2 = m2 + delta * (amountCents - newMean);
+    double variance = n > 1 ? newM2 / (n - 1) : 0.0d;
+    return variance > 0 ? (amountCents - newMean) / Math.sqrt(variance) : 0.0d;
+  }
+
+  /** The account's window counts at {@code epochMillis}, or {@code null} with no buckets. */
+  Velocity accountVelocity(long epochMillis) {
+    return accountBuckets == null ? null : velocity(accountBuckets, epochMillis);
+  }
+
+  /** The merchant's window counts at {@code epochMillis}, or {@code null} with no buckets. */
+  Velocity merchantVelocity(long epochMillis) {
+    return merchantBuckets == null ? null : velocity(merchantBuckets, epochMillis);
+  }
+
+  /** Window counts from {@code m<minute>}/{@code h<hour>} buckets, counting one event now. */
+  static Velocity velocity(Map<String, String> buckets, long epochMillis) {
+    long minute = Math.floorDiv(epochMillis, Velocity.MINUTE_MILLIS);
+    long hour = Math.floorDiv(epochMillis, Velocity.HOUR_MILLIS);
+    int[] minutes = new int[MINUTE_BUCKETS];
+    int[] hours = new int[HOUR_BUCKETS];
+    for (Map.Entry<String, String> bucket : buckets.entrySet()) {
+      String field = bucket.getKey();
+      if (field.length() < 2) {
+        continue;
+      }
+      long id = StoredFeatures.parseLong(field.substring(1));
+      int count = StoredFeatures.parseInt(bucket.getValue());
+      if (field.charAt(0) == 'm' && id <= minute && id > minute - MINUTE_BUCKETS) {
+        minutes[(int) (minute - id)] += count;
+      } else if (field.charAt(0) == 'h' && id <= hour && id > hour - HOUR_BUCKETS) {
+        hours[(int) (hour - id)] += count;
+      }
+    }
+    minutes[0]++;
+    hours[0]++;
+    double minuteLeft =
+        1.0d - Math.floorMod(epochMillis, Velocity.MINUTE_MILLIS) / (double) Velocity.MINUTE_MILLIS;
+    double hourLeft =
+        1.0d - Math.floorMod(epochMillis, Velocity.HOUR_MILLIS) / (double) Velocity.HOUR_MILLIS;
+    return new Velocity(
+        estimate(minutes, 1, minuteLeft),
+        estimate(minutes, 15, 0.0d),
+        estimate(hours, 1, hourLeft),
+        estimate(hours, 24, hourLeft));
+  }
+
+  /**
+   * The {@code span} newest buckets plus the one before them weighted by {@code left}. Index 0 is
+   * the current bucket.
+   */
+  private static int estimate(int[] buckets, int span, double left) {
+    int total = 0;
+    for (int age = 0; age < span; age++) {
+      total += buckets[age];
+    }
+    return total + (int) Math.round(buckets[span] * left);
+  }
+}
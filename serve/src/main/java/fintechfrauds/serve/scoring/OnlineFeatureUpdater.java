@@ -0,0 +1,259 @@
+package fintechfrauds.serve.scoring;
+
+import fintechfrauds.serve.api.dto.ScoreRequest;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.JedisPooled;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.exceptions.JedisException;
+import redis.clients.jedis.exceptions.JedisNoScriptException;
+
+/**
+ * Writes every scored transaction back into its account's and merchant's online feature state in
+ * Redis, so features stay current between backfills.
+ *
+ * <p>Each update is one call to {@code redis/update_account_features.lua}. The script atomically
+ * folds the amount into the account's running mean and variance, counts the event in the
+ * account's and the merchant's minute and hour buckets and adds the merchant to the account's seen
+ * set. The statistics hash and the seen set expire after {@code merchantTtl} without an update.
+ * It stores no features: {@link RedisFeatureStore} derives the z-score, the first-time
+ * merchant flag and the window counts from this state for the transaction being scored, and the
+ * near-cached {@code fs:acct:*} and {@code fs:merch:*} keys are left untouched.
+ * Old buckets are pruned by the Redis server's clock, and the request's {@code epochMillis} is
+ * clamped to within {@link #MAX_CLOCK_SKEW_MILLIS} of it, so one request with a wrong timestamp
+ * cannot wipe a merchant's counts for every account.
+ * Request threads only offer the request to a bounded queue; a single writer thread sends what has
+ * queued up as one pipeline of {@code EVALSHA} calls. A full queue drops the update and counts it,
+ * so Redis trouble never reaches the response path.
+ */
+public class OnlineFeatureUpdater implements AutoCloseable {
+
+  /** Prefix of the per-account running count, mean and M2 hashes. */
+  public static final String ACCOUNT_STATS_PREFIX = "fs:stats:";
+  /** Prefix of the per-account velocity bucket hashes. */
+  public static final String ACCOUNT_VELOCITY_PREFIX = "fs:vel:acct:";
+  /** Prefix of the per-merchant velocity bucket hashes. */
+  public static final String MERCHANT_VELOCITY_PREFIX = "fs:vel:merch:";
+  /** Prefix of the per-account seen-merchant sets. */
+  public static final String SEEN_MERCHANT_PREFIX = "fs:seen:";
+  /**
+   * How far a request's {@code epochMillis} may be from server time when it places the event in
+   * velocity buckets; times further out are clamped to this distance.
+   */
+  public static final long MAX_CLOCK_SKEW_MILLIS = 60_000L;
+
+  private static final Logger log = LoggerFactory.getLogger(OnlineFeatureUpdater.class);
+  private static final String SCRIPT_RESOURCE = "/redis/update_account_features.lua";
+  private static final int KEY_COUNT = 6;
+  private static final long IDLE_POLL_MILLIS = 100L;
+  private static final long FAILURE_LOG_EVERY = 1_000L;
+
+  private final JedisPooled jedis;
+  private final BlockingQueue<ScoreRequest> queue;
+  private final int batchSize;
+  private final String merchantTtlSeconds;
+  private final String script;
+  private final LongAdder written = new LongAdder();
+  private final LongAdder dropped = new LongAdder();
+  private final LongAdder failed = new LongAdder();
+  private final Thread writer;
+  private volatile String sha;
+  private volatile boolean running;
+
+  private OnlineFeatureUpdater() {
+    this.jedis = null;
+    this.queue = null;
+    this.batchSize = 0;
+    this.merchantTtlSeconds = null;
+    this.script = null;
+    this.writer = null;
+  }
+
+  /** An updater that ignores all submissions. */
+  public static OnlineFeatureUpdater disabled() {
+    return new OnlineFeatureUpdater();
+  }
+
+  public OnlineFeatureUpdater(
+      JedisPooled jedis, int queueCapacity, int batchSize, Duration merchantTtl) {
+    this.jedis = jedis;
+    this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    this.batchSize = Math.max(1, batchSize);
+    this.merchantTtlSeconds = Long.toString(Math.max(1L, merchantTtl.toSeconds()));
+    this.script = loadScript();
+    this.running = true;
+    this.writer =
+        Thread.ofPlatform().name("feature-updater").daemon(true).start(this::drain);
+  }
+
+  public boolean isEnabled() {
+    return queue != null;
+  }
+
+  /** Queues the feature update for one scored request, or drops it if the queue is full. */
+  public void submit(ScoreRequest request) {
+    if (queue == null) {
+      return;
+    }
+    if (!queue.offer(request)) {
+      dropped.increment();
+    }
+  }
+
+  /** Queues the feature updates for a scored batch. */
+  public void submitAll(List<ScoreRequest> requests) {
+    if (queue == null) {
+      return;
+    }
+    for (ScoreRequest request : requests) {
+      submit(request);
+    }
+  }
+
+  public long writtenCount() {
+    return written.sum();
+  }
+
+  public long droppedCount() {
+    return dropped.sum();
+  }
+
+  public long failedCount() {
+    return failed.sum();
+  }
+
+  /** Updates waiting for the writer. */
+  public int pending() {
+    return queue == null ? 0 : queue.size();
+  }
+
+  /** Stops the writer after it has sent what is already queued. */
+  @Override
+  public void close() {
+    if (writer == null) {
+      return;
+    }
+    running = false;
+    try {
+      writer.join(TimeUnit.SECONDS.toMillis(5));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void drain() {
+    List<ScoreRequest> batch = new ArrayList<>(batchSize);
+    while (running || !queue.isEmpty()) {
+      try {
+        ScoreRequest first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+        if (first == null) {
+          continue;
+        }
+        batch.add(first);
+        queue.drainTo(batch, batchSize - 1);
+        write(batch);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      } catch (RuntimeException e) {
+        recordFailures(batch.size(), e);
+      } finally {
+        batch.clear();
+      }
+    }
+  }
+
+  private void write(List<ScoreRequest> batch) {
+    String current = sha;
+    if (current == null) {
+      current = jedis.scriptLoad(script);
+      sha = current;
+    }
+    List<Response<Object>> responses = new ArrayList<>(batch.size());
+    String[][] params = new String[batch.size()][];
+    try (Pipeline pipeline = jedis.pipelined()) {
+      for (int i = 0; i < batch.size(); i++) {
+        params[i] = params(batch.get(i));
+        responses.add(pipeline.evalsha(current, KEY_COUNT, params[i]));
+      }
+      pipeline.sync();
+    }
+    List<String[]> retry = null;
+    for (int i = 0; i < responses.size(); i++) {
+      try {
+        responses.get(i).get();
+        written.increment();
+      } catch (JedisNoScriptException e) {
+        if (retry == null) {
+          retry = new ArrayList<>();
+        }
+        retry.add(params[i]);
+      } catch (JedisException e) {
+        recordFailures(1, e);
+      }
+    }
+    if (retry != null) {
+      // The script cache was flushed (restart or SCRIPT FLUSH); load it again and resend.
+      sha = null;
+      for (String[] args : retry) {
+        try {
+          jedis.eval(script, KEY_COUNT, args);
+          written.increment();
+        } catch (JedisException e) {
+          recordFailures(1, e);
+        }
+      }
+    }
+  }
+
+  private String[] params(ScoreRequest request) {
+    String account = request.getAccountHash();
+    String merchant = request.getMerchantHash() != null ? request.getMerchantHash() : "";
+    long epochMillis =
+        request.getEpochMillis() != null ? request.getEpochMillis() : System.currentTimeMillis();
+    return new String[] {
+      ACCOUNT_STATS_PREFIX + account,
+      ACCOUNT_VELOCITY_PREFIX + account,
+      SEEN_MERCHANT_PREFIX + account,
+      MERCHANT_VELOCITY_PREFIX + merchant,
+      FeatureEncoding.HASH.accountPrefix() + account,
+      FeatureEncoding.BINARY.accountPrefix() + account,
+      Long.toString(request.getAmountCents() != null ? request.getAmountCents() : 0L),
+      Long.toString(epochMillis),
+      merchant,
+      merchantTtlSeconds,
+      Long.toString(MAX_CLOCK_SKEW_MILLIS)
+    };
+  }
+
+  private void recordFailures(int count, RuntimeException e) {
+    long before = failed.sum();
+    failed.add(count);
+    if (before / FAILURE_LOG_EVERY != (before + count) / FAILURE_LOG_EVERY || before == 0) {
+      log.warn("feature_update_failed failedTotal={}", before + count, e);
+    }
+  }
+
+  private static String loadScript() {
+    try (InputStream in = OnlineFeatureUpdater.class.getResourceAsStream(SCRIPT_RESOURCE)) {
+      if (in == null) {
+        throw new IllegalStateException("Missing " + SCRIPT_RESOURCE);
+      }
+      return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
@@ -1,134 +1,490 @@
 package fintechfrauds.serve.scoring;
 
 import fintechfrauds.serve.api.dto.ScoreRequest;
-import java.time.Duration;
+import fintechfrauds.serve.metrics.ScoringMetrics;
+import fintechfrauds.serve.redis.RedisCircuitBreaker;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import redis.clients.jedis.JedisPooled;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
 import redis.clients.jedis.exceptions.JedisException;
+import redis.clients.jedis.util.SafeEncoder;
 
+/**
+ * Loads features from Redis in the configured {@link FeatureEncoding}. Binary features are decoded
+ * straight from the reply bytes; a key with no binary value, or one in a version this reader does
+ * not know, is read from its string hash instead, so readers can switch before the hashes are
+ * migrated.
+ *
+ * <p>With online updates enabled, every load also reads the {@link OnlineFeatureState} the updater
+ * keeps for the account and merchant, in the same round trip as any stored features the near cache
+ * lacks. The z-score, first-time merchant flag and window counts are then computed for the request
+ * being scored, and only fall back to the stored features for accounts the updater has not seen.
+ */
 @Component
 public class RedisFeatureStore implements FeatureStore {
 
+  /** Prefix of the per-account feature hashes. */
+  public static final String KEY_PREFIX = "fs:acct:";
+  /** Prefix of the per-merchant velocity hashes. */
+  public static final String MERCHANT_KEY_PREFIX = "fs:merch:";
+
   private static final Logger log = LoggerFactory.getLogger(RedisFeatureStore.class);
+  /** Stands in for a key whose reply was an error. */
+  private static final StoredFeatures UNREADABLE =
+      new StoredFeatures(0.0d, StoredFeatures.UNKNOWN, "UNKNOWN", Velocity.NONE, 0L);
+
   private final JedisPooled jedis;
-  private final java.util.concurrent.ConcurrentHashMap<String, FallbackStats> fallbackState =
-      new java.util.concurrent.ConcurrentHashMap<>();
+  private final ScoringMetrics metrics;
+  private final FeatureNearCache nearCache;
+  private final FallbackFeatureState fallbackState;
+  private final RedisCircuitBreaker circuitBreaker;
+  private final FeatureEncoding encoding;
+  private final boolean onlineState;
 
   public RedisFeatureStore(JedisPooled jedis) {
+    this(
+        jedis, ScoringMetrics.disabled(), FeatureNearCache.disabled(), new FallbackFeatureState());
+  }
+
+  public RedisFeatureStore(
+      JedisPooled jedis,
+      ScoringMetrics metrics,
+      FeatureNearCache nearCache,
+      FallbackFeatureState fallbackState) {
+    this(jedis, metrics, nearCache, fallbackState, RedisCircuitBreaker.disabled());
+  }
+
+  public RedisFeatureStore(
+      JedisPooled jedis,
+      ScoringMetrics metrics,
+      FeatureNearCache nearCache,
+      FallbackFeatureState fallbackState,
+      RedisCircuitBreaker circuitBreaker) {
+    this(jedis, metrics, nearCache, fallbackState, circuitBreaker, FeatureEncoding.HASH, false);
+  }
+
+  @Autowired
+  public RedisFeatureStore(
+      JedisPooled jedis,
+      ScoringMetrics metrics,
+      FeatureNearCache nearCache,
+      FallbackFeatureState fallbackState,
+      RedisCircuitBreaker circuitBreaker,
+      @Value("${fintechfrauds.features.encoding:HASH}") FeatureEncoding encoding,
+      @Value("${fintechfrauds.features.online.enabled:false}") boolean onlineState) {
     this.jedis = jedis;
+    this.metrics = metrics;
+    this.nearCache = nearCache;
+    this.fallbackState = fallbackState;
+    this.circuitBreaker = circuitBreaker;
+    this.encoding = encoding;
+    this.onlineState = onlineState;
   }
 
+  /**
+   * Reads the account features and, when the request names a merchant, the merchant features.
+   * Whatever the near cache lacks, and the online state, is read in one round trip, unless the
+   * circuit breaker is open.
+   */
   @Override
   public FeatureVector loadFeatures(ScoreRequest request) {
-    String accountHash = request.getAccountHash();
-    String merchantHash = request.getMerchantHash();
-    String key = String.format("fs:acct:%s", accountHash);
+    return loadFeatures(request, null);
+  }
+
+  @Override
+  public FeatureVector loadFeatures(
+      ScoreRequest request, AtomicReference<FeatureVector> recorded) {
+    long start = System.nanoTime();
+    String accountKey = accountKey(request);
+    String merchantKey = merchantKey(request);
+    FeatureNearCache.Entry account = nearCache.get(accountKey);
+    FeatureNearCache.Entry merchant = merchantKey == null ? null : nearCache.get(merchantKey);
+    if (!onlineState && account != null && (merchantKey == null || merchant != null)) {
+      FeatureVector features =
+          toVector(
+              request, account.features(), features(merchant), OnlineFeatureState.NONE, recorded);
+      metrics.record(ScoringMetrics.FeatureLoad.CACHED, System.nanoTime() - start);
+      return features;
+    }
+    if (!circuitBreaker.tryAcquire()) {
+      FeatureVector fallback = fallbackVector(request, recorded);
+      metrics.record(ScoringMetrics.FeatureLoad.CIRCUIT_OPEN, System.nanoTime() - start);
+      return fallback;
+    }
+    StoredFeatures[] loaded;
+    OnlineReads online = onlineState ? new OnlineReads(List.of(request)) : null;
+    long callStart = System.nanoTime();
     try {
-      Map<String, String> map = jedis.hgetAll(key);
-      if (map == null || map.isEmpty()) {
-        return fallbackVector(request);
-      }
-      double amountZ = parseDouble(map.getOrDefault("amountZ", "0"));
-      int windowCount = parseInt(map.getOrDefault("window15mCount", "0"));
-      int firstTimeMerchant = parseInt(map.getOrDefault("firstTimeMerchant", merchantHash == null ? "0" : "1"));
-      String mcc = map.getOrDefault("mcc", "UNKNOWN");
-      updateFallback(request);
-      return new FeatureVector(amountZ, windowCount, firstTimeMerchant, mcc);
+      loaded =
+          read(
+              new String[] {
+                account == null ? accountKey : null, merchant == null ? merchantKey : null
+              },
+              online);
     } catch (JedisException e) {
+      circuitBreaker.onFailure();
       log.warn("redis_feature_load_failed", e);
-      return fallbackVector(request);
+      FeatureVector fallback = fallbackVector(request, recorded);
+      metrics.record(ScoringMetrics.FeatureLoad.FALLBACK, System.nanoTime() - start);
+      return fallback;
+    }
+    circuitBreaker.onSuccess(System.nanoTime() - callStart);
+    StoredFeatures accountFeatures = account == null ? loaded[0] : account.features();
+    StoredFeatures merchantFeatures = merchant == null ? loaded[1] : merchant.features();
+    OnlineFeatureState state = online == null ? OnlineFeatureState.NONE : online.state(0);
+    if (accountFeatures == UNREADABLE || merchantFeatures == UNREADABLE || state == null) {
+      FeatureVector fallback = fallbackVector(request, recorded);
+      metrics.record(ScoringMetrics.FeatureLoad.FALLBACK, System.nanoTime() - start);
+      return fallback;
     }
+    FeatureVector features = toVector(request, accountFeatures, merchantFeatures, state, recorded);
+    ScoringMetrics.FeatureLoad outcome;
+    if (account != null) {
+      outcome = ScoringMetrics.FeatureLoad.CACHED;
+    } else if (accountFeatures == null && !state.hasAccount()) {
+      outcome = ScoringMetrics.FeatureLoad.MISS;
+    } else {
+      outcome = ScoringMetrics.FeatureLoad.HIT;
+    }
+    metrics.record(outcome, System.nanoTime() - start);
+    return features;
   }
 
-  private FeatureVector fallbackVector(ScoreRequest request) {
-    return fallbackState
-        .computeIfAbsent(request.getAccountHash(), k -> new FallbackStats())
-        .record(request);
+  @Override
+  public FeatureVector fallbackFeatures(ScoreRequest request) {
+    return fallbackVector(request);
   }
 
-  private void updateFallback(ScoreRequest request) {
-    fallbackState
-        .computeIfAbsent(request.getAccountHash(), k -> new FallbackStats())
-        .record(request);
+  @Override
+  public FeatureVector fallbackFeatures(
+      ScoreRequest request, AtomicReference<FeatureVector> recorded) {
+    return fallbackVector(request, recorded);
   }
 
-  private double parseDouble(String value) {
-    try {
-      return Double.parseDouble(value);
-    } catch (NumberFormatException ex) {
-      return 0.0d;
+  @Override
+  public List<FeatureVector> loadFeaturesBatch(List<ScoreRequest> requests) {
+    int size = requests.size();
+    // Request i's account key is at 2 * i and its merchant key at 2 * i + 1.
+    FeatureNearCache.Entry[] cached = new FeatureNearCache.Entry[2 * size];
+    String[] missing = new String[2 * size];
+    boolean anyMissing = false;
+    for (int i = 0; i < size; i++) {
+      ScoreRequest request = requests.get(i);
+      String accountKey = accountKey(request);
+      cached[2 * i] = nearCache.get(accountKey);
+      if (cached[2 * i] == null) {
+        missing[2 * i] = accountKey;
+        anyMissing = true;
+      }
+      String merchantKey = merchantKey(request);
+      if (merchantKey != null) {
+        cached[2 * i + 1] = nearCache.get(merchantKey);
+        if (cached[2 * i + 1] == null) {
+          missing[2 * i + 1] = merchantKey;
+          anyMissing = true;
+        }
+      }
     }
+    StoredFeatures[] loaded = new StoredFeatures[2 * size];
+    OnlineReads online = onlineState ? new OnlineReads(requests) : null;
+    if (anyMissing || online != null) {
+      if (!circuitBreaker.tryAcquire()) {
+        return fallbackBatch(requests);
+      }
+      long callStart = System.nanoTime();
+      try {
+        loaded = read(missing, online);
+      } catch (JedisException e) {
+        circuitBreaker.onFailure();
+        log.warn("redis_feature_batch_load_failed size={}", requests.size(), e);
+        return fallbackBatch(requests);
+      }
+      circuitBreaker.onSuccess(System.nanoTime() - callStart);
+    }
+    List<FeatureVector> vectors = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      ScoreRequest request = requests.get(i);
+      StoredFeatures account = cached[2 * i] != null ? cached[2 * i].features() : loaded[2 * i];
+      StoredFeatures merchant =
+          cached[2 * i + 1] != null ? cached[2 * i + 1].features() : loaded[2 * i + 1];
+      OnlineFeatureState state = online == null ? OnlineFeatureState.NONE : online.state(i);
+      if (account == UNREADABLE || merchant == UNREADABLE || state == null) {
+        vectors.add(fallbackVector(request));
+      } else {
+        vectors.add(toVector(request, account, merchant, state, null));
+      }
+    }
+    return vectors;
   }
 
-  private int parseInt(String value) {
-    try {
-      return Integer.parseInt(value);
-    } catch (NumberFormatException ex) {
-      return 0;
-    }
-  }
-
-  private static class FallbackStats {
-    private static final long WINDOW_MILLIS = Duration.ofMinutes(15).toMillis();
-    private final List<Long> windowEvents = new ArrayList<>();
-    private final Set<String> seenMerchants = new HashSet<>();
-    private long count = 0;
-    private double mean = 0.0d;
-    private double m2 = 0.0d;
-
-    synchronized FeatureVector record(ScoreRequest request) {
-      long timestamp =
-          request.getEpochMillis() != null ? request.getEpochMillis() : System.currentTimeMillis();
-      int insertPos = Collections.binarySearch(windowEvents, timestamp);
-      if (insertPos < 0) {
-        insertPos = -(insertPos + 1);
-      }
-      windowEvents.add(insertPos, timestamp);
-      long cutoff = timestamp - WINDOW_MILLIS;
-      int idx = 0;
-      while (idx < windowEvents.size() && windowEvents.get(idx) < cutoff) {
-        windowEvents.remove(idx);
-      }
-      int windowCount = 0;
-      for (long eventTimestamp : windowEvents) {
-        if (eventTimestamp > timestamp) {
-          break;
+  /**
+   * Reads the non-null {@code keys}, and the {@code online} state when it is not {@code null}, and
+   * offers the features it finds to the near cache. Binary keys with no value this reader can
+   * decode are read again from their string hashes in a second round trip. A key whose reply was
+   * an error comes back as {@link #UNREADABLE} and is not cached.
+   */
+  private StoredFeatures[] read(String[] keys, OnlineReads online) {
+    long[] stamps = new long[keys.length];
+    for (int i = 0; i < keys.length; i++) {
+      if (keys[i] != null) {
+        stamps[i] = nearCache.stamp(keys[i]);
+      }
+    }
+    StoredFeatures[] features;
+    if (encoding == FeatureEncoding.HASH) {
+      features = readHashes(keys, online);
+    } else {
+      features =
+          read(
+              keys,
+              key -> jedis.get(SafeEncoder.encode(key)),
+              (pipeline, key) -> pipeline.get(SafeEncoder.encode(key)),
+              FeatureCodec::decode,
+              online);
+      String[] unmigrated = new String[keys.length];
+      boolean anyUnmigrated = false;
+      for (int i = 0; i < keys.length; i++) {
+        if (keys[i] != null && features[i] == null) {
+          unmigrated[i] = hashKey(keys[i]);
+          anyUnmigrated = true;
         }
-        if (eventTimestamp >= cutoff) {
-          windowCount++;
+      }
+      if (anyUnmigrated) {
+        StoredFeatures[] hashes = readHashes(unmigrated, null);
+        for (int i = 0; i < keys.length; i++) {
+          if (unmigrated[i] != null) {
+            features[i] = hashes[i];
+          }
         }
       }
+    }
+    for (int i = 0; i < keys.length; i++) {
+      if (keys[i] != null && features[i] != UNREADABLE) {
+        nearCache.put(keys[i], stamps[i], features[i]);
+      }
+    }
+    return features;
+  }
 
-      String merchantHash = request.getMerchantHash();
-      int firstTimeMerchant = 0;
-      if (merchantHash != null) {
-        if (!seenMerchants.contains(merchantHash)) {
-          firstTimeMerchant = 1;
-          seenMerchants.add(merchantHash);
-        }
+  private StoredFeatures[] readHashes(String[] keys, Consumer<Pipeline> extra) {
+    return read(keys, jedis::hgetAll, Pipeline::hgetAll, StoredFeatures::parse, extra);
+  }
+
+  /**
+   * Reads one key directly, or several in one pipeline, and decodes each reply. Commands queued by
+   * {@code extra} go in the same pipeline.
+   */
+  private <T> StoredFeatures[] read(
+      String[] keys,
+      Function<String, T> direct,
+      BiFunction<Pipeline, String, Response<T>> pipelined,
+      Function<T, StoredFeatures> decode,
+      Consumer<Pipeline> extra) {
+    StoredFeatures[] features = new StoredFeatures[keys.length];
+    int only = -1;
+    int count = 0;
+    for (int i = 0; i < keys.length; i++) {
+      if (keys[i] != null) {
+        only = i;
+        count++;
       }
+    }
+    if (count == 1 && extra == null) {
+      features[only] = decode.apply(direct.apply(keys[only]));
+      return features;
+    }
+    List<Response<T>> responses = new ArrayList<>(keys.length);
+    try (Pipeline pipeline = jedis.pipelined()) {
+      for (String key : keys) {
+        responses.add(key == null ? null : pipelined.apply(pipeline, key));
+      }
+      if (extra != null) {
+        extra.accept(pipeline);
+      }
+      pipeline.sync();
+    }
+    for (int i = 0; i < keys.length; i++) {
+      Response<T> response = responses.get(i);
+      if (response == null) {
+        continue;
+      }
+      try {
+        features[i] = decode.apply(response.get());
+      } catch (JedisException e) {
+        log.warn("redis_feature_load_failed key={}", keys[i], e);
+        features[i] = UNREADABLE;
+      }
+    }
+    return features;
+  }
+
+  private List<FeatureVector> fallbackBatch(List<ScoreRequest> requests) {
+    List<FeatureVector> fallback = new ArrayList<>(requests.size());
+    for (ScoreRequest request : requests) {
+      fallback.add(fallbackVector(request));
+    }
+    return fallback;
+  }
+
+  /**
+   * Builds the request's features from its account and merchant features, either of which may be
+   * missing, and its online state. Online state wins where the updater has written it. Stored
+   * velocities are aged to the request's time, since they only change when they are backfilled.
+   */
+  private FeatureVector toVector(
+      ScoreRequest request,
+      StoredFeatures account,
+      StoredFeatures merchant,
+      OnlineFeatureState online,
+      AtomicReference<FeatureVector> recorded) {
+    long epochMillis =
+        request.getEpochMillis() != null ? request.getEpochMillis() : System.currentTimeMillis();
+    // Online buckets follow server time; see OnlineFeatureUpdater.MAX_CLOCK_SKEW_MILLIS.
+    long now = System.currentTimeMillis();
+    long bucketMillis =
+        Math.max(
+            now - OnlineFeatureUpdater.MAX_CLOCK_SKEW_MILLIS,
+            Math.min(now + OnlineFeatureUpdater.MAX_CLOCK_SKEW_MILLIS, epochMillis));
+    Velocity merchantVelocity = online.merchantVelocity(bucketMillis);
+    if (merchantVelocity == null) {
+      merchantVelocity = merchant == null ? Velocity.NONE : merchant.velocityAt(epochMillis);
+    }
+    if (account == null && !online.hasAccount()) {
+      return fallbackVector(request, recorded).withMerchantVelocity(merchantVelocity);
+    }
+    updateFallback(request, recorded);
+    double amountZ;
+    if (online.count > 0L) {
+      amountZ = online.amountZ(request.getAmountCents() != null ? request.getAmountCents() : 0L);
+    } else {
+      amountZ = account == null ? 0.0d : account.amountZ;
+    }
+    int firstTimeMerchant;
+    if (online.seenMerchant != null && online.hasAccount()) {
+      firstTimeMerchant = online.seenMerchant ? 0 : 1;
+    } else if (account != null && account.firstTimeMerchant != StoredFeatures.UNKNOWN) {
+      firstTimeMerchant = account.firstTimeMerchant;
+    } else {
+      firstTimeMerchant = request.getMerchantHash() != null ? 1 : 0;
+    }
+    Velocity accountVelocity = online.accountVelocity(bucketMillis);
+    if (accountVelocity == null) {
+      accountVelocity = account == null ? Velocity.NONE : account.velocityAt(epochMillis);
+    }
+    String mcc;
+    if (account != null) {
+      mcc = account.mcc;
+    } else {
+      mcc = request.getMcc() != null ? request.getMcc() : "UNKNOWN";
+    }
+    return new FeatureVector(amountZ, firstTimeMerchant, mcc, accountVelocity, merchantVelocity);
+  }
+
+  private static StoredFeatures features(FeatureNearCache.Entry entry) {
+    return entry == null ? null : entry.features();
+  }
 
-      double amount = request.getAmountCents() != null ? request.getAmountCents() : 0.0d;
-      count++;
-      double delta = amount - mean;
-      mean += delta / count;
-      double delta2 = amount - mean;
-      m2 += delta * delta2;
-      double variance = count > 1 ? m2 / (count - 1) : 0.0d;
-      double stddev = variance > 0 ? Math.sqrt(variance) : 0.0d;
-      double z = stddev > 0 ? (amount - mean) / stddev : 0.0d;
+  private String accountKey(ScoreRequest request) {
+    return encoding.accountPrefix() + request.getAccountHash();
+  }
+
+  /** The merchant's features key, or {@code null} when the request names no merchant. */
+  private String merchantKey(ScoreRequest request) {
+    String merchantHash = request.getMerchantHash();
+    return merchantHash == null || merchantHash.isEmpty()
+        ? null
+        : encoding.merchantPrefix() + merchantHash;
+  }
+
+  /** The string hash key holding the same features as a binary key. */
+  private static String hashKey(String binaryKey) {
+    FeatureEncoding binary = FeatureEncoding.BINARY;
+    return binaryKey.startsWith(binary.accountPrefix())
+        ? KEY_PREFIX + binaryKey.substring(binary.accountPrefix().length())
+        : MERCHANT_KEY_PREFIX + binaryKey.substring(binary.merchantPrefix().length());
+  }
 
-      String mcc = request.getMcc() != null ? request.getMcc() : "UNKNOWN";
-      return new FeatureVector(z, windowCount, firstTimeMerchant, mcc);
+  /**
+   * The online state commands for a list of requests, queued on a feature read's pipeline. A
+   * request whose replies include an error has no state, and is scored from the fallback.
+   */
+  private static final class OnlineReads implements Consumer<Pipeline> {
+    private final List<ScoreRequest> requests;
+    private final List<Response<List<String>>> stats;
+    private final List<Response<Boolean>> seen;
+    private final List<Response<Map<String, String>>> accountBuckets;
+    private final List<Response<Map<String, String>>> merchantBuckets;
+
+    OnlineReads(List<ScoreRequest> requests) {
+      this.requests = requests;
+      this.stats = new ArrayList<>(requests.size());
+      this.seen = new ArrayList<>(requests.size());
+      this.accountBuckets = new ArrayList<>(requests.size());
+      this.merchantBuckets = new ArrayList<>(requests.size());
     }
+
+    @Override
+    public void accept(Pipeline pipeline) {
+      for (ScoreRequest request : requests) {
+        String account = request.getAccountHash();
+        String merchant = request.getMerchantHash();
+        boolean hasMerchant = merchant != null && !merchant.isEmpty();
+        stats.add(
+            pipeline.hmget(OnlineFeatureUpdater.ACCOUNT_STATS_PREFIX + account, "n", "mean", "m2"));
+        accountBuckets.add(
+            pipeline.hgetAll(OnlineFeatureUpdater.ACCOUNT_VELOCITY_PREFIX + account));
+        seen.add(
+            hasMerchant
+                ? pipeline.sismember(OnlineFeatureUpdater.SEEN_MERCHANT_PREFIX + account, merchant)
+                : null);
+        merchantBuckets.add(
+            hasMerchant
+                ? pipeline.hgetAll(OnlineFeatureUpdater.MERCHANT_VELOCITY_PREFIX + merchant)
+                : null);
+      }
+    }
+
+    /** Request {@code i}'s state, or {@code null} when a reply was an error. */
+    OnlineFeatureState state(int i) {
+      try {
+        return OnlineFeatureState.parse(
+            stats.get(i).get(),
+            seen.get(i) == null ? null : seen.get(i).get(),
+            accountBuckets.get(i).get(),
+            merchantBuckets.get(i) == null ? null : merchantBuckets.get(i).get());
+      } catch (JedisException e) {
+        log.warn("redis_online_state_load_failed account={}", requests.get(i).getAccountHash(), e);
+        return null;
+      }
+    }
+  }
+
+  private FeatureVector fallbackVector(ScoreRequest request) {
+    return fallbackState.record(request);
+  }
+
+  private FeatureVector fallbackVector(
+      ScoreRequest request, AtomicReference<FeatureVector> recorded) {
+    if (recorded == null) {
+      return fallbackState.record(request);
+    }
+    return fallbackState.record(request, recorded);
+  }
+
+  private void updateFallback(ScoreRequest request, AtomicReference<FeatureVector> recorded) {
+    fallbackVector(request, recorded);
   }
 }
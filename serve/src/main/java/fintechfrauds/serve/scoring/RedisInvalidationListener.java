@@ -0,0 +1,223 @@
+package fintechfrauds.serve.scoring;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.CommandArguments;
+import redis.clients.jedis.Connection;
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.JedisClientConfig;
+import redis.clients.jedis.Protocol;
+import redis.clients.jedis.exceptions.JedisException;
+import redis.clients.jedis.util.SafeEncoder;
+
+/**
+ * Keeps a {@link FeatureNearCache} coherent with Redis using server-assisted client-side caching.
+ *
+ * <p>A dedicated RESP3 connection runs {@code CLIENT TRACKING ON BCAST PREFIX <prefix> ...}, after
+ * which Redis pushes an {@code invalidate} message naming every key under a prefix that is written,
+ * expired or evicted, whichever client wrote it. Broadcast mode means the server keeps no per-key
+ * state for this client. The cache only serves entries while this connection is up; when it drops,
+ * the cache is emptied and the listener reconnects with backoff. A heartbeat {@code PING} detects a
+ * connection that died without closing; it is flushed straight away, since {@link
+ * Connection#sendCommand} only buffers.
+ */
+public class RedisInvalidationListener implements AutoCloseable {
+
+  private static final Logger log = LoggerFactory.getLogger(RedisInvalidationListener.class);
+  private static final long MIN_BACKOFF_MILLIS = 100L;
+  private static final long MAX_BACKOFF_MILLIS = 30_000L;
+  /** Missed heartbeats after which the connection is treated as dead. */
+  private static final int STALE_HEARTBEATS = 3;
+
+  private final HostAndPort address;
+  private final JedisClientConfig config;
+  private final List<String> prefixes;
+  private final FeatureNearCache cache;
+  private final long heartbeatMillis;
+  private Thread reader;
+  private ScheduledExecutorService heartbeat;
+  private volatile TrackingConnection connection;
+  private volatile long lastReplyNanos;
+  private volatile boolean running;
+
+  private RedisInvalidationListener() {
+    this(null, null, List.of(), FeatureNearCache.disabled(), 0L);
+  }
+
+  /** A listener that never connects, for when the near cache is disabled. */
+  public static RedisInvalidationListener disabled() {
+    return new RedisInvalidationListener();
+  }
+
+  /**
+   * Creates a listener for keys under any of {@code prefixes}; call {@link #start()} to connect.
+   *
+   * @param config client settings for the tracking connection; must select RESP3
+   */
+  public RedisInvalidationListener(
+      HostAndPort address,
+      JedisClientConfig config,
+      List<String> prefixes,
+      FeatureNearCache cache,
+      long heartbeatMillis) {
+    this.address = address;
+    this.config = config;
+    this.prefixes = prefixes;
+    this.cache = cache;
+    this.heartbeatMillis = heartbeatMillis;
+  }
+
+  /** Starts the tracking connection on a background thread. */
+  public RedisInvalidationListener start() {
+    running = true;
+    reader =
+        Thread.ofPlatform().name("feature-cache-invalidation").daemon(true).start(this::listen);
+    heartbeat =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable ->
+                Thread.ofPlatform()
+                    .name("feature-cache-heartbeat")
+                    .daemon(true)
+                    .unstarted(runnable));
+    heartbeat.scheduleWithFixedDelay(
+        this::heartbeat, heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+    return this;
+  }
+
+  @Override
+  public void close() {
+    if (!running) {
+      return;
+    }
+    running = false;
+    heartbeat.shutdownNow();
+    Connection current = connection;
+    if (current != null) {
+      current.disconnect();
+    }
+    reader.interrupt();
+    try {
+      reader.join(TimeUnit.SECONDS.toMillis(5));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void listen() {
+    long backoffMillis = MIN_BACKOFF_MILLIS;
+    while (running) {
+      TrackingConnection current = null;
+      try {
+        current = new TrackingConnection(address, config);
+        CommandArguments tracking =
+            new CommandArguments(Protocol.Command.CLIENT).add("TRACKING").add("ON").add("BCAST");
+        for (String prefix : prefixes) {
+          tracking.add("PREFIX").add(prefix);
+        }
+        current.executeCommand(tracking);
+        current.setTimeoutInfinite();
+        connected(current);
+        log.info("feature_cache_tracking_started prefixes={}", prefixes);
+        backoffMillis = MIN_BACKOFF_MILLIS;
+        while (running) {
+          handle(current.getUnflushedObject());
+        }
+      } catch (JedisException e) {
+        if (running) {
+          log.warn("feature_cache_tracking_lost retryMillis={}", backoffMillis, e);
+        }
+      } finally {
+        connection = null;
+        cache.setTracking(false);
+        if (current != null) {
+          current.close();
+        }
+      }
+      if (running) {
+        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(backoffMillis));
+        backoffMillis = Math.min(backoffMillis * 2, MAX_BACKOFF_MILLIS);
+      }
+    }
+  }
+
+  /** Makes {@code current} the tracking connection the cache and heartbeat rely on. */
+  void connected(TrackingConnection current) {
+    lastReplyNanos = System.nanoTime();
+    connection = current;
+    cache.setTracking(true);
+  }
+
+  /**
+   * Applies one message from the tracking connection: an {@code invalidate} push with the written
+   * keys, or with no keys after {@code FLUSHALL}/{@code FLUSHDB}, or a heartbeat reply.
+   */
+  void handle(Object message) {
+    lastReplyNanos = System.nanoTime();
+    if (!(message instanceof List<?> push)
+        || push.isEmpty()
+        || !"invalidate".equals(text(push.get(0)))) {
+      return;
+    }
+    if (push.size() > 1 && push.get(1) instanceof List<?> keys) {
+      for (Object key : keys) {
+        String text = text(key);
+        if (text != null) {
+          cache.invalidate(text);
+        }
+      }
+    } else {
+      cache.invalidateAll();
+    }
+  }
+
+  void heartbeat() {
+    TrackingConnection current = connection;
+    if (current == null) {
+      return;
+    }
+    long silentNanos = System.nanoTime() - lastReplyNanos;
+    if (silentNanos > TimeUnit.MILLISECONDS.toNanos(heartbeatMillis) * STALE_HEARTBEATS) {
+      log.warn(
+          "feature_cache_tracking_stale silentMillis={}",
+          TimeUnit.NANOSECONDS.toMillis(silentNanos));
+      current.disconnect();
+      return;
+    }
+    try {
+      current.sendPing();
+    } catch (JedisException e) {
+      current.disconnect();
+    }
+  }
+
+  /** A connection that can send a command outside a request/reply exchange. */
+  static class TrackingConnection extends Connection {
+
+    TrackingConnection(HostAndPort address, JedisClientConfig config) {
+      super(address, config);
+    }
+
+    /** Does not connect until the first command. */
+    TrackingConnection(HostAndPort address) {
+      super(address);
+    }
+
+    /** Sends a {@code PING} and flushes it; the reply arrives on the reading thread. */
+    void sendPing() {
+      sendCommand(Protocol.Command.PING);
+      flush();
+    }
+  }
+
+  private static String text(Object value) {
+    if (value instanceof byte[] bytes) {
+      return SafeEncoder.encode(bytes);
+    }
+    return value instanceof String string ? string : null;
+  }
+}
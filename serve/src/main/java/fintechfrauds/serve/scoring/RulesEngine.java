@@ -2,47 +2,114 @@ package fintechfrauds.serve.scoring;
 
 import fintechfrauds.serve.api.dto.ScoreRequest;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import org.springframework.stereotype.Component;
 
+/**
+ * Deterministic rules layered on top of the model score.
+ *
+ * <p>{@link #decide} is the allocation-free form used on the scoring path: it packs the decision
+ * and the set of fired reasons into one {@code int}. The reason strings are only materialised by
+ * {@link #reasons(int)}, which hands out a shared immutable list per reason combination.
+ */
 @Component
 public class RulesEngine {
 
+  public static final String APPROVE = "APPROVE";
+  public static final String REVIEW = "REVIEW";
+  public static final String DECLINE = "DECLINE";
+
+  private static final String[] DECISIONS = {APPROVE, REVIEW, DECLINE};
+  private static final int DECISION_BITS = 2;
+  private static final int DECISION_MASK = (1 << DECISION_BITS) - 1;
+
+  /** Reason codes in the order they are reported; bit {@code i} of the reason mask is entry i. */
+  private static final String[] REASONS = {
+    "AMOUNT_OUTLIER_FIRST_MERCHANT",
+    "BURST_GIFTCARDS",
+    "MODEL_RISK_HIGH",
+    "MODEL_RISK_FIRST_MERCHANT",
+    "MODEL_RISK_EXTREME",
+    "MODEL_RISK_ELEVATED"
+  };
+
+  private static final int AMOUNT_OUTLIER_FIRST_MERCHANT = 1;
+  private static final int BURST_GIFTCARDS = 1 << 1;
+  private static final int MODEL_RISK_HIGH = 1 << 2;
+  private static final int MODEL_RISK_FIRST_MERCHANT = 1 << 3;
+  private static final int MODEL_RISK_EXTREME = 1 << 4;
+  private static final int MODEL_RISK_ELEVATED = 1 << 5;
+
+  private static final List<List<String>> REASON_LISTS = reasonLists();
+
   public DecisionResult evaluate(ScoreRequest request, FeatureVector features, double risk) {
-    List<String> reasons = new ArrayList<>();
+    int outcome = decide(request, features, risk);
+    return new DecisionResult(risk, decision(outcome), reasons(outcome));
+  }
+
+  /**
+   * Applies the rules without allocating.
+   *
+   * @return packed outcome; decode with {@link #decision(int)} and {@link #reasons(int)}
+   */
+  public int decide(ScoreRequest request, FeatureVector features, double risk) {
+    int reasons = 0;
     String descriptor = request.getDescription() == null ? "" : request.getDescription();
+    boolean firstMerchant = features.getFirstTimeMerchant() > 0;
 
-    if (features.getFirstTimeMerchant() > 0 && request.getAmountCents() > 50000) {
-      reasons.add("AMOUNT_OUTLIER_FIRST_MERCHANT");
+    if (firstMerchant && request.getAmountCents() > 50000) {
+      reasons |= AMOUNT_OUTLIER_FIRST_MERCHANT;
     }
     boolean storedValue = descriptor.contains("GIFT") || descriptor.contains("STORED_VALUE");
     if (features.getWindow15mCount() >= 3 && storedValue) {
-      reasons.add("BURST_GIFTCARDS");
+      reasons |= BURST_GIFTCARDS;
     }
     if (risk > 0.9d) {
-      reasons.add("MODEL_RISK_HIGH");
+      reasons |= MODEL_RISK_HIGH;
     }
-    if (risk > 0.75d && features.getFirstTimeMerchant() > 0) {
-      reasons.add("MODEL_RISK_FIRST_MERCHANT");
+    if (risk > 0.75d && firstMerchant) {
+      reasons |= MODEL_RISK_FIRST_MERCHANT;
     }
 
-    String decision;
-    if (risk >= 0.85d || reasons.contains("BURST_GIFTCARDS")) {
-      if (risk >= 0.85d && reasons.stream().noneMatch(reason -> reason.startsWith("MODEL_RISK"))) {
-        reasons.add("MODEL_RISK_EXTREME");
+    int decision;
+    if (risk >= 0.85d || (reasons & BURST_GIFTCARDS) != 0) {
+      if (risk >= 0.85d && (reasons & (MODEL_RISK_HIGH | MODEL_RISK_FIRST_MERCHANT)) == 0) {
+        reasons |= MODEL_RISK_EXTREME;
       }
-      decision = "DECLINE";
-    } else if (risk >= 0.55d || !reasons.isEmpty()) {
-      if (risk >= 0.55d && reasons.isEmpty()) {
-        reasons.add("MODEL_RISK_ELEVATED");
+      decision = 2;
+    } else if (risk >= 0.55d || reasons != 0) {
+      if (risk >= 0.55d && reasons == 0) {
+        reasons |= MODEL_RISK_ELEVATED;
       }
-      decision = "REVIEW";
+      decision = 1;
     } else {
-      decision = "APPROVE";
+      decision = 0;
     }
+    return reasons << DECISION_BITS | decision;
+  }
+
+  /** Decision of a packed outcome: one of {@link #APPROVE}, {@link #REVIEW}, {@link #DECLINE}. */
+  public static String decision(int outcome) {
+    return DECISIONS[outcome & DECISION_MASK];
+  }
 
-    return new DecisionResult(risk, decision, Collections.unmodifiableList(reasons));
+  /** Reasons of a packed outcome as a shared, immutable list. */
+  public static List<String> reasons(int outcome) {
+    return REASON_LISTS.get(outcome >>> DECISION_BITS);
+  }
+
+  private static List<List<String>> reasonLists() {
+    List<List<String>> lists = new ArrayList<>(1 << REASONS.length);
+    for (int mask = 0; mask < 1 << REASONS.length; mask++) {
+      List<String> reasons = new ArrayList<>(Integer.bitCount(mask));
+      for (int bit = 0; bit < REASONS.length; bit++) {
+        if ((mask & (1 << bit)) != 0) {
+          reasons.add(REASONS[bit]);
+        }
+      }
+      lists.add(List.copyOf(reasons));
+    }
+    return List.copyOf(lists);
   }
 
   public record DecisionResult(double risk, String decision, List<String> reasons) {}
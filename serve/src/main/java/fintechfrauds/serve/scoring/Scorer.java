@@ -1,7 +1,20 @@
 package fintechfrauds.serve.scoring;
 
 import fintechfrauds.serve.api.dto.ScoreRequest;
+import java.util.List;
 
 public interface Scorer {
   double score(ScoreRequest request, FeatureVector features);
+
+  /**
+   * Scores {@code requests.get(i)} against {@code features.get(i)} for every row. Implementations
+   * backed by a native runtime should override this to amortise per-call overhead across the batch.
+   */
+  default double[] scoreBatch(List<ScoreRequest> requests, List<FeatureVector> features) {
+    double[] risks = new double[requests.size()];
+    for (int i = 0; i < risks.length; i++) {
+      risks[i] = score(requests.get(i), features.get(i));
+    }
+    return risks;
+  }
 }
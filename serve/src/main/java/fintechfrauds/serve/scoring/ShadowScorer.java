@@ -0,0 +1,180 @@
+package fintechfrauds.serve.scoring;
+
+import fintechfrauds.serve.api.dto.ScoreRequest;
+import fintechfrauds.serve.logging.StructuredLogger;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Scores live traffic with a challenger model next to the champion without touching the response.
+ *
+ * <p>Challenger work runs on its own fixed pool behind a bounded queue. When the queue is full the
+ * task is discarded and counted rather than run on the caller, so a slow challenger can never add
+ * latency to the live path. Each scored request produces one compact comparison line on the {@code
+ * fintechfrauds.shadow} logger.
+ */
+public class ShadowScorer implements AutoCloseable {
+
+  private static final Logger log = LoggerFactory.getLogger(ShadowScorer.class);
+  private static final Logger comparisons = LoggerFactory.getLogger("fintechfrauds.shadow");
+  private static final long DROP_LOG_EVERY = 1_000;
+
+  private final Scorer challenger;
+  private final RulesEngine rulesEngine;
+  private final ThreadPoolExecutor executor;
+  private final LongAdder submitted = new LongAdder();
+  private final LongAdder dropped = new LongAdder();
+
+  private ShadowScorer() {
+    this.challenger = null;
+    this.rulesEngine = null;
+    this.executor = null;
+  }
+
+  public ShadowScorer(Scorer challenger, RulesEngine rulesEngine, int threads, int queueCapacity) {
+    this.challenger = challenger;
+    this.rulesEngine = rulesEngine;
+    AtomicInteger sequence = new AtomicInteger();
+    RejectedExecutionHandler discard = (task, pool) -> recordDrop();
+    this.executor =
+        new ThreadPoolExecutor(
+            threads,
+            threads,
+            0L,
+            TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            runnable -> {
+              Thread thread = new Thread(runnable, "shadow-scorer-" + sequence.incrementAndGet());
+              thread.setDaemon(true);
+              thread.setPriority(Thread.MIN_PRIORITY);
+              return thread;
+            },
+            discard);
+  }
+
+  /** A shadow scorer that ignores all submissions. */
+  public static ShadowScorer disabled() {
+    return new ShadowScorer();
+  }
+
+  public boolean isEnabled() {
+    return executor != null;
+  }
+
+  /** Queues the challenger for one request, or drops it if the shadow pool is saturated. */
+  public void submit(
+      String requestId,
+      ScoreRequest request,
+      FeatureVector features,
+      double championRisk,
+      int outcome) {
+    if (executor == null) {
+      return;
+    }
+    submitted.increment();
+    executor.execute(() -> compare(requestId, request, features, championRisk, outcome));
+  }
+
+  /** Queues the challenger for a whole batch as one task. */
+  public void submitBatch(
+      String requestId,
+      List<ScoreRequest> requests,
+      List<FeatureVector> features,
+      double[] championRisks,
+      int[] outcomes) {
+    if (executor == null) {
+      return;
+    }
+    submitted.increment();
+    executor.execute(() -> compareBatch(requestId, requests, features, championRisks, outcomes));
+  }
+
+  public long submittedCount() {
+    return submitted.sum();
+  }
+
+  public long droppedCount() {
+    return dropped.sum();
+  }
+
+  @Override
+  public void close() {
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+    if (challenger instanceof AutoCloseable closeable) {
+      try {
+        closeable.close();
+      } catch (Exception e) {
+        log.warn("shadow_challenger_close_failed", e);
+      }
+    }
+  }
+
+  private void compare(
+      String requestId,
+      ScoreRequest request,
+      FeatureVector features,
+      double championRisk,
+      int outcome) {
+    long start = System.nanoTime();
+    try {
+      double risk = challenger.score(request, features);
+      int challengerOutcome = rulesEngine.decide(request, features, risk);
+      logComparison(requestId, championRisk, outcome, risk, challengerOutcome, start);
+    } catch (RuntimeException e) {
+      log.warn("shadow_score_failed requestId={}", requestId, e);
+    }
+  }
+
+  private void compareBatch(
+      String requestId,
+      List<ScoreRequest> requests,
+      List<FeatureVector> features,
+      double[] championRisks,
+      int[] outcomes) {
+    long start = System.nanoTime();
+    try {
+      double[] risks = challenger.scoreBatch(requests, features);
+      for (int i = 0; i < risks.length; i++) {
+        int challengerOutcome = rulesEngine.decide(requests.get(i), features.get(i), risks[i]);
+        logComparison(
+            requestId + ":" + i, championRisks[i], outcomes[i], risks[i], challengerOutcome, start);
+      }
+    } catch (RuntimeException e) {
+      log.warn("shadow_score_batch_failed requestId={}", requestId, e);
+    }
+  }
+
+  private void logComparison(
+      String requestId,
+      double championRisk,
+      int championOutcome,
+      double challengerRisk,
+      int challengerOutcome,
+      long start) {
+    StructuredLogger.event(comparisons)
+        .with("requestId", requestId)
+        .with("champion", championRisk)
+        .with("challenger", challengerRisk)
+        .with("championDecision", RulesEngine.decision(championOutcome))
+        .with("challengerDecision", RulesEngine.decision(challengerOutcome))
+        .with("latencyMicros", (System.nanoTime() - start) / 1_000L)
+        .log();
+  }
+
+  private void recordDrop() {
+    dropped.increment();
+    long total = dropped.sum();
+    if (total % DROP_LOG_EVERY == 1) {
+      log.warn("shadow_score_dropped total={} submitted={}", total, submitted.sum());
+    }
+  }
+}
@@ -0,0 +1,161 @@
+package fintechfrauds.serve.scoring;
+
+import fintechfrauds.serve.config.FintechFraudsProperties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Enforces a per-request latency budget across the scoring stages.
+ *
+ * <p>With a budget, each stage runs on a bounded worker pool and the request thread waits at most
+ * the stage's share of what is left of the budget. A late, failed or unschedulable stage is
+ * replaced by its local fallback and the request is marked degraded; the abandoned call finishes
+ * on the worker in the background. It is interrupted, but a stage blocked in a Jedis socket read
+ * does not react to interrupts, so it keeps running, and keeps its in-flight slot, until the
+ * Redis socket timeout. Without a budget stages run inline exactly as before.
+ */
+@Component
+public class StageDeadlines implements AutoCloseable {
+
+  private static final Logger log = LoggerFactory.getLogger(StageDeadlines.class);
+
+  private final FintechFraudsProperties.Deadline settings;
+  private final ThreadPoolExecutor workers;
+
+  public StageDeadlines(FintechFraudsProperties properties) {
+    this(properties, false);
+  }
+
+  /**
+   * @param virtualThreads run stages on virtual threads, following {@code
+   *     spring.threads.virtual.enabled}; the in-flight bound still applies
+   */
+  @Autowired
+  public StageDeadlines(
+      FintechFraudsProperties properties,
+      @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+    this.settings = properties.getScoring().getDeadline();
+    ThreadFactory threads =
+        virtualThreads
+            ? Thread.ofVirtual().name("score-stage-", 1).factory()
+            : Thread.ofPlatform().name("score-stage-", 1).daemon(true).factory();
+    this.workers =
+        new ThreadPoolExecutor(
+            0,
+            settings.getMaxInflightStages(),
+            60L,
+            TimeUnit.SECONDS,
+            new SynchronousQueue<>(),
+            threads);
+  }
+
+  /**
+   * Starts the budget for one request.
+   *
+   * @param requestedMillis budget from the caller, or {@code null} to use the configured default;
+   *     either is capped at {@code maxMillis}, so a huge header cannot overflow the deadline. A
+   *     value of zero or less also gets the default, so a caller cannot switch the budget off
+   */
+  public Budget start(Long requestedMillis, long startNanos) {
+    long millis =
+        requestedMillis != null && requestedMillis > 0
+            ? requestedMillis
+            : settings.getDefaultMillis();
+    if (millis <= 0) {
+      return new Budget(Long.MAX_VALUE);
+    }
+    millis = Math.min(millis, settings.getMaxMillis());
+    return new Budget(startNanos + TimeUnit.MILLISECONDS.toNanos(millis));
+  }
+
+  @Override
+  public void close() {
+    workers.shutdownNow();
+  }
+
+  /** Remaining budget of one request and the stages that had to fall back. */
+  public final class Budget {
+    private final long deadlineNanos;
+    private String degradedStages;
+
+    private Budget(long deadlineNanos) {
+      this.deadlineNanos = deadlineNanos;
+    }
+
+    public FeatureVector features(Callable<FeatureVector> stage, Supplier<FeatureVector> fallback) {
+      return run("features", settings.getFeatureShare(), stage, fallback);
+    }
+
+    public double model(Callable<Double> stage, Supplier<Double> fallback) {
+      return run("model", 1.0d, stage, fallback);
+    }
+
+    public boolean isDegraded() {
+      return degradedStages != null;
+    }
+
+    /** Comma separated names of the stages that fell back, or {@code null}. */
+    public String degradedStages() {
+      return degradedStages;
+    }
+
+    private <T> T run(String name, double share, Callable<T> stage, Supplier<T> fallback) {
+      if (deadlineNanos == Long.MAX_VALUE) {
+        try {
+          return stage.call();
+        } catch (RuntimeException e) {
+          throw e;
+        } catch (Exception e) {
+          throw new IllegalStateException(e);
+        }
+      }
+      long remaining = deadlineNanos - System.nanoTime();
+      long stageBudget = (long) (remaining * share);
+      if (stageBudget <= 0) {
+        return degrade(name, fallback, "budget_exhausted", null);
+      }
+      Future<T> future;
+      try {
+        future = workers.submit(stage);
+      } catch (RejectedExecutionException e) {
+        return degrade(name, fallback, "saturated", null);
+      }
+      try {
+        return future.get(stageBudget, TimeUnit.NANOSECONDS);
+      } catch (TimeoutException e) {
+        // Only interrupts; a blocking Jedis read runs on until its socket timeout.
+        future.cancel(true);
+        return degrade(name, fallback, "timeout", null);
+      } catch (ExecutionException e) {
+        return degrade(name, fallback, "failed", e.getCause());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        future.cancel(true);
+        return degrade(name, fallback, "interrupted", null);
+      }
+    }
+
+    private <T> T degrade(String name, Supplier<T> fallback, String cause, Throwable error) {
+      degradedStages = degradedStages == null ? name : degradedStages + "," + name;
+      if (error != null) {
+        log.warn("score_stage_degraded stage={} cause={}", name, cause, error);
+      } else {
+        log.warn("score_stage_degraded stage={} cause={}", name, cause);
+      }
+      return fallback.get();
+    }
+  }
+}
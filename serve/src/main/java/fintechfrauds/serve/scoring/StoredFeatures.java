@@ -0,0 +1,90 @@
+package fintechfrauds.serve.scoring;
+
+import java.util.Map;
+
+/**
+ * Parsed stored features, either an account's ({@code fs:acct:*}) or a merchant's ({@code
+ * fs:merch:*}), read from a string hash or decoded by {@link FeatureCodec}. Merchants only have
+ * the velocity fields.
+ */
+final class StoredFeatures {
+
+  /** {@link #firstTimeMerchant} when the stored features do not say. */
+  static final int UNKNOWN = -1;
+
+  final double amountZ;
+  /** {@code firstTimeMerchant} from the hash, or {@link #UNKNOWN} when it has no such field. */
+  final int firstTimeMerchant;
+  final String mcc;
+  final Velocity velocity;
+  /** When the hash was last written, epoch millis, or 0 when unknown. */
+  final long updatedAt;
+
+  StoredFeatures(
+      double amountZ, int firstTimeMerchant, String mcc, Velocity velocity, long updatedAt) {
+    this.amountZ = amountZ;
+    this.firstTimeMerchant = firstTimeMerchant;
+    this.mcc = mcc;
+    this.velocity = velocity;
+    this.updatedAt = updatedAt;
+  }
+
+  /** Parses a hash, or returns {@code null} for a key with no hash. */
+  static StoredFeatures parse(Map<String, String> map) {
+    if (map == null || map.isEmpty()) {
+      return null;
+    }
+    int count15m = parseInt(map.get("window15mCount"));
+    Velocity velocity =
+        new Velocity(
+            parseInt(map.get("window1mCount")),
+            count15m,
+            parseInt(map.get("window1hCount")),
+            parseInt(map.get("window24hCount")));
+    String firstTimeMerchant = map.get("firstTimeMerchant");
+    return new StoredFeatures(
+        parseDouble(map.get("amountZ")),
+        firstTimeMerchant == null ? UNKNOWN : parseInt(firstTimeMerchant),
+        map.getOrDefault("mcc", "UNKNOWN"),
+        velocity,
+        parseLong(map.get("updatedAt")));
+  }
+
+  /** The stored velocity aged to {@code epochMillis}. */
+  Velocity velocityAt(long epochMillis) {
+    return updatedAt == 0L ? velocity : velocity.aged(epochMillis - updatedAt);
+  }
+
+  static double parseDouble(String value) {
+    if (value == null) {
+      return 0.0d;
+    }
+    try {
+      return Double.parseDouble(value);
+    } catch (NumberFormatException ex) {
+      return 0.0d;
+    }
+  }
+
+  static int parseInt(String value) {
+    if (value == null) {
+      return 0;
+    }
+    try {
+      return Integer.parseInt(value);
+    } catch (NumberFormatException ex) {
+      return 0;
+    }
+  }
+
+  static long parseLong(String value) {
+    if (value == null) {
+      return 0L;
+    }
+    try {
+      return Long.parseLong(value);
+    } catch (NumberFormatException ex) {
+      return 0L;
+    }
+  }
+}
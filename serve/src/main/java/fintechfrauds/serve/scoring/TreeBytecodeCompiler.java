@@ -0,0 +1,262 @@
+package fintechfrauds.serve.scoring;
+
+import com.sun.management.HotSpotDiagnosticMXBean;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.management.ManagementFactory;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Generates a hidden class whose {@link TreeMargin#margin} is the ensemble spelled out as nested
+ * float compares with constant thresholds and leaf values.
+ *
+ * <p>Every tree becomes its own static method, called in chunks so no single method grows with the
+ * number of trees. The running sum is passed from chunk to chunk, so leaf values are added to the
+ * base margin one tree at a time in the interpreter's order and the margins match to the bit.
+ * HotSpot never compiles methods above 8000 bytes of bytecode ({@code DontCompileHugeMethods}); if
+ * any tree would exceed that, or exceed {@code FreqInlineSize} when {@code requireInlinable} is
+ * set, compilation is abandoned and callers keep the interpreted {@link TreeEnsemble}. So is a
+ * class whose margins differ from the interpreter's on the probe rows {@link TreeEnsemble} checks
+ * against the native predictor.
+ */
+public final class TreeBytecodeCompiler {
+
+  private static final Logger log = LoggerFactory.getLogger(TreeBytecodeCompiler.class);
+  private static final int HUGE_METHOD_LIMIT = 8000;
+  private static final int TREES_PER_CHUNK = 256;
+  private static final AtomicInteger SEQUENCE = new AtomicInteger();
+  private static final String INTERNAL_PREFIX = "fintechfrauds/serve/scoring/CompiledTrees";
+  private static final String MARGIN_INTERFACE = "fintechfrauds/serve/scoring/TreeMargin";
+
+  private TreeBytecodeCompiler() {}
+
+  /**
+   * Compiles the ensemble, or returns empty when the generated code would not be JIT friendly or
+   * does not reproduce the interpreter's margins.
+   *
+   * @param requireInlinable also reject trees larger than the JIT's hot-method inlining limit
+   */
+  public static Optional<TreeMargin> compile(TreeEnsemble ensemble, boolean requireInlinable) {
+    int methodLimit = dontCompileHugeMethods() ? HUGE_METHOD_LIMIT : 65_535;
+    int inlineLimit = requireInlinable ? intVmOption("FreqInlineSize", 325) : methodLimit;
+    String className = INTERNAL_PREFIX + SEQUENCE.incrementAndGet();
+
+    ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS);
+    writer.visit(
+        Opcodes.V21,
+        Opcodes.ACC_FINAL | Opcodes.ACC_SUPER,
+        className,
+        null,
+        "java/lang/Object",
+        new String[] {MARGIN_INTERFACE});
+    writeConstructor(writer);
+
+    int largest = 0;
+    for (int tree = 0; tree < ensemble.treeCount(); tree++) {
+      int size = writeTree(writer, ensemble, tree);
+      if (size < 0) {
+        log.warn("tree_bytecode_unsupported tree={}", tree);
+        return Optional.empty();
+      }
+      largest = Math.max(largest, size);
+      if (size > Math.min(methodLimit, inlineLimit)) {
+        log.warn(
+            "tree_bytecode_over_limit tree={} bytes={} limit={}",
+            tree,
+            size,
+            Math.min(methodLimit, inlineLimit));
+        return Optional.empty();
+      }
+    }
+    int chunks = (ensemble.treeCount() + TREES_PER_CHUNK - 1) / TREES_PER_CHUNK;
+    for (int chunk = 0; chunk < chunks; chunk++) {
+      int from = chunk * TREES_PER_CHUNK;
+      int to = Math.min(ensemble.treeCount(), from + TREES_PER_CHUNK);
+      writeChunk(writer, className, chunk, from, to);
+    }
+    writeMargin(writer, className, ensemble.baseMargin(), chunks);
+    writer.visitEnd();
+
+    try {
+      MethodHandles.Lookup lookup =
+          MethodHandles.lookup().defineHiddenClass(writer.toByteArray(), true);
+      TreeMargin margin =
+          (TreeMargin)
+              lookup.findConstructor(lookup.lookupClass(), MethodType.methodType(void.class)).invoke();
+      if (!matchesInterpreter(ensemble, margin)) {
+        return Optional.empty();
+      }
+      log.info(
+          "tree_bytecode_compiled trees={} largestTreeBytes={}", ensemble.treeCount(), largest);
+      return Optional.of(margin);
+    } catch (Throwable e) {
+      log.warn("tree_bytecode_define_failed", e);
+      return Optional.empty();
+    }
+  }
+
+  /** Compares the generated margins with the interpreter's, bit for bit, on the probe rows. */
+  private static boolean matchesInterpreter(TreeEnsemble ensemble, TreeMargin margin) {
+    int width = Math.max(1, ensemble.maxFeatureIndex() + 1);
+    float[] rows = TreeEnsemble.probeRows(width);
+    float[] row = new float[width];
+    for (int r = 0; r < TreeEnsemble.PROBE_ROWS; r++) {
+      System.arraycopy(rows, r * width, row, 0, width);
+      float expected = ensemble.margin(row);
+      float actual = margin.margin(row);
+      if (Float.floatToIntBits(expected) != Float.floatToIntBits(actual)) {
+        log.warn("tree_bytecode_parity_failed row={} expected={} got={}", r, expected, actual);
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static void writeConstructor(ClassWriter writer) {
+    MethodVisitor mv = writer.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+    mv.visitCode();
+    mv.visitVarInsn(Opcodes.ALOAD, 0);
+    mv.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+    mv.visitInsn(Opcodes.RETURN);
+    mv.visitMaxs(0, 0);
+    mv.visitEnd();
+  }
+
+  /** Emits {@code static float t<tree>(float[] row)} and returns its code size, or -1. */
+  private static int writeTree(ClassWriter writer, TreeEnsemble ensemble, int tree) {
+    MethodVisitor mv =
+        writer.visitMethod(
+            Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC, "t" + tree, "([F)F", null, null);
+    mv.visitCode();
+    Label start = new Label();
+    mv.visitLabel(start);
+    boolean supported = writeNode(mv, ensemble, ensemble.root(tree));
+    Label end = new Label();
+    mv.visitLabel(end);
+    mv.visitMaxs(0, 0);
+    mv.visitEnd();
+    return supported ? end.getOffset() - start.getOffset() : -1;
+  }
+
+  private static boolean writeNode(MethodVisitor mv, TreeEnsemble ensemble, int node) {
+    if (ensemble.isLeaf(node)) {
+      mv.visitLdcInsn(ensemble.value(node));
+      mv.visitInsn(Opcodes.FRETURN);
+      return true;
+    }
+    int left = ensemble.left(node);
+    int right = ensemble.right(node);
+    int missing = ensemble.missing(node);
+    if (missing != left && missing != right) {
+      return false;
+    }
+    Label leftLabel = new Label();
+    Label rightLabel = new Label();
+
+    mv.visitVarInsn(Opcodes.ALOAD, 0);
+    pushInt(mv, ensemble.feature(node));
+    mv.visitInsn(Opcodes.FALOAD);
+    mv.visitVarInsn(Opcodes.FSTORE, 1);
+    // NaN is the only value not equal to itself; route it to the default direction.
+    mv.visitVarInsn(Opcodes.FLOAD, 1);
+    mv.visitVarInsn(Opcodes.FLOAD, 1);
+    mv.visitInsn(Opcodes.FCMPL);
+    mv.visitJumpInsn(Opcodes.IFNE, missing == left ? leftLabel : rightLabel);
+    mv.visitVarInsn(Opcodes.FLOAD, 1);
+    mv.visitLdcInsn(ensemble.value(node));
+    mv.visitInsn(Opcodes.FCMPG);
+    mv.visitJumpInsn(Opcodes.IFGE, rightLabel);
+
+    mv.visitLabel(leftLabel);
+    if (!writeNode(mv, ensemble, left)) {
+      return false;
+    }
+    mv.visitLabel(rightLabel);
+    return writeNode(mv, ensemble, right);
+  }
+
+  /** Emits {@code static float c<chunk>(float[] row, float sum)}, adding its trees to the sum. */
+  private static void writeChunk(
+      ClassWriter writer, String className, int chunk, int fromTree, int toTree) {
+    MethodVisitor mv =
+        writer.visitMethod(
+            Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC, "c" + chunk, "([FF)F", null, null);
+    mv.visitCode();
+    mv.visitVarInsn(Opcodes.FLOAD, 1);
+    for (int tree = fromTree; tree < toTree; tree++) {
+      mv.visitVarInsn(Opcodes.ALOAD, 0);
+      mv.visitMethodInsn(Opcodes.INVOKESTATIC, className, "t" + tree, "([F)F", false);
+      mv.visitInsn(Opcodes.FADD);
+    }
+    mv.visitInsn(Opcodes.FRETURN);
+    mv.visitMaxs(0, 0);
+    mv.visitEnd();
+  }
+
+  private static void writeMargin(
+      ClassWriter writer, String className, float baseMargin, int chunks) {
+    MethodVisitor mv = writer.visitMethod(Opcodes.ACC_PUBLIC, "margin", "([F)F", null, null);
+    mv.visitCode();
+    mv.visitLdcInsn(baseMargin);
+    for (int chunk = 0; chunk < chunks; chunk++) {
+      mv.visitVarInsn(Opcodes.FSTORE, 2);
+      mv.visitVarInsn(Opcodes.ALOAD, 1);
+      mv.visitVarInsn(Opcodes.FLOAD, 2);
+      mv.visitMethodInsn(Opcodes.INVOKESTATIC, className, "c" + chunk, "([FF)F", false);
+    }
+    mv.visitInsn(Opcodes.FRETURN);
+    mv.visitMaxs(0, 0);
+    mv.visitEnd();
+  }
+
+  private static void pushInt(MethodVisitor mv, int value) {
+    if (value >= -1 && value <= 5) {
+      mv.visitInsn(Opcodes.ICONST_0 + value);
+    } else if (value <= Byte.MAX_VALUE) {
+      mv.visitIntInsn(Opcodes.BIPUSH, value);
+    } else if (value <= Short.MAX_VALUE) {
+      mv.visitIntInsn(Opcodes.SIPUSH, value);
+    } else {
+      mv.visitLdcInsn(value);
+    }
+  }
+
+  private static boolean dontCompileHugeMethods() {
+    HotSpotDiagnosticMXBean bean = hotspot();
+    if (bean == null) {
+      return true;
+    }
+    try {
+      return Boolean.parseBoolean(bean.getVMOption("DontCompileHugeMethods").getValue());
+    } catch (IllegalArgumentException e) {
+      return true;
+    }
+  }
+
+  private static int intVmOption(String name, int fallback) {
+    HotSpotDiagnosticMXBean bean = hotspot();
+    if (bean == null) {
+      return fallback;
+    }
+    try {
+      return Integer.parseInt(bean.getVMOption(name).getValue());
+    } catch (IllegalArgumentException e) {
+      return fallback;
+    }
+  }
+
+  private static HotSpotDiagnosticMXBean hotspot() {
+    try {
+      return ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,321 @@
+package fintechfrauds.serve.scoring;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import ml.dmlc.xgboost4j.java.Booster;
+import ml.dmlc.xgboost4j.java.DMatrix;
+import ml.dmlc.xgboost4j.java.XGBoost;
+import ml.dmlc.xgboost4j.java.XGBoostError;
+
+/**
+ * Gradient-boosted tree ensemble flattened into primitive arrays and evaluated in plain Java.
+ *
+ * <p>Nodes of every tree share one set of arrays; {@code feature[n] < 0} marks a leaf whose value is
+ * stored in {@code value[n]}, otherwise {@code value[n]} is the split threshold. Splits follow
+ * XGBoost semantics: go to {@code left} when {@code row[feature] < threshold}, to {@code missing}
+ * when the value is NaN, otherwise to {@code right}. Leaf values are accumulated in float like the
+ * native predictor.
+ */
+public final class TreeEnsemble implements TreeMargin {
+
+  /** Transformation applied to the summed margin, mirroring the model objective. */
+  public enum Link {
+    LOGISTIC,
+    IDENTITY
+  }
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+  static final int PROBE_ROWS = 64;
+  private static final double PARITY_TOLERANCE = 1e-5d;
+
+  private final int[] roots;
+  private final int[] feature;
+  private final float[] value;
+  private final int[] left;
+  private final int[] right;
+  private final int[] missing;
+  private final float baseMargin;
+  private final Link link;
+  private final int maxFeatureIndex;
+
+  private TreeEnsemble(
+      int[] roots,
+      int[] feature,
+      float[] value,
+      int[] left,
+      int[] right,
+      int[] missing,
+      float baseMargin,
+      Link link) {
+    this.roots = roots;
+    this.feature = feature;
+    this.value = value;
+    this.left = left;
+    this.right = right;
+    this.missing = missing;
+    this.baseMargin = baseMargin;
+    this.link = link;
+    int max = -1;
+    for (int f : feature) {
+      max = Math.max(max, f);
+    }
+    this.maxFeatureIndex = max;
+  }
+
+  /**
+   * Builds an ensemble from XGBoost JSON tree dumps ({@code Booster.getModelDump(..., "json")}).
+   * Split features must be named {@code f<index>}.
+   */
+  public static TreeEnsemble fromJsonDump(String[] treeDumps, float baseMargin, Link link)
+      throws IOException {
+    Builder builder = new Builder();
+    int[] roots = new int[treeDumps.length];
+    for (int tree = 0; tree < treeDumps.length; tree++) {
+      JsonNode root = MAPPER.readTree(treeDumps[tree]);
+      int size = maxNodeId(root) + 1;
+      int offset = builder.reserve(size);
+      roots[tree] = offset + root.path("nodeid").asInt();
+      builder.add(root, offset);
+    }
+    return builder.build(roots, baseMargin, link);
+  }
+
+  /**
+   * Flattens a loaded booster and checks the result against the native predictor on synthetic
+   * rows. The native runtime is only used here, never on the scoring path.
+   *
+   * @throws IOException if the dump cannot be parsed or predictions diverge from the booster
+   */
+  public static TreeEnsemble fromBooster(Booster booster) throws IOException, XGBoostError {
+    String[] dumps = booster.getModelDump((String) null, false, "json");
+    int width = (int) booster.getNumFeature();
+    TreeEnsemble raw = fromJsonDump(dumps, 0f, Link.IDENTITY);
+    if (raw.maxFeatureIndex >= width) {
+      throw new IOException("Tree dump references feature beyond model width " + width);
+    }
+
+    float[] rows = probeRows(width);
+    float[][] margins;
+    float[][] predictions;
+    DMatrix matrix = new DMatrix(rows, PROBE_ROWS, width, Float.NaN);
+    try {
+      margins = booster.predict(matrix, true);
+      predictions = booster.predict(matrix);
+    } finally {
+      matrix.dispose();
+    }
+
+    if (margins.length != PROBE_ROWS || margins[0].length != 1) {
+      throw new IOException("Only single-output models can be flattened");
+    }
+    float[] row = new float[width];
+    System.arraycopy(rows, 0, row, 0, width);
+    float base = margins[0][0] - raw.margin(row);
+    Link link =
+        Math.abs(sigmoid(margins[0][0]) - predictions[0][0]) <= PARITY_TOLERANCE
+            ? Link.LOGISTIC
+            : Link.IDENTITY;
+    TreeEnsemble ensemble =
+        new TreeEnsemble(
+            raw.roots, raw.feature, raw.value, raw.left, raw.right, raw.missing, base, link);
+
+    for (int r = 0; r < PROBE_ROWS; r++) {
+      System.arraycopy(rows, r * width, row, 0, width);
+      double expected = predictions[r][0];
+      double actual = ensemble.predict(row);
+      if (Math.abs(expected - actual) > PARITY_TOLERANCE) {
+        throw new IOException(
+            "Tree ensemble diverges from native predictor: expected "
+                + expected
+                + " got "
+                + actual);
+      }
+    }
+    return ensemble;
+  }
+
+  /**
+   * Loads a model file with the native runtime, flattens it and releases the booster again.
+   *
+   * @see #fromBooster(Booster)
+   */
+  public static TreeEnsemble fromModel(Path modelPath) throws IOException, XGBoostError {
+    if (!Files.exists(modelPath)) {
+      throw new IOException("Model path does not exist: " + modelPath);
+    }
+    Booster booster;
+    try (InputStream input = Files.newInputStream(modelPath)) {
+      booster = XGBoost.loadModel(input);
+    }
+    try {
+      return fromBooster(booster);
+    } finally {
+      booster.dispose();
+    }
+  }
+
+  /** Raw margin: base score plus the sum of the reached leaf values. */
+  @Override
+  public float margin(float[] row) {
+    float sum = baseMargin;
+    for (int root : roots) {
+      int node = root;
+      int f;
+      while ((f = feature[node]) >= 0) {
+        float x = f < row.length ? row[f] : Float.NaN;
+        if (x != x) {
+          node = missing[node];
+        } else {
+          node = x < value[node] ? left[node] : right[node];
+        }
+      }
+      sum += value[node];
+    }
+    return sum;
+  }
+
+  /** Margin transformed by the model's link function. */
+  public double predict(float[] row) {
+    return applyLink(margin(row));
+  }
+
+  /** Applies the model's link function to a margin computed by any {@link TreeMargin}. */
+  public double applyLink(float margin) {
+    return link == Link.LOGISTIC ? sigmoid(margin) : margin;
+  }
+
+  public int treeCount() {
+    return roots.length;
+  }
+
+  public int nodeCount() {
+    return feature.length;
+  }
+
+  public int maxFeatureIndex() {
+    return maxFeatureIndex;
+  }
+
+  int root(int tree) {
+    return roots[tree];
+  }
+
+  boolean isLeaf(int node) {
+    return feature[node] < 0;
+  }
+
+  int feature(int node) {
+    return feature[node];
+  }
+
+  float value(int node) {
+    return value[node];
+  }
+
+  int left(int node) {
+    return left[node];
+  }
+
+  int right(int node) {
+    return right[node];
+  }
+
+  int missing(int node) {
+    return missing[node];
+  }
+
+  float baseMargin() {
+    return baseMargin;
+  }
+
+  private static double sigmoid(float margin) {
+    return 1.0d / (1.0d + Math.exp(-margin));
+  }
+
+  /** {@link #PROBE_ROWS} rows of {@code width} synthetic values, some NaN, in one flat array. */
+  static float[] probeRows(int width) {
+    Random random = new Random(17);
+    float[] rows = new float[PROBE_ROWS * width];
+    for (int i = 0; i < rows.length; i++) {
+      rows[i] = i % 13 == 0 ? Float.NaN : (float) (random.nextGaussian() * 50.0d);
+    }
+    return rows;
+  }
+
+  private static int maxNodeId(JsonNode node) {
+    int max = node.path("nodeid").asInt();
+    for (JsonNode child : node.path("children")) {
+      max = Math.max(max, maxNodeId(child));
+    }
+    return max;
+  }
+
+  private static final class Builder {
+    private int size;
+    private int[] feature = new int[256];
+    private float[] value = new float[256];
+    private int[] left = new int[256];
+    private int[] right = new int[256];
+    private int[] missing = new int[256];
+
+    int reserve(int nodes) {
+      int offset = size;
+      size += nodes;
+      if (size > feature.length) {
+        int capacity = Math.max(size, feature.length * 2);
+        feature = Arrays.copyOf(feature, capacity);
+        value = Arrays.copyOf(value, capacity);
+        left = Arrays.copyOf(left, capacity);
+        right = Arrays.copyOf(right, capacity);
+        missing = Arrays.copyOf(missing, capacity);
+      }
+      for (int i = offset; i < size; i++) {
+        feature[i] = -1;
+      }
+      return offset;
+    }
+
+    void add(JsonNode node, int offset) throws IOException {
+      int id = offset + node.path("nodeid").asInt();
+      if (node.has("leaf")) {
+        feature[id] = -1;
+        value[id] = (float) node.path("leaf").asDouble();
+        return;
+      }
+      String split = node.path("split").asText("");
+      if (!split.startsWith("f")) {
+        throw new IOException("Unsupported split feature name: " + split);
+      }
+      try {
+        feature[id] = Integer.parseInt(split.substring(1));
+      } catch (NumberFormatException e) {
+        throw new IOException("Unsupported split feature name: " + split, e);
+      }
+      value[id] = (float) node.path("split_condition").asDouble();
+      left[id] = offset + node.path("yes").asInt();
+      right[id] = offset + node.path("no").asInt();
+      missing[id] = offset + node.path("missing").asInt(node.path("yes").asInt());
+      for (JsonNode child : node.path("children")) {
+        add(child, offset);
+      }
+    }
+
+    TreeEnsemble build(int[] roots, float baseMargin, Link link) {
+      return new TreeEnsemble(
+          roots,
+          Arrays.copyOf(feature, size),
+          Arrays.copyOf(value, size),
+          Arrays.copyOf(left, size),
+          Arrays.copyOf(right, size),
+          Arrays.copyOf(missing, size),
+          baseMargin,
+          link);
+    }
+  }
+}
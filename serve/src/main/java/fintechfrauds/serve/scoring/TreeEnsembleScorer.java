@@ -0,0 +1,39 @@
+package fintechfrauds.serve.scoring;
+
+import fintechfrauds.serve.api.dto.ScoreRequest;
+
+/**
+ * Scores with a {@link TreeEnsemble} evaluated in plain Java, either by walking its arrays or
+ * through a {@link TreeBytecodeCompiler generated} {@link TreeMargin}. The XGBoost runtime is only
+ * touched while the model is loaded and verified; scoring itself does no JNI calls and, once the
+ * per-thread feature row exists, no allocation at all.
+ */
+public class TreeEnsembleScorer implements Scorer {
+
+  private final TreeEnsemble ensemble;
+  private final TreeMargin evaluator;
+
+  public TreeEnsembleScorer(TreeEnsemble ensemble) {
+    this(ensemble, ensemble);
+  }
+
+  public TreeEnsembleScorer(TreeEnsemble ensemble, TreeMargin evaluator) {
+    if (ensemble.maxFeatureIndex() >= XgbScorer.FEATURE_COUNT) {
+      throw new IllegalArgumentException(
+          "Model uses feature " + ensemble.maxFeatureIndex() + " beyond the serving feature row");
+    }
+    this.ensemble = ensemble;
+    this.evaluator = evaluator;
+  }
+
+  @Override
+  public double score(ScoreRequest request, FeatureVector features) {
+    float[] row = XgbScorer.ROW.get();
+    XgbScorer.writeFeatures(request, features, row, 0);
+    return XgbScorer.toRisk((float) ensemble.applyLink(evaluator.margin(row)));
+  }
+
+  public boolean isCompiled() {
+    return evaluator != ensemble;
+  }
+}
@@ -0,0 +1,6 @@
+package fintechfrauds.serve.scoring;
+
+/** Evaluates the raw (pre-link) margin of a tree ensemble for one dense feature row. */
+public interface TreeMargin {
+  float margin(float[] row);
+}
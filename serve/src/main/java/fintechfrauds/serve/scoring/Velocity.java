@@ -0,0 +1,72 @@
+package fintechfrauds.serve.scoring;
+
+/**
+ * Transaction counts over the sliding velocity windows: the last minute, 15 minutes, hour and 24
+ * hours.
+ *
+ * <p>Counts read from Redis are as of the hash's {@code updatedAt}. {@link #aged(long)} brings them
+ * forward to request time, assuming the events in each window were spread evenly over it.
+ */
+public final class Velocity {
+
+  /** No transactions in any window. */
+  public static final Velocity NONE = new Velocity(0, 0, 0, 0);
+
+  static final long MINUTE_MILLIS = 60_000L;
+  static final long FIFTEEN_MINUTES_MILLIS = 15 * MINUTE_MILLIS;
+  static final long HOUR_MILLIS = 60 * MINUTE_MILLIS;
+  static final long DAY_MILLIS = 24 * HOUR_MILLIS;
+
+  private final int count1m;
+  private final int count15m;
+  private final int count1h;
+  private final int count24h;
+
+  public Velocity(int count1m, int count15m, int count1h, int count24h) {
+    this.count1m = count1m;
+    this.count15m = count15m;
+    this.count1h = count1h;
+    this.count24h = count24h;
+  }
+
+  public int getCount1m() {
+    return count1m;
+  }
+
+  public int getCount15m() {
+    return count15m;
+  }
+
+  public int getCount1h() {
+    return count1h;
+  }
+
+  public int getCount24h() {
+    return count24h;
+  }
+
+  /**
+   * The counts {@code ageMillis} after they were taken, with no events in between: each window
+   * keeps the share of its count that has not yet slid out of it.
+   */
+  public Velocity aged(long ageMillis) {
+    if (ageMillis <= 0L || this == NONE) {
+      return this;
+    }
+    if (ageMillis >= DAY_MILLIS) {
+      return NONE;
+    }
+    return new Velocity(
+        decay(count1m, MINUTE_MILLIS, ageMillis),
+        decay(count15m, FIFTEEN_MINUTES_MILLIS, ageMillis),
+        decay(count1h, HOUR_MILLIS, ageMillis),
+        decay(count24h, DAY_MILLIS, ageMillis));
+  }
+
+  private static int decay(int count, long windowMillis, long ageMillis) {
+    if (ageMillis >= windowMillis) {
+      return 0;
+    }
+    return (int) Math.round(count * (double) (windowMillis - ageMillis) / windowMillis);
+  }
+}
@@ -2,8 +2,11 @@ package fintechfrauds.serve.scoring;
 
 import fintechfrauds.serve.api.dto.ScoreRequest;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
 import ml.dmlc.xgboost4j.java.Booster;
 import ml.dmlc.xgboost4j.java.DMatrix;
 import ml.dmlc.xgboost4j.java.XGBoost;
@@ -11,49 +14,107 @@ import ml.dmlc.xgboost4j.java.XGBoostError;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class XgbScorer implements Scorer {
+public class XgbScorer implements Scorer, AutoCloseable {
 
   private static final Logger log = LoggerFactory.getLogger(XgbScorer.class);
 
+  /** Width of the feature row written by {@link #writeFeatures}; see {@link FeatureAssembler}. */
+  static final int FEATURE_COUNT = FeatureAssembler.DEFAULT.width();
+
+  /** Per-thread feature row; DMatrix copies it off-heap and tree scorers only read it. */
+  static final ThreadLocal<float[]> ROW = ThreadLocal.withInitial(() -> new float[FEATURE_COUNT]);
+
   private final Booster booster;
+  /** Leading row columns the model was trained on; older models stop before the velocity ones. */
+  private final int columns;
 
   public XgbScorer(Booster booster) {
     this.booster = booster;
+    this.columns = columns(booster);
   }
 
   public static XgbScorer fromPath(Path modelPath) throws IOException, XGBoostError {
     if (!Files.exists(modelPath)) {
       throw new IOException("Model path does not exist: " + modelPath);
     }
-    Booster booster = XGBoost.loadModel(Files.newInputStream(modelPath));
-    return new XgbScorer(booster);
+    try (InputStream input = Files.newInputStream(modelPath)) {
+      return new XgbScorer(XGBoost.loadModel(input));
+    }
   }
 
   @Override
   public double score(ScoreRequest request, FeatureVector features) {
+    float[] values = ROW.get();
+    writeFeatures(request, features, values, 0);
+    DMatrix matrix = null;
     try {
-      float[] values = buildFeatures(request, features);
-      DMatrix matrix = new DMatrix(values, 1, values.length, Float.NaN);
+      matrix = new DMatrix(values, 1, columns, Float.NaN);
       float[][] predictions = booster.predict(matrix);
       if (predictions.length == 0 || predictions[0].length == 0) {
         return 0.5d;
       }
-      double raw = predictions[0][0];
-      double risk = Math.max(0.01d, Math.min(0.99d, raw));
-      return Math.round(risk * 1000.0d) / 1000.0d;
+      return toRisk(predictions[0][0]);
     } catch (XGBoostError e) {
       log.warn("xgb_scorer_predict_failed", e);
       return 0.5d;
+    } finally {
+      if (matrix != null) {
+        matrix.dispose();
+      }
+    }
+  }
+
+  /** Builds one dense matrix for the whole batch so the JNI predict call happens once. */
+  @Override
+  public double[] scoreBatch(List<ScoreRequest> requests, List<FeatureVector> features) {
+    int rows = requests.size();
+    double[] risks = new double[rows];
+    if (rows == 0) {
+      return risks;
+    }
+    float[] values = FeatureAssembler.DEFAULT.writeBatch(requests, features, columns);
+    DMatrix matrix = null;
+    try {
+      matrix = new DMatrix(values, rows, columns, Float.NaN);
+      float[][] predictions = booster.predict(matrix);
+      for (int index = 0; index < rows; index++) {
+        boolean present = index < predictions.length && predictions[index].length > 0;
+        risks[index] = present ? toRisk(predictions[index][0]) : 0.5d;
+      }
+    } catch (XGBoostError e) {
+      log.warn("xgb_scorer_batch_predict_failed rows={}", rows, e);
+      Arrays.fill(risks, 0.5d);
+    } finally {
+      if (matrix != null) {
+        matrix.dispose();
+      }
+    }
+    return risks;
+  }
+
+  /** Releases the native booster; the scorer must not be used afterwards. */
+  @Override
+  public void close() {
+    booster.dispose();
+  }
+
+  static double toRisk(float raw) {
+    double risk = Math.max(0.01d, Math.min(0.99d, raw));
+    return Math.round(risk * 1000.0d) / 1000.0d;
+  }
+
+  private static int columns(Booster booster) {
+    try {
+      long trained = booster.getNumFeature();
+      return trained > 0 && trained < FEATURE_COUNT ? (int) trained : FEATURE_COUNT;
+    } catch (XGBoostError e) {
+      log.warn("xgb_scorer_feature_count_unavailable", e);
+      return FEATURE_COUNT;
     }
   }
 
-  private float[] buildFeatures(ScoreRequest request, FeatureVector features) {
-    float amount = request.getAmountCents() == null ? 0f : request.getAmountCents() / 1000.0f;
-    float amountZ = (float) features.getAmountZ();
-    float burst = features.getWindow15mCount();
-    float first = features.getFirstTimeMerchant();
-    float descLen = request.getDescription() == null ? 0f : request.getDescription().length();
-    float country = request.getCountryCode() == null ? 0f : request.getCountryCode().hashCode() & 0x7fffffff;
-    return new float[] {amount, amountZ, burst, first, descLen, country};
+  static void writeFeatures(
+      ScoreRequest request, FeatureVector features, float[] target, int offset) {
+    FeatureAssembler.DEFAULT.write(request, features, target, offset);
   }
 }
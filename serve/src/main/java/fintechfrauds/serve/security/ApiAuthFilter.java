@@ -1,6 +1,7 @@
 package fintechfrauds.serve.security;
 
 import fintechfrauds.serve.config.FintechFraudsProperties;
+import fintechfrauds.serve.metrics.ScoringMetrics;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -26,13 +27,19 @@ public class ApiAuthFilter extends OncePerRequestFilter {
   private static final Logger log = LoggerFactory.getLogger(ApiAuthFilter.class);
   private static final Set<String> BYPASS_PREFIXES =
       new HashSet<>(Arrays.asList("/actuator", "/swagger-ui", "/v3/api-docs"));
+  private static final String STREAM_PATH = "/v1/score/stream";
+  /** Scoring routes left open outside {@code prod}; matched exactly, so new routes stay gated. */
+  private static final Set<String> DEV_OPEN_PATHS =
+      Set.of("/v1/score", "/v1/score/batch", STREAM_PATH);
 
   private final ApiKeyService apiKeyService;
   private final HmacVerifier hmacVerifier;
   private final IdempotencyStore idempotencyStore;
   private final RateLimiterService rateLimiterService;
   private final long skewSeconds;
+  private final long streamMaxRows;
   private final Environment environment;
+  private final ScoringMetrics metrics;
 
   public ApiAuthFilter(
       ApiKeyService apiKeyService,
@@ -40,13 +47,16 @@ public class ApiAuthFilter extends OncePerRequestFilter {
       IdempotencyStore idempotencyStore,
       RateLimiterService rateLimiterService,
       FintechFraudsProperties properties,
-      Environment environment) {
+      Environment environment,
+      ScoringMetrics metrics) {
     this.apiKeyService = apiKeyService;
     this.hmacVerifier = hmacVerifier;
     this.idempotencyStore = idempotencyStore;
     this.rateLimiterService = rateLimiterService;
     this.skewSeconds = properties.getSecurity().getRequestTimeSkewSeconds();
+    this.streamMaxRows = properties.getSecurity().getStreamMaxRows();
     this.environment = environment;
+    this.metrics = metrics;
   }
 
   @Override
@@ -57,7 +67,7 @@ public class ApiAuthFilter extends OncePerRequestFilter {
         return true;
       }
     }
-    if (!isProd() && "/v1/score".equals(path)) {
+    if (!isProd() && DEV_OPEN_PATHS.contains(path)) {
       return true;
     }
     return false;
@@ -67,7 +77,6 @@ public class ApiAuthFilter extends OncePerRequestFilter {
   protected void doFilterInternal(
       HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
       throws ServletException, IOException {
-    CachedBodyHttpServletRequest cachedRequest = new CachedBodyHttpServletRequest(request);
     String apiKey = request.getHeader("X-Api-Key");
     String timestamp = request.getHeader("X-Timestamp");
     String nonce = request.getHeader("X-Nonce");
@@ -96,15 +105,27 @@ public class ApiAuthFilter extends OncePerRequestFilter {
       return;
     }
 
-    if (!rateLimiterService.allowRequest(apiKey + ":" + request.getRemoteAddr())) {
+    long rateLimitStart = System.nanoTime();
+    boolean allowed = rateLimiterService.allowRequest(apiKey + ":" + request.getRemoteAddr());
+    metrics.record(ScoringMetrics.AuthCheck.RATE_LIMIT, System.nanoTime() - rateLimitStart);
+    if (!allowed) {
       log.warn("auth_rate_limit_exceeded key={} ip={} path={}", apiKey, request.getRemoteAddr(), path);
       reject(response, HttpStatus.TOO_MANY_REQUESTS, "Rate limit exceeded");
       return;
     }
 
-    String body = cachedRequest.getCachedBody();
+    // Streamed bodies are passed through untouched: the header signature binds the method and
+    // path, and the body is verified chunk by chunk by the controller.
+    boolean streamed = STREAM_PATH.equals(path);
+    HttpServletRequest forwarded = streamed ? request : new CachedBodyHttpServletRequest(request);
+    long hmacStart = System.nanoTime();
     String canonical =
-        hmacVerifier.canonicalRequest(timestamp, nonce, hmacVerifier.sha256Hex(body));
+        streamed
+            ? hmacVerifier.canonicalStreamRequest(request.getMethod(), path, timestamp, nonce)
+            : hmacVerifier.canonicalRequest(
+                timestamp,
+                nonce,
+                hmacVerifier.sha256Hex(((CachedBodyHttpServletRequest) forwarded).getCachedBody()));
     String expectedSignature = hmacVerifier.sign(secret.get(), canonical);
     byte[] expectedBytes = java.util.Base64.getDecoder().decode(expectedSignature);
     byte[] providedBytes;
@@ -115,12 +136,30 @@ public class ApiAuthFilter extends OncePerRequestFilter {
       reject(response, HttpStatus.UNAUTHORIZED, "Signature decoding failed");
       return;
     }
-    if (!MessageDigest.isEqual(expectedBytes, providedBytes)) {
+    boolean signatureMatches = MessageDigest.isEqual(expectedBytes, providedBytes);
+    metrics.record(ScoringMetrics.AuthCheck.HMAC, System.nanoTime() - hmacStart);
+    if (!signatureMatches) {
       log.warn("auth_signature_mismatch key={} path={}", apiKey, path);
       reject(response, HttpStatus.UNAUTHORIZED, "Signature mismatch");
       return;
     }
 
+    // The stream's header signature does not cover its body and GETs carry no idempotency key, so
+    // their signed nonce is good for one request, remembered while its timestamp is valid. Other
+    // routes sign the body hash and need X-Idempotency-Key, and skip this Redis round trip.
+    if (streamed || "GET".equalsIgnoreCase(request.getMethod())) {
+      long nonceStart = System.nanoTime();
+      boolean fresh =
+          idempotencyStore.register(
+              "nonce:" + apiKey + ":" + nonce, Duration.ofSeconds(2 * skewSeconds + 1));
+      metrics.record(ScoringMetrics.AuthCheck.NONCE, System.nanoTime() - nonceStart);
+      if (!fresh) {
+        log.warn("auth_nonce_reused key={} path={}", apiKey, path);
+        reject(response, HttpStatus.UNAUTHORIZED, "Nonce already used");
+        return;
+      }
+    }
+
     if ("POST".equalsIgnoreCase(request.getMethod())) {
       String idempotencyKey = request.getHeader("X-Idempotency-Key");
       if (StringUtils.isBlank(idempotencyKey)) {
@@ -128,9 +167,11 @@ public class ApiAuthFilter extends OncePerRequestFilter {
         reject(response, HttpStatus.BAD_REQUEST, "Missing X-Idempotency-Key header");
         return;
       }
+      long idempotencyStart = System.nanoTime();
       boolean firstSeen =
           idempotencyStore.register(
               apiKey + ":" + idempotencyKey, Duration.ofHours(isProd() ? 24 : 1));
+      metrics.record(ScoringMetrics.AuthCheck.IDEMPOTENCY, System.nanoTime() - idempotencyStart);
       if (!firstSeen) {
         log.warn("auth_duplicate_request key={} idemKey={} path={}", apiKey, idempotencyKey, path);
         reject(response, HttpStatus.CONFLICT, "Duplicate request");
@@ -138,7 +179,12 @@ public class ApiAuthFilter extends OncePerRequestFilter {
       }
     }
 
-    filterChain.doFilter(cachedRequest, response);
+    if (streamed) {
+      forwarded.setAttribute(
+          StreamChunkVerifier.ATTRIBUTE,
+          new StreamChunkVerifier(hmacVerifier, secret.get(), signature, streamMaxRows));
+    }
+    filterChain.doFilter(forwarded, response);
   }
 
   private String resolvePath(HttpServletRequest request) {
@@ -15,10 +15,27 @@ import org.springframework.stereotype.Component;
 @Component
 public class HmacVerifier {
 
+  /** Body hash placeholder signed for streamed bodies, which cannot be buffered and hashed. */
+  public static final String UNSIGNED_PAYLOAD = "UNSIGNED-PAYLOAD";
+
   public String canonicalRequest(String timestamp, String nonce, String bodySha256Hex) {
     return timestamp + "\n" + nonce + "\n" + bodySha256Hex;
   }
 
+  /**
+   * Signed string for a streamed request. The body cannot be hashed up front, so the method and
+   * path are bound instead and the body is signed chunk by chunk; see {@link StreamChunkVerifier}.
+   */
+  public String canonicalStreamRequest(
+      String method, String path, String timestamp, String nonce) {
+    return method + "\n" + path + "\n" + timestamp + "\n" + nonce + "\n" + UNSIGNED_PAYLOAD;
+  }
+
+  /** Signed string for one streamed body chunk, chained to the signature before it. */
+  public String canonicalChunk(String previousSignature, String chunkSha256Hex) {
+    return "chunk\n" + previousSignature + "\n" + chunkSha256Hex;
+  }
+
   public String sha256Hex(String body) {
     return DigestUtils.sha256Hex(body == null ? "" : body);
   }
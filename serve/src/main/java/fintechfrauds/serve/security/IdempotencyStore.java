@@ -1,5 +1,6 @@
 package fintechfrauds.serve.security;
 
+import fintechfrauds.serve.redis.RedisCircuitBreaker;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.Iterator;
@@ -7,6 +8,7 @@ import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import redis.clients.jedis.JedisPooled;
 import redis.clients.jedis.exceptions.JedisException;
@@ -16,26 +18,44 @@ public class IdempotencyStore {
 
   private static final Logger log = LoggerFactory.getLogger(IdempotencyStore.class);
   private final JedisPooled jedis;
+  private final RedisCircuitBreaker circuitBreaker;
   private final Map<String, Instant> inMemoryCache = new ConcurrentHashMap<>();
 
   public IdempotencyStore(JedisPooled jedis) {
+    this(jedis, RedisCircuitBreaker.disabled());
+  }
+
+  @Autowired
+  public IdempotencyStore(JedisPooled jedis, RedisCircuitBreaker circuitBreaker) {
     this.jedis = jedis;
+    this.circuitBreaker = circuitBreaker;
   }
 
   public boolean register(String key, Duration ttl) {
     cleanupExpired();
+    if (!circuitBreaker.tryAcquire()) {
+      return registerInMemory(key, ttl);
+    }
+    long start = System.nanoTime();
+    boolean registered;
     try {
       Long result = jedis.setnx(key, "1");
-      if (result != null && result == 1L) {
+      registered = result != null && result == 1L;
+      if (registered) {
         jedis.pexpire(key, ttl.toMillis());
-        return true;
       }
-      return false;
     } catch (JedisException e) {
+      circuitBreaker.onFailure();
       log.debug("idempotency_store_fallback", e);
-      Instant expiresAt = Instant.now().plus(ttl);
-      return inMemoryCache.putIfAbsent(key, expiresAt) == null;
+      return registerInMemory(key, ttl);
     }
+    circuitBreaker.onSuccess(System.nanoTime() - start);
+    return registered;
+  }
+
+  private boolean registerInMemory(String key, Duration ttl) {
+    Instant expiresAt = Instant.now().plus(ttl);
+    return inMemoryCache.putIfAbsent(key, expiresAt) == null;
   }
 
   private void cleanupExpired() {
@@ -0,0 +1,92 @@
+package fintechfrauds.serve.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HexFormat;
+
+/**
+ * Authenticates a streamed request body chunk by chunk with chained chunk signatures.
+ *
+ * <p>The client follows each chunk of data lines with a control line {@code
+ * #chunk-signature:<base64>} whose value is {@code HMAC(secret, "chunk\n" + previousSignature +
+ * "\n" + hex(sha256(chunk)))}. The chunk is every byte of its data lines, newlines included;
+ * lines starting with {@code #} are not part of it. The chain starts at the request's {@code
+ * X-Signature}, so chunks cannot be dropped, reordered or moved to another request. Lines must
+ * not be scored before the signature that covers them has been {@link #verify verified}.
+ */
+public final class StreamChunkVerifier {
+
+  /** Request attribute under which {@link ApiAuthFilter} hands the verifier to the controller. */
+  public static final String ATTRIBUTE = StreamChunkVerifier.class.getName();
+
+  public static final String SIGNATURE_PREFIX = "#chunk-signature:";
+
+  private static final byte[] PREFIX_BYTES = SIGNATURE_PREFIX.getBytes(StandardCharsets.US_ASCII);
+
+  private final HmacVerifier hmacVerifier;
+  private final String secret;
+  private final long maxRows;
+  private final MessageDigest digest;
+  private String previousSignature;
+  private long rows;
+
+  StreamChunkVerifier(
+      HmacVerifier hmacVerifier, String secret, String requestSignature, long maxRows) {
+    this.hmacVerifier = hmacVerifier;
+    this.secret = secret;
+    this.previousSignature = requestSignature;
+    this.maxRows = maxRows;
+    try {
+      this.digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 not available", e);
+    }
+  }
+
+  /** Running hash of the current chunk; the line reader feeds every data line byte into it. */
+  public MessageDigest digest() {
+    return digest;
+  }
+
+  /**
+   * Checks a {@code #chunk-signature:} line against the bytes digested since the last one and, when
+   * it matches, makes it the start of the next chunk.
+   */
+  public boolean verify(byte[] line, int length) {
+    if (length <= PREFIX_BYTES.length
+        || !Arrays.equals(
+            line, 0, PREFIX_BYTES.length, PREFIX_BYTES, 0, PREFIX_BYTES.length)) {
+      return false;
+    }
+    String provided =
+        new String(
+            line, PREFIX_BYTES.length, length - PREFIX_BYTES.length, StandardCharsets.US_ASCII);
+    String chunkHash = HexFormat.of().formatHex(digest.digest());
+    String expected =
+        hmacVerifier.sign(secret, hmacVerifier.canonicalChunk(previousSignature, chunkHash));
+    byte[] providedBytes;
+    try {
+      providedBytes = Base64.getDecoder().decode(provided);
+    } catch (IllegalArgumentException e) {
+      return false;
+    }
+    if (!MessageDigest.isEqual(Base64.getDecoder().decode(expected), providedBytes)) {
+      return false;
+    }
+    previousSignature = expected;
+    return true;
+  }
+
+  /** Counts a verified chunk's rows; false once the stream has gone over its row cap. */
+  public boolean admit(int chunkRows) {
+    rows += chunkRows;
+    return rows <= maxRows;
+  }
+
+  public long maxRows() {
+    return maxRows;
+  }
+}
@@ -1,16 +1,20 @@
 package fintechfrauds.serve.tools;
 
+import fintechfrauds.serve.scoring.FeatureCodec;
+import fintechfrauds.serve.scoring.FeatureEncoding;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.HashMap;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Random;
 
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPool;
 import redis.clients.jedis.JedisPoolConfig;
+import redis.clients.jedis.util.SafeEncoder;
 
 public final class BackfillFs {
 
@@ -20,41 +24,53 @@ public final class BackfillFs {
     Map<String, String> arguments = parseArgs(args);
     String host = arguments.getOrDefault("host", "127.0.0.1");
     int port = Integer.parseInt(arguments.getOrDefault("port", "6379"));
+    FeatureEncoding encoding =
+        FeatureEncoding.valueOf(
+            arguments.getOrDefault("encoding", "hash").toUpperCase(Locale.ROOT));
 
     try (JedisPool pool = new JedisPool(new JedisPoolConfig(), host, port, 2000)) {
       if (arguments.containsKey("csv")) {
-        seedFromCsv(pool, Path.of(arguments.get("csv")));
+        seedFromCsv(pool, Path.of(arguments.get("csv")), encoding);
       } else {
         int count = Integer.parseInt(arguments.getOrDefault("n", "100"));
         String prefix = arguments.getOrDefault("prefix", "acct_demo_");
-        seedSynthetic(pool, count, prefix);
+        seedSynthetic(pool, count, prefix, encoding);
       }
     }
     System.out.println("Backfill complete.");
   }
 
-  private static void seedSynthetic(JedisPool pool, int count, String prefix) {
+  private static void seedSynthetic(
+      JedisPool pool, int count, String prefix, FeatureEncoding encoding) {
     Random random = new Random(42);
     try (Jedis jedis = pool.getResource()) {
       for (int index = 0; index < count; index++) {
         String account = prefix + index;
-        String key = "fs:acct:" + account;
         double amountZ = random.nextGaussian();
         int window15 = Math.max(0, (int) Math.round(random.nextGaussian() * 2 + 2));
+        int window1 = window15 == 0 ? 0 : random.nextInt(Math.min(window15, 3) + 1);
+        int window1h = window15 + random.nextInt(4);
+        int window24h = window1h + random.nextInt(20);
         int first = random.nextDouble() < 0.1 ? 1 : 0;
         String mcc = random.nextDouble() < 0.05 ? "6540" : "5999";
-        jedis.hset(
-            key,
+        write(
+            jedis,
+            account,
             Map.of(
                 "amountZ", Double.toString(amountZ),
+                "window1mCount", Integer.toString(window1),
                 "window15mCount", Integer.toString(window15),
+                "window1hCount", Integer.toString(window1h),
+                "window24hCount", Integer.toString(window24h),
                 "firstTimeMerchant", Integer.toString(first),
-                "mcc", mcc));
+                "mcc", mcc),
+            encoding);
       }
     }
   }
 
-  private static void seedFromCsv(JedisPool pool, Path csv) throws IOException {
+  private static void seedFromCsv(JedisPool pool, Path csv, FeatureEncoding encoding)
+      throws IOException {
     try (BufferedReader reader = Files.newBufferedReader(csv); Jedis jedis = pool.getResource()) {
       String line;
       boolean header = true;
@@ -65,18 +81,31 @@ public final class BackfillFs {
         }
         String[] columns = line.split(",", -1);
         String account = columns[0].trim();
-        String key = "fs:acct:" + account;
-        jedis.hset(
-            key,
-            Map.of(
-                "amountZ", columns[1].trim(),
-                "window15mCount", columns[2].trim(),
-                "firstTimeMerchant", columns[3].trim(),
-                "mcc", columns[4].trim()));
+        Map<String, String> fields = new HashMap<>();
+        fields.put("amountZ", columns[1].trim());
+        fields.put("window15mCount", columns[2].trim());
+        fields.put("firstTimeMerchant", columns[3].trim());
+        fields.put("mcc", columns[4].trim());
+        if (columns.length >= 8) {
+          fields.put("window1mCount", columns[5].trim());
+          fields.put("window1hCount", columns[6].trim());
+          fields.put("window24hCount", columns[7].trim());
+        }
+        write(jedis, account, fields, encoding);
       }
     }
   }
 
+  private static void write(
+      Jedis jedis, String account, Map<String, String> fields, FeatureEncoding encoding) {
+    String key = encoding.accountPrefix() + account;
+    if (encoding == FeatureEncoding.BINARY) {
+      jedis.set(SafeEncoder.encode(key), FeatureCodec.encodeHash(fields));
+    } else {
+      jedis.hset(key, fields);
+    }
+  }
+
   private static Map<String, String> parseArgs(String[] args) {
     Map<String, String> parsed = new HashMap<>();
     for (String arg : args) {
@@ -0,0 +1,131 @@
+package fintechfrauds.serve.tools;
+
+import fintechfrauds.serve.scoring.FeatureCodec;
+import fintechfrauds.serve.scoring.FeatureEncoding;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisPoolConfig;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.params.ScanParams;
+import redis.clients.jedis.params.SetParams;
+import redis.clients.jedis.resps.ScanResult;
+import redis.clients.jedis.util.SafeEncoder;
+
+/**
+ * Copies {@code fs:acct:*} and {@code fs:merch:*} feature hashes into {@link FeatureCodec} values
+ * under {@code fs:acctb:*} and {@code fs:merchb:*}, keeping their TTLs. Values that already exist
+ * are left alone. Run it after readers are on {@code fintechfrauds.features.encoding=BINARY};
+ * {@code --deleteHashes=true} then removes each hash whose value this run wrote. Hashes whose
+ * binary value already existed, or that could not be encoded, are kept.
+ */
+public final class MigrateFeatureEncoding {
+
+  private MigrateFeatureEncoding() {}
+
+  public static void main(String[] args) {
+    Map<String, String> arguments = parseArgs(args);
+    String host = arguments.getOrDefault("host", "127.0.0.1");
+    int port = Integer.parseInt(arguments.getOrDefault("port", "6379"));
+    int batch = Integer.parseInt(arguments.getOrDefault("batch", "500"));
+    boolean deleteHashes = Boolean.parseBoolean(arguments.getOrDefault("deleteHashes", "false"));
+
+    long[] counts = new long[3];
+    try (JedisPool pool = new JedisPool(new JedisPoolConfig(), host, port, 2000);
+        Jedis jedis = pool.getResource()) {
+      migrate(
+          jedis,
+          FeatureEncoding.HASH.accountPrefix(),
+          FeatureEncoding.BINARY.accountPrefix(),
+          batch,
+          deleteHashes,
+          counts);
+      migrate(
+          jedis,
+          FeatureEncoding.HASH.merchantPrefix(),
+          FeatureEncoding.BINARY.merchantPrefix(),
+          batch,
+          deleteHashes,
+          counts);
+    }
+    System.out.printf(
+        "Migrated %d feature hashes (%d already binary), deleted %d.%n",
+        counts[0], counts[1], counts[2]);
+  }
+
+  private static void migrate(
+      Jedis jedis, String from, String to, int batch, boolean deleteHashes, long[] counts) {
+    ScanParams params = new ScanParams().match(from + "*").count(batch);
+    String cursor = ScanParams.SCAN_POINTER_START;
+    do {
+      ScanResult<String> page = jedis.scan(cursor, params, "hash");
+      cursor = page.getCursor();
+      List<String> keys = page.getResult();
+      if (keys.isEmpty()) {
+        continue;
+      }
+      List<Response<Map<String, String>>> hashes = new ArrayList<>(keys.size());
+      List<Response<Long>> ttls = new ArrayList<>(keys.size());
+      try (Pipeline pipeline = jedis.pipelined()) {
+        for (String key : keys) {
+          hashes.add(pipeline.hgetAll(key));
+          ttls.add(pipeline.pttl(key));
+        }
+        pipeline.sync();
+      }
+      List<Response<String>> writes = new ArrayList<>(keys.size());
+      try (Pipeline pipeline = jedis.pipelined()) {
+        for (int i = 0; i < keys.size(); i++) {
+          byte[] value = FeatureCodec.encodeHash(hashes.get(i).get());
+          if (value == null) {
+            writes.add(null);
+            continue;
+          }
+          SetParams set = SetParams.setParams().nx();
+          long ttl = ttls.get(i).get();
+          if (ttl > 0) {
+            set.px(ttl);
+          }
+          String key = keys.get(i);
+          byte[] target = SafeEncoder.encode(to + key.substring(from.length()));
+          writes.add(pipeline.set(target, value, set));
+        }
+        pipeline.sync();
+      }
+      List<String> copied = new ArrayList<>(keys.size());
+      for (int i = 0; i < writes.size(); i++) {
+        Response<String> write = writes.get(i);
+        if (write == null) {
+          continue;
+        }
+        if ("OK".equals(write.get())) {
+          counts[0]++;
+          copied.add(keys.get(i));
+        } else {
+          counts[1]++;
+        }
+      }
+      // Only hashes this run copied: a binary value that already existed may be older.
+      if (deleteHashes && !copied.isEmpty()) {
+        counts[2] += jedis.del(copied.toArray(String[]::new));
+      }
+    } while (!ScanParams.SCAN_POINTER_START.equals(cursor));
+  }
+
+  private static Map<String, String> parseArgs(String[] args) {
+    Map<String, String> parsed = new HashMap<>();
+    for (String arg : args) {
+      if (arg.startsWith("--")) {
+        int equals = arg.indexOf('=');
+        if (equals > 2) {
+          parsed.put(arg.substring(2, equals), arg.substring(equals + 1));
+        }
+      }
+    }
+    return parsed;
+  }
+}
@@ -0,0 +1,439 @@
+package fintechfrauds.serve.tools;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import fintechfrauds.serve.ServeApplication;
+import fintechfrauds.serve.api.dto.ScoreRequest;
+import fintechfrauds.serve.scoring.FeatureStore;
+import fintechfrauds.serve.scoring.FeatureVector;
+import fintechfrauds.serve.scoring.RulesEngine;
+import fintechfrauds.serve.scoring.Scorer;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Re-scores a JSONL file of {@link ScoreRequest}s through the application's own {@link
+ * FeatureStore}, {@link Scorer} and {@link RulesEngine} beans on N worker threads, with no HTTP or
+ * request signing in between.
+ *
+ * <p>Tool options are {@code --input}, {@code --threads} and {@code --output}; every other
+ * argument is passed to Spring, so {@code --fintechfrauds.model.type=xgb-java} or {@code
+ * --spring.profiles.active=prod} select the scoring setup to replay against. Reports throughput,
+ * per-stage latency percentiles and the decision and reason mix.
+ *
+ * <p>Each line is bean-validated like a request to the API. A line that does not parse or
+ * validate, or whose scoring throws, counts as an error and, with {@code --output}, is reported
+ * as {@code {"line": n, "error": ...}} in place of its result.
+ */
+public final class ReplayScorer {
+
+  private static final String[] STAGES = {"parse", "features", "model", "rules", "total"};
+  private static final Line POISON = new Line(-1, null);
+  private static final long OFFER_MILLIS = 100L;
+
+  private ReplayScorer() {}
+
+  public static void main(String[] args) throws Exception {
+    Map<String, String> options = new HashMap<>();
+    List<String> springArgs = new ArrayList<>();
+    for (String arg : args) {
+      if (arg.startsWith("--input=")
+          || arg.startsWith("--threads=")
+          || arg.startsWith("--output=")) {
+        int equals = arg.indexOf('=');
+        options.put(arg.substring(2, equals), arg.substring(equals + 1));
+      } else {
+        springArgs.add(arg);
+      }
+    }
+    if (!options.containsKey("input")) {
+      System.err.println("Usage: ReplayScorer --input=requests.jsonl [--threads=N] [--output=f]");
+      System.exit(2);
+    }
+    Path input = Path.of(options.get("input"));
+    int threads =
+        Integer.parseInt(
+            options.getOrDefault(
+                "threads", Integer.toString(Runtime.getRuntime().availableProcessors())));
+    Path output = options.containsKey("output") ? Path.of(options.get("output")) : null;
+
+    try (ConfigurableApplicationContext context =
+        new SpringApplicationBuilder(ServeApplication.class)
+            .web(WebApplicationType.NONE)
+            .logStartupInfo(false)
+            .run(springArgs.toArray(String[]::new))) {
+      Replay replay =
+          new Replay(
+              context.getBean(ObjectMapper.class),
+              context.getBean(FeatureStore.class),
+              context.getBean(Scorer.class),
+              context.getBean(RulesEngine.class),
+              context.getBean(Validator.class));
+      replay.run(input, threads, output);
+    }
+  }
+
+  static final class Replay {
+    private final ObjectMapper mapper;
+    private final FeatureStore featureStore;
+    private final Scorer scorer;
+    private final RulesEngine rulesEngine;
+    private final Validator validator;
+
+    Replay(
+        ObjectMapper mapper,
+        FeatureStore featureStore,
+        Scorer scorer,
+        RulesEngine rulesEngine,
+        Validator validator) {
+      this.mapper = mapper;
+      this.featureStore = featureStore;
+      this.scorer = scorer;
+      this.rulesEngine = rulesEngine;
+      this.validator = validator;
+    }
+
+    void run(Path input, int threads, Path output) throws Exception {
+      BlockingQueue<Line> lines = new ArrayBlockingQueue<>(threads * 1024);
+      ResultWriter writer = output == null ? null : new ResultWriter(output);
+      Worker[] workers = new Worker[threads];
+      Thread[] workerThreads = new Thread[threads];
+      for (int i = 0; i < threads; i++) {
+        workers[i] = new Worker(lines, writer);
+        workerThreads[i] = Thread.ofPlatform().name("replay-" + i).start(workers[i]);
+      }
+
+      long start = System.nanoTime();
+      long count = 0;
+      try {
+        try (BufferedReader reader = Files.newBufferedReader(input, StandardCharsets.UTF_8)) {
+          String raw;
+          while ((raw = reader.readLine()) != null) {
+            count++;
+            if (!raw.isBlank()) {
+              hand(lines, new Line(count, raw), workerThreads, writer);
+            }
+          }
+        }
+        for (int i = 0; i < threads; i++) {
+          hand(lines, POISON, workerThreads, writer);
+        }
+        for (Thread thread : workerThreads) {
+          thread.join();
+        }
+      } catch (Exception e) {
+        // Workers still waiting for lines would otherwise keep the JVM alive.
+        for (Thread thread : workerThreads) {
+          thread.interrupt();
+        }
+        throw e;
+      }
+      long elapsed = System.nanoTime() - start;
+      if (writer != null) {
+        writer.finish();
+      }
+      report(workers, elapsed, threads);
+    }
+
+    /**
+     * Queues {@code line} for the workers, failing instead of blocking once none is alive or the
+     * writer has stopped.
+     */
+    private static void hand(
+        BlockingQueue<Line> lines, Line line, Thread[] workers, ResultWriter writer)
+        throws InterruptedException {
+      while (!lines.offer(line, OFFER_MILLIS, TimeUnit.MILLISECONDS)) {
+        if (writer != null) {
+          writer.checkRunning();
+        }
+        boolean alive = false;
+        for (Thread worker : workers) {
+          alive |= worker.isAlive();
+        }
+        if (!alive) {
+          throw new IllegalStateException("Every replay worker has stopped");
+        }
+      }
+    }
+
+    private void report(Worker[] workers, long elapsedNanos, int threads) {
+      Histogram[] stages = new Histogram[STAGES.length];
+      for (int s = 0; s < STAGES.length; s++) {
+        stages[s] = new Histogram();
+      }
+      long scored = 0;
+      long errors = 0;
+      Map<String, Long> decisions = new TreeMap<>();
+      Map<String, Long> reasons = new TreeMap<>();
+      for (Worker worker : workers) {
+        for (int s = 0; s < STAGES.length; s++) {
+          stages[s].add(worker.stages[s]);
+        }
+        scored += worker.scored;
+        errors += worker.errors;
+        worker.decisions.forEach((k, v) -> decisions.merge(k, v, Long::sum));
+        worker.reasons.forEach((k, v) -> reasons.merge(k, v, Long::sum));
+      }
+      double seconds = elapsedNanos / 1e9d;
+      System.out.printf(
+          "scored=%d errors=%d threads=%d elapsed=%.2fs throughput=%.0f req/s%n",
+          scored, errors, threads, seconds, scored / seconds);
+      System.out.printf(
+          "%-9s %9s %9s %9s %9s %9s%n",
+          "stage", "p50(us)", "p90(us)", "p99(us)", "p99.9(us)", "max(us)");
+      for (int s = 0; s < STAGES.length; s++) {
+        Histogram h = stages[s];
+        System.out.printf(
+            "%-9s %9d %9d %9d %9d %9d%n",
+            STAGES[s],
+            h.percentile(0.50d),
+            h.percentile(0.90d),
+            h.percentile(0.99d),
+            h.percentile(0.999d),
+            h.max());
+      }
+      for (Map.Entry<String, Long> entry : decisions.entrySet()) {
+        System.out.printf(
+            "decision %-8s %9d %6.2f%%%n",
+            entry.getKey(), entry.getValue(), 100.0d * entry.getValue() / Math.max(1, scored));
+      }
+      for (Map.Entry<String, Long> entry : reasons.entrySet()) {
+        System.out.printf("reason %-30s %9d%n", entry.getKey(), entry.getValue());
+      }
+    }
+
+    private final class Worker implements Runnable {
+      private final BlockingQueue<Line> lines;
+      private final ResultWriter writer;
+      private final Histogram[] stages = new Histogram[STAGES.length];
+      private final Map<String, Long> decisions = new HashMap<>();
+      private final Map<String, Long> reasons = new HashMap<>();
+      private long scored;
+      private long errors;
+
+      Worker(BlockingQueue<Line> lines, ResultWriter writer) {
+        this.lines = lines;
+        this.writer = writer;
+        for (int s = 0; s < STAGES.length; s++) {
+          stages[s] = new Histogram();
+        }
+      }
+
+      @Override
+      public void run() {
+        try {
+          Line line;
+          while ((line = lines.take()) != POISON) {
+            score(line);
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+
+      private void score(Line line) throws InterruptedException {
+        long t0 = System.nanoTime();
+        ScoreRequest request;
+        try {
+          request = mapper.readValue(line.raw(), ScoreRequest.class);
+        } catch (IOException e) {
+          error(line, "Malformed JSON");
+          return;
+        }
+        if (request == null) {
+          error(line, "Not a request");
+          return;
+        }
+        Set<ConstraintViolation<ScoreRequest>> violations = validator.validate(request);
+        if (!violations.isEmpty()) {
+          ConstraintViolation<ScoreRequest> first = violations.iterator().next();
+          error(line, first.getPropertyPath() + " " + first.getMessage());
+          return;
+        }
+        long t1 = System.nanoTime();
+        FeatureVector features;
+        double risk;
+        int outcome;
+        long t2;
+        long t3;
+        try {
+          features = featureStore.loadFeatures(request);
+          t2 = System.nanoTime();
+          risk = scorer.score(request, features);
+          t3 = System.nanoTime();
+          outcome = rulesEngine.decide(request, features, risk);
+        } catch (RuntimeException e) {
+          error(line, e.toString());
+          return;
+        }
+        long t4 = System.nanoTime();
+
+        stages[0].record(t1 - t0);
+        stages[1].record(t2 - t1);
+        stages[2].record(t3 - t2);
+        stages[3].record(t4 - t3);
+        stages[4].record(t4 - t0);
+        scored++;
+        String decision = RulesEngine.decision(outcome);
+        decisions.merge(decision, 1L, Long::sum);
+        for (String reason : RulesEngine.reasons(outcome)) {
+          reasons.merge(reason, 1L, Long::sum);
+        }
+        if (writer != null) {
+          ObjectNode node = mapper.createObjectNode();
+          node.put("line", line.number());
+          node.put("risk", risk);
+          node.put("decision", decision);
+          RulesEngine.reasons(outcome).forEach(node.putArray("reasons")::add);
+          writer.put(node.toString());
+        }
+      }
+
+      private void error(Line line, String message) throws InterruptedException {
+        errors++;
+        if (writer != null) {
+          ObjectNode node = mapper.createObjectNode();
+          node.put("line", line.number());
+          node.put("error", message);
+          writer.put(node.toString());
+        }
+      }
+    }
+  }
+
+  private record Line(long number, String raw) {}
+
+  /**
+   * Writes the workers' results to {@code --output} on its own thread. Results are handed over
+   * with a timed offer, so a writer that died on an I/O error fails the run instead of leaving
+   * the workers blocked on a full queue.
+   */
+  private static final class ResultWriter {
+    private static final String END = "";
+
+    private final Path output;
+    private final BlockingQueue<String> results = new ArrayBlockingQueue<>(8192);
+    private final Thread thread;
+    private volatile IOException failure;
+
+    ResultWriter(Path output) {
+      this.output = output;
+      this.thread = Thread.ofPlatform().name("replay-writer").start(this::drain);
+    }
+
+    /** Queues {@code result}, failing instead of blocking once the writer has stopped. */
+    void put(String result) throws InterruptedException {
+      while (!results.offer(result, OFFER_MILLIS, TimeUnit.MILLISECONDS)) {
+        checkRunning();
+      }
+    }
+
+    void checkRunning() {
+      if (!thread.isAlive()) {
+        throw new IllegalStateException("Unable to write " + output, failure);
+      }
+    }
+
+    /** Waits until every queued result is written. */
+    void finish() throws InterruptedException {
+      put(END);
+      thread.join();
+      if (failure != null) {
+        throw new IllegalStateException("Unable to write " + output, failure);
+      }
+    }
+
+    private void drain() {
+      try (BufferedWriter out = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+        String line;
+        while (!(line = results.take()).equals(END)) {
+          out.write(line);
+          out.newLine();
+        }
+      } catch (IOException e) {
+        failure = e;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * Microsecond latency histogram with power-of-two buckets split into 16 linear sub-buckets, good
+   * to about 6% and a fixed 1 KiB per instance whatever the sample count.
+   */
+  private static final class Histogram {
+    private static final int SUB_BUCKETS = 16;
+    private final long[] counts = new long[64 * SUB_BUCKETS];
+    private long total;
+    private long max;
+
+    void record(long nanos) {
+      long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+      counts[index(micros)]++;
+      total++;
+      max = Math.max(max, micros);
+    }
+
+    void add(Histogram other) {
+      for (int i = 0; i < counts.length; i++) {
+        counts[i] += other.counts[i];
+      }
+      total += other.total;
+      max = Math.max(max, other.max);
+    }
+
+    long percentile(double quantile) {
+      long rank = (long) Math.ceil(quantile * total);
+      long seen = 0;
+      for (int i = 0; i < counts.length; i++) {
+        seen += counts[i];
+        if (seen >= rank && counts[i] > 0) {
+          return Math.min(max, upperBound(i));
+        }
+      }
+      return max;
+    }
+
+    long max() {
+      return max;
+    }
+
+    private static int index(long micros) {
+      if (micros < SUB_BUCKETS) {
+        return (int) micros;
+      }
+      int magnitude = 63 - Long.numberOfLeadingZeros(micros);
+      int shift = magnitude - 4;
+      int sub = (int) ((micros >>> shift) & (SUB_BUCKETS - 1));
+      return (shift + 1) * SUB_BUCKETS + sub;
+    }
+
+    private static long upperBound(int index) {
+      if (index < SUB_BUCKETS) {
+        return index;
+      }
+      int shift = index / SUB_BUCKETS - 1;
+      long sub = index % SUB_BUCKETS;
+      return ((SUB_BUCKETS + sub + 1) << shift) - 1;
+    }
+  }
+}
@@ -0,0 +1,157 @@
+package fintechfrauds.serve.tools;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import fintechfrauds.serve.config.RedisConfig;
+import org.springframework.beans.factory.config.YamlPropertiesFactoryBean;
+import org.springframework.core.io.ClassPathResource;
+import redis.clients.jedis.DefaultJedisClientConfig;
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.JedisPooled;
+
+/**
+ * Compares a fixed platform-thread pool, sized like Tomcat's default worker pool, with one virtual
+ * thread per request on a workload that blocks on several Redis round trips per request.
+ *
+ * <p>Latency is measured from submission, so it includes the time a request waits for a worker,
+ * which is where a thread-pool bound service loses its p99. Pass {@code --simulatedLatencyMicros}
+ * to replace Redis with a sleep of that length when no Redis is available. The Redis pool is
+ * sized from {@code redis.pool} in {@code application-virtual.yml}, like the service under that
+ * profile, unless {@code --poolMaxTotal} or {@code --poolMaxWaitMillis} is given.
+ */
+public final class VirtualThreadBenchmark {
+
+  private VirtualThreadBenchmark() {}
+
+  public static void main(String[] args) throws Exception {
+    Map<String, String> arguments = parseArgs(args);
+    String host = arguments.getOrDefault("host", "127.0.0.1");
+    int port = Integer.parseInt(arguments.getOrDefault("port", "6379"));
+    int requests = Integer.parseInt(arguments.getOrDefault("requests", "20000"));
+    int concurrency = Integer.parseInt(arguments.getOrDefault("concurrency", "1000"));
+    int platformThreads = Integer.parseInt(arguments.getOrDefault("platformThreads", "200"));
+    int roundTrips = Integer.parseInt(arguments.getOrDefault("roundTrips", "3"));
+    long simulatedMicros = Long.parseLong(arguments.getOrDefault("simulatedLatencyMicros", "0"));
+    Properties profile = virtualProfile();
+    int poolMaxTotal =
+        Integer.parseInt(
+            arguments.getOrDefault("poolMaxTotal", profile.getProperty("redis.pool.maxTotal")));
+    long poolMaxWaitMillis =
+        Long.parseLong(
+            arguments.getOrDefault(
+                "poolMaxWaitMillis", profile.getProperty("redis.pool.maxWaitMillis")));
+
+    try (JedisPooled jedis =
+        new JedisPooled(
+            new HostAndPort(host, port),
+            DefaultJedisClientConfig.builder().socketTimeoutMillis(2000).build(),
+            RedisConfig.poolConfig(poolMaxTotal, poolMaxWaitMillis))) {
+      BlockingCall call =
+          simulatedMicros > 0
+              ? account -> Thread.sleep(Duration.ofNanos(simulatedMicros * 1_000L))
+              : account -> jedis.hgetAll("fs:acct:" + account);
+
+      System.out.printf(
+          "requests=%d concurrency=%d roundTrips=%d platformThreads=%d pool=%d/%dms backend=%s%n",
+          requests,
+          concurrency,
+          roundTrips,
+          platformThreads,
+          poolMaxTotal,
+          poolMaxWaitMillis,
+          simulatedMicros > 0 ? "sleep " + simulatedMicros + "us" : host + ":" + port);
+      // Warm both paths so the comparison does not include JIT and connection set-up.
+      run(Executors.newFixedThreadPool(platformThreads), call, requests / 10, concurrency, roundTrips);
+      run(Executors.newVirtualThreadPerTaskExecutor(), call, requests / 10, concurrency, roundTrips);
+
+      report(
+          "platform",
+          run(Executors.newFixedThreadPool(platformThreads), call, requests, concurrency, roundTrips));
+      report(
+          "virtual",
+          run(Executors.newVirtualThreadPerTaskExecutor(), call, requests, concurrency, roundTrips));
+    }
+  }
+
+  private static Result run(
+      ExecutorService executor, BlockingCall call, int requests, int concurrency, int roundTrips)
+      throws InterruptedException {
+    long[] latencies = new long[requests];
+    AtomicInteger failures = new AtomicInteger();
+    Semaphore inflight = new Semaphore(concurrency);
+    long start = System.nanoTime();
+    try (executor) {
+      for (int i = 0; i < requests; i++) {
+        inflight.acquire();
+        int index = i;
+        long submitted = System.nanoTime();
+        executor.execute(
+            () -> {
+              try {
+                for (int trip = 0; trip < roundTrips; trip++) {
+                  call.invoke("bench_" + (index % 1_000));
+                }
+              } catch (Exception e) {
+                failures.incrementAndGet();
+              } finally {
+                latencies[index] = System.nanoTime() - submitted;
+                inflight.release();
+              }
+            });
+      }
+    }
+    return new Result(latencies, System.nanoTime() - start, failures.get());
+  }
+
+  private static void report(String mode, Result result) {
+    long[] sorted = result.latencies().clone();
+    Arrays.sort(sorted);
+    double seconds = result.elapsedNanos() / 1e9d;
+    System.out.printf(
+        "%-8s throughput=%.0f req/s p50=%.2fms p99=%.2fms max=%.2fms failures=%d%n",
+        mode,
+        sorted.length / seconds,
+        percentile(sorted, 0.50d) / 1e6d,
+        percentile(sorted, 0.99d) / 1e6d,
+        sorted[sorted.length - 1] / 1e6d,
+        result.failures());
+  }
+
+  private static long percentile(long[] sorted, double quantile) {
+    int index = (int) Math.ceil(quantile * sorted.length) - 1;
+    return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+  }
+
+  private static Properties virtualProfile() {
+    YamlPropertiesFactoryBean yaml = new YamlPropertiesFactoryBean();
+    yaml.setResources(new ClassPathResource("application-virtual.yml"));
+    return yaml.getObject();
+  }
+
+  private static Map<String, String> parseArgs(String[] args) {
+    Map<String, String> parsed = new HashMap<>();
+    for (String arg : args) {
+      if (arg.startsWith("--")) {
+        int equals = arg.indexOf('=');
+        if (equals > 2) {
+          parsed.put(arg.substring(2, equals), arg.substring(equals + 1));
+        }
+      }
+    }
+    return parsed;
+  }
+
+  @FunctionalInterface
+  private interface BlockingCall {
+    void invoke(String account) throws Exception;
+  }
+
+  private record Result(long[] latencies, long elapsedNanos, int failures) {}
+}
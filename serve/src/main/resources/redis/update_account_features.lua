@@ -0,0 +1,118 @@
+-- Folds one scored transaction into its account's and merchant's online feature state.
+--
+-- KEYS[1]  account statistics hash  fs:stats:<accountHash>
+-- KEYS[2]  account velocity hash    fs:vel:acct:<accountHash>
+-- KEYS[3]  seen-merchant set        fs:seen:<accountHash>
+-- KEYS[4]  merchant velocity hash   fs:vel:merch:<merchantHash>
+-- KEYS[5]  account features hash    fs:acct:<accountHash>, only read
+-- KEYS[6]  account binary features  fs:acctb:<accountHash>, only read
+-- ARGV[1]  amount in cents
+-- ARGV[2]  event time, epoch millis
+-- ARGV[3]  merchant hash, or empty (KEYS[3] and KEYS[4] are then left alone)
+-- ARGV[4]  statistics hash and merchant set TTL, seconds
+-- ARGV[5]  largest clock skew allowed for the event time, millis
+--
+-- Only state is stored: the running count, mean and M2 (Welford), the seen merchants and the
+-- velocity buckets. Features derived from them describe a transaction, so RedisFeatureStore
+-- computes them when that transaction is scored. The statistics hash and the seen set expire after
+-- ARGV[4] without an update, so accounts that stop transacting do not stay in Redis. None of these
+-- keys carry the fs:acct: or fs:merch: prefixes, so an update never invalidates a near cache
+-- entry. An account with no statistics yet starts from the n, mean and m2 an older version of
+-- this script left in its feature hash or binary value.
+--
+-- Velocity hashes hold one counter per minute ('m<minute>') and per hour ('h<hour>'), numbered
+-- from the epoch, for the last 16 minutes and 25 hours; older fields are deleted as events arrive.
+-- Which fields are old is decided by the Redis server's clock, and the event time is clamped to
+-- within ARGV[5] of it, so a client with a wrong clock cannot wipe the buckets a merchant shares
+-- with every other account.
+-- Returns the account's transaction count.
+
+local MINUTE = 60000
+local HOUR = 3600000
+local MINUTE_BUCKETS = 16
+local HOUR_BUCKETS = 25
+-- FeatureCodec version 1: version, flags, firstTimeMerchant, mcc length, amountZ, four counts,
+-- updatedAt, n, mean, m2, then the mcc.
+local CODEC = '<BBBBdi4i4i4i4i8i8dd'
+local CODEC_VERSION = 1
+local FLAG_STATS = 2
+
+local amount = tonumber(ARGV[1])
+local time = redis.call('TIME')
+local server_now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+local skew = tonumber(ARGV[5])
+local now = math.max(server_now - skew, math.min(server_now + skew, tonumber(ARGV[2])))
+
+-- Counts the event in a velocity hash and deletes the buckets no window reads any more.
+local function count_event(velocity_key)
+  redis.call('HINCRBY', velocity_key, 'm' .. math.floor(now / MINUTE), 1)
+  redis.call('HINCRBY', velocity_key, 'h' .. math.floor(now / HOUR), 1)
+  local minute = math.floor(server_now / MINUTE)
+  local hour = math.floor(server_now / HOUR)
+
+  local fields = redis.call('HKEYS', velocity_key)
+  local stale = {}
+  for i = 1, #fields do
+    local kind = string.sub(fields[i], 1, 1)
+    local id = tonumber(string.sub(fields[i], 2))
+    if not id
+      or (kind == 'm' and id <= minute - MINUTE_BUCKETS)
+      or (kind == 'h' and id <= hour - HOUR_BUCKETS)
+      or (kind ~= 'm' and kind ~= 'h') then
+      stale[#stale + 1] = fields[i]
+    end
+  end
+  if #stale > 0 then
+    redis.call('HDEL', velocity_key, unpack(stale))
+  end
+  redis.call('PEXPIRE', velocity_key, HOUR_BUCKETS * HOUR)
+end
+
+-- Returns n, mean and m2 from a statistics or feature hash, or nil when it has none.
+local function hash_state(key)
+  local state = redis.call('HMGET', key, 'n', 'mean', 'm2')
+  if not state[1] then
+    return nil
+  end
+  return tonumber(state[1]), tonumber(state[2]) or 0, tonumber(state[3]) or 0
+end
+
+-- Returns n, mean and m2 from binary features, or nil when they hold none this script knows.
+local function binary_state(key)
+  local value = redis.call('GET', key)
+  if not value or string.len(value) < 60 then
+    return nil
+  end
+  local version, flags, _, _, _, _, _, _, _, _, n, mean, m2 = struct.unpack(CODEC, value)
+  if version ~= CODEC_VERSION or flags % (2 * FLAG_STATS) < FLAG_STATS then
+    return nil
+  end
+  return n, mean, m2
+end
+
+local n, mean, m2 = hash_state(KEYS[1])
+if not n then
+  n, mean, m2 = hash_state(KEYS[5])
+end
+if not n then
+  n, mean, m2 = binary_state(KEYS[6])
+end
+n = (n or 0) + 1
+mean = mean or 0
+m2 = m2 or 0
+local delta = amount - mean
+mean = mean + delta / n
+m2 = m2 + delta * (amount - mean)
+redis.call('HSET', KEYS[1],
+  'n', n,
+  'mean', string.format('%.17g', mean),
+  'm2', string.format('%.17g', m2))
+redis.call('EXPIRE', KEYS[1], ARGV[4])
+
+if ARGV[3] ~= '' then
+  redis.call('SADD', KEYS[3], ARGV[3])
+  redis.call('EXPIRE', KEYS[3], ARGV[4])
+  count_event(KEYS[4])
+end
+count_event(KEYS[2])
+return n
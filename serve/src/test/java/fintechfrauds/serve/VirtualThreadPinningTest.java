@@ -0,0 +1,165 @@
+package fintechfrauds.serve;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fintechfrauds.serve.api.dto.FraudReportPayload;
+import fintechfrauds.serve.api.dto.ModerationDecision;
+import fintechfrauds.serve.api.dto.ScoreRequest;
+import fintechfrauds.serve.config.FintechFraudsProperties;
+import fintechfrauds.serve.ledger.LedgerService;
+import fintechfrauds.serve.scoring.RedisFeatureStore;
+import fintechfrauds.serve.security.IdempotencyStore;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import redis.clients.jedis.DefaultJedisClientConfig;
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.JedisPooled;
+
+/**
+ * Runs the blocking request-path dependencies on virtual threads under JFR and fails on any {@code
+ * jdk.VirtualThreadPinned} event. Redis is replaced by a socket that accepts and never answers, so
+ * every Jedis call really parks until its read timeout.
+ */
+class VirtualThreadPinningTest {
+
+  private static final String PINNED = "jdk.VirtualThreadPinned";
+
+  @TempDir Path tempDir;
+
+  @Test
+  void recordingDetectsPinningInsideMonitors() throws Exception {
+    Object monitor = new Object();
+    List<RecordedEvent> events =
+        record(
+            () -> {
+              synchronized (monitor) {
+                Thread.sleep(20);
+              }
+              return null;
+            },
+            1);
+
+    assertThat(events).isNotEmpty();
+  }
+
+  @Test
+  void requestPathDependenciesDoNotPinCarrierThreads() throws Exception {
+    List<Socket> accepted = new CopyOnWriteArrayList<>();
+    try (ServerSocket silentRedis = new ServerSocket(0)) {
+      Thread acceptor =
+          Thread.ofPlatform()
+              .daemon()
+              .start(
+                  () -> {
+                    try {
+                      while (true) {
+                        accepted.add(silentRedis.accept());
+                      }
+                    } catch (Exception e) {
+                      // server closed
+                    }
+                  });
+      try (JedisPooled jedis =
+          new JedisPooled(
+              new HostAndPort("127.0.0.1", silentRedis.getLocalPort()),
+              DefaultJedisClientConfig.builder()
+                  .connectionTimeoutMillis(100)
+                  .socketTimeoutMillis(100)
+                  .build())) {
+        RedisFeatureStore featureStore = new RedisFeatureStore(jedis);
+        IdempotencyStore idempotencyStore = new IdempotencyStore(jedis);
+        FintechFraudsProperties properties = new FintechFraudsProperties();
+        properties.getLedger().setApprovedFile(tempDir.resolve("ledger.jsonl").toString());
+        LedgerService ledgerService = new LedgerService(new ObjectMapper(), properties);
+
+        List<RecordedEvent> events =
+            record(
+                () -> {
+                  String worker = Thread.currentThread().toString();
+                  featureStore.loadFeatures(scoreRequest());
+                  idempotencyStore.register("idem:" + worker, Duration.ofMinutes(1));
+                  LedgerService.PendingReport pending = ledgerService.enqueue(report(worker));
+                  ModerationDecision decision = new ModerationDecision();
+                  decision.setId(pending.id());
+                  decision.setAction(ModerationDecision.Action.APPROVE);
+                  decision.setModerator("moderator");
+                  ledgerService.moderate(decision);
+                  return null;
+                },
+                16);
+
+        assertThat(events).as("pinned events: %s", events).isEmpty();
+      } finally {
+        for (Socket socket : accepted) {
+          socket.close();
+        }
+        acceptor.interrupt();
+      }
+    }
+  }
+
+  private List<RecordedEvent> record(Callable<Void> task, int threads) throws Exception {
+    Path dump = tempDir.resolve("pinning-" + System.nanoTime() + ".jfr");
+    try (Recording recording = new Recording()) {
+      recording.enable(PINNED).withThreshold(Duration.ZERO).withStackTrace();
+      recording.start();
+      try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+        List<Future<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+          futures.add(executor.submit(task));
+        }
+        for (Future<Void> future : futures) {
+          future.get();
+        }
+      }
+      recording.stop();
+      recording.dump(dump);
+    } catch (IllegalStateException e) {
+      assumeTrue(false, "JFR unavailable: " + e);
+    }
+    List<RecordedEvent> pinned = new ArrayList<>();
+    for (RecordedEvent event : RecordingFile.readAllEvents(dump)) {
+      if (PINNED.equals(event.getEventType().getName())) {
+        pinned.add(event);
+      }
+    }
+    return pinned;
+  }
+
+  private static ScoreRequest scoreRequest() {
+    ScoreRequest request = new ScoreRequest();
+    request.setAccountHash("acct_shared");
+    request.setEpochMillis(System.currentTimeMillis());
+    request.setAmountCents(2_500L);
+    request.setDescription("COFFEE");
+    request.setMerchantHash("merchant");
+    return request;
+  }
+
+  private static FraudReportPayload report(String worker) {
+    FraudReportPayload payload = new FraudReportPayload();
+    payload.setReporter("ops_team");
+    payload.setAccountHash("acct_hash");
+    payload.setMerchantHash("merchant_" + Math.abs(worker.hashCode()));
+    payload.setDescriptionTokensHash("desc_" + Math.abs(worker.hashCode()));
+    payload.setDescription("STORED_VALUE_PROVIDER");
+    payload.setAmountCents(5000L);
+    return payload;
+  }
+}
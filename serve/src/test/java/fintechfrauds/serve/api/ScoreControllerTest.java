@@ -1,7 +1,10 @@
 package fintechfrauds.serve.api;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import com.fasterxml.jackson.databind.JsonNode;
@@ -10,6 +13,7 @@ import java.io.BufferedReader;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import org.junit.jupiter.api.Test;
@@ -86,4 +90,186 @@ class ScoreControllerTest {
           }
         });
   }
+
+  @Test
+  void scoreBatchReturnsOneResponsePerRequestInOrder() throws Exception {
+    ClassPathResource fixtures =
+        new ClassPathResource("testdata/fintechfrauds_testcases.jsonl");
+    List<String> lines;
+    try (BufferedReader reader =
+        new BufferedReader(new InputStreamReader(fixtures.getInputStream(), StandardCharsets.UTF_8))) {
+      lines = reader.lines().filter(line -> !line.isBlank()).toList();
+    }
+    String body = "[" + String.join(",", lines) + "]";
+
+    MvcResult result =
+        mockMvc
+            .perform(post("/v1/score/batch").contentType(MediaType.APPLICATION_JSON).content(body))
+            .andExpect(status().isOk())
+            .andReturn();
+    JsonNode responses = objectMapper.readTree(result.getResponse().getContentAsString());
+
+    assertThat(responses.isArray()).isTrue();
+    assertThat(responses.size()).isEqualTo(lines.size());
+    for (JsonNode response : responses) {
+      assertThat(response.has("risk")).isTrue();
+      assertThat(response.has("decision")).isTrue();
+      if (!"APPROVE".equals(response.path("decision").asText())) {
+        assertThat(response.path("reasons").size()).isGreaterThan(0);
+      }
+    }
+
+    mockMvc
+        .perform(post("/v1/score/batch").contentType(MediaType.APPLICATION_JSON).content("[]"))
+        .andExpect(status().isBadRequest());
+
+    // Fresh accounts differ only in amount, so the dummy scorer's risk is a fixed offset plus
+    // amountCents / 300000; any reordering breaks the offset.
+    long[] amounts = {120_000L, 30_000L, 90_000L, 6_000L, 60_000L};
+    StringBuilder ordered = new StringBuilder("[");
+    for (int i = 0; i < amounts.length; i++) {
+      if (i > 0) {
+        ordered.append(',');
+      }
+      ordered
+          .append("{\"accountHash\":\"acct_order_")
+          .append(i)
+          .append("\",\"epochMillis\":1716905400000,\"description\":\"BOOKS\",\"amountCents\":")
+          .append(amounts[i])
+          .append(",\"merchantHash\":\"m_order\",\"mcc\":\"5942\"}");
+    }
+    ordered.append(']');
+    JsonNode risks =
+        objectMapper.readTree(
+            mockMvc
+                .perform(
+                    post("/v1/score/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(ordered.toString()))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString());
+    assertThat(risks.size()).isEqualTo(amounts.length);
+    double offset = risks.get(0).path("risk").asDouble() - amounts[0] / 300_000.0d;
+    for (int i = 0; i < amounts.length; i++) {
+      assertThat(risks.get(i).path("risk").asDouble() - amounts[i] / 300_000.0d)
+          .as("response %d", i)
+          .isCloseTo(offset, within(1e-6d));
+    }
+  }
+
+  @Test
+  void onlyTheScoringRoutesAreOpenOutsideProd() throws Exception {
+    mockMvc
+        .perform(post("/v1/score/other").contentType(MediaType.APPLICATION_JSON).content("{}"))
+        .andExpect(status().isUnauthorized());
+    mockMvc
+        .perform(post("/v1/scores").contentType(MediaType.APPLICATION_JSON).content("{}"))
+        .andExpect(status().isUnauthorized());
+  }
+
+  @Test
+  void modelEndpointReportsActiveModel() throws Exception {
+    mockMvc
+        .perform(get("/actuator/model"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.type").value("dummy"))
+        .andExpect(jsonPath("$.loadedAt").exists());
+  }
+
+  @Test
+  void metricsEndpointReportsScoreStages() throws Exception {
+    String line;
+    try (BufferedReader reader =
+        new BufferedReader(
+            new InputStreamReader(
+                new ClassPathResource("testdata/fintechfrauds_testcases.jsonl").getInputStream(),
+                StandardCharsets.UTF_8))) {
+      line = reader.readLine();
+    }
+    mockMvc
+        .perform(post("/v1/score").contentType(MediaType.APPLICATION_JSON).content(line))
+        .andExpect(status().isOk());
+
+    for (String stage : List.of("features", "model", "rules", "serialize", "log")) {
+      mockMvc
+          .perform(
+              get("/actuator/metrics/fintechfrauds.score.stage").param("tag", "stage:" + stage))
+          .andExpect(status().isOk())
+          .andExpect(jsonPath("$.measurements[?(@.statistic == 'COUNT')].value").isNotEmpty());
+    }
+    // No Redis in tests, so every load is answered by the local fallback.
+    mockMvc
+        .perform(
+            get("/actuator/metrics/fintechfrauds.features.load").param("tag", "outcome:fallback"))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  void scoreStreamAnswersEveryLineInOrder() throws Exception {
+    ClassPathResource fixtures =
+        new ClassPathResource("testdata/fintechfrauds_testcases.jsonl");
+    List<String> lines;
+    try (BufferedReader reader =
+        new BufferedReader(new InputStreamReader(fixtures.getInputStream(), StandardCharsets.UTF_8))) {
+      lines = reader.lines().filter(line -> !line.isBlank()).toList();
+    }
+    StringBuilder body = new StringBuilder();
+    for (String line : lines) {
+      body.append(line).append('\n');
+    }
+    body.append("{not json\n");
+    body.append("{\"accountHash\":\"acct\"}\r\n");
+
+    MvcResult result =
+        mockMvc
+            .perform(
+                post("/v1/score/stream")
+                    .contentType("application/x-ndjson")
+                    .content(body.toString()))
+            .andExpect(status().isOk())
+            .andReturn();
+    List<String> responses =
+        result.getResponse().getContentAsString().lines().filter(l -> !l.isBlank()).toList();
+
+    assertThat(responses).hasSize(lines.size() + 2);
+    for (int i = 0; i < lines.size(); i++) {
+      JsonNode response = objectMapper.readTree(responses.get(i));
+      assertThat(response.path("line").asInt()).isEqualTo(i + 1);
+      assertThat(response.has("risk")).isTrue();
+      assertThat(response.has("decision")).isTrue();
+    }
+    JsonNode malformed = objectMapper.readTree(responses.get(lines.size()));
+    assertThat(malformed.path("error").asText()).isEqualTo("Malformed JSON");
+    JsonNode invalid = objectMapper.readTree(responses.get(lines.size() + 1));
+    assertThat(invalid.path("line").asInt()).isEqualTo(lines.size() + 2);
+    assertThat(invalid.has("error")).isTrue();
+  }
+
+  @Test
+  void scoreStreamKeepsInputOrderAroundOversizedLines() throws Exception {
+    String valid =
+        "{\"accountHash\":\"acct_order\",\"epochMillis\":1700000000000,\"amountCents\":1200,"
+            + "\"description\":\"COFFEE\",\"merchantHash\":\"m_order\",\"mcc\":\"5411\","
+            + "\"countryCode\":\"US\"}";
+    String oversized =
+        "{\"description\":\"" + "x".repeat(ScoreController.STREAM_MAX_LINE_BYTES) + "\"}";
+    String body = valid + "\n" + valid + "\n" + oversized + "\n" + valid + "\n";
+
+    MvcResult result =
+        mockMvc
+            .perform(post("/v1/score/stream").contentType("application/x-ndjson").content(body))
+            .andExpect(status().isOk())
+            .andReturn();
+    List<String> responses =
+        result.getResponse().getContentAsString().lines().filter(l -> !l.isBlank()).toList();
+
+    assertThat(responses).hasSize(4);
+    for (int i = 0; i < responses.size(); i++) {
+      JsonNode response = objectMapper.readTree(responses.get(i));
+      assertThat(response.path("line").asInt()).isEqualTo(i + 1);
+      assertThat(response.has("error")).isEqualTo(i == 2);
+    }
+  }
 }
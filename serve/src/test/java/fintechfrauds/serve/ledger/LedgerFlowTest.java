@@ -178,6 +178,15 @@ class LedgerFlowTest {
         .andExpect(status().isConflict());
   }
 
+  @Test
+  void replayedGetsAreRejected() throws Exception {
+    org.springframework.http.HttpHeaders headers = authHeaders("");
+    mockMvc.perform(get("/v1/ledger/pending/count").headers(headers)).andExpect(status().isOk());
+    mockMvc
+        .perform(get("/v1/ledger/pending/count").headers(headers))
+        .andExpect(status().isUnauthorized());
+  }
+
   private org.springframework.http.HttpHeaders authHeaders(String body) {
     String timestamp = Instant.now().toString();
     String nonce = UUID.randomUUID().toString();
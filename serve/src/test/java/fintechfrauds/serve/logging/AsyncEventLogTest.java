@@ -0,0 +1,158 @@
+package fintechfrauds.serve.logging;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+class AsyncEventLogTest {
+
+  private static final Logger logger = LoggerFactory.getLogger(AsyncEventLogTest.class);
+
+  @AfterEach
+  void uninstall() {
+    StructuredLogger.install(null);
+  }
+
+  @Test
+  void encodesLikeTheMapLogger() throws Exception {
+    Map<String, Object> map = new LinkedHashMap<>();
+    map.put("requestId", "r-1");
+    map.put("status", 200);
+    map.put("risk", 0.125d);
+    map.put("reasons", List.of("BURST_GIFTCARDS", "MODEL_RISK_HIGH"));
+    map.put("amountCents", 2500L);
+    map.put("note", "quote \" backslash \\ tab \t ctl \u0001 é");
+    map.put("prevHash", null);
+    map.put("flag", true);
+    ObjectMapper mapper = new ObjectMapper();
+    mapper.configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+
+    LogEvent event = new LogEvent();
+    event.start(logger);
+    event
+        .with("requestId", "r-1")
+        .with("status", 200)
+        .with("risk", 0.125d)
+        .with("reasons", List.of("BURST_GIFTCARDS", "MODEL_RISK_HIGH"))
+        .with("amountCents", Long.valueOf(2500L))
+        .with("note", "quote \" backslash \\ tab \t ctl \u0001 é")
+        .withNullable("prevHash", null)
+        .with("flag", true)
+        .with("skipped", (Object) null);
+    StringBuilder line = new StringBuilder();
+    event.encodeTo(line, new int[LogEvent.MAX_FIELDS]);
+
+    assertThat(line.toString()).isEqualTo(mapper.writeValueAsString(map));
+  }
+
+  @Test
+  void dropPolicyCountsEventsThatDoNotFit() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    List<String> lines = Collections.synchronizedList(new ArrayList<>());
+    try (AsyncEventLog eventLog =
+        new AsyncEventLog(8, AsyncEventLog.Overflow.DROP, 1, 4, blockingSink(release, lines))) {
+      StructuredLogger.install(eventLog);
+      for (int i = 0; i < 20; i++) {
+        StructuredLogger.event(logger).with("seq", i).log();
+      }
+      // One event may already sit in the stalled sink, the rest fill the ring.
+      assertThat(eventLog.droppedFullCount()).isBetween(11L, 12L);
+      release.countDown();
+    }
+    assertThat(lines).hasSizeBetween(8, 9);
+    assertThat(lines.get(0)).isEqualTo("{\"seq\":0}");
+  }
+
+  @Test
+  void samplePolicyThinsEventsOnceHalfFull() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    List<String> lines = Collections.synchronizedList(new ArrayList<>());
+    try (AsyncEventLog eventLog =
+        new AsyncEventLog(64, AsyncEventLog.Overflow.SAMPLE, 4, 16, blockingSink(release, lines))) {
+      StructuredLogger.install(eventLog);
+      for (int i = 0; i < 200; i++) {
+        StructuredLogger.event(logger).with("seq", i).log();
+      }
+      assertThat(eventLog.droppedSampledCount()).isPositive();
+      assertThat(eventLog.depth()).isGreaterThan(32L);
+      release.countDown();
+    }
+  }
+
+  @Test
+  void blockPolicyWaitsInsteadOfDropping() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    List<String> lines = Collections.synchronizedList(new ArrayList<>());
+    try (AsyncEventLog eventLog =
+        new AsyncEventLog(4, AsyncEventLog.Overflow.BLOCK, 1, 2, blockingSink(release, lines))) {
+      StructuredLogger.install(eventLog);
+      Thread producer =
+          Thread.ofPlatform()
+              .start(
+                  () -> {
+                    for (int i = 0; i < 50; i++) {
+                      StructuredLogger.event(logger).with("seq", i).log();
+                    }
+                  });
+      producer.join(200);
+      assertThat(producer.isAlive()).isTrue();
+      release.countDown();
+      producer.join(TimeUnit.SECONDS.toMillis(10));
+      assertThat(producer.isAlive()).isFalse();
+      assertThat(eventLog.droppedFullCount()).isZero();
+    }
+    assertThat(lines).hasSize(50);
+    for (int i = 0; i < 50; i++) {
+      assertThat(lines.get(i)).isEqualTo("{\"seq\":" + i + "}");
+    }
+  }
+
+  @Test
+  void auditEventsBypassAFullRing() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    List<String> lines = Collections.synchronizedList(new ArrayList<>());
+    try (AsyncEventLog eventLog =
+        new AsyncEventLog(2, AsyncEventLog.Overflow.DROP, 1, 1, blockingSink(release, lines))) {
+      StructuredLogger.install(eventLog);
+      for (int i = 0; i < 10; i++) {
+        StructuredLogger.event(logger).with("seq", i).log();
+      }
+      long dropped = eventLog.droppedFullCount();
+      assertThat(dropped).isPositive();
+
+      for (int i = 0; i < 10; i++) {
+        StructuredLogger.audit(logger).with("audit", i).log();
+      }
+
+      assertThat(eventLog.droppedFullCount()).isEqualTo(dropped);
+      // The next event from this thread goes back through the ring.
+      StructuredLogger.event(logger).with("seq", 10).log();
+      assertThat(eventLog.droppedFullCount()).isEqualTo(dropped + 1);
+      release.countDown();
+    }
+    assertThat(lines).noneMatch(line -> line.contains("audit"));
+  }
+
+  private static AsyncEventLog.LineSink blockingSink(CountDownLatch release, List<String> lines) {
+    return (target, line) -> {
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      lines.add(line);
+    };
+  }
+}
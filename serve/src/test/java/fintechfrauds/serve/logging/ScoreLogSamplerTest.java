@@ -0,0 +1,83 @@
+package fintechfrauds.serve.logging;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import fintechfrauds.serve.config.FintechFraudsProperties;
+import fintechfrauds.serve.scoring.RulesEngine;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class ScoreLogSamplerTest {
+
+  private final AtomicLong clock = new AtomicLong();
+
+  @Test
+  void keepsEverythingWhenDisabled() {
+    ScoreLogSampler sampler = sampler(false, 10);
+    drive(sampler, 10_000, 3);
+    assertThat(sampler.approveRate()).isEqualTo(1.0d);
+    assertThat(sampler.keep("acct_1", RulesEngine.APPROVE)).isTrue();
+  }
+
+  @Test
+  void keepsAllApprovalsBelowTarget() {
+    ScoreLogSampler sampler = sampler(true, 1_000);
+    drive(sampler, 500, 3);
+    assertThat(sampler.approveRate()).isEqualTo(1.0d);
+    assertThat(sampler.skippedCount()).isZero();
+  }
+
+  @Test
+  void samplesApprovalsByAccountAndNeverRiskyDecisions() {
+    ScoreLogSampler sampler = sampler(true, 100);
+    drive(sampler, 1_600, 4);
+    assertThat(sampler.approveRate()).isEqualTo(1.0d / 16);
+
+    int kept = 0;
+    for (int account = 0; account < 10_000; account++) {
+      String accountHash = "acct_" + account;
+      boolean first = sampler.keep(accountHash, RulesEngine.APPROVE);
+      assertThat(sampler.keep(accountHash, RulesEngine.APPROVE)).isEqualTo(first);
+      assertThat(sampler.keep(accountHash, RulesEngine.DECLINE)).isTrue();
+      assertThat(sampler.keep(accountHash, RulesEngine.REVIEW)).isTrue();
+      kept += first ? 1 : 0;
+    }
+    assertThat(kept).isBetween(500, 750);
+  }
+
+  @Test
+  void rateRecoversWhenLoadFalls() {
+    ScoreLogSampler sampler = sampler(true, 100);
+    drive(sampler, 1_600, 4);
+    assertThat(sampler.approveRate()).isLessThan(1.0d);
+    drive(sampler, 10, 8);
+    assertThat(sampler.approveRate()).isEqualTo(1.0d);
+  }
+
+  @Test
+  void neverGoesBelowTheMinimumRate() {
+    ScoreLogSampler sampler = sampler(true, 1);
+    drive(sampler, 100_000, 3);
+    assertThat(sampler.approveRate()).isEqualTo(1.0d / 64);
+  }
+
+  private ScoreLogSampler sampler(boolean enabled, double target) {
+    FintechFraudsProperties.Sampling settings = new FintechFraudsProperties.Sampling();
+    settings.setEnabled(enabled);
+    settings.setTargetApprovedPerSecond(target);
+    settings.setMinApproveRate(0.01d);
+    return new ScoreLogSampler(settings, clock::get);
+  }
+
+  /** Feeds {@code perSecond} approvals a second for {@code seconds} seconds of fake time. */
+  private void drive(ScoreLogSampler sampler, int perSecond, int seconds) {
+    long step = TimeUnit.SECONDS.toNanos(1) / perSecond;
+    for (int s = 0; s < seconds; s++) {
+      for (int i = 0; i < perSecond; i++) {
+        clock.addAndGet(step);
+        sampler.keep("acct_load_" + i, RulesEngine.APPROVE);
+      }
+    }
+  }
+}
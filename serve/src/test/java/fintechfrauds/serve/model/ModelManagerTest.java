@@ -0,0 +1,123 @@
+package fintechfrauds.serve.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import fintechfrauds.serve.api.dto.ScoreRequest;
+import fintechfrauds.serve.config.FintechFraudsProperties;
+import fintechfrauds.serve.scoring.DummyScorer;
+import fintechfrauds.serve.scoring.FeatureVector;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import ml.dmlc.xgboost4j.java.Booster;
+import ml.dmlc.xgboost4j.java.DMatrix;
+import ml.dmlc.xgboost4j.java.XGBoost;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ModelManagerTest {
+
+  @TempDir Path tempDir;
+
+  @Test
+  void swapsInChangedModelAndRollsBack() throws Exception {
+    Path modelPath = tempDir.resolve("model.xgb");
+    Path modelA = tempDir.resolve("a.xgb");
+    Path modelB = tempDir.resolve("b.xgb");
+    trainOrSkip(modelA, 0.3d, 11);
+    trainOrSkip(modelB, 0.7d, 23);
+    Files.copy(modelA, modelPath);
+
+    try (ModelManager manager = manager(modelPath)) {
+      String shaA = ModelLoader.sha256(modelA);
+      String shaB = ModelLoader.sha256(modelB);
+      assertThat(manager.active().sha256()).isEqualTo(shaA);
+      assertThat(manager.checkForUpdate()).isFalse();
+      double riskA = manager.score(request(), features());
+
+      Files.copy(modelB, modelPath, StandardCopyOption.REPLACE_EXISTING);
+      assertThat(manager.checkForUpdate()).isTrue();
+      assertThat(manager.active().sha256()).isEqualTo(shaB);
+      assertThat(manager.previous().sha256()).isEqualTo(shaA);
+      assertThat(manager.score(request(), features())).isNotEqualTo(riskA);
+
+      assertThat(manager.rollback()).isTrue();
+      assertThat(manager.active().sha256()).isEqualTo(shaA);
+      assertThat(manager.score(request(), features())).isEqualTo(riskA);
+      // The rolled back artifact is still in place but must not be reloaded.
+      assertThat(manager.checkForUpdate()).isFalse();
+      assertThat(manager.rollback()).isFalse();
+    }
+  }
+
+  @Test
+  void keepsActiveModelWhenReplacementIsBroken() throws Exception {
+    Path modelPath = tempDir.resolve("model.xgb");
+    trainOrSkip(modelPath, 0.3d, 11);
+
+    try (ModelManager manager = manager(modelPath)) {
+      String sha = manager.active().sha256();
+      Files.writeString(modelPath, "not a model");
+
+      assertThat(manager.checkForUpdate()).isFalse();
+      assertThat(manager.active().sha256()).isEqualTo(sha);
+      assertThat(manager.previous()).isNull();
+      assertThat(manager.score(request(), features())).isBetween(0.0d, 1.0d);
+    }
+  }
+
+  private static ModelManager manager(Path modelPath) {
+    FintechFraudsProperties.Model model = new FintechFraudsProperties.Model();
+    model.setType("xgb-java");
+    model.setResourcePath(modelPath.toString());
+    model.getReload().setWarmupRequests(1_000);
+    return new ModelManager(new ModelLoader(model), new DummyScorer(), model.getReload());
+  }
+
+  private static ScoreRequest request() {
+    ScoreRequest request = new ScoreRequest();
+    request.setAccountHash("acct");
+    request.setEpochMillis(1_700_000_000_000L);
+    request.setAmountCents(4_200L);
+    request.setDescription("GROCERY");
+    request.setCountryCode("US");
+    return request;
+  }
+
+  private static FeatureVector features() {
+    return new FeatureVector(1.5d, 2, 1, "5411");
+  }
+
+  private static void trainOrSkip(Path target, double baseScore, long seed) {
+    try {
+      int rows = 500;
+      int width = 6;
+      Random random = new Random(seed);
+      float[] data = new float[rows * width];
+      float[] labels = new float[rows];
+      for (int r = 0; r < rows; r++) {
+        for (int c = 0; c < width; c++) {
+          data[r * width + c] = (float) random.nextGaussian() * 4f;
+        }
+        labels[r] = data[r * width] + data[r * width + 3] > 0f ? 1f : 0f;
+      }
+      DMatrix train = new DMatrix(data, rows, width, Float.NaN);
+      train.setLabel(labels);
+      Map<String, Object> params = new HashMap<>();
+      params.put("objective", "binary:logistic");
+      params.put("max_depth", 3);
+      params.put("base_score", baseScore);
+      params.put("nthread", 1);
+      Booster booster = XGBoost.train(train, params, 10, new HashMap<>(), null, null);
+      booster.saveModel(target.toString());
+      booster.dispose();
+      train.dispose();
+    } catch (Throwable e) {
+      assumeTrue(false, "XGBoost native runtime unavailable: " + e);
+    }
+  }
+}
@@ -0,0 +1,136 @@
+package fintechfrauds.serve.redis;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import fintechfrauds.serve.api.dto.ScoreRequest;
+import fintechfrauds.serve.metrics.ScoringMetrics;
+import fintechfrauds.serve.scoring.FallbackFeatureState;
+import fintechfrauds.serve.scoring.FeatureNearCache;
+import fintechfrauds.serve.scoring.RedisFeatureStore;
+import fintechfrauds.serve.security.IdempotencyStore;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+import redis.clients.jedis.DefaultJedisClientConfig;
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.JedisPooled;
+
+class RedisCircuitBreakerTest {
+
+  private final AtomicLong clock = new AtomicLong();
+
+  @Test
+  void opensOnceTheFailureRateIsReachedOverEnoughCalls() {
+    RedisCircuitBreaker healthy = breaker(10, 4);
+    healthy.onSuccess(0L);
+    healthy.onSuccess(0L);
+    healthy.onSuccess(0L);
+    healthy.onFailure();
+    assertThat(healthy.state()).isEqualTo(RedisCircuitBreaker.State.CLOSED);
+    assertThat(healthy.failureRate()).isEqualTo(0.25d);
+
+    RedisCircuitBreaker breaker = breaker(10, 4);
+    breaker.onFailure();
+    breaker.onFailure();
+    breaker.onFailure();
+    // Below minimumCalls the rate is not trusted yet.
+    assertThat(breaker.state()).isEqualTo(RedisCircuitBreaker.State.CLOSED);
+    breaker.onSuccess(0L);
+    assertThat(breaker.state()).isEqualTo(RedisCircuitBreaker.State.OPEN);
+    assertThat(breaker.tryAcquire()).isFalse();
+    assertThat(breaker.rejectedCount()).isEqualTo(1);
+    assertThat(breaker.openedCount()).isEqualTo(1);
+  }
+
+  @Test
+  void countsSlowCallsAsFailures() {
+    RedisCircuitBreaker breaker = breaker(4, 4);
+    for (int i = 0; i < 4; i++) {
+      breaker.onSuccess(TimeUnit.MILLISECONDS.toNanos(150));
+    }
+    assertThat(breaker.state()).isEqualTo(RedisCircuitBreaker.State.OPEN);
+  }
+
+  @Test
+  void closesAfterSuccessfulProbesAndReopensOnAFailedOne() {
+    RedisCircuitBreaker breaker = tripped();
+    clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(1_000));
+    assertThat(breaker.tryAcquire()).isTrue();
+    assertThat(breaker.tryAcquire()).isTrue();
+    assertThat(breaker.state()).isEqualTo(RedisCircuitBreaker.State.HALF_OPEN);
+    // Only two probes are let through at a time.
+    assertThat(breaker.tryAcquire()).isFalse();
+    breaker.onSuccess(0L);
+    breaker.onFailure();
+    assertThat(breaker.state()).isEqualTo(RedisCircuitBreaker.State.OPEN);
+
+    clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(1_000));
+    assertThat(breaker.tryAcquire()).isTrue();
+    assertThat(breaker.tryAcquire()).isTrue();
+    breaker.onSuccess(0L);
+    breaker.onSuccess(0L);
+    assertThat(breaker.state()).isEqualTo(RedisCircuitBreaker.State.CLOSED);
+    assertThat(breaker.failureRate()).isZero();
+  }
+
+  @Test
+  void reissuesProbesThatNeverReportedBack() {
+    RedisCircuitBreaker breaker = tripped();
+    clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(1_000));
+    assertThat(breaker.tryAcquire()).isTrue();
+    assertThat(breaker.tryAcquire()).isTrue();
+    assertThat(breaker.tryAcquire()).isFalse();
+    clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(1_000));
+    assertThat(breaker.tryAcquire()).isTrue();
+  }
+
+  @Test
+  void openBreakerSkipsRedisForFeaturesAndIdempotency() {
+    RedisCircuitBreaker breaker = tripped();
+    // Nothing listens on port 1; with the breaker open no call should get that far.
+    try (JedisPooled jedis =
+        new JedisPooled(
+            new HostAndPort("127.0.0.1", 1),
+            DefaultJedisClientConfig.builder().connectionTimeoutMillis(200).build())) {
+      RedisFeatureStore store =
+          new RedisFeatureStore(
+              jedis,
+              ScoringMetrics.disabled(),
+              FeatureNearCache.disabled(),
+              new FallbackFeatureState(),
+              breaker);
+      assertThat(store.loadFeatures(request("acct")).getWindow15mCount()).isEqualTo(1);
+      assertThat(store.loadFeaturesBatch(List.of(request("acct"), request("other"))))
+          .hasSize(2);
+
+      IdempotencyStore idempotency = new IdempotencyStore(jedis, breaker);
+      assertThat(idempotency.register("nonce-1", Duration.ofMinutes(1))).isTrue();
+      assertThat(idempotency.register("nonce-1", Duration.ofMinutes(1))).isFalse();
+    }
+    assertThat(breaker.rejectedCount()).isEqualTo(4);
+    assertThat(breaker.openedCount()).isEqualTo(1);
+  }
+
+  private RedisCircuitBreaker breaker(int windowSize, int minimumCalls) {
+    return new RedisCircuitBreaker(windowSize, minimumCalls, 0.5d, 100, 1_000, 2, clock::get);
+  }
+
+  private RedisCircuitBreaker tripped() {
+    RedisCircuitBreaker breaker = breaker(4, 2);
+    breaker.onFailure();
+    breaker.onFailure();
+    assertThat(breaker.state()).isEqualTo(RedisCircuitBreaker.State.OPEN);
+    return breaker;
+  }
+
+  private static ScoreRequest request(String account) {
+    ScoreRequest request = new ScoreRequest();
+    request.setAccountHash(account);
+    request.setAmountCents(1_000L);
+    request.setEpochMillis(1_716_905_400_000L);
+    request.setMcc("5411");
+    return request;
+  }
+}
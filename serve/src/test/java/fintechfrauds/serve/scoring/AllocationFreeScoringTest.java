@@ -0,0 +1,98 @@
+package fintechfrauds.serve.scoring;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import com.sun.management.ThreadMXBean;
+import fintechfrauds.serve.api.dto.ScoreRequest;
+import java.lang.management.ManagementFactory;
+import org.junit.jupiter.api.Test;
+
+class AllocationFreeScoringTest {
+
+  private static final int CALLS = 20_000;
+
+  private final RulesEngine rulesEngine = new RulesEngine();
+
+  @Test
+  void decideMatchesEvaluateForEveryRuleCombination() {
+    double[] risks = {0.1d, 0.6d, 0.8d, 0.86d, 0.95d};
+    for (double risk : risks) {
+      for (int first = 0; first <= 1; first++) {
+        for (String description : new String[] {"COFFEE", "GIFT CARD"}) {
+          ScoreRequest request = request(75_000L, description);
+          FeatureVector features = new FeatureVector(1.0d, 4, first, "5411");
+          int outcome = rulesEngine.decide(request, features, risk);
+          RulesEngine.DecisionResult result = rulesEngine.evaluate(request, features, risk);
+          assertThat(RulesEngine.decision(outcome)).isEqualTo(result.decision());
+          assertThat(RulesEngine.reasons(outcome)).isSameAs(result.reasons());
+        }
+      }
+    }
+    ScoreRequest burst = request(75_000L, "GIFT CARD");
+    int outcome = rulesEngine.decide(burst, new FeatureVector(1.0d, 4, 1, "5411"), 0.95d);
+    assertThat(RulesEngine.decision(outcome)).isEqualTo(RulesEngine.DECLINE);
+    assertThat(RulesEngine.reasons(outcome))
+        .containsExactly(
+            "AMOUNT_OUTLIER_FIRST_MERCHANT",
+            "BURST_GIFTCARDS",
+            "MODEL_RISK_HIGH",
+            "MODEL_RISK_FIRST_MERCHANT");
+  }
+
+  @Test
+  void steadyStateScoringAllocatesNothing() throws Exception {
+    ThreadMXBean threads = threadMxBean();
+    TreeEnsemble ensemble =
+        TreeEnsemble.fromJsonDump(TreeEnsembleTest.DUMPS, 0.1f, TreeEnsemble.Link.LOGISTIC);
+    TreeMargin compiled = TreeBytecodeCompiler.compile(ensemble, false).orElseThrow();
+    Scorer[] scorers = {
+      new DummyScorer(), new TreeEnsembleScorer(ensemble), new TreeEnsembleScorer(ensemble, compiled)
+    };
+    ScoreRequest request = request(62_000L, "GIFT CARD US");
+    request.setCountryCode("US");
+    FeatureVector features = new FeatureVector(2.5d, 3, 1, "5411");
+
+    for (Scorer scorer : scorers) {
+      // Warm up so class loading, thread-local setup and JIT compilation are out of the way.
+      runCalls(scorer, request, features);
+      long tid = Thread.currentThread().threadId();
+      long before = threads.getThreadAllocatedBytes(tid);
+      long sink = runCalls(scorer, request, features);
+      long allocated = threads.getThreadAllocatedBytes(tid) - before;
+
+      assertThat(sink).isNotZero();
+      // Any per-call object costs at least 16 bytes; what remains is one-off JIT or OSR noise.
+      assertThat(allocated / CALLS)
+          .as("bytes allocated per call by %s", scorer.getClass().getSimpleName())
+          .isZero();
+    }
+  }
+
+  private long runCalls(Scorer scorer, ScoreRequest request, FeatureVector features) {
+    long sink = 0;
+    for (int i = 0; i < CALLS; i++) {
+      double risk = scorer.score(request, features);
+      sink += rulesEngine.decide(request, features, risk);
+    }
+    return sink;
+  }
+
+  private static ThreadMXBean threadMxBean() {
+    java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    assumeTrue(bean instanceof ThreadMXBean, "allocation accounting unavailable");
+    ThreadMXBean threads = (ThreadMXBean) bean;
+    assumeTrue(threads.isThreadAllocatedMemorySupported(), "allocation accounting unsupported");
+    threads.setThreadAllocatedMemoryEnabled(true);
+    return threads;
+  }
+
+  private static ScoreRequest request(long amountCents, String description) {
+    ScoreRequest request = new ScoreRequest();
+    request.setAccountHash("acct");
+    request.setEpochMillis(1_700_000_000_000L);
+    request.setAmountCents(amountCents);
+    request.setDescription(description);
+    return request;
+  }
+}
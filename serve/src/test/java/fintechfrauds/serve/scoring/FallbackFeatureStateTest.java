@@ -0,0 +1,114 @@
+package fintechfrauds.serve.scoring;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import fintechfrauds.serve.api.dto.ScoreRequest;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+
+class FallbackFeatureStateTest {
+
+  private static final long START = 1_716_905_400_000L;
+
+  @Test
+  void countsEventsInTheFifteenMinuteWindow() {
+    FallbackFeatureState state = new FallbackFeatureState();
+    for (int minute = 0; minute < 15; minute++) {
+      state.record(request("acct", "m", 1_000L, START + TimeUnit.MINUTES.toMillis(minute)));
+    }
+    FeatureVector inWindow = state.record(request("acct", "m", 1_000L, START + 60_000L * 14));
+    assertThat(inWindow.getWindow15mCount()).isEqualTo(16);
+
+    FeatureVector later = state.record(request("acct", "m", 1_000L, START + 60_000L * 20));
+    assertThat(later.getWindow15mCount()).isEqualTo(11);
+
+    FeatureVector muchLater =
+        state.record(request("acct", "m", 1_000L, START + TimeUnit.HOURS.toMillis(2)));
+    assertThat(muchLater.getWindow15mCount()).isEqualTo(1);
+  }
+
+  @Test
+  void estimatesTheOtherVelocityWindows() {
+    FallbackFeatureState state = new FallbackFeatureState();
+    state.record(request("acct", "m", 1_000L, START));
+    state.record(request("acct", "m", 1_000L, START + 30_000L));
+    // Half of the previous minute, which held two events, is still inside the last minute.
+    FeatureVector burst = state.record(request("acct", "m", 1_000L, START + 90_000L));
+    assertThat(burst.getAccountVelocity().getCount1m()).isEqualTo(2);
+    assertThat(burst.getAccountVelocity().getCount15m()).isEqualTo(3);
+    assertThat(burst.getAccountVelocity().getCount1h()).isEqualTo(3);
+    assertThat(burst.getAccountVelocity().getCount24h()).isEqualTo(3);
+    assertThat(burst.getMerchantVelocity()).isSameAs(Velocity.NONE);
+
+    Velocity later =
+        state.record(request("acct", "m", 1_000L, START + TimeUnit.HOURS.toMillis(2)))
+            .getAccountVelocity();
+    assertThat(later.getCount1m()).isEqualTo(1);
+    assertThat(later.getCount1h()).isEqualTo(1);
+    assertThat(later.getCount24h()).isEqualTo(4);
+
+    Velocity nextDay =
+        state.record(request("acct", "m", 1_000L, START + TimeUnit.HOURS.toMillis(25)))
+            .getAccountVelocity();
+    assertThat(nextDay.getCount24h()).isEqualTo(2);
+  }
+
+  @Test
+  void flagsOnlyTheFirstVisitToAMerchant() {
+    FallbackFeatureState state = new FallbackFeatureState();
+    assertThat(state.record(request("acct", "m1", 1_000L, START)).getFirstTimeMerchant())
+        .isEqualTo(1);
+    assertThat(state.record(request("acct", "m1", 1_000L, START)).getFirstTimeMerchant()).isZero();
+    assertThat(state.record(request("acct", "m2", 1_000L, START)).getFirstTimeMerchant())
+        .isEqualTo(1);
+    assertThat(state.record(request("other", "m1", 1_000L, START)).getFirstTimeMerchant())
+        .isEqualTo(1);
+  }
+
+  @Test
+  void scoresAmountsAgainstTheRunningMean() {
+    FallbackFeatureState state = new FallbackFeatureState();
+    for (long amount : new long[] {1_000L, 1_100L, 900L, 1_000L}) {
+      state.record(request("acct", null, amount, START));
+    }
+    assertThat(state.record(request("acct", null, 5_000L, START)).getAmountZ()).isGreaterThan(1.5d);
+  }
+
+  @Test
+  void countsARequestOnceWhenItsLoadAndItsFallbackBothRecordIt() {
+    FallbackFeatureState state = new FallbackFeatureState();
+    ScoreRequest request = request("acct", "m1", 1_000L, START);
+    AtomicReference<FeatureVector> recorded = new AtomicReference<>();
+    FeatureVector fallback = state.record(request, recorded);
+    assertThat(state.record(request, recorded)).isSameAs(fallback);
+
+    FeatureVector next = state.record(request("acct", "m1", 1_000L, START));
+    assertThat(next.getWindow15mCount()).isEqualTo(2);
+    assertThat(next.getFirstTimeMerchant()).isZero();
+  }
+
+  @Test
+  void staysWithinItsMemoryBudget() {
+    long maxBytes = FallbackFeatureState.ENTRY_BYTES * FallbackFeatureState.STRIPES * 8;
+    FallbackFeatureState state = new FallbackFeatureState(maxBytes);
+    for (int i = 0; i < 10_000; i++) {
+      state.record(request("acct_" + i, "m", 1_000L, START));
+    }
+    assertThat(state.maxAccounts()).isEqualTo(FallbackFeatureState.STRIPES * 8L);
+    assertThat(state.size()).isLessThanOrEqualTo(state.maxAccounts());
+    assertThat(state.estimatedBytes()).isLessThanOrEqualTo(maxBytes);
+    assertThat(state.evictionCount()).isEqualTo(10_000L - state.size());
+  }
+
+  private static ScoreRequest request(
+      String account, String merchantHash, long amountCents, long epochMillis) {
+    ScoreRequest request = new ScoreRequest();
+    request.setAccountHash(account);
+    request.setMerchantHash(merchantHash);
+    request.setAmountCents(amountCents);
+    request.setEpochMillis(epochMillis);
+    request.setMcc("5411");
+    return request;
+  }
+}
@@ -0,0 +1,102 @@
+package fintechfrauds.serve.scoring;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import fintechfrauds.serve.api.dto.ScoreRequest;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class FeatureAssemblerTest {
+
+  @Test
+  void bundledSchemaKeepsTheServingColumnLayout() {
+    ScoreRequest request = new ScoreRequest();
+    request.setAmountCents(12_345L);
+    request.setDescription("coffee");
+    request.setCountryCode("US");
+    FeatureVector features =
+        new FeatureVector(2.5d, 1, "5411", new Velocity(1, 3, 5, 9), new Velocity(2, 4, 6, 8));
+    float[] row = new float[FeatureAssembler.DEFAULT.width()];
+
+    FeatureAssembler.DEFAULT.write(request, features, row, 0);
+
+    assertThat(FeatureAssembler.DEFAULT.names()).hasSize(13).startsWith("amount", "amount_z");
+    assertThat(row)
+        .containsExactly(
+            12_345L / 1000.0f, 2.5f, 3f, 1f, 6f, "US".hashCode() & 0x7fffffff,
+            1f, 5f, 9f, 2f, 4f, 6f, 8f);
+  }
+
+  @Test
+  void absentRequestFieldsUseTheMissingValue() throws Exception {
+    FeatureAssembler assembler =
+        FeatureAssembler.fromJson(
+            json(
+                """
+                {"features": [
+                  {"name": "amount", "source": "request.amount_cents", "missing": -1},
+                  {"name": "country", "source": "request.country_code", "transform": "hash"}
+                ]}
+                """));
+    float[] row = new float[2];
+
+    assembler.write(new ScoreRequest(), new FeatureVector(0d, 0, 0, null), row, 0);
+
+    assertThat(row).containsExactly(-1f, 0f);
+  }
+
+  @Test
+  void batchMatrixHoldsOnlyTheRequestedLeadingColumns() {
+    ScoreRequest first = new ScoreRequest();
+    first.setAmountCents(1_000L);
+    ScoreRequest second = new ScoreRequest();
+    second.setAmountCents(2_000L);
+    FeatureVector features = new FeatureVector(0.5d, 7, 1, null);
+
+    float[] matrix =
+        FeatureAssembler.DEFAULT.writeBatch(
+            List.of(first, second), List.of(features, features), 4);
+
+    assertThat(matrix).containsExactly(1f, 0.5f, 7f, 1f, 2f, 0.5f, 7f, 1f);
+  }
+
+  @Test
+  void rejectsSchemasServingCannotReproduce() {
+    assertThatThrownBy(
+            () ->
+                FeatureAssembler.fromJson(
+                    json("{\"features\": [{\"name\": \"x\", \"source\": \"request.ip\"}]}")))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("request.ip");
+    assertThatThrownBy(
+            () ->
+                FeatureAssembler.fromJson(
+                    json(
+                        """
+                        {"features": [
+                          {"name": "d", "source": "request.description", "transform": "log1p"}
+                        ]}
+                        """)))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(
+            () ->
+                FeatureAssembler.fromJson(
+                    json(
+                        """
+                        {"features": [
+                          {"name": "z", "source": "features.amount_z"},
+                          {"name": "z", "source": "features.first_merchant"}
+                        ]}
+                        """)))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("duplicate");
+  }
+
+  private static InputStream json(String text) {
+    return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,77 @@
+package fintechfrauds.serve.scoring;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class FeatureCodecTest {
+
+  @Test
+  void decodesWhatItEncodesFromAHash() {
+    byte[] value =
+        FeatureCodec.encodeHash(
+            Map.of(
+                "amountZ", "1.25",
+                "window1mCount", "1",
+                "window15mCount", "3",
+                "window1hCount", "7",
+                "window24hCount", "40",
+                "updatedAt", "1716905400000",
+                "firstTimeMerchant", "1",
+                "mcc", "5411",
+                "n", "12",
+                "mean", "2500.5"));
+    assertThat(value).hasSize(FeatureCodec.HEADER_BYTES + 4);
+    ByteBuffer buffer = ByteBuffer.wrap(value).order(ByteOrder.LITTLE_ENDIAN);
+    assertThat(buffer.getLong(36)).isEqualTo(12L);
+    assertThat(buffer.getDouble(44)).isEqualTo(2500.5d);
+
+    StoredFeatures features = FeatureCodec.decode(value);
+    assertThat(features.amountZ).isEqualTo(1.25d);
+    assertThat(features.firstTimeMerchant).isEqualTo(1);
+    assertThat(features.mcc).isEqualTo("5411");
+    assertThat(features.updatedAt).isEqualTo(1_716_905_400_000L);
+    assertThat(features.velocity.getCount1m()).isEqualTo(1);
+    assertThat(features.velocity.getCount15m()).isEqualTo(3);
+    assertThat(features.velocity.getCount1h()).isEqualTo(7);
+    assertThat(features.velocity.getCount24h()).isEqualTo(40);
+  }
+
+  @Test
+  void keepsMissingFieldsMissing() {
+    StoredFeatures merchant =
+        FeatureCodec.decode(FeatureCodec.encodeHash(Map.of("window15mCount", "2")));
+    assertThat(merchant.firstTimeMerchant).isEqualTo(StoredFeatures.UNKNOWN);
+    assertThat(merchant.mcc).isEqualTo("UNKNOWN");
+    assertThat(merchant.velocity.getCount15m()).isEqualTo(2);
+    assertThat(FeatureCodec.encodeHash(Map.of())).isNull();
+  }
+
+  @Test
+  void rejectsVersionsAndLengthsItDoesNotKnow() {
+    byte[] value = FeatureCodec.encodeHash(Map.of("mcc", "5411", "window15mCount", "2"));
+    byte[] truncated = new byte[value.length - 1];
+    System.arraycopy(value, 0, truncated, 0, truncated.length);
+    assertThat(FeatureCodec.decode(truncated)).isNull();
+
+    value[0] = (byte) (FeatureCodec.VERSION + 1);
+    assertThat(FeatureCodec.decode(value)).isNull();
+    assertThat(FeatureCodec.decode(null)).isNull();
+  }
+
+  @Test
+  void updateScriptPacksTheSameLayout() throws IOException {
+    try (InputStream in = getClass().getResourceAsStream("/redis/update_account_features.lua")) {
+      String script = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+      // u8 x4, f64, i32 x4, i64 x2, f64 x2: 60 bytes, then the mcc.
+      assertThat(script).contains("local CODEC = '<BBBBdi4i4i4i4i8i8dd'");
+      assertThat(script).contains("local CODEC_VERSION = " + FeatureCodec.VERSION);
+    }
+  }
+}
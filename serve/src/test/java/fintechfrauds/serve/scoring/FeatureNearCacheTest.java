@@ -0,0 +1,198 @@
+package fintechfrauds.serve.scoring;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import fintechfrauds.serve.api.dto.ScoreRequest;
+import fintechfrauds.serve.metrics.ScoringMetrics;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.JedisPooled;
+import redis.clients.jedis.commands.ProtocolCommand;
+import redis.clients.jedis.util.SafeEncoder;
+
+class FeatureNearCacheTest {
+
+  private static final long NOW = 1_716_905_400_000L;
+
+  private final AtomicLong clock = new AtomicLong();
+
+  @Test
+  void expiresEntriesAfterTtl() {
+    FeatureNearCache cache = trackingCache(1_000, 50);
+    cache.put("fs:acct:a", cache.stamp("fs:acct:a"), stored(1));
+
+    clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(49));
+    assertThat(cache.get("fs:acct:a")).isNotNull();
+    clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(1));
+    assertThat(cache.get("fs:acct:a")).isNull();
+    assertThat(cache.hitCount()).isEqualTo(1);
+    assertThat(cache.missCount()).isEqualTo(1);
+  }
+
+  @Test
+  void evictsLeastRecentlyUsedOverCapacity() {
+    FeatureNearCache cache = trackingCache(FeatureNearCache.SEGMENTS * 4, 60_000);
+    for (int i = 0; i < 10_000; i++) {
+      String key = "fs:acct:" + i;
+      cache.put(key, cache.stamp(key), stored(i));
+      assertThat(cache.get("fs:acct:0")).isNotNull();
+    }
+    assertThat(cache.size()).isLessThanOrEqualTo(FeatureNearCache.SEGMENTS * 4);
+  }
+
+  @Test
+  void skipsPutsThatRacedWithAnInvalidation() {
+    FeatureNearCache cache = trackingCache(1_000, 60_000);
+    long stamp = cache.stamp("fs:acct:a");
+    cache.invalidate("fs:acct:a");
+    cache.put("fs:acct:a", stamp, stored(1));
+    assertThat(cache.get("fs:acct:a")).isNull();
+
+    cache.put("fs:acct:a", cache.stamp("fs:acct:a"), stored(2));
+    assertThat(cache.get("fs:acct:a").features().amountZ).isEqualTo(2.0d);
+  }
+
+  @Test
+  void bypassesAndEmptiesTheCacheWithoutTracking() {
+    FeatureNearCache cache = trackingCache(1_000, 60_000);
+    cache.put("fs:acct:a", cache.stamp("fs:acct:a"), stored(1));
+    cache.setTracking(false);
+    cache.put("fs:acct:b", cache.stamp("fs:acct:b"), stored(1));
+    assertThat(cache.size()).isZero();
+    assertThat(cache.get("fs:acct:a")).isNull();
+
+    cache.setTracking(true);
+    assertThat(cache.get("fs:acct:a")).isNull();
+  }
+
+  @Test
+  void appliesInvalidationPushes() {
+    FeatureNearCache cache = trackingCache(1_000, 60_000);
+    for (String key : List.of("fs:acct:a", "fs:acct:b", "fs:merch:c")) {
+      cache.put(key, cache.stamp(key), stored(1));
+    }
+    RedisInvalidationListener listener =
+        new RedisInvalidationListener(null, null, List.of("fs:acct:", "fs:merch:"), cache, 1_000);
+
+    listener.handle(Arrays.asList(bytes("invalidate"), List.of(bytes("fs:acct:a"))));
+    listener.handle(bytes("PONG"));
+    assertThat(cache.get("fs:acct:a")).isNull();
+    assertThat(cache.get("fs:acct:b")).isNotNull();
+    assertThat(cache.invalidationCount()).isEqualTo(1);
+    listener.handle(Arrays.asList(bytes("invalidate"), List.of(bytes("fs:merch:c"))));
+    assertThat(cache.get("fs:merch:c")).isNull();
+
+    listener.handle(Arrays.asList(bytes("invalidate"), null));
+    assertThat(cache.size()).isZero();
+  }
+
+  @Test
+  void heartbeatFlushesItsPing() {
+    List<String> calls = new ArrayList<>();
+    RedisInvalidationListener.TrackingConnection connection =
+        new RedisInvalidationListener.TrackingConnection(new HostAndPort("127.0.0.1", 1)) {
+          @Override
+          public void sendCommand(ProtocolCommand command) {
+            calls.add(SafeEncoder.encode(command.getRaw()));
+          }
+
+          @Override
+          protected void flush() {
+            calls.add("flush");
+          }
+        };
+    FeatureNearCache cache = trackingCache(1_000, 60_000);
+    RedisInvalidationListener listener =
+        new RedisInvalidationListener(null, null, List.of("fs:acct:"), cache, 1_000);
+
+    listener.connected(connection);
+    listener.heartbeat();
+
+    assertThat(calls).containsExactly("PING", "flush");
+  }
+
+  @Test
+  void servesCachedFeaturesWithoutCallingRedis() {
+    FeatureNearCache cache = trackingCache(1_000, 60_000);
+    cache.put(
+        "fs:acct:hot",
+        cache.stamp("fs:acct:hot"),
+        StoredFeatures.parse(
+            Map.of(
+                "amountZ", "1.5",
+                "window1mCount", "1",
+                "window15mCount", "3",
+                "window1hCount", "8",
+                "window24hCount", "40",
+                "mcc", "5411",
+                "updatedAt", Long.toString(NOW))));
+    cache.put(
+        "fs:merch:m1",
+        cache.stamp("fs:merch:m1"),
+        StoredFeatures.parse(
+            Map.of(
+                "window1mCount", "4",
+                "window15mCount", "10",
+                "window1hCount", "60",
+                "window24hCount", "900",
+                "updatedAt", Long.toString(NOW - 30_000L))));
+    cache.putAbsent("fs:acct:new", cache.stamp("fs:acct:new"));
+    // Nothing listens on port 1, so any Redis call would fall back to local stats.
+    try (JedisPooled jedis = new JedisPooled("127.0.0.1", 1)) {
+      RedisFeatureStore store =
+          new RedisFeatureStore(
+              jedis, ScoringMetrics.disabled(), cache, new FallbackFeatureState());
+
+      FeatureVector hot = store.loadFeatures(request("hot", "m1", 1_000L));
+      assertThat(hot.getAmountZ()).isEqualTo(1.5d);
+      assertThat(hot.getWindow15mCount()).isEqualTo(3);
+      assertThat(hot.getAccountVelocity().getCount24h()).isEqualTo(40);
+      assertThat(hot.getFirstTimeMerchant()).isEqualTo(1);
+      // The merchant hash is 30 seconds old: half its 1-minute window has slid past.
+      assertThat(hot.getMerchantVelocity().getCount1m()).isEqualTo(2);
+      assertThat(hot.getMerchantVelocity().getCount15m()).isEqualTo(10);
+      assertThat(hot.getMerchantVelocity().getCount24h()).isEqualTo(900);
+      FeatureVector noMerchant = store.loadFeatures(request("hot", null, 1_000L));
+      assertThat(noMerchant.getFirstTimeMerchant()).isZero();
+      assertThat(noMerchant.getMerchantVelocity()).isSameAs(Velocity.NONE);
+
+      store.loadFeatures(request("new", "m1", 1_000L));
+      FeatureVector fresh = store.loadFeatures(request("new", "m1", 1_000L));
+      assertThat(fresh.getWindow15mCount()).isEqualTo(2);
+      assertThat(fresh.getFirstTimeMerchant()).isZero();
+      assertThat(fresh.getMerchantVelocity().getCount1h()).isEqualTo(60);
+      assertThat(cache.hitCount()).isEqualTo(7);
+    }
+  }
+
+  private FeatureNearCache trackingCache(int maxEntries, long ttlMillis) {
+    FeatureNearCache cache = new FeatureNearCache(maxEntries, ttlMillis, clock::get);
+    cache.setTracking(true);
+    return cache;
+  }
+
+  private static StoredFeatures stored(double amountZ) {
+    return StoredFeatures.parse(Map.of("amountZ", Double.toString(amountZ), "mcc", "5411"));
+  }
+
+  private static byte[] bytes(String value) {
+    return value.getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static ScoreRequest request(String account, String merchantHash, long amountCents) {
+    ScoreRequest request = new ScoreRequest();
+    request.setAccountHash(account);
+    request.setMerchantHash(merchantHash);
+    request.setAmountCents(amountCents);
+    request.setEpochMillis(NOW);
+    request.setMcc("5411");
+    return request;
+  }
+}
@@ -0,0 +1,139 @@
+package fintechfrauds.serve.scoring;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import fintechfrauds.serve.api.dto.ScoreRequest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+class MicroBatchingScorerTest {
+
+  @Test
+  void concurrentCallersShareBatchesAndReceiveTheirOwnScores() throws Exception {
+    CountingScorer delegate = new CountingScorer();
+    int callers = 64;
+    ExecutorService pool = Executors.newFixedThreadPool(callers);
+    try (MicroBatchingScorer scorer = new MicroBatchingScorer(delegate, 2_000, 32, 1024)) {
+      CountDownLatch start = new CountDownLatch(1);
+      List<Future<Double>> results = new ArrayList<>();
+      for (int i = 0; i < callers; i++) {
+        long amount = i;
+        results.add(
+            pool.submit(
+                () -> {
+                  start.await();
+                  return scorer.score(request(amount), features());
+                }));
+      }
+      start.countDown();
+      for (int i = 0; i < callers; i++) {
+        assertThat(results.get(i).get()).isEqualTo(i / 1000.0d);
+      }
+    } finally {
+      pool.shutdownNow();
+    }
+    assertThat(delegate.rows.get()).isEqualTo(callers);
+    assertThat(delegate.batches.get()).isLessThan(callers);
+  }
+
+  @Test
+  void loneRequestDoesNotWaitForTheWindowOnceIdle() throws Exception {
+    CountingScorer delegate = new CountingScorer();
+    try (MicroBatchingScorer scorer = new MicroBatchingScorer(delegate, 50_000, 32, 64)) {
+      ExecutorService burst = Executors.newFixedThreadPool(16);
+      try {
+        List<Future<Double>> results = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+          results.add(burst.submit(() -> scorer.score(request(1), features())));
+        }
+        for (Future<Double> result : results) {
+          result.get();
+        }
+      } finally {
+        burst.shutdownNow();
+      }
+      for (int i = 0; i < 32; i++) {
+        scorer.score(request(7), features());
+      }
+      assertThat(scorer.currentWindowNanos()).isZero();
+      long start = System.nanoTime();
+      assertThat(scorer.score(request(7), features())).isEqualTo(0.007d);
+      assertThat(System.nanoTime() - start).isLessThan(50_000_000L);
+    }
+  }
+
+  @Test
+  @Timeout(60)
+  void callsRacingCloseNeverWaitForever() throws Exception {
+    CountingScorer delegate = new CountingScorer();
+    ExecutorService callers = Executors.newFixedThreadPool(8);
+    try {
+      for (int round = 0; round < 200; round++) {
+        MicroBatchingScorer scorer = new MicroBatchingScorer(delegate, 0, 4, 64);
+        AtomicBoolean closed = new AtomicBoolean();
+        List<Future<Integer>> calls = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+          calls.add(
+              callers.submit(
+                  () -> {
+                    int scored = 0;
+                    // Keep calling until after close() has returned.
+                    while (!closed.get()) {
+                      assertThat(scorer.score(request(3), features())).isEqualTo(0.003d);
+                      scored++;
+                    }
+                    scorer.score(request(3), features());
+                    return scored + 1;
+                  }));
+        }
+        Thread.sleep(1);
+        scorer.close();
+        closed.set(true);
+        for (Future<Integer> call : calls) {
+          assertThat(call.get(10, TimeUnit.SECONDS)).isPositive();
+        }
+      }
+    } finally {
+      callers.shutdownNow();
+    }
+  }
+
+  private static ScoreRequest request(long amountCents) {
+    ScoreRequest request = new ScoreRequest();
+    request.setAccountHash("acct");
+    request.setEpochMillis(0L);
+    request.setDescription("TEST");
+    request.setAmountCents(amountCents);
+    return request;
+  }
+
+  private static FeatureVector features() {
+    return new FeatureVector(0.0d, 0, 0, "UNKNOWN");
+  }
+
+  private static final class CountingScorer implements Scorer {
+    private final AtomicInteger batches = new AtomicInteger();
+    private final AtomicInteger rows = new AtomicInteger();
+
+    @Override
+    public double score(ScoreRequest request, FeatureVector features) {
+      return request.getAmountCents() / 1000.0d;
+    }
+
+    @Override
+    public double[] scoreBatch(List<ScoreRequest> requests, List<FeatureVector> features) {
+      batches.incrementAndGet();
+      rows.addAndGet(requests.size());
+      return Scorer.super.scoreBatch(requests, features);
+    }
+  }
+}
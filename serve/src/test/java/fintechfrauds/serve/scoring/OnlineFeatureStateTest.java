@@ -0,0 +1,70 @@
+package fintechfrauds.serve.scoring;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class OnlineFeatureStateTest {
+
+  /** 12:00:30 UTC, half way through its minute. */
+  private static final long NOW = 1_716_897_630_000L;
+
+  private static final long MINUTE = NOW / 60_000L;
+  private static final long HOUR = NOW / 3_600_000L;
+
+  @Test
+  void scoresTheRequestAmountRatherThanTheLastWrittenOne() {
+    // Four earlier amounts of 1000, 1000, 1000 and 3000.
+    OnlineFeatureState state =
+        OnlineFeatureState.parse(List.of("4", "1500", "3000000"), Boolean.TRUE, null, null);
+
+    // Folding in 10000 gives mean 3200 and variance 15_200_000.
+    assertThat(state.amountZ(10_000L)).isCloseTo(6800 / Math.sqrt(15_200_000d), within(1e-9));
+    assertThat(state.amountZ(1_000L)).isLessThan(0.0d);
+    assertThat(OnlineFeatureState.NONE.amountZ(10_000L)).isZero();
+  }
+
+  @Test
+  void estimatesWindowsFromBucketsCountingTheScoredTransaction() {
+    Map<String, String> buckets =
+        Map.of(
+            "m" + MINUTE, "2",
+            "m" + (MINUTE - 1), "4",
+            "m" + (MINUTE - 14), "1",
+            "m" + (MINUTE - 15), "7",
+            "h" + HOUR, "8",
+            "h" + (HOUR - 1), "10",
+            "h" + (HOUR - 24), "6",
+            "h" + (HOUR - 30), "100",
+            "junk", "1");
+
+    Velocity velocity = OnlineFeatureState.velocity(buckets, NOW);
+
+    // 1m: 2 + 1 now, plus half of the previous minute's 4.
+    assertThat(velocity.getCount1m()).isEqualTo(5);
+    assertThat(velocity.getCount15m()).isEqualTo(2 + 4 + 1 + 1);
+    // The hour is 30 seconds old, so nearly all of the previous hour still counts.
+    assertThat(velocity.getCount1h()).isEqualTo(9 + 10);
+    assertThat(velocity.getCount24h()).isEqualTo(9 + 10 + 6);
+  }
+
+  @Test
+  void reportsNoAccountStateWhenTheUpdaterHasWrittenNone() {
+    OnlineFeatureState empty =
+        OnlineFeatureState.parse(Arrays.asList(null, null, null), Boolean.FALSE, Map.of(), null);
+
+    assertThat(empty.hasAccount()).isFalse();
+    assertThat(empty.accountVelocity(NOW)).isNull();
+    assertThat(empty.merchantVelocity(NOW)).isNull();
+
+    OnlineFeatureState merchantOnly =
+        OnlineFeatureState.parse(
+            Arrays.asList(null, null, null), Boolean.FALSE, Map.of(), Map.of("m" + MINUTE, "3"));
+    assertThat(merchantOnly.hasAccount()).isFalse();
+    assertThat(merchantOnly.merchantVelocity(NOW).getCount15m()).isEqualTo(4);
+  }
+}
@@ -0,0 +1,90 @@
+package fintechfrauds.serve.scoring;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import fintechfrauds.serve.api.dto.ScoreRequest;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import redis.clients.jedis.DefaultJedisClientConfig;
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.JedisPooled;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+
+class OnlineFeatureUpdaterTest {
+
+  @Test
+  void disabledUpdaterIgnoresSubmissions() {
+    OnlineFeatureUpdater updater = OnlineFeatureUpdater.disabled();
+    updater.submit(request("acct"));
+    updater.submitAll(List.of(request("acct")));
+    assertThat(updater.isEnabled()).isFalse();
+    assertThat(updater.pending()).isZero();
+    updater.close();
+  }
+
+  @Test
+  void countsUpdatesRedisCouldNotTakeWithoutThrowing() {
+    // Nothing listens on port 1, so every write fails on the writer thread.
+    try (JedisPooled jedis =
+        new JedisPooled(
+            new HostAndPort("127.0.0.1", 1),
+            DefaultJedisClientConfig.builder().connectionTimeoutMillis(200).build())) {
+      OnlineFeatureUpdater updater = new OnlineFeatureUpdater(jedis, 4, 2, Duration.ofDays(1));
+      for (int i = 0; i < 10; i++) {
+        updater.submit(request("acct_" + i));
+      }
+      updater.close();
+      assertThat(updater.writtenCount()).isZero();
+      assertThat(updater.droppedCount() + updater.failedCount()).isEqualTo(10);
+      assertThat(updater.pending()).isZero();
+    }
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void statisticsHashExpiresWithTheMerchantTtl() throws Exception {
+    JedisPooled jedis = mock(JedisPooled.class);
+    Pipeline pipeline = mock(Pipeline.class);
+    Response<Object> response = mock(Response.class);
+    when(jedis.scriptLoad(anyString())).thenReturn("sha");
+    when(jedis.pipelined()).thenReturn(pipeline);
+    when(pipeline.evalsha(anyString(), eq(6), any(String[].class))).thenReturn(response);
+    when(response.get()).thenReturn(1L);
+
+    OnlineFeatureUpdater updater = new OnlineFeatureUpdater(jedis, 4, 2, Duration.ofDays(2));
+    updater.submit(request("acct"));
+    updater.close();
+
+    ArgumentCaptor<String[]> params = ArgumentCaptor.forClass(String[].class);
+    verify(pipeline).evalsha(eq("sha"), eq(6), params.capture());
+    // KEYS[1] is the statistics hash and ARGV[4] the TTL in seconds.
+    assertThat(params.getValue()[0]).isEqualTo("fs:stats:acct");
+    assertThat(params.getValue()[6 + 3]).isEqualTo("172800");
+    assertThat(updater.writtenCount()).isEqualTo(1);
+    try (InputStream in = getClass().getResourceAsStream("/redis/update_account_features.lua")) {
+      String script = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+      assertThat(script).contains("redis.call('EXPIRE', KEYS[1], ARGV[4])");
+    }
+  }
+
+  private static ScoreRequest request(String account) {
+    ScoreRequest request = new ScoreRequest();
+    request.setAccountHash(account);
+    request.setMerchantHash("m1");
+    request.setAmountCents(1_000L);
+    request.setEpochMillis(1_716_905_400_000L);
+    request.setMcc("5411");
+    return request;
+  }
+}
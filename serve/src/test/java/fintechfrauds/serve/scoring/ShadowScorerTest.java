@@ -0,0 +1,62 @@
+package fintechfrauds.serve.scoring;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import fintechfrauds.serve.api.dto.ScoreRequest;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class ShadowScorerTest {
+
+  @Test
+  void dropsChallengerWorkInsteadOfBlockingWhenSaturated() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicInteger scored = new AtomicInteger();
+    Scorer slowChallenger =
+        (request, features) -> {
+          try {
+            release.await(5, TimeUnit.SECONDS);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          scored.incrementAndGet();
+          return 0.42d;
+        };
+    ScoreRequest request = new ScoreRequest();
+    request.setAccountHash("acct");
+    request.setAmountCents(1_000L);
+    request.setDescription("COFFEE");
+    FeatureVector features = new FeatureVector(0.0d, 0, 0, "5411");
+
+    try (ShadowScorer shadow = new ShadowScorer(slowChallenger, new RulesEngine(), 1, 2)) {
+      long start = System.nanoTime();
+      for (int i = 0; i < 10; i++) {
+        shadow.submit("req-" + i, request, features, 0.1d, 0);
+      }
+      long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+      assertThat(elapsedMillis).isLessThan(1_000L);
+      assertThat(shadow.submittedCount()).isEqualTo(10);
+      // One task running plus two queued; everything else is discarded.
+      assertThat(shadow.droppedCount()).isEqualTo(7);
+
+      release.countDown();
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+      while (scored.get() < 3 && System.nanoTime() < deadline) {
+        Thread.sleep(10);
+      }
+      assertThat(scored.get()).isEqualTo(3);
+    }
+  }
+
+  @Test
+  void disabledShadowIgnoresSubmissions() {
+    ShadowScorer shadow = ShadowScorer.disabled();
+    shadow.submit("req", new ScoreRequest(), new FeatureVector(0.0d, 0, 0, "5411"), 0.1d, 0);
+
+    assertThat(shadow.isEnabled()).isFalse();
+    assertThat(shadow.submittedCount()).isZero();
+  }
+}
@@ -0,0 +1,98 @@
+package fintechfrauds.serve.scoring;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import fintechfrauds.serve.config.FintechFraudsProperties;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class StageDeadlinesTest {
+
+  private static final FeatureVector REMOTE = new FeatureVector(1.0d, 1, 0, "5411");
+  private static final FeatureVector LOCAL = new FeatureVector(0.0d, 0, 0, "UNKNOWN");
+
+  @Test
+  void lateStagesFallBackWithinTheBudget() {
+    try (StageDeadlines deadlines = new StageDeadlines(new FintechFraudsProperties())) {
+      long start = System.nanoTime();
+      StageDeadlines.Budget budget = deadlines.start(50L, start);
+
+      FeatureVector features = budget.features(() -> sleepThen(500, REMOTE), () -> LOCAL);
+      double risk = budget.model(() -> sleepThen(500, 0.9d), () -> 0.2d);
+      long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+      assertThat(features).isSameAs(LOCAL);
+      assertThat(risk).isEqualTo(0.2d);
+      assertThat(budget.isDegraded()).isTrue();
+      assertThat(budget.degradedStages()).isEqualTo("features,model");
+      assertThat(elapsedMillis).isLessThan(250L);
+    }
+  }
+
+  @Test
+  void fastStagesAreNotDegraded() {
+    try (StageDeadlines deadlines = new StageDeadlines(new FintechFraudsProperties())) {
+      StageDeadlines.Budget budget = deadlines.start(1_000L, System.nanoTime());
+
+      assertThat(budget.features(() -> REMOTE, () -> LOCAL)).isSameAs(REMOTE);
+      assertThat(budget.model(() -> 0.9d, () -> 0.2d)).isEqualTo(0.9d);
+      assertThat(budget.isDegraded()).isFalse();
+    }
+  }
+
+  @Test
+  void capsHugeRequestedBudgetsInsteadOfOverflowing() {
+    FintechFraudsProperties properties = new FintechFraudsProperties();
+    properties.getScoring().getDeadline().setMaxMillis(1_000L);
+    try (StageDeadlines deadlines = new StageDeadlines(properties)) {
+      StageDeadlines.Budget budget = deadlines.start(Long.MAX_VALUE, System.nanoTime());
+
+      assertThat(budget.features(() -> REMOTE, () -> LOCAL)).isSameAs(REMOTE);
+      assertThat(budget.isDegraded()).isFalse();
+
+      StageDeadlines.Budget capped = deadlines.start(60_000L, System.nanoTime());
+      assertThat(capped.model(() -> sleepThen(1_500, 0.9d), () -> 0.2d)).isEqualTo(0.2d);
+      assertThat(capped.degradedStages()).isEqualTo("model");
+    }
+  }
+
+  @Test
+  void nonPositiveRequestedBudgetsGetTheDefault() {
+    FintechFraudsProperties properties = new FintechFraudsProperties();
+    properties.getScoring().getDeadline().setDefaultMillis(50L);
+    try (StageDeadlines deadlines = new StageDeadlines(properties)) {
+      for (long requested : new long[] {0L, -1L}) {
+        StageDeadlines.Budget budget = deadlines.start(requested, System.nanoTime());
+        assertThat(budget.model(() -> sleepThen(500, 0.9d), () -> 0.2d)).isEqualTo(0.2d);
+        assertThat(budget.degradedStages()).isEqualTo("model");
+      }
+    }
+  }
+
+  @Test
+  void failingStageFallsBackAndNoBudgetRunsInline() {
+    FintechFraudsProperties properties = new FintechFraudsProperties();
+    try (StageDeadlines deadlines = new StageDeadlines(properties)) {
+      StageDeadlines.Budget budget = deadlines.start(1_000L, System.nanoTime());
+      FeatureVector features =
+          budget.features(
+              () -> {
+                throw new IllegalStateException("redis down");
+              },
+              () -> LOCAL);
+      assertThat(features).isSameAs(LOCAL);
+      assertThat(budget.degradedStages()).isEqualTo("features");
+
+      Thread caller = Thread.currentThread();
+      StageDeadlines.Budget unbounded = deadlines.start(null, System.nanoTime());
+      assertThat(unbounded.model(() -> Thread.currentThread() == caller ? 0.5d : 0.0d, () -> 0.1d))
+          .isEqualTo(0.5d);
+      assertThat(unbounded.isDegraded()).isFalse();
+    }
+  }
+
+  private static <T> T sleepThen(long millis, T value) throws InterruptedException {
+    Thread.sleep(millis);
+    return value;
+  }
+}
@@ -0,0 +1,107 @@
+package fintechfrauds.serve.scoring;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.Random;
+import ml.dmlc.xgboost4j.java.Booster;
+import org.junit.jupiter.api.Test;
+
+class TreeBytecodeCompilerTest {
+
+  @Test
+  void compiledMarginMatchesInterpreterIncludingMissingValues() throws Exception {
+    TreeEnsemble ensemble =
+        TreeEnsemble.fromJsonDump(TreeEnsembleTest.DUMPS, 0.25f, TreeEnsemble.Link.IDENTITY);
+
+    Optional<TreeMargin> compiled = TreeBytecodeCompiler.compile(ensemble, false);
+
+    assertThat(compiled).isPresent();
+    assertThat(compiled.get().getClass().isHidden()).isTrue();
+    float[][] rows = {
+      {5f, 0f, 1f, 0f}, {10f, 0f, 3f, 1f}, {Float.NaN, 0f, Float.NaN, Float.NaN}, {11f, 0f, 2f, 0.5f}
+    };
+    for (float[] row : rows) {
+      assertThat(compiled.get().margin(row)).isEqualTo(ensemble.margin(row));
+    }
+  }
+
+  @Test
+  void compiledTrainedModelMatchesInterpreter() throws Exception {
+    Booster booster = TreeEnsembleTest.trainOrSkip();
+    try {
+      TreeEnsemble ensemble = TreeEnsemble.fromBooster(booster);
+      TreeMargin compiled = TreeBytecodeCompiler.compile(ensemble, false).orElseThrow();
+      Random random = new Random(5);
+      float[] row = new float[XgbScorer.FEATURE_COUNT];
+      for (int r = 0; r < 1_000; r++) {
+        for (int c = 0; c < row.length; c++) {
+          row[c] = random.nextInt(15) == 0 ? Float.NaN : (float) random.nextGaussian() * 4f;
+        }
+        assertThat(compiled.margin(row)).isCloseTo(ensemble.margin(row), within(1e-5f));
+      }
+    } finally {
+      booster.dispose();
+    }
+  }
+
+  @Test
+  void addsTreesToTheBaseMarginInTheInterpretersOrder() throws Exception {
+    // At 1e8 a float cannot hold +1, so summing the leaves first would give a different margin.
+    String[] dumps = new String[600];
+    Arrays.fill(dumps, "{\"nodeid\":0,\"leaf\":1.0}");
+    TreeEnsemble ensemble = TreeEnsemble.fromJsonDump(dumps, 1e8f, TreeEnsemble.Link.IDENTITY);
+
+    TreeMargin compiled = TreeBytecodeCompiler.compile(ensemble, false).orElseThrow();
+
+    float[] row = {0f};
+    assertThat(compiled.margin(row)).isEqualTo(ensemble.margin(row)).isEqualTo(1e8f);
+  }
+
+  @Test
+  void fallsBackWhenTreesExceedTheInliningLimit() throws Exception {
+    // A depth-6 tree is about 1300 bytes and a depth-1 tree about 25, against a FreqInlineSize
+    // of 325 by default.
+    TreeEnsemble deep =
+        TreeEnsemble.fromJsonDump(new String[] {tree(6)}, 0f, TreeEnsemble.Link.IDENTITY);
+    TreeEnsemble shallow =
+        TreeEnsemble.fromJsonDump(
+            new String[] {tree(1), tree(1)}, 0f, TreeEnsemble.Link.IDENTITY);
+
+    assertThat(TreeBytecodeCompiler.compile(deep, true)).isEmpty();
+    assertThat(TreeBytecodeCompiler.compile(deep, false)).isPresent();
+    assertThat(TreeBytecodeCompiler.compile(shallow, true)).isPresent();
+  }
+
+  /** A JSON dump of a full tree of {@code depth} levels of splits on features 0 to 3. */
+  private static String tree(int depth) {
+    return node(0, 0, depth);
+  }
+
+  private static String node(int id, int level, int depth) {
+    if (level == depth) {
+      return "{\"nodeid\":" + id + ",\"leaf\":" + (id % 7 - 3) / 10.0 + "}";
+    }
+    int yes = 2 * id + 1;
+    int no = 2 * id + 2;
+    return "{\"nodeid\":"
+        + id
+        + ",\"split\":\"f"
+        + level % 4
+        + "\",\"split_condition\":"
+        + id
+        + ",\"yes\":"
+        + yes
+        + ",\"no\":"
+        + no
+        + ",\"missing\":"
+        + (id % 2 == 0 ? yes : no)
+        + ",\"children\":["
+        + node(yes, level + 1, depth)
+        + ","
+        + node(no, level + 1, depth)
+        + "]}";
+  }
+}
@@ -0,0 +1,123 @@
+package fintechfrauds.serve.scoring;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import fintechfrauds.serve.api.dto.ScoreRequest;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import ml.dmlc.xgboost4j.java.Booster;
+import ml.dmlc.xgboost4j.java.DMatrix;
+import ml.dmlc.xgboost4j.java.XGBoost;
+import org.junit.jupiter.api.Test;
+
+class TreeEnsembleTest {
+
+  static final String[] DUMPS = {
+    """
+    {"nodeid":0,"depth":0,"split":"f0","split_condition":10.0,"yes":1,"no":2,"missing":2,
+     "children":[{"nodeid":1,"leaf":-0.5},
+                 {"nodeid":2,"depth":1,"split":"f3","split_condition":0.5,"yes":3,"no":4,"missing":3,
+                  "children":[{"nodeid":3,"leaf":0.25},{"nodeid":4,"leaf":0.75}]}]}
+    """,
+    """
+    {"nodeid":0,"depth":0,"split":"f2","split_condition":3.0,"yes":1,"no":2,"missing":1,
+     "children":[{"nodeid":1,"leaf":0.1},{"nodeid":2,"leaf":-0.2}]}
+    """
+  };
+
+  @Test
+  void walksSplitsWithXgboostSemantics() throws Exception {
+    TreeEnsemble ensemble =
+        TreeEnsemble.fromJsonDump(DUMPS, 0.0f, TreeEnsemble.Link.IDENTITY);
+
+    assertThat(ensemble.treeCount()).isEqualTo(2);
+    assertThat(ensemble.maxFeatureIndex()).isEqualTo(3);
+    assertThat(ensemble.margin(new float[] {5f, 0f, 1f, 0f})).isEqualTo(-0.4f);
+    // Equal to the threshold goes right, like XGBoost's strict less-than.
+    assertThat(ensemble.margin(new float[] {10f, 0f, 3f, 1f})).isEqualTo(0.55f);
+    // NaN follows the missing branch of each split.
+    assertThat(ensemble.margin(new float[] {Float.NaN, 0f, Float.NaN, Float.NaN}))
+        .isEqualTo(0.35f);
+  }
+
+  @Test
+  void matchesNativePredictorOnTrainedModel() throws Exception {
+    Booster booster = trainOrSkip();
+    try {
+      TreeEnsemble ensemble = TreeEnsemble.fromBooster(booster);
+      int width = XgbScorer.FEATURE_COUNT;
+      Random random = new Random(3);
+      float[] rows = new float[500 * width];
+      for (int i = 0; i < rows.length; i++) {
+        rows[i] = random.nextInt(20) == 0 ? Float.NaN : (float) random.nextGaussian() * 4f;
+      }
+      DMatrix matrix = new DMatrix(rows, 500, width, Float.NaN);
+      float[][] expected = booster.predict(matrix);
+      matrix.dispose();
+      float[] row = new float[width];
+      for (int r = 0; r < 500; r++) {
+        System.arraycopy(rows, r * width, row, 0, width);
+        assertThat(ensemble.predict(row)).isCloseTo(expected[r][0], within(1e-5d));
+      }
+    } finally {
+      booster.dispose();
+    }
+  }
+
+  @Test
+  void xgbScorerFeedsOlderModelsOnlyTheColumnsTheyKnow() throws Exception {
+    Booster booster = trainOrSkip(6);
+    try (XgbScorer scorer = new XgbScorer(booster)) {
+      ScoreRequest request = new ScoreRequest();
+      request.setAmountCents(12_000L);
+      FeatureVector features =
+          new FeatureVector(2.0d, 1, "5411", new Velocity(1, 3, 5, 9), new Velocity(2, 4, 6, 8));
+      float[] row = new float[XgbScorer.FEATURE_COUNT];
+      XgbScorer.writeFeatures(request, features, row, 0);
+      DMatrix matrix = new DMatrix(row, 1, 6, Float.NaN);
+      float expected = booster.predict(matrix)[0][0];
+      matrix.dispose();
+
+      assertThat(scorer.score(request, features)).isEqualTo(XgbScorer.toRisk(expected));
+      assertThat(scorer.scoreBatch(List.of(request, request), List.of(features, features)))
+          .containsExactly(XgbScorer.toRisk(expected), XgbScorer.toRisk(expected));
+    }
+  }
+
+  static Booster trainOrSkip() {
+    return trainOrSkip(XgbScorer.FEATURE_COUNT);
+  }
+
+  static Booster trainOrSkip(int width) {
+    try {
+      int rows = 2_000;
+      Random random = new Random(11);
+      float[] data = new float[rows * width];
+      float[] labels = new float[rows];
+      for (int r = 0; r < rows; r++) {
+        for (int c = 0; c < width; c++) {
+          data[r * width + c] = (float) random.nextGaussian() * 4f;
+        }
+        labels[r] = data[r * width] + data[r * width + 1] * data[r * width + 3] > 1f ? 1f : 0f;
+      }
+      DMatrix train = new DMatrix(data, rows, width, Float.NaN);
+      train.setLabel(labels);
+      Map<String, Object> params = new HashMap<>();
+      params.put("objective", "binary:logistic");
+      params.put("max_depth", 4);
+      params.put("eta", 0.3);
+      params.put("base_score", 0.3);
+      params.put("nthread", 1);
+      Booster booster = XGBoost.train(train, params, 40, new HashMap<>(), null, null);
+      train.dispose();
+      return booster;
+    } catch (Throwable e) {
+      assumeTrue(false, "XGBoost native runtime unavailable: " + e);
+      return null;
+    }
+  }
+}
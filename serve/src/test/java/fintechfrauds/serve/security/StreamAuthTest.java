@@ -0,0 +1,172 @@
+package fintechfrauds.serve.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+@SpringBootTest(properties = "fintechfrauds.security.streamMaxRows=3")
+@AutoConfigureMockMvc
+@ActiveProfiles("prod")
+class StreamAuthTest {
+
+  private static final String STREAM = "/v1/score/stream";
+  private static final String API_KEY = "demo_key";
+  private static final String API_SECRET = "demo_shared_secret_please_rotate";
+  private static final String LINE =
+      "{\"accountHash\":\"acct_stream\",\"epochMillis\":1700000000000,\"amountCents\":1200,"
+          + "\"description\":\"COFFEE\",\"merchantHash\":\"m_stream\",\"mcc\":\"5411\"}";
+
+  @Autowired private MockMvc mockMvc;
+  @Autowired private HmacVerifier hmacVerifier;
+  @Autowired private ObjectMapper objectMapper;
+
+  @Test
+  void scoresChunksOnlyAfterTheirSignatureVerifies() throws Exception {
+    HttpHeaders headers = headers(STREAM);
+    String first = LINE + "\n" + LINE + "\n";
+    String second = LINE + "\n";
+    String firstSignature = chunkSignature(headers.getFirst("X-Signature"), first);
+    String body =
+        first
+            + StreamChunkVerifier.SIGNATURE_PREFIX
+            + firstSignature
+            + "\n"
+            + second
+            + StreamChunkVerifier.SIGNATURE_PREFIX
+            + chunkSignature(firstSignature, second)
+            + "\n";
+
+    List<JsonNode> responses = stream(headers, body);
+
+    assertThat(responses).hasSize(3);
+    assertThat(responses).allMatch(response -> response.has("risk"));
+    assertThat(responses.get(2).path("line").asInt()).isEqualTo(4);
+  }
+
+  @Test
+  void rejectsReplayedHeaders() throws Exception {
+    HttpHeaders headers = headers(STREAM);
+    String body = signed(headers, LINE + "\n");
+    assertThat(stream(headers, body)).hasSize(1);
+
+    headers.set("X-Idempotency-Key", UUID.randomUUID().toString());
+    mockMvc
+        .perform(post(STREAM).headers(headers).contentType("application/x-ndjson").content(body))
+        .andExpect(status().isUnauthorized());
+  }
+
+  @Test
+  void rejectsHeadersSignedForAnotherRoute() throws Exception {
+    HttpHeaders headers = headers("/v1/score/batch");
+    mockMvc
+        .perform(
+            post(STREAM)
+                .headers(headers)
+                .contentType("application/x-ndjson")
+                .content(signed(headers, LINE + "\n")))
+        .andExpect(status().isUnauthorized());
+  }
+
+  @Test
+  void doesNotScoreTamperedOrUnsignedLines() throws Exception {
+    HttpHeaders tamperedHeaders = headers(STREAM);
+    String signature = chunkSignature(tamperedHeaders.getFirst("X-Signature"), LINE + "\n");
+    String tampered =
+        LINE.replace("1200", "999999") + "\n" + StreamChunkVerifier.SIGNATURE_PREFIX + signature;
+    List<JsonNode> rejected = stream(tamperedHeaders, tampered + "\n");
+    assertThat(rejected).hasSize(1);
+    assertThat(rejected.get(0).path("error").asText()).isEqualTo("Chunk signature mismatch");
+
+    HttpHeaders trailingHeaders = headers(STREAM);
+    String trailing = signed(trailingHeaders, LINE + "\n") + LINE + "\n";
+    List<JsonNode> responses = stream(trailingHeaders, trailing);
+    assertThat(responses).hasSize(2);
+    assertThat(responses.get(0).has("risk")).isTrue();
+    assertThat(responses.get(1).path("error").asText())
+        .isEqualTo("Stream ended without a chunk signature");
+  }
+
+  @Test
+  void capsTheRowsOfOneStream() throws Exception {
+    HttpHeaders headers = headers(STREAM);
+    String first = LINE + "\n" + LINE + "\n";
+    String second = LINE + "\n" + LINE + "\n";
+    String firstSignature = chunkSignature(headers.getFirst("X-Signature"), first);
+    String body =
+        first
+            + StreamChunkVerifier.SIGNATURE_PREFIX
+            + firstSignature
+            + "\n"
+            + second
+            + StreamChunkVerifier.SIGNATURE_PREFIX
+            + chunkSignature(firstSignature, second)
+            + "\n";
+
+    List<JsonNode> responses = stream(headers, body);
+
+    assertThat(responses).hasSize(3);
+    assertThat(responses.get(2).path("error").asText()).isEqualTo("Stream exceeds 3 rows");
+  }
+
+  private List<JsonNode> stream(HttpHeaders headers, String body) throws Exception {
+    String content =
+        mockMvc
+            .perform(
+                post(STREAM).headers(headers).contentType("application/x-ndjson").content(body))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+    return content.lines().filter(line -> !line.isBlank()).map(this::read).toList();
+  }
+
+  private JsonNode read(String line) {
+    try {
+      return objectMapper.readTree(line);
+    } catch (Exception e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private String signed(HttpHeaders headers, String chunk) {
+    return chunk
+        + StreamChunkVerifier.SIGNATURE_PREFIX
+        + chunkSignature(headers.getFirst("X-Signature"), chunk)
+        + "\n";
+  }
+
+  private String chunkSignature(String previous, String chunk) {
+    String hash =
+        HexFormat.of().formatHex(DigestUtils.sha256(chunk.getBytes(StandardCharsets.UTF_8)));
+    return hmacVerifier.sign(API_SECRET, hmacVerifier.canonicalChunk(previous, hash));
+  }
+
+  private HttpHeaders headers(String signedPath) {
+    String timestamp = Instant.now().toString();
+    String nonce = UUID.randomUUID().toString();
+    String canonical = hmacVerifier.canonicalStreamRequest("POST", signedPath, timestamp, nonce);
+    HttpHeaders headers = new HttpHeaders();
+    headers.add("X-Api-Key", API_KEY);
+    headers.add("X-Timestamp", timestamp);
+    headers.add("X-Nonce", nonce);
+    headers.add("X-Signature", hmacVerifier.sign(API_SECRET, canonical));
+    headers.add("X-Idempotency-Key", UUID.randomUUID().toString());
+    return headers;
+  }
+}
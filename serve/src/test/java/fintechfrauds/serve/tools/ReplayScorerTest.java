@@ -0,0 +1,126 @@
+package fintechfrauds.serve.tools;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fintechfrauds.serve.scoring.DummyScorer;
+import fintechfrauds.serve.scoring.FeatureStore;
+import fintechfrauds.serve.scoring.FeatureVector;
+import fintechfrauds.serve.scoring.RulesEngine;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+@Timeout(30)
+class ReplayScorerTest {
+
+  private static final String VALID =
+      "{\"accountHash\":\"acct_1\",\"epochMillis\":1700000000000,\"amountCents\":1200,"
+          + "\"description\":\"COFFEE\",\"merchantHash\":\"m_1\",\"mcc\":\"5411\"}";
+
+  private final ObjectMapper mapper = new ObjectMapper();
+  private final Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+  private final FeatureStore features = request -> new FeatureVector(0.0d, 0, 0, "5411");
+
+  @TempDir Path dir;
+
+  @Test
+  void countsBadLinesAsErrorsAndKeepsScoring() throws Exception {
+    String missingAmount = VALID.replace("\"amountCents\":1200,", "");
+    Path input =
+        write(
+            "requests.jsonl",
+            List.of(VALID, "null", missingAmount, "{not json", VALID, "[]", VALID));
+    Path output = dir.resolve("results.jsonl");
+
+    new ReplayScorer.Replay(mapper, features, new DummyScorer(), new RulesEngine(), validator)
+        .run(input, 2, output);
+
+    List<JsonNode> results =
+        Files.readAllLines(output).stream()
+            .map(this::read)
+            .sorted(Comparator.comparingLong(node -> node.path("line").asLong()))
+            .toList();
+    assertThat(results).hasSize(7);
+    assertThat(results)
+        .extracting(node -> node.has("risk"))
+        .containsExactly(true, false, false, false, true, false, true);
+    assertThat(results.get(1).path("error").asText()).isEqualTo("Not a request");
+    assertThat(results.get(2).path("error").asText()).startsWith("amountCents");
+    assertThat(results.get(3).path("error").asText()).isEqualTo("Malformed JSON");
+  }
+
+  @Test
+  void countsScoringFailuresAsErrors() throws Exception {
+    Path input = write("requests.jsonl", List.of(VALID, VALID, VALID));
+    Path output = dir.resolve("results.jsonl");
+    FeatureStore failing =
+        request -> {
+          throw new IllegalStateException("store down");
+        };
+
+    new ReplayScorer.Replay(mapper, failing, new DummyScorer(), new RulesEngine(), validator)
+        .run(input, 2, output);
+
+    assertThat(Files.readAllLines(output))
+        .hasSize(3)
+        .allMatch(line -> read(line).path("error").asText().contains("store down"));
+  }
+
+  @Test
+  void failsInsteadOfHangingOnceEveryWorkerHasDied() throws Exception {
+    // More lines than the queue holds, so the reader would block on a dead pool.
+    Path input = write("requests.jsonl", Collections.nCopies(5_000, VALID));
+    FeatureStore fatal =
+        request -> {
+          throw new AssertionError("worker killed");
+        };
+
+    ReplayScorer.Replay replay =
+        new ReplayScorer.Replay(mapper, fatal, new DummyScorer(), new RulesEngine(), validator);
+
+    assertThatThrownBy(() -> replay.run(input, 2, null))
+        .isInstanceOf(IllegalStateException.class)
+        .hasMessageContaining("worker");
+  }
+
+  @Test
+  void failsInsteadOfHangingWhenTheWriterDies() throws Exception {
+    // More results than the writer's queue holds, so workers would block on a dead writer.
+    Path input = write("requests.jsonl", Collections.nCopies(20_000, VALID));
+    Path output = Files.createDirectory(dir.resolve("results"));
+
+    ReplayScorer.Replay replay =
+        new ReplayScorer.Replay(mapper, features, new DummyScorer(), new RulesEngine(), validator);
+
+    assertThatThrownBy(() -> replay.run(input, 2, output))
+        .isInstanceOf(IllegalStateException.class)
+        .hasMessageContaining("Unable to write")
+        .hasCauseInstanceOf(IOException.class);
+  }
+
+  private Path write(String name, List<String> lines) throws Exception {
+    Path file = dir.resolve(name);
+    Files.write(file, lines, StandardCharsets.UTF_8);
+    return file;
+  }
+
+  private JsonNode read(String line) {
+    try {
+      return mapper.readTree(line);
+    } catch (Exception e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
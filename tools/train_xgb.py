@@ -1,34 +1,109 @@
+"""Trains a demo XGBoost model on synthetic data.
+
+Columns come from the feature schema that serving compiles into its FeatureAssembler
+(serve/src/main/resources/feature-schema.json by default), in the same order and with the
+same transforms, so the model reads exactly the rows the service writes. Pass --schema to
+train against another schema file and --columns to train on its leading columns only.
+"""
+
+import argparse
+import json
+from pathlib import Path
+
 import numpy as np
 from sklearn.model_selection import train_test_split
 from xgboost import XGBClassifier
 
-rng = np.random.default_rng(42)
-N = 20000
+DEFAULT_SCHEMA = (
+    Path(__file__).resolve().parent.parent / "serve/src/main/resources/feature-schema.json"
+)
+COUNTRIES = ["US", "GB", "DE", "FR", "NG", "BR", "IN", "CA"]
 
-amountZ = rng.normal(0, 1, N)
-window15 = rng.poisson(2, N)
-first = (rng.random(N) < 0.1).astype(int)
-amount = np.exp(rng.normal(12, 1, N))
 
-X = np.vstack([np.log1p(amount), amountZ, window15, first]).T
+def java_string_hash(text):
+    """String.hashCode for BMP text, masked to non-negative like the HASH transform."""
+    h = 0
+    for ch in text:
+        h = (31 * h + ord(ch)) & 0xFFFFFFFF
+    return h & 0x7FFFFFFF
 
-y = ((amountZ > 3.0) & (window15 > 10) | (first & (np.log1p(amount) > 14))).astype(int)
 
-Xtr, Xte, ytr, yte = train_test_split(X, y, test_size=0.2, random_state=13)
-Xtr = Xtr.astype("float32")
-Xte = Xte.astype("float32")
-ytr = ytr.astype("float32")
-yte = yte.astype("float32")
+def synthetic_sources(rng, n):
+    """Raw values for every source the schema may name, keyed like FeatureAssembler.Source."""
+    account15 = rng.poisson(2, n)
+    merchant15 = rng.poisson(8, n)
+    return {
+        "request.amount_cents": np.round(np.exp(rng.normal(9, 1.5, n))),
+        "request.description": [" " * int(k) for k in rng.integers(0, 40, n)],
+        "request.country_code": list(rng.choice(COUNTRIES, n)),
+        "features.amount_z": rng.normal(0, 1, n),
+        "features.first_merchant": (rng.random(n) < 0.1).astype(int),
+        "account.count_1m": rng.binomial(account15, 0.2),
+        "account.count_15m": account15,
+        "account.count_1h": account15 + rng.poisson(4, n),
+        "account.count_24h": account15 + rng.poisson(30, n),
+        "merchant.count_1m": rng.binomial(merchant15, 0.2),
+        "merchant.count_15m": merchant15,
+        "merchant.count_1h": merchant15 + rng.poisson(20, n),
+        "merchant.count_24h": merchant15 + rng.poisson(300, n),
+    }
 
-clf = XGBClassifier(
-    n_estimators=200,
-    max_depth=6,
-    learning_rate=0.1,
-    subsample=0.9,
-    colsample_bytree=0.8,
-    reg_lambda=1.0,
-    n_jobs=4,
-)
-clf.fit(Xtr, ytr, eval_set=[(Xte, yte)], verbose=False)
-clf.get_booster().save_model("model.xgb")
-print("wrote model.xgb")
+
+def column(feature, raw):
+    """Applies one schema column's transform, in float32 like the Java assembler."""
+    transform = feature.get("transform", "identity")
+    missing = np.float32(feature.get("missing", 0))
+    if transform == "length":
+        return np.array([missing if v is None else len(v) for v in raw], dtype=np.float32)
+    if transform == "hash":
+        return np.array(
+            [missing if v is None else java_string_hash(v) for v in raw], dtype=np.float32
+        )
+    values = np.asarray(raw, dtype=np.float64)
+    if transform == "divide":
+        return values.astype(np.float32) / np.float32(feature.get("divisor", 1))
+    if transform == "log1p":
+        return np.log1p(values).astype(np.float32)
+    if transform == "identity":
+        return values.astype(np.float32)
+    raise ValueError(f"unknown transform {transform} for {feature['name']}")
+
+
+def main():
+    parser = argparse.ArgumentParser()
+    parser.add_argument("--schema", type=Path, default=DEFAULT_SCHEMA)
+    parser.add_argument("--columns", type=int, default=0, help="leading columns; 0 for all")
+    parser.add_argument("--rows", type=int, default=20000)
+    parser.add_argument("--out", default="model.xgb")
+    args = parser.parse_args()
+
+    features = json.loads(args.schema.read_text())["features"]
+    if args.columns:
+        features = features[: args.columns]
+    rng = np.random.default_rng(42)
+    sources = synthetic_sources(rng, args.rows)
+    X = np.column_stack([column(f, sources[f["source"]]) for f in features])
+
+    amount_z = sources["features.amount_z"]
+    burst = sources["account.count_15m"]
+    first = sources["features.first_merchant"]
+    amount = sources["request.amount_cents"]
+    y = ((amount_z > 3.0) & (burst > 10) | (first & (amount > 100_000))).astype("float32")
+
+    Xtr, Xte, ytr, yte = train_test_split(X, y, test_size=0.2, random_state=13)
+    clf = XGBClassifier(
+        n_estimators=200,
+        max_depth=6,
+        learning_rate=0.1,
+        subsample=0.9,
+        colsample_bytree=0.8,
+        reg_lambda=1.0,
+        n_jobs=4,
+    )
+    clf.fit(Xtr, ytr, eval_set=[(Xte, yte)], verbose=False)
+    clf.get_booster().save_model(args.out)
+    print(f"wrote {args.out} with {X.shape[1]} columns: {', '.join(f['name'] for f in features)}")
+
+
+if __name__ == "__main__":
+    main()